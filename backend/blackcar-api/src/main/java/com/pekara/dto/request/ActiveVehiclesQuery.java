@@ -0,0 +1,24 @@
+package com.pekara.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Map viewport for the active vehicles endpoint. The bounding box is optional (all four corners or
+ * none); a zoom level below the clustering threshold groups nearby vehicles into clusters.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActiveVehiclesQuery {
+    private Double minLatitude;
+    private Double minLongitude;
+    private Double maxLatitude;
+    private Double maxLongitude;
+    private Integer zoom;
+    private int page;
+    private int size;
+}
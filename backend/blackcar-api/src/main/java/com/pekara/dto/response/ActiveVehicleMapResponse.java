@@ -0,0 +1,26 @@
+package com.pekara.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of the vehicles visible in a viewport, plus clusters for groups too dense to show
+ * individually at the requested zoom. {@code version} is the content hash of the snapshot it was
+ * cut from.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActiveVehicleMapResponse {
+    private String version;
+    private List<ActiveVehicleResponse> vehicles;
+    private List<VehicleClusterResponse> clusters;
+    private long totalVehicles;
+    private int page;
+    private int size;
+}
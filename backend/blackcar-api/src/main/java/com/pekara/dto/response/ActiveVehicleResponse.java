@@ -0,0 +1,22 @@
+package com.pekara.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActiveVehicleResponse {
+    private Long vehicleId;
+    private String vehicleType;
+    private String licensePlate;
+    private Double latitude;
+    private Double longitude;
+    private Boolean busy;
+    private Long driverId;
+    private String driverFirstName;
+    private String driverLastName;
+}
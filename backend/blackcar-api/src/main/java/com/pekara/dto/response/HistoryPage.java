@@ -0,0 +1,25 @@
+package com.pekara.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a ride history, newest first. {@code nextCursor} continues right after the last
+ * row of this page and is null on the last page. When the page was reached through a cursor,
+ * {@code totalElements} is the count taken on the first page rather than a fresh one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HistoryPage<T> {
+    private List<T> content;
+    private int page;
+    private int size;
+    private long totalElements;
+    private String nextCursor;
+}
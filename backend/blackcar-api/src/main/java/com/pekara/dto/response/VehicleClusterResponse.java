@@ -0,0 +1,17 @@
+package com.pekara.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VehicleClusterResponse {
+    private Double latitude;
+    private Double longitude;
+    private Integer count;
+    private Integer busyCount;
+}
@@ -4,15 +4,18 @@ import com.pekara.constant.RideStatsScope;
 import com.pekara.dto.response.AdminRideDetailResponse;
 import com.pekara.dto.response.AdminRideHistoryResponse;
 import com.pekara.dto.response.DriverBasicDto;
+import com.pekara.dto.response.HistoryPage;
 import com.pekara.dto.response.PassengerBasicDto;
 import com.pekara.dto.response.RideStatsResponse;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface AdminService {
 
-    List<AdminRideHistoryResponse> getAllRidesHistory(LocalDateTime startDate, LocalDateTime endDate);
+    HistoryPage<AdminRideHistoryResponse> getAllRidesHistory(LocalDateTime startDate, LocalDateTime endDate,
+                                                             int page, int size, String cursor);
 
     List<AdminRideHistoryResponse> getActiveRides();
 
@@ -20,6 +23,11 @@ public interface AdminService {
 
     RideStatsResponse getRideStatsAdmin(LocalDateTime startDate, LocalDateTime endDate, RideStatsScope scope, Long userId);
 
+    /**
+     * Recomputes the pre-aggregated daily ride stats for the given days and returns the number of rows written.
+     */
+    int rebuildRideStats(LocalDate from, LocalDate to);
+
     List<DriverBasicDto> listDriversForAdmin();
 
     List<PassengerBasicDto> listPassengersForAdmin();
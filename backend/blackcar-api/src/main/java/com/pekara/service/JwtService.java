@@ -1,12 +1,24 @@
 package com.pekara.service;
 
+import java.time.Instant;
+import java.util.Optional;
+
 public interface JwtService {
 
     String generateToken(String email, String role);
 
+    /**
+     * Verifies the token and returns who it was issued to, or empty if it is malformed, forged or
+     * expired. Prefer this over the single-claim getters, which verify the token again on every call.
+     */
+    Optional<TokenPrincipal> authenticate(String token);
+
     String getEmailFromToken(String token);
 
     String getRoleFromToken(String token);
 
     boolean isTokenValid(String token);
+
+    record TokenPrincipal(String email, String role, Instant expiresAt) {
+    }
 }
@@ -7,6 +7,7 @@ import com.pekara.dto.request.OrderRideRequest;
 import com.pekara.dto.request.RideRatingRequest;
 import com.pekara.dto.response.ActiveRideResponse;
 import com.pekara.dto.response.DriverRideHistoryResponse;
+import com.pekara.dto.response.HistoryPage;
 import com.pekara.dto.response.OrderRideResponse;
 import com.pekara.dto.response.PassengerRideDetailResponse;
 import com.pekara.dto.response.PassengerRideHistoryResponse;
@@ -16,10 +17,13 @@ import com.pekara.dto.response.RideStatsResponse;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface RideService {
     RideEstimateResponse estimateRide(EstimateRideRequest request);
 
+    CompletableFuture<RideEstimateResponse> estimateRideAsync(EstimateRideRequest request);
+
     OrderRideResponse orderRide(String creatorEmail, OrderRideRequest request);
 
     void startRide(Long rideId, String driverEmail);
@@ -36,9 +40,11 @@ public interface RideService {
 
     void stopRideEarly(Long rideId, String driverEmail, LocationPointDto actualStopLocation);
 
-    List<DriverRideHistoryResponse> getDriverRideHistory(String driverEmail, LocalDateTime startDate, LocalDateTime endDate);
+    HistoryPage<DriverRideHistoryResponse> getDriverRideHistory(String driverEmail, LocalDateTime startDate, LocalDateTime endDate,
+                                                                int page, int size, String cursor);
 
-    List<PassengerRideHistoryResponse> getPassengerRideHistory(String passengerEmail, LocalDateTime startDate, LocalDateTime endDate);
+    HistoryPage<PassengerRideHistoryResponse> getPassengerRideHistory(String passengerEmail, LocalDateTime startDate, LocalDateTime endDate,
+                                                                      int page, int size, String cursor);
 
     RideStatsResponse getDriverRideStats(String driverEmail, LocalDateTime startDate, LocalDateTime endDate);
 
@@ -6,12 +6,20 @@ import com.pekara.dto.response.RideTrackingResponse;
 public interface RideTrackingService {
 
     /**
-     * Persist the driver's latest location for the given ride in fast storage.
+     * Persist the driver's latest location for the given ride in fast storage and return the
+     * resulting tracking snapshot, ready to be broadcast to the ride's participants.
      */
-    void updateLocation(Long rideId, String driverEmail, RideLocationUpdateRequest request);
+    RideTrackingResponse updateLocation(Long rideId, String driverEmail, RideLocationUpdateRequest request);
 
     /**
      * Fetch the latest tracking snapshot for a ride for an authorized participant.
      */
     RideTrackingResponse getTracking(Long rideId, String requesterEmail);
+
+    /**
+     * Whether the user may follow the ride's live tracking: a participant of a ride that is being
+     * tracked, or an admin. Answered from cached data and without reading the latest location, so
+     * it is cheap enough to run on every topic subscription.
+     */
+    boolean canTrack(Long rideId, String requesterEmail);
 }
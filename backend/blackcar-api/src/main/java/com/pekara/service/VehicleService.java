@@ -0,0 +1,18 @@
+package com.pekara.service;
+
+import com.pekara.dto.request.ActiveVehiclesQuery;
+import com.pekara.dto.response.ActiveVehicleMapResponse;
+
+public interface VehicleService {
+
+    /**
+     * Content hash of the current active vehicles snapshot; changes only when a vehicle moves,
+     * appears, disappears or changes status, and is the same on every node for the same vehicles.
+     */
+    String snapshotVersion();
+
+    /**
+     * Active vehicles from the in-memory snapshot, filtered and clustered for the given viewport.
+     */
+    ActiveVehicleMapResponse getActiveVehicles(ActiveVehiclesQuery query);
+}
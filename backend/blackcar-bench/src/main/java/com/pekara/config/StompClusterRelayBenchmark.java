@@ -0,0 +1,231 @@
+package com.pekara.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracking updates relayed between {@code nodes} instances, each with its own simple broker and
+ * {@link StompClusterRelay}, over an in-memory stand-in for Redis pub/sub that delivers on one
+ * listener thread per node, as the Redis listener container does. Every node has a client
+ * subscribed to each of {@value #TOPICS} ride topics, so a message is delivered once per node.
+ *
+ * {@code fanOut} sends {@value #BATCH} messages from all nodes and waits for every delivery
+ * (time per message); {@code roundTrip} sends one message and waits until all nodes delivered it.
+ * The stand-in leaves out the Redis network hop, so this measures the relay's own cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StompClusterRelayBenchmark {
+
+    private static final int TOPICS = 100;
+    private static final int BATCH = 1000;
+    private static final List<String> PREFIXES = List.of("/topic/rides/", "/topic/notifications/", "/topic/chat/");
+
+    @Param({"2", "4"})
+    public int nodes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PubSub pubSub = new PubSub();
+    private final Semaphore delivered = new Semaphore(0);
+    private Node[] cluster;
+    private String[] destinations;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        destinations = new String[TOPICS];
+        for (int i = 0; i < TOPICS; i++) {
+            destinations[i] = "/topic/rides/" + (i + 1) + "/tracking";
+        }
+        cluster = new Node[nodes];
+        for (int n = 0; n < nodes; n++) {
+            cluster[n] = new Node("client-" + n);
+            for (int i = 0; i < TOPICS; i++) {
+                cluster[n].subscribe(String.valueOf(i), destinations[i]);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (Node node : cluster) {
+            node.stop();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void fanOut() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            cluster[i % nodes].send(destinations[next++ % TOPICS]);
+        }
+        await(BATCH * nodes);
+    }
+
+    @Benchmark
+    public void roundTrip() throws InterruptedException {
+        cluster[0].send(destinations[next++ % TOPICS]);
+        await(nodes);
+    }
+
+    private void await(int deliveries) throws InterruptedException {
+        if (!delivered.tryAcquire(deliveries, 30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Timed out waiting for " + deliveries + " deliveries");
+        }
+    }
+
+    private final class Node {
+
+        private final ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        private final ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        private final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        private final SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(
+                clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        private final SimpMessagingTemplate template = new SimpMessagingTemplate(brokerChannel);
+        private final ExecutorService listenerThread = Executors.newSingleThreadExecutor();
+        private final String session;
+        private final StompClusterRelay relay;
+
+        Node(String session) {
+            this.session = session;
+            template.setMessageConverter(new MappingJackson2MessageConverter());
+            clientOutbound.subscribe(message -> {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    delivered.release();
+                }
+            });
+            broker.start();
+            relay = new StompClusterRelay(brokerChannel, new PubSubTemplate(pubSub), new PubSubContainer(pubSub, listenerThread),
+                    objectMapper, new SimpleMeterRegistry(), PREFIXES);
+            relay.start();
+
+            // The simple broker only delivers to sessions it saw connect.
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId(session);
+            connect.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[]{0, 0});
+            clientInbound.send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+        }
+
+        void subscribe(String subscriptionId, String destination) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            accessor.setSessionId(session);
+            accessor.setSubscriptionId(subscriptionId);
+            accessor.setDestination(destination);
+            Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+            clientInbound.send(message);
+            relay.onSubscribe(new SessionSubscribeEvent(this, message));
+        }
+
+        void send(String destination) {
+            template.convertAndSend(destination, Map.of("latitude", 45.2671, "longitude", 19.8335, "etaSeconds", 240));
+        }
+
+        void stop() {
+            broker.stop();
+            listenerThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Channel subscriptions shared by all nodes; a publish is handed to each subscribed listener on
+     * its node's listener thread.
+     */
+    private static final class PubSub {
+
+        private final Map<String, Map<MessageListener, ExecutorService>> subscriptions = new ConcurrentHashMap<>();
+
+        void subscribe(String channel, MessageListener listener, ExecutorService thread) {
+            subscriptions.computeIfAbsent(channel, key -> new ConcurrentHashMap<>()).put(listener, thread);
+        }
+
+        void unsubscribe(String channel, MessageListener listener) {
+            subscriptions.computeIfPresent(channel, (key, listeners) -> {
+                listeners.remove(listener);
+                return listeners.isEmpty() ? null : listeners;
+            });
+        }
+
+        void publish(String channel, Object body) {
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            byte[] channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+            subscriptions.getOrDefault(channel, Map.of()).forEach((listener, thread) ->
+                    thread.execute(() -> listener.onMessage(new DefaultMessage(channelBytes, bytes), null)));
+        }
+    }
+
+    private static final class PubSubTemplate extends StringRedisTemplate {
+
+        private final PubSub pubSub;
+
+        PubSubTemplate(PubSub pubSub) {
+            this.pubSub = pubSub;
+        }
+
+        @Override
+        public Long convertAndSend(String channel, Object message) {
+            pubSub.publish(channel, message);
+            return 1L;
+        }
+    }
+
+    private static final class PubSubContainer extends RedisMessageListenerContainer {
+
+        private final PubSub pubSub;
+        private final ExecutorService listenerThread;
+
+        PubSubContainer(PubSub pubSub, ExecutorService listenerThread) {
+            this.pubSub = pubSub;
+            this.listenerThread = listenerThread;
+        }
+
+        @Override
+        public void addMessageListener(MessageListener listener, Topic topic) {
+            pubSub.subscribe(topic.getTopic(), listener, listenerThread);
+        }
+
+        @Override
+        public void removeMessageListener(MessageListener listener, Topic topic) {
+            pubSub.unsubscribe(topic.getTopic(), listener);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.pekara.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticating a bearer token with and without the verified-token cache. {@code -p cacheSize=0}
+ * measures a full signature check and claims parse on every request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationBenchmark {
+
+    private static final String SECRET = "benchmarksecretkeybenchmarksecretkeybenchmarksecretkey";
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private JwtServiceImpl jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtServiceImpl(SECRET, Duration.ofHours(1).toMillis(), cacheSize, new SimpleMeterRegistry());
+        token = jwtService.generateToken("passenger@test.com", "PASSENGER");
+    }
+
+    @Benchmark
+    public Optional<JwtService.TokenPrincipal> authenticate() {
+        return jwtService.authenticate(token);
+    }
+}
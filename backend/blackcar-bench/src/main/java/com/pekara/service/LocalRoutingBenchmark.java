@@ -0,0 +1,101 @@
+package com.pekara.service;
+
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route calculation on the local A* engine, without the route cache. Runs on a generated street
+ * grid by default; pass {@code -p graphFile=<graph.bin>} (built with scripts/build-road-graph.sh)
+ * to measure a real city graph. Pairs of waypoints are drawn from the graph's own nodes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalRoutingBenchmark {
+
+    private static final int PAIRS = 1024;
+    private static final int GRID_SIZE = 200;
+    private static final double GRID_STEP = 0.002;
+
+    @Param("")
+    public String graphFile;
+
+    private LocalRoutingServiceImpl routingService;
+    private List<LocationPointDto>[] trips;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        RoadGraph graph = graphFile.isEmpty() ? grid() : read(Path.of(graphFile));
+        routingService = new LocalRoutingServiceImpl(new NoRouteCache(), new SimpleMeterRegistry(), graph, 1.0);
+
+        Random random = new Random(42);
+        trips = new List[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            trips[i] = List.of(point(graph, random.nextInt(graph.nodeCount())), point(graph, random.nextInt(graph.nodeCount())));
+        }
+    }
+
+    @Benchmark
+    public RouteDto calculateRoute() {
+        List<LocationPointDto> trip = trips[next];
+        next = (next + 1) % PAIRS;
+        return routingService.calculateRoute(trip);
+    }
+
+    private static RoadGraph grid() {
+        Random random = new Random(7);
+        RoadGraph.Builder builder = RoadGraph.builder();
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                builder.addNode(45.2 + row * GRID_STEP, 19.7 + col * GRID_STEP);
+            }
+        }
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                int node = row * GRID_SIZE + col;
+                if (col + 1 < GRID_SIZE) {
+                    builder.addRoad(node, node + 1, row % 10 == 0 ? 60 : 20 + random.nextInt(30));
+                }
+                if (row + 1 < GRID_SIZE) {
+                    builder.addRoad(node, node + GRID_SIZE, col % 10 == 0 ? 60 : 20 + random.nextInt(30));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static RoadGraph read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return RoadGraph.read(in);
+        }
+    }
+
+    private static LocationPointDto point(RoadGraph graph, int node) {
+        return LocationPointDto.builder().latitude(graph.latitude(node)).longitude(graph.longitude(node)).build();
+    }
+}
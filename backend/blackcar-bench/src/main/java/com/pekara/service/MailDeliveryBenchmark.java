@@ -0,0 +1,186 @@
+package com.pekara.service;
+
+import com.pekara.repository.MailRetryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sending {@value #MAILS} emails to a local SMTP stand-in: through {@link MailDeliveryImpl}, which
+ * batches them over long-lived connections, and one {@code JavaMailSender.send} per email, which
+ * opens a connection each time as MailServiceImpl used to. Results are per email. The stand-in
+ * accepts everything, so the retry table is never touched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MailDeliveryBenchmark {
+
+    private static final int MAILS = 200;
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    @Param("2")
+    public int workers;
+
+    private FakeSmtpServer smtp;
+    private JavaMailSenderImpl mailSender;
+    private MailDeliveryImpl delivery;
+
+    @Setup
+    public void setUp() throws IOException {
+        smtp = new FakeSmtpServer();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.port());
+        delivery = new MailDeliveryImpl(mailSender, unsupported(MailRetryRepository.class),
+                unsupported(PlatformTransactionManager.class), new SimpleMeterRegistry(), "noreply@blackcar.com",
+                workers, MAILS, batchSize, Duration.ofSeconds(30), 6, Duration.ofSeconds(30), 100, Duration.ofDays(7));
+        delivery.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        delivery.shutdown();
+        smtp.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MAILS)
+    public void deliveryQueue() throws InterruptedException {
+        for (int i = 0; i < MAILS; i++) {
+            delivery.enqueue(new MailDelivery.OutgoingMail("passenger" + i + "@test.com", "Ride accepted",
+                    "Your driver is on the way."));
+        }
+        smtp.awaitMessages(MAILS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MAILS)
+    public void sendEach() throws InterruptedException {
+        for (int i = 0; i < MAILS; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("noreply@blackcar.com");
+            message.setTo("passenger" + i + "@test.com");
+            message.setSubject("Ride accepted");
+            message.setText("Your driver is on the way.");
+            mailSender.send(message);
+        }
+        smtp.awaitMessages(MAILS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unsupported(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    /**
+     * Minimal SMTP server that accepts every command and counts the messages it receives.
+     */
+    private static final class FakeSmtpServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final Semaphore received = new Semaphore(0);
+
+        private FakeSmtpServer() throws IOException {
+            Thread acceptor = new Thread(this::acceptLoop, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        void awaitMessages(int count) throws InterruptedException {
+            if (!received.tryAcquire(count, 30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("SMTP server did not receive " + count + " messages");
+            }
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    socket.setTcpNoDelay(true);
+                    Thread session = new Thread(() -> serve(socket), "fake-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                 PrintStream out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.US_ASCII)) {
+                reply(out, "220 localhost ESMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase(Locale.ROOT);
+                    if (command.startsWith("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // message content is not inspected
+                        }
+                        received.release();
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException e) {
+                // client went away
+            }
+        }
+
+        private static void reply(PrintStream out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.pekara.service;
+
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Route cache that never hits, so routing benchmarks measure the engine on every call.
+ */
+final class NoRouteCache implements RouteCache {
+
+    @Override
+    public Optional<RouteDto> get(List<LocationPointDto> waypoints) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(List<LocationPointDto> waypoints, RouteDto route) {
+    }
+}
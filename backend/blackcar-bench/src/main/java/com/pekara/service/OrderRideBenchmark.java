@@ -0,0 +1,255 @@
+package com.pekara.service;
+
+import com.pekara.WebApplication;
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.PricingDto;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.dto.request.OrderRideRequest;
+import com.pekara.dto.response.OrderRideResponse;
+import com.pekara.exception.NoDriversAvailableException;
+import com.pekara.model.Driver;
+import com.pekara.model.DriverState;
+import com.pekara.model.User;
+import com.pekara.model.UserRole;
+import com.pekara.repository.DriverStateRepository;
+import com.pekara.repository.RideRepository;
+import com.pekara.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end latency of {@link RideService#orderRide} from {@value #THREADS} concurrent passengers,
+ * sampled so JMH reports the percentiles (p99 among them). Runs the whole application on an
+ * in-memory H2 database; only the route lookup is replaced with a fixed route, so no routing engine
+ * is needed.
+ *
+ * Passenger {@code k} orders next to driver {@code k % drivers}: with {@code drivers=8} every
+ * passenger has a driver of their own, and with fewer drivers the passengers race for them, so
+ * rejected orders are part of the sample. Before each order the passenger's previous ride is marked
+ * completed and its driver released, outside the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(OrderRideBenchmark.THREADS)
+public class OrderRideBenchmark {
+
+    static final int THREADS = 8;
+    private static final double DRIVER_SPACING = 0.02;
+
+    @Param({"8", "2"})
+    public int drivers;
+
+    private ConfigurableApplicationContext context;
+    private RideService rideService;
+    private RideRepository rideRepository;
+    private DriverStateManagementService driverStateManagementService;
+    private UserRepository userRepository;
+    private TransactionTemplate transactionTemplate;
+    private final AtomicInteger passengers = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(WebApplication.class, FixedRouteConfig.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--jwt.secret=benchmarksecretkeybenchmarksecretkeybenchmarksecretkey",
+                "--cors.allowed.origins=http://localhost:4200",
+                "--spring.mail.host=localhost",
+                "--spring.mail.username=bench",
+                "--spring.mail.password=bench",
+                "--logging.level.root=WARN",
+                "--logging.level.com.pekara=ERROR");
+        rideService = context.getBean(RideService.class);
+        rideRepository = context.getBean(RideRepository.class);
+        driverStateManagementService = context.getBean(DriverStateManagementService.class);
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        DriverStateRepository driverStateRepository = context.getBean(DriverStateRepository.class);
+        // The state shares its id with the driver, so both are saved in one transaction.
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < drivers; i++) {
+                Driver driver = userRepository.save(Driver.builder()
+                        .email("bench-driver" + i + "@test.com")
+                        .username("bench-driver" + i)
+                        .password("password")
+                        .firstName("Driver")
+                        .lastName("No" + i)
+                        .phoneNumber("+38164000" + i)
+                        .address("Driver Address")
+                        .role(UserRole.DRIVER)
+                        .isActive(true)
+                        .totalRides(0)
+                        .vehicleType("SEDAN")
+                        .licensePlate("NS-" + i + "-BD")
+                        .build());
+                driverStateRepository.save(DriverState.builder()
+                        .id(driver.getId())
+                        .driver(driver)
+                        .online(true)
+                        .busy(false)
+                        .latitude(45.20 + i * DRIVER_SPACING)
+                        .longitude(19.84)
+                        .updatedAt(LocalDateTime.now())
+                        .build());
+            }
+        });
+        // States saved straight through the repository do not publish index updates.
+        context.getBean(DriverLocationIndex.class).rebuild(driverStateRepository.findAllOnlineDriversWithDriver());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Passenger {
+
+        private String email;
+        private OrderRideRequest request;
+        private Long lastRideId;
+
+        @Setup
+        public void setUp(OrderRideBenchmark benchmark) {
+            int index = benchmark.passengers.getAndIncrement();
+            email = "bench-passenger" + index + "@test.com";
+            benchmark.userRepository.save(User.builder()
+                    .email(email)
+                    .username("bench-passenger" + index)
+                    .password("password")
+                    .firstName("Passenger")
+                    .lastName("No" + index)
+                    .phoneNumber("+38165000" + index)
+                    .address("Passenger Address")
+                    .role(UserRole.PASSENGER)
+                    .isActive(true)
+                    .totalRides(0)
+                    .build());
+
+            double latitude = 45.20 + (index % benchmark.drivers) * DRIVER_SPACING;
+            // The dropoff stays close, so the driver ends the ride near this passenger's next pickup.
+            request = OrderRideRequest.builder()
+                    .pickup(LocationPointDto.builder().address("Pickup").latitude(latitude + 0.001).longitude(19.84).build())
+                    .dropoff(LocationPointDto.builder().address("Dropoff").latitude(latitude + 0.002).longitude(19.841).build())
+                    .vehicleType("SEDAN")
+                    .babyTransport(false)
+                    .petTransport(false)
+                    .build();
+        }
+
+        @Setup(Level.Invocation)
+        public void completePreviousRide(OrderRideBenchmark benchmark) {
+            if (lastRideId == null) {
+                return;
+            }
+            Long rideId = lastRideId;
+            benchmark.transactionTemplate.executeWithoutResult(status -> benchmark.rideRepository.findById(rideId)
+                    .ifPresent(ride -> {
+                        ride.setStatus(RideStatus.COMPLETED);
+                        benchmark.driverStateManagementService.releaseDriverAfterRide(ride.getDriver().getId());
+                    }));
+            lastRideId = null;
+        }
+    }
+
+    @Benchmark
+    public OrderRideResponse orderRide(Passenger passenger) {
+        try {
+            OrderRideResponse response = rideService.orderRide(passenger.email, passenger.request);
+            passenger.lastRideId = response.getRideId();
+            return response;
+        } catch (NoDriversAvailableException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces only the route lookup; pricing and the rest of the estimation service stay real.
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class FixedRouteConfig {
+
+        @Bean
+        @Primary
+        RideEstimationService fixedRouteEstimationService(RideEstimationServiceImpl estimationService) {
+            return new RideEstimationService() {
+
+                @Override
+                public RouteData calculateRouteWithStops(LocationPointDto pickup, LocationPointDto dropoff,
+                                                         List<LocationPointDto> stops) {
+                    // Longer than the busy-driver window, so a reserved driver stays taken until released.
+                    return new RouteData(0.2, 20, List.of(pickup, dropoff));
+                }
+
+                @Override
+                public CompletableFuture<RouteData> calculateRouteWithStopsAsync(LocationPointDto pickup,
+                                                                                 LocationPointDto dropoff,
+                                                                                 List<LocationPointDto> stops) {
+                    return CompletableFuture.completedFuture(calculateRouteWithStops(pickup, dropoff, stops));
+                }
+
+                @Override
+                public BigDecimal calculatePrice(String vehicleType, double distanceKm) {
+                    return estimationService.calculatePrice(vehicleType, distanceKm);
+                }
+
+                @Override
+                public BigDecimal applyPricing(PricingDto pricing, double distanceKm) {
+                    return estimationService.applyPricing(pricing, distanceKm);
+                }
+
+                @Override
+                public Double roundKm(double km) {
+                    return estimationService.roundKm(km);
+                }
+
+                @Override
+                public String encodeRoutePolyline(List<LocationPointDto> routePoints) {
+                    return estimationService.encodeRoutePolyline(routePoints);
+                }
+
+                @Override
+                public void validateLocation(LocationPointDto point, String name) {
+                    estimationService.validateLocation(point, name);
+                }
+            };
+        }
+    }
+}
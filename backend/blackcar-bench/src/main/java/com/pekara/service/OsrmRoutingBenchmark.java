@@ -0,0 +1,127 @@
+package com.pekara.service;
+
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route calculation over the OSRM HTTP path, against a local stub server that answers every request
+ * with the same route of {@code routePoints} points after {@code latencyMillis}. With zero latency it
+ * measures the client, connection pool and JSON parsing alone; compare with {@link LocalRoutingBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Without TCP_NODELAY the JDK server's small writes wait on delayed ACKs and dominate the result.
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class OsrmRoutingBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"0", "20"})
+    public int latencyMillis;
+
+    @Param("500")
+    public int routePoints;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private RoutingServiceImpl routingService;
+    private List<LocationPointDto>[] trips;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        byte[] body = routeResponse(routePoints).getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.createContext("/route/v1/driving/", exchange -> {
+            try (exchange) {
+                exchange.getRequestBody().readAllBytes();
+                if (latencyMillis > 0) {
+                    Thread.sleep(latencyMillis);
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        routingService = new RoutingServiceImpl(baseUrl, new NoRouteCache(), new SimpleMeterRegistry(),
+                Duration.ofSeconds(5), 50, Integer.MAX_VALUE, Duration.ofSeconds(30));
+
+        Random random = new Random(42);
+        trips = new List[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            trips[i] = List.of(point(random), point(random));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public RouteDto calculateRoute() {
+        List<LocationPointDto> trip = trips[next];
+        next = (next + 1) % PAIRS;
+        return routingService.calculateRoute(trip);
+    }
+
+    private static String routeResponse(int points) {
+        StringBuilder coordinates = new StringBuilder();
+        for (int i = 0; i < points; i++) {
+            if (i > 0) {
+                coordinates.append(',');
+            }
+            coordinates.append(String.format(Locale.ROOT, "[%.6f,%.6f]", 19.80 + i * 0.0001, 45.24 + i * 0.00007));
+        }
+        return "{\"code\":\"Ok\",\"routes\":[{\"distance\":" + points * 10 + ",\"duration\":" + points
+                + ",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[" + coordinates + "]}}]}";
+    }
+
+    private static LocationPointDto point(Random random) {
+        return LocationPointDto.builder()
+                .latitude(45.2 + random.nextDouble() * 0.4)
+                .longitude(19.7 + random.nextDouble() * 0.4)
+                .build();
+    }
+}
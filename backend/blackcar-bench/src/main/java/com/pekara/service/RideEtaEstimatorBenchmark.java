@@ -0,0 +1,196 @@
+package com.pekara.service;
+
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.model.ActiveRideContext;
+import com.pekara.util.GeoUtils;
+import com.pekara.util.RouteIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One tracking ping through the incremental ETA estimator. Each of {@code rides} rides follows its
+ * own street-grid route at a varying speed with GPS noise, pinging every {@value #PING_SECONDS}
+ * seconds; pings are replayed round-robin across rides, as they arrive from a busy fleet. The
+ * router returns nothing, so a re-plan would only cost the attempt; the traces stay on their routes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RideEtaEstimatorBenchmark {
+
+    private static final int PING_SECONDS = 3;
+    private static final double GPS_NOISE_METERS = 8.0;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+    @Param({"100", "1000"})
+    public int rides;
+
+    private RideEtaEstimator estimator;
+    private ActiveRideContext[] contexts;
+    private double[][] latitudes;
+    private double[][] longitudes;
+    private int steps;
+    private int ride;
+    private int step;
+    private long lapSeconds;
+
+    @Setup
+    public void setUp() {
+        estimator = new RideEtaEstimator(new NoRoutingService(), new SimpleMeterRegistry(), rides, 0.2,
+                Duration.ofSeconds(15));
+        contexts = new ActiveRideContext[rides];
+        latitudes = new double[rides][];
+        longitudes = new double[rides][];
+        steps = Integer.MAX_VALUE;
+        for (int i = 0; i < rides; i++) {
+            List<LocationPointDto> route = cityRoute((i % 50) * 0.01, (i / 50 % 20) * 0.01);
+            contexts[i] = ride(i + 1L, route);
+            drive(i, route, new Random(i));
+            steps = Math.min(steps, latitudes[i].length);
+        }
+    }
+
+    @Benchmark
+    public RideEtaEstimator.Eta estimate() {
+        ActiveRideContext context = contexts[ride];
+        if (step == 0 && lapSeconds > 0) {
+            // Starting the trace over: the estimator would otherwise see the car jump back to the pickup.
+            estimator.forget(context.getRideId());
+        }
+        LocalDateTime recordedAt = START.plusSeconds(lapSeconds + (long) step * PING_SECONDS);
+        RideEtaEstimator.Eta eta = estimator.estimate(context, latitudes[ride][step], longitudes[ride][step], recordedAt);
+        if (++ride == rides) {
+            ride = 0;
+            if (++step == steps) {
+                step = 0;
+                lapSeconds += (long) steps * PING_SECONDS;
+            }
+        }
+        return eta;
+    }
+
+    /**
+     * Pings along the route at 15-50 km/h, changing speed every minute.
+     */
+    private void drive(int index, List<LocationPointDto> route, Random random) {
+        RouteIndex routeIndex = RouteIndex.of(route);
+        double totalKm = routeIndex.totalKm();
+        List<double[]> pings = new ArrayList<>();
+        double alongKm = 0;
+        double kmh = 30;
+        for (int second = 0; alongKm < totalKm; second += PING_SECONDS) {
+            if (second % 60 == 0) {
+                kmh = 15 + random.nextDouble() * 35;
+            }
+            LocationPointDto position = pointAt(route, alongKm);
+            double noiseLat = random.nextGaussian() * GPS_NOISE_METERS / 111_320.0;
+            double noiseLon = random.nextGaussian() * GPS_NOISE_METERS
+                    / (111_320.0 * Math.cos(Math.toRadians(position.getLatitude())));
+            pings.add(new double[]{position.getLatitude() + noiseLat, position.getLongitude() + noiseLon});
+            alongKm += kmh * PING_SECONDS / 3600.0;
+        }
+        latitudes[index] = pings.stream().mapToDouble(p -> p[0]).toArray();
+        longitudes[index] = pings.stream().mapToDouble(p -> p[1]).toArray();
+    }
+
+    private static ActiveRideContext ride(Long id, List<LocationPointDto> route) {
+        LocationPointDto pickup = route.get(0);
+        LocationPointDto destination = route.get(route.size() - 1);
+        return ActiveRideContext.builder()
+                .rideId(id)
+                .status(RideStatus.IN_PROGRESS)
+                .driverEmail("driver" + id + "@test.com")
+                .participantEmails(Set.of("driver" + id + "@test.com"))
+                .pickupLatitude(pickup.getLatitude())
+                .pickupLongitude(pickup.getLongitude())
+                .destinationLatitude(destination.getLatitude())
+                .destinationLongitude(destination.getLongitude())
+                .destinationAddress("Dropoff")
+                .estimatedDurationMinutes(12)
+                .routeIndex(RouteIndex.of(route))
+                .build();
+    }
+
+    /**
+     * About 6.5 km through a street grid: east, north, east again, with a vertex every ~50 m.
+     */
+    private static List<LocationPointDto> cityRoute(double latitudeOffset, double longitudeOffset) {
+        double lat = 45.25 + latitudeOffset;
+        double lon = 19.80 + longitudeOffset;
+        List<LocationPointDto> route = new ArrayList<>(straight(lat, lon, lat, lon + 0.040, 60));
+        route.addAll(straight(lat, lon + 0.040, lat + 0.015, lon + 0.040, 34).subList(1, 35));
+        route.addAll(straight(lat + 0.015, lon + 0.040, lat + 0.015, lon + 0.070, 46).subList(1, 47));
+        return route;
+    }
+
+    private static List<LocationPointDto> straight(double fromLat, double fromLon, double toLat, double toLon, int segments) {
+        List<LocationPointDto> points = new ArrayList<>();
+        for (int i = 0; i <= segments; i++) {
+            double share = (double) i / segments;
+            points.add(point(fromLat + (toLat - fromLat) * share, fromLon + (toLon - fromLon) * share));
+        }
+        return points;
+    }
+
+    private static LocationPointDto pointAt(List<LocationPointDto> path, double km) {
+        double walked = 0;
+        for (int i = 1; i < path.size(); i++) {
+            LocationPointDto a = path.get(i - 1);
+            LocationPointDto b = path.get(i);
+            double segment = GeoUtils.haversineKm(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude());
+            if (walked + segment >= km) {
+                double share = segment == 0 ? 0 : (km - walked) / segment;
+                return point(a.getLatitude() + (b.getLatitude() - a.getLatitude()) * share,
+                        a.getLongitude() + (b.getLongitude() - a.getLongitude()) * share);
+            }
+            walked += segment;
+        }
+        return path.get(path.size() - 1);
+    }
+
+    private static LocationPointDto point(double latitude, double longitude) {
+        return LocationPointDto.builder().latitude(latitude).longitude(longitude).build();
+    }
+
+    private static final class NoRoutingService implements RoutingService {
+
+        @Override
+        public RouteDto calculateRoute(List<LocationPointDto> waypoints) {
+            return null;
+        }
+
+        @Override
+        public Mono<RouteDto> calculateRouteAsync(List<LocationPointDto> waypoints) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Double calculateActualDistanceFromRoute(String routeCoordinatesJson, LocationPointDto stopLocation) {
+            return null;
+        }
+    }
+}
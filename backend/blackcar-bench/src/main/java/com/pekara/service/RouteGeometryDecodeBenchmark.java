@@ -0,0 +1,82 @@
+package com.pekara.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.util.PolylineCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every point of a stored route: the streaming polyline decoder against the legacy
+ * {@code [[lat,lon],...]} JSON parsed into boxed lists, as the ride code did before. Both sides sum
+ * the coordinates so neither decode can be optimised away. The size difference between the two
+ * formats is asserted in PolylineCodecTest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteGeometryDecodeBenchmark {
+
+    private static final TypeReference<List<List<Double>>> COORDINATES = new TypeReference<>() {
+    };
+
+    @Param({"100", "2000"})
+    public int points;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String polyline;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<LocationPointDto> route = new ArrayList<>(points);
+        double lat = 45.25;
+        double lon = 19.83;
+        for (int i = 0; i < points; i++) {
+            lat += (random.nextDouble() - 0.5) * 0.0008;
+            lon += (random.nextDouble() - 0.5) * 0.0008;
+            route.add(LocationPointDto.builder().latitude(lat).longitude(lon).build());
+        }
+        polyline = PolylineCodec.encode(route);
+        json = PolylineCodec.toCoordinatesJson(polyline);
+    }
+
+    @Benchmark
+    public double decodePolyline() {
+        double sum = 0;
+        PolylineCodec.Decoder decoder = PolylineCodec.decoder(polyline);
+        while (decoder.next()) {
+            sum += decoder.latitude() + decoder.longitude();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double parseJson() throws JsonProcessingException {
+        double sum = 0;
+        for (List<Double> point : objectMapper.readValue(json, COORDINATES)) {
+            sum += point.get(0) + point.get(1);
+        }
+        return sum;
+    }
+}
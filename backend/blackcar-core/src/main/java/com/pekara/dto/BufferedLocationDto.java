@@ -0,0 +1,10 @@
+package com.pekara.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest position received from a driver, held by {@link com.pekara.service.DriverLocationBuffer}
+ * until it is written to the driver's state row.
+ */
+public record BufferedLocationDto(double latitude, double longitude, LocalDateTime recordedAt) {
+}
@@ -0,0 +1,66 @@
+package com.pekara.dto;
+
+import com.pekara.model.Driver;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only copy of a driver's profile, cached by {@link com.pekara.service.UserLookupService}.
+ */
+@Value
+@Builder
+public class DriverProfileDto {
+    Long id;
+    String email;
+    String username;
+    String firstName;
+    String lastName;
+    String phoneNumber;
+    String address;
+    String profilePicture;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+    String licenseNumber;
+    String licenseExpiry;
+    String licensePlate;
+    String vehicleModel;
+    String vehicleType;
+    Integer numberOfSeats;
+    Boolean babyFriendly;
+    Boolean petFriendly;
+    Double averageRating;
+    Integer totalRides;
+    Boolean isActive;
+    Boolean blocked;
+    String blockedNote;
+
+    public static DriverProfileDto of(Driver driver) {
+        return DriverProfileDto.builder()
+                .id(driver.getId())
+                .email(driver.getEmail())
+                .username(driver.getUsername())
+                .firstName(driver.getFirstName())
+                .lastName(driver.getLastName())
+                .phoneNumber(driver.getPhoneNumber())
+                .address(driver.getAddress())
+                .profilePicture(driver.getProfilePicture())
+                .createdAt(driver.getCreatedAt())
+                .updatedAt(driver.getUpdatedAt())
+                .licenseNumber(driver.getLicenseNumber())
+                .licenseExpiry(driver.getLicenseExpiry())
+                .licensePlate(driver.getLicensePlate())
+                .vehicleModel(driver.getVehicleModel())
+                .vehicleType(driver.getVehicleType())
+                .numberOfSeats(driver.getNumberOfSeats())
+                .babyFriendly(driver.getBabyFriendly())
+                .petFriendly(driver.getPetFriendly())
+                .averageRating(driver.getAverageRating())
+                .totalRides(driver.getTotalRides())
+                .isActive(driver.getIsActive())
+                .blocked(driver.getBlocked())
+                .blockedNote(driver.getBlockedNote())
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.pekara.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverWorkSegmentDto {
+    private Long driverId;
+    private Long workLogId;
+    private LocalDateTime startedAt;
+    private LocalDateTime endedAt;
+}
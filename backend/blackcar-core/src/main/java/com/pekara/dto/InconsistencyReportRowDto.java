@@ -0,0 +1,19 @@
+package com.pekara.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InconsistencyReportRowDto {
+    private Long id;
+    private Long reportedByUserId;
+    private String reportedByFirstName;
+    private String reportedByLastName;
+    private String description;
+    private LocalDateTime createdAt;
+}
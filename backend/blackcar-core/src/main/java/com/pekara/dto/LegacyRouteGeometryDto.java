@@ -0,0 +1,13 @@
+package com.pekara.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LegacyRouteGeometryDto {
+    private Long rideId;
+    private String routeCoordinates;
+}
@@ -0,0 +1,39 @@
+package com.pekara.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Snapshot of a ride taken when its event is recorded, so subscribers act on the state at the
+ * time of the change and never load the ride again. Fields that do not apply to an event type are null.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideEventPayload {
+    private Long rideId;
+    private String status;
+    private Long driverId;
+    private String driverEmail;
+    private String creatorEmail;
+    private List<Long> passengerIds;
+    private List<String> passengerEmails;
+    /** Emails the creator asked to add to an ordered ride. */
+    private List<String> invitedEmails;
+    private LocalDateTime scheduledAt;
+    private LocalDateTime completedAt;
+    private Double distanceKm;
+    private BigDecimal price;
+    private Boolean cancelledByDriver;
+    private Boolean cancelledByCreator;
+    private String reason;
+    private String panickedBy;
+    private String actorEmail;
+}
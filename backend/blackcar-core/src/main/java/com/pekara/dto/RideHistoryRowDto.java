@@ -0,0 +1,41 @@
+package com.pekara.dto;
+
+import com.pekara.constant.RideStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat read model of a ride and its driver for the history lists, selected with a JPQL
+ * constructor expression so no entity, proxy or lazy collection is involved.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideHistoryRowDto {
+    private Long id;
+    private RideStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime scheduledAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private String cancelledBy;
+    private String cancellationReason;
+    private LocalDateTime cancelledAt;
+    private BigDecimal estimatedPrice;
+    private Double distanceKm;
+    private Integer estimatedDurationMinutes;
+    private Boolean panicActivated;
+    private String panickedBy;
+    private String vehicleType;
+    private Boolean babyTransport;
+    private Boolean petTransport;
+    private Long driverId;
+    private String driverFirstName;
+    private String driverLastName;
+    private String driverEmail;
+    private String driverPhoneNumber;
+}
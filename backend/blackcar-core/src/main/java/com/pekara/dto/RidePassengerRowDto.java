@@ -0,0 +1,16 @@
+package com.pekara.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RidePassengerRowDto {
+    private Long rideId;
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+}
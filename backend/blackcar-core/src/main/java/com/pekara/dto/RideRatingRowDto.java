@@ -0,0 +1,21 @@
+package com.pekara.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideRatingRowDto {
+    private Long id;
+    private Long passengerId;
+    private String passengerFirstName;
+    private String passengerLastName;
+    private Integer vehicleRating;
+    private Integer driverRating;
+    private String comment;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,17 @@
+package com.pekara.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideReminderDto {
+    private Long rideId;
+    private String creatorEmail;
+    private LocalDateTime scheduledAt;
+    private LocalDateTime lastReminderSentAt;
+}
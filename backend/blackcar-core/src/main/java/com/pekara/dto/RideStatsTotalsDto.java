@@ -0,0 +1,30 @@
+package com.pekara.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Count and sums of completed rides, optionally grouped by a driver or passenger id.
+ * Aggregates over no rows come back as null and are read as zero.
+ */
+@Data
+@NoArgsConstructor
+public class RideStatsTotalsDto {
+    private Long subjectId;
+    private long rideCount;
+    private double distanceKm;
+    private BigDecimal amount;
+
+    public RideStatsTotalsDto(Long rideCount, Double distanceKm, BigDecimal amount) {
+        this(null, rideCount, distanceKm, amount);
+    }
+
+    public RideStatsTotalsDto(Long subjectId, Long rideCount, Double distanceKm, BigDecimal amount) {
+        this.subjectId = subjectId;
+        this.rideCount = rideCount != null ? rideCount : 0L;
+        this.distanceKm = distanceKm != null ? distanceKm : 0.0;
+        this.amount = amount != null ? amount : BigDecimal.ZERO;
+    }
+}
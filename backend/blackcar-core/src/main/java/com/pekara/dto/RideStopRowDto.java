@@ -0,0 +1,16 @@
+package com.pekara.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideStopRowDto {
+    private Long rideId;
+    private Integer sequenceIndex;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+}
@@ -0,0 +1,31 @@
+package com.pekara.dto;
+
+import com.pekara.model.User;
+import com.pekara.model.UserRole;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The parts of a user most requests need, cached by {@link com.pekara.service.UserLookupService}.
+ */
+@Value
+@Builder
+public class UserSummaryDto {
+    Long id;
+    String email;
+    UserRole role;
+    boolean active;
+    boolean blocked;
+    String blockedNote;
+
+    public static UserSummaryDto of(User user) {
+        return UserSummaryDto.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .role(user.getRole())
+                .active(Boolean.TRUE.equals(user.getIsActive()))
+                .blocked(Boolean.TRUE.equals(user.getBlocked()))
+                .blockedNote(user.getBlockedNote())
+                .build();
+    }
+}
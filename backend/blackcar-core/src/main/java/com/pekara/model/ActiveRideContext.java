@@ -0,0 +1,66 @@
+package com.pekara.model;
+
+import com.pekara.constant.RideStatus;
+import com.pekara.util.RouteIndex;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Immutable view of an active ride as needed by live tracking: who may send and read locations,
+ * where the ride ends and the decoded route. Held in memory so location pings are handled without
+ * loading the ride.
+ */
+@Value
+@Builder
+public class ActiveRideContext {
+
+    private static final Set<RideStatus> TRACKED_STATUSES = EnumSet.of(
+            RideStatus.ACCEPTED, RideStatus.SCHEDULED, RideStatus.IN_PROGRESS, RideStatus.STOP_REQUESTED);
+
+    Long rideId;
+    RideStatus status;
+    Long driverId;
+    String driverEmail;
+    String driverLicensePlate;
+    String vehicleType;
+    /** Driver, creator and passengers. */
+    Set<String> participantEmails;
+    Double pickupLatitude;
+    Double pickupLongitude;
+    Double destinationLatitude;
+    Double destinationLongitude;
+    String destinationAddress;
+    Integer estimatedDurationMinutes;
+    /** Null when the ride has no usable route geometry. */
+    RouteIndex routeIndex;
+
+    public static boolean isTracked(RideStatus status) {
+        return status != null && TRACKED_STATUSES.contains(status);
+    }
+
+    public boolean isDriver(String email) {
+        return driverEmail != null && driverEmail.equals(email);
+    }
+
+    public boolean isParticipant(String email) {
+        return email != null && participantEmails.contains(email);
+    }
+
+    public boolean hasDestination() {
+        return destinationLatitude != null && destinationLongitude != null;
+    }
+
+    public boolean hasPickup() {
+        return pickupLatitude != null && pickupLongitude != null;
+    }
+
+    /**
+     * Whether the driver is expected to be on the planned route, i.e. the passengers are on board.
+     */
+    public boolean followsPlannedRoute() {
+        return status == RideStatus.IN_PROGRESS || status == RideStatus.STOP_REQUESTED;
+    }
+}
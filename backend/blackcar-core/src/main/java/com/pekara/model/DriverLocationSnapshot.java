@@ -0,0 +1,94 @@
+package com.pekara.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+import org.hibernate.Hibernate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable view of an online driver as held by the in-memory location index.
+ *
+ * Vehicle fields are null until the driver profile has been seen by the index;
+ * matching treats unknown values as "possibly eligible" and re-checks them against the database.
+ */
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class DriverLocationSnapshot {
+    Long driverId;
+    boolean busy;
+    Double latitude;
+    Double longitude;
+    LocalDateTime currentRideEndsAt;
+    Double currentRideEndLatitude;
+    Double currentRideEndLongitude;
+    LocalDateTime nextScheduledRideAt;
+    String vehicleType;
+    Boolean babyFriendly;
+    Boolean petFriendly;
+
+    /**
+     * Position used for matching: busy drivers are ranked by where their current ride ends.
+     */
+    @JsonIgnore
+    public Double getAnchorLatitude() {
+        return busy && currentRideEndLatitude != null && currentRideEndLongitude != null
+                ? currentRideEndLatitude
+                : latitude;
+    }
+
+    @JsonIgnore
+    public Double getAnchorLongitude() {
+        return busy && currentRideEndLatitude != null && currentRideEndLongitude != null
+                ? currentRideEndLongitude
+                : longitude;
+    }
+
+    public boolean hasAnchor() {
+        return getAnchorLatitude() != null && getAnchorLongitude() != null;
+    }
+
+    /**
+     * Snapshot after a write of the driver's persisted state. Once the driver has a position it is
+     * kept: live positions arrive through location updates, and the entity may have been loaded
+     * before the latest of them.
+     */
+    public static DriverLocationSnapshot merge(DriverLocationSnapshot previous, Long driverId, DriverState state) {
+        DriverLocationSnapshotBuilder builder = previous != null
+                ? previous.toBuilder()
+                : DriverLocationSnapshot.builder().driverId(driverId);
+        if (previous == null || previous.getLatitude() == null || previous.getLongitude() == null) {
+            builder.latitude(state.getLatitude())
+                    .longitude(state.getLongitude());
+        }
+        builder.busy(Boolean.TRUE.equals(state.getBusy()))
+                .currentRideEndsAt(state.getCurrentRideEndsAt())
+                .currentRideEndLatitude(state.getCurrentRideEndLatitude())
+                .currentRideEndLongitude(state.getCurrentRideEndLongitude())
+                .nextScheduledRideAt(state.getNextScheduledRideAt());
+        Driver driver = state.getDriver();
+        if (driver != null && Hibernate.isInitialized(driver)) {
+            applyProfile(builder, driver);
+        }
+        return builder.build();
+    }
+
+    public DriverLocationSnapshot withProfile(Driver driver) {
+        DriverLocationSnapshotBuilder builder = toBuilder();
+        applyProfile(builder, driver);
+        return builder.build();
+    }
+
+    public DriverLocationSnapshot withPosition(double latitude, double longitude) {
+        return toBuilder().latitude(latitude).longitude(longitude).build();
+    }
+
+    private static void applyProfile(DriverLocationSnapshotBuilder builder, Driver driver) {
+        builder.vehicleType(driver.getVehicleType())
+                .babyFriendly(driver.getBabyFriendly())
+                .petFriendly(driver.getPetFriendly());
+    }
+}
@@ -5,11 +5,17 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
+/**
+ * Persisted driver availability. Live coordinates are written in batches by the location buffer,
+ * so updates only include changed columns and never overwrite a newer position with a stale one.
+ */
 @Entity
 @Table(name = "driver_states")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
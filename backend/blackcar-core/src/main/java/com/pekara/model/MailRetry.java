@@ -0,0 +1,54 @@
+package com.pekara.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email that could not be delivered, kept until a retry succeeds. Rows that ran out of attempts
+ * are dead and are purged after the configured retention.
+ */
+@Entity
+@Table(name = "mail_retries",
+        indexes = @Index(name = "idx_mail_retries_due", columnList = "next_attempt_at, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MailRetry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String body;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    /** When the next attempt is due; once the attempts have run out, when the email was given up. */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
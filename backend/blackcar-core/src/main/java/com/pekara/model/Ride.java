@@ -17,7 +17,10 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "rides")
+@Table(name = "rides", indexes = {
+        @Index(name = "idx_rides_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_rides_driver_created_at_id", columnList = "driver_user_id, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -61,9 +64,17 @@ public class Ride {
     @Column(name = "estimated_duration_minutes")
     private Integer estimatedDurationMinutes;
 
+    /**
+     * Legacy JSON geometry ({@code [[lat,lon],...]}). New rides store {@link #routePolyline};
+     * existing rows get one at startup from {@code RouteGeometryMigration} and keep this value
+     * until the column is dropped.
+     */
     @Column(name = "route_coordinates", columnDefinition = "text")
     private String routeCoordinates;
 
+    @Column(name = "route_polyline", columnDefinition = "text")
+    private String routePolyline;
+
     @Column(name = "started_at")
     private LocalDateTime startedAt;
 
@@ -0,0 +1,59 @@
+package com.pekara.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Completed rides rolled up per day and scope: one GLOBAL row per rolled-up day, even a day without
+ * rides, and one row per driver and per passenger that had completed rides that day. Rows are only
+ * written by rebuilds from the rides table; the day a ride belongs to is its completion date.
+ */
+@Entity
+@Table(name = "ride_daily_stats",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ride_daily_stats_day_scope_subject",
+                columnNames = {"stat_date", "scope", "subject_id"}),
+        indexes = @Index(name = "idx_ride_daily_stats_scope_subject_day", columnList = "scope, subject_id, stat_date"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RideDailyStats {
+
+    /** Subject id of GLOBAL rows. */
+    public static final long GLOBAL_SUBJECT = 0L;
+
+    public enum Scope {
+        GLOBAL,
+        DRIVER,
+        PASSENGER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Scope scope;
+
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId;
+
+    @Column(name = "ride_count", nullable = false)
+    private Long rideCount;
+
+    @Column(name = "distance_km", nullable = false)
+    private Double distanceKm;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount;
+}
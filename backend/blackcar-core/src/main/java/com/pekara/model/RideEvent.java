@@ -0,0 +1,78 @@
+package com.pekara.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row for a ride lifecycle change. Written in the same transaction as the ride update and
+ * delivered to the in-process subscribers by the relay; {@code publishedAt} stays null until every
+ * subscriber has handled it. An event still unpublished after the relay's maximum attempts is the
+ * dead letter: it is no longer picked up and keeps its {@code lastError} for inspection.
+ */
+@Entity
+@Table(name = "ride_events",
+        indexes = @Index(name = "idx_ride_events_pending", columnList = "published_at, available_at, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RideEvent {
+
+    public enum Type {
+        ORDERED,
+        STARTED,
+        STOP_REQUESTED,
+        COMPLETED,
+        CANCELLED,
+        STOPPED_EARLY,
+        PANIC
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "ride_id", nullable = false)
+    private Long rideId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Type type;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /** Earliest time the relay picks the event up; pushed back after a failed delivery. */
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    /** Comma separated names of the subscribers that already handled the event; retries skip them. */
+    @Column(name = "delivered_to", length = 500)
+    private String deliveredTo;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (availableAt == null) {
+            availableAt = createdAt;
+        }
+    }
+}
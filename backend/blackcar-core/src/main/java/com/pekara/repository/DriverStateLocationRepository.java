@@ -0,0 +1,17 @@
+package com.pekara.repository;
+
+import com.pekara.dto.BufferedLocationDto;
+
+import java.util.Map;
+
+/**
+ * Bulk location writes for {@link DriverStateRepository}, kept out of the JPA entity lifecycle.
+ */
+public interface DriverStateLocationRepository {
+
+    /**
+     * Writes the given positions in one JDBC batch. Does not bump the entity version, so it never
+     * conflicts with concurrent status updates. Returns the number of rows updated.
+     */
+    int batchUpdateLocations(Map<Long, BufferedLocationDto> locations);
+}
@@ -0,0 +1,36 @@
+package com.pekara.repository;
+
+import com.pekara.dto.BufferedLocationDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class DriverStateLocationRepositoryImpl implements DriverStateLocationRepository {
+
+    private static final String UPDATE_LOCATION =
+            "UPDATE driver_states SET latitude = ?, longitude = ?, updated_at = ? WHERE driver_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchUpdateLocations(Map<Long, BufferedLocationDto> locations) {
+        if (locations.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> rows = new ArrayList<>(locations.size());
+        locations.forEach((driverId, location) -> rows.add(new Object[]{
+                location.latitude(), location.longitude(), Timestamp.valueOf(location.recordedAt()), driverId
+        }));
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(UPDATE_LOCATION, rows)) {
+            // Some drivers report SUCCESS_NO_INFO (-2) for batched statements.
+            updated += count < 0 ? 1 : count;
+        }
+        return updated;
+    }
+}
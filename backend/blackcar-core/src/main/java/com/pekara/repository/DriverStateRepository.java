@@ -4,18 +4,17 @@ import com.pekara.model.DriverState;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import jakarta.persistence.LockModeType;
-
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
-public interface DriverStateRepository extends JpaRepository<DriverState, Long> {
+public interface DriverStateRepository extends JpaRepository<DriverState, Long>, DriverStateLocationRepository {
 
     @Query("SELECT ds FROM DriverState ds WHERE ds.online = true")
     Page<DriverState> findOnlineDrivers(Pageable pageable);
@@ -23,7 +22,39 @@ public interface DriverStateRepository extends JpaRepository<DriverState, Long>
     @Query("SELECT ds FROM DriverState ds WHERE ds.online = true")
     List<DriverState> findAllOnlineDrivers();
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT ds FROM DriverState ds WHERE ds.id = :driverId")
-    Optional<DriverState> findByDriverIdForUpdate(@Param("driverId") Long driverId);
+    @Query("SELECT ds FROM DriverState ds JOIN FETCH ds.driver WHERE ds.online = true")
+    List<DriverState> findAllOnlineDriversWithDriver();
+
+    @Query("SELECT ds FROM DriverState ds JOIN FETCH ds.driver WHERE ds.id IN :driverIds")
+    List<DriverState> findAllWithDriverByIdIn(@Param("driverIds") Collection<Long> driverIds);
+
+    /**
+     * Marks the driver busy with an immediate ride if they are online, have no scheduled ride and are
+     * free or finishing their current ride by {@code busyLimit}. Returns 1 if the driver was reserved,
+     * 0 if another order got there first.
+     */
+    @Modifying
+    @Query("UPDATE DriverState ds SET ds.busy = true, ds.currentRideEndsAt = :endsAt, " +
+            "ds.currentRideEndLatitude = :endLatitude, ds.currentRideEndLongitude = :endLongitude, " +
+            "ds.updatedAt = :now, ds.version = ds.version + 1 " +
+            "WHERE ds.id = :driverId AND ds.online = true AND ds.nextScheduledRideAt IS NULL " +
+            "AND (ds.busy = false OR ds.currentRideEndsAt <= :busyLimit)")
+    int reserveForRide(@Param("driverId") Long driverId,
+                       @Param("endsAt") LocalDateTime endsAt,
+                       @Param("endLatitude") double endLatitude,
+                       @Param("endLongitude") double endLongitude,
+                       @Param("busyLimit") LocalDateTime busyLimit,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Books the driver for a scheduled ride if they are online and have no other scheduled ride.
+     * Returns 1 if the driver was reserved, 0 otherwise.
+     */
+    @Modifying
+    @Query("UPDATE DriverState ds SET ds.nextScheduledRideAt = :scheduledAt, ds.updatedAt = :now, " +
+            "ds.version = ds.version + 1 " +
+            "WHERE ds.id = :driverId AND ds.online = true AND ds.nextScheduledRideAt IS NULL")
+    int reserveForScheduledRide(@Param("driverId") Long driverId,
+                                @Param("scheduledAt") LocalDateTime scheduledAt,
+                                @Param("now") LocalDateTime now);
 }
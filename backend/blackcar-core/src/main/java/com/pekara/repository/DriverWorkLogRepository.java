@@ -1,5 +1,6 @@
 package com.pekara.repository;
 
+import com.pekara.dto.DriverWorkSegmentDto;
 import com.pekara.model.DriverWorkLog;
 import com.pekara.model.Ride;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -22,11 +23,22 @@ public interface DriverWorkLogRepository extends JpaRepository<DriverWorkLog, Lo
     List<DriverWorkLog> findSince(@Param("driverId") Long driverId, @Param("since") LocalDateTime since);
 
     /**
-     * Find only COMPLETED work logs for a driver since a given time.
-     * Used for calculating the 8-hour work limit - only actual completed rides count.
+     * Completed work segments of all drivers since a given time, without loading entities.
+     * Used to seed the in-memory 24h work limit tracker on startup.
      */
-    @Query("SELECT w FROM DriverWorkLog w WHERE w.driver.id = :driverId AND w.completed = true AND w.startedAt >= :since")
-    List<DriverWorkLog> findCompletedSince(@Param("driverId") Long driverId, @Param("since") LocalDateTime since);
+    @Query("SELECT new com.pekara.dto.DriverWorkSegmentDto(w.driver.id, w.id, w.startedAt, w.endedAt) " +
+            "FROM DriverWorkLog w WHERE w.completed = true AND w.endedAt IS NOT NULL AND w.startedAt >= :since")
+    List<DriverWorkSegmentDto> findCompletedSegmentsSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Completed work segments of one driver since a given time.
+     * Used to confirm a matched driver's 24h work against work recorded by other instances.
+     */
+    @Query("SELECT new com.pekara.dto.DriverWorkSegmentDto(w.driver.id, w.id, w.startedAt, w.endedAt) " +
+            "FROM DriverWorkLog w WHERE w.driver.id = :driverId AND w.completed = true " +
+            "AND w.endedAt IS NOT NULL AND w.startedAt >= :since")
+    List<DriverWorkSegmentDto> findCompletedSegmentsOfDriverSince(@Param("driverId") Long driverId,
+                                                                  @Param("since") LocalDateTime since);
 
     /**
      * Find work log by ride.
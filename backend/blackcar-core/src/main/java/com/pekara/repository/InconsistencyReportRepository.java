@@ -1,5 +1,6 @@
 package com.pekara.repository;
 
+import com.pekara.dto.InconsistencyReportRowDto;
 import com.pekara.model.InconsistencyReport;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -13,4 +14,8 @@ public interface InconsistencyReportRepository extends JpaRepository<Inconsisten
 
     @Query("SELECT ir FROM InconsistencyReport ir WHERE ir.ride.id = :rideId ORDER BY ir.createdAt DESC")
     List<InconsistencyReport> findAllByRideId(@Param("rideId") Long rideId);
+
+    @Query("SELECT new com.pekara.dto.InconsistencyReportRowDto(ir.id, u.id, u.firstName, u.lastName, ir.description, " +
+           "ir.createdAt) FROM InconsistencyReport ir JOIN ir.reportedBy u WHERE ir.ride.id = :rideId ORDER BY ir.createdAt DESC")
+    List<InconsistencyReportRowDto> findRowsByRideId(@Param("rideId") Long rideId);
 }
@@ -0,0 +1,39 @@
+package com.pekara.repository;
+
+import com.pekara.model.MailRetry;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MailRetryRepository extends JpaRepository<MailRetry, Long> {
+
+    /**
+     * Locks the next batch of due retries, skipping rows another node has locked (see
+     * {@link RideEventRepository#lockPending}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM MailRetry m WHERE m.nextAttemptAt <= :now AND m.attempts < :maxAttempts ORDER BY m.id")
+    List<MailRetry> lockDue(@Param("now") LocalDateTime now,
+                            @Param("maxAttempts") int maxAttempts,
+                            Pageable pageable);
+
+    /**
+     * Deletes rows that ran out of attempts before the given time; a dead row's
+     * {@code nextAttemptAt} is when it was given up.
+     */
+    @Modifying
+    @Query("DELETE FROM MailRetry m WHERE m.attempts >= :maxAttempts AND m.nextAttemptAt < :before")
+    int deleteDeadBefore(@Param("maxAttempts") int maxAttempts, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,47 @@
+package com.pekara.repository;
+
+import com.pekara.model.RideDailyStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RideDailyStatsRepository extends JpaRepository<RideDailyStats, Long> {
+
+    @Query("SELECT s FROM RideDailyStats s WHERE s.scope = :scope AND s.subjectId = :subjectId " +
+           "AND s.statDate BETWEEN :from AND :to ORDER BY s.statDate")
+    List<RideDailyStats> findRange(@Param("scope") RideDailyStats.Scope scope,
+                                   @Param("subjectId") Long subjectId,
+                                   @Param("from") LocalDate from,
+                                   @Param("to") LocalDate to);
+
+    /**
+     * Last day that has been rolled up; every rebuilt day has a GLOBAL row, even without rides.
+     */
+    @Query("SELECT MAX(s.statDate) FROM RideDailyStats s WHERE s.scope = com.pekara.model.RideDailyStats.Scope.GLOBAL")
+    LocalDate findLastRolledUpDay();
+
+    @Query("SELECT MIN(s.statDate) FROM RideDailyStats s WHERE s.scope = com.pekara.model.RideDailyStats.Scope.GLOBAL")
+    LocalDate findFirstRolledUpDay();
+
+    /**
+     * Locks the GLOBAL row of a day, which serializes rebuilds of that day across nodes.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM RideDailyStats s WHERE s.statDate = :day " +
+           "AND s.scope = com.pekara.model.RideDailyStats.Scope.GLOBAL")
+    Optional<RideDailyStats> lockGlobalRow(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query("DELETE FROM RideDailyStats s WHERE s.statDate = :day " +
+           "AND s.scope <> com.pekara.model.RideDailyStats.Scope.GLOBAL")
+    int deleteSubjectRows(@Param("day") LocalDate day);
+}
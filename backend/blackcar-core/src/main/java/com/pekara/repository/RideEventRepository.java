@@ -0,0 +1,36 @@
+package com.pekara.repository;
+
+import com.pekara.model.RideEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RideEventRepository extends JpaRepository<RideEvent, Long> {
+
+    /**
+     * Locks the next batch of deliverable events. The lock timeout of -2 makes Hibernate add
+     * SKIP LOCKED, so relays on several nodes take disjoint batches instead of waiting on each other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM RideEvent e WHERE e.publishedAt IS NULL AND e.availableAt <= :now " +
+           "AND e.attempts < :maxAttempts ORDER BY e.id")
+    List<RideEvent> lockPending(@Param("now") LocalDateTime now,
+                                @Param("maxAttempts") int maxAttempts,
+                                Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM RideEvent e WHERE e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
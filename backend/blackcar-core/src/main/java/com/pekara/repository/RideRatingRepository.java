@@ -1,5 +1,6 @@
 package com.pekara.repository;
 
+import com.pekara.dto.RideRatingRowDto;
 import com.pekara.model.RideRating;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -18,6 +19,10 @@ public interface RideRatingRepository extends JpaRepository<RideRating, Long> {
     @Query("SELECT rr FROM RideRating rr WHERE rr.ride.id = :rideId")
     List<RideRating> findAllByRideId(@Param("rideId") Long rideId);
 
+    @Query("SELECT new com.pekara.dto.RideRatingRowDto(rr.id, p.id, p.firstName, p.lastName, rr.vehicleRating, " +
+           "rr.driverRating, rr.comment, rr.createdAt) FROM RideRating rr JOIN rr.passenger p WHERE rr.ride.id = :rideId")
+    List<RideRatingRowDto> findRowsByRideId(@Param("rideId") Long rideId);
+
     @Query("SELECT rr FROM RideRating rr WHERE rr.ride.id = :rideId AND rr.passenger.id = :passengerId")
     Optional<RideRating> findByRideIdAndPassengerId(@Param("rideId") Long rideId, @Param("passengerId") Long passengerId);
 
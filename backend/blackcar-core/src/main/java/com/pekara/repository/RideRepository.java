@@ -1,13 +1,22 @@
 package com.pekara.repository;
 
 import com.pekara.constant.RideStatus;
+import com.pekara.dto.LegacyRouteGeometryDto;
+import com.pekara.dto.RideHistoryRowDto;
+import com.pekara.dto.RideReminderDto;
+import com.pekara.dto.RidePassengerRowDto;
+import com.pekara.dto.RideStatsTotalsDto;
+import com.pekara.dto.RideStopRowDto;
 import com.pekara.model.Ride;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,6 +27,40 @@ public interface RideRepository extends JpaRepository<Ride, Long> {
                                                @Param("now") LocalDateTime now,
                                                @Param("upper") LocalDateTime upper);
 
+    @Query("SELECT new com.pekara.dto.RideReminderDto(r.id, r.creator.email, r.scheduledAt, r.lastReminderSentAt) " +
+           "FROM Ride r WHERE r.status = com.pekara.constant.RideStatus.SCHEDULED " +
+           "AND r.scheduledAt > :now AND r.scheduledAt <= :upper")
+    List<RideReminderDto> findReminderRows(@Param("now") LocalDateTime now, @Param("upper") LocalDateTime upper);
+
+    /**
+     * Claims the reminder of each ride that nobody has sent since {@code claimBefore} by stamping it
+     * with {@code sentAt}. The stamp is the lease: only the instance whose update matched a row sees
+     * it in {@link #findClaimedReminders}.
+     */
+    @Modifying
+    @Query("UPDATE Ride r SET r.lastReminderSentAt = :sentAt WHERE r.id IN :rideIds " +
+           "AND r.status = com.pekara.constant.RideStatus.SCHEDULED AND r.scheduledAt > :sentAt " +
+           "AND (r.lastReminderSentAt IS NULL OR r.lastReminderSentAt <= :claimBefore)")
+    int claimReminders(@Param("rideIds") Collection<Long> rideIds,
+                       @Param("sentAt") LocalDateTime sentAt,
+                       @Param("claimBefore") LocalDateTime claimBefore);
+
+    @Query("SELECT new com.pekara.dto.RideReminderDto(r.id, r.creator.email, r.scheduledAt, r.lastReminderSentAt) " +
+           "FROM Ride r WHERE r.id IN :rideIds AND r.lastReminderSentAt = :sentAt")
+    List<RideReminderDto> findClaimedReminders(@Param("rideIds") Collection<Long> rideIds,
+                                               @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Moves the leases stamped with {@code sentAt} back to {@code releasedAt}, for reminders that
+     * were claimed but not sent.
+     */
+    @Modifying
+    @Query("UPDATE Ride r SET r.lastReminderSentAt = :releasedAt WHERE r.id IN :rideIds " +
+           "AND r.lastReminderSentAt = :sentAt")
+    int releaseReminders(@Param("rideIds") Collection<Long> rideIds,
+                         @Param("sentAt") LocalDateTime sentAt,
+                         @Param("releasedAt") LocalDateTime releasedAt);
+
     @Query("SELECT r FROM Ride r WHERE r.driver.id = :driverId AND r.status = :status AND r.startedAt >= :since")
     List<Ride> findDriverRidesSince(@Param("driverId") Long driverId,
                                    @Param("status") RideStatus status,
@@ -56,6 +99,116 @@ public interface RideRepository extends JpaRepository<Ride, Long> {
     List<Ride> findAllRidesHistory(@Param("startDate") LocalDateTime startDate,
                                    @Param("endDate") LocalDateTime endDate);
 
+    /*
+     * History pages, newest first. Rows are ordered by (createdAt, id) and the page starts strictly
+     * after the (beforeCreatedAt, beforeId) key, so following a cursor is an index seek instead of
+     * an OFFSET scan. The first page passes (endDate, Long.MAX_VALUE). Rows are flat projections;
+     * stops and passengers for a page come from findStopRows and findPassengerRows.
+     */
+
+    String HISTORY_ROW = "SELECT new com.pekara.dto.RideHistoryRowDto(r.id, r.status, r.createdAt, r.scheduledAt, " +
+            "r.startedAt, r.completedAt, r.cancelledBy, r.cancellationReason, r.cancelledAt, r.estimatedPrice, " +
+            "r.distanceKm, r.estimatedDurationMinutes, r.panicActivated, r.panickedBy, r.vehicleType, " +
+            "r.babyTransport, r.petTransport, d.id, d.firstName, d.lastName, d.email, d.phoneNumber) ";
+
+    String BEFORE_KEY = "AND (r.createdAt < :beforeCreatedAt OR (r.createdAt = :beforeCreatedAt AND r.id < :beforeId)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC";
+
+    @Query(HISTORY_ROW + "FROM Ride r LEFT JOIN r.driver d WHERE r.driver.id = :driverId AND r.createdAt >= :startDate " + BEFORE_KEY)
+    List<RideHistoryRowDto> findDriverRideHistoryPage(@Param("driverId") Long driverId,
+                                                      @Param("startDate") LocalDateTime startDate,
+                                                      @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                                      @Param("beforeId") Long beforeId,
+                                                      Pageable pageable);
+
+    @Query("SELECT COUNT(r) FROM Ride r WHERE r.driver.id = :driverId AND r.createdAt BETWEEN :startDate AND :endDate")
+    long countDriverRideHistory(@Param("driverId") Long driverId,
+                                @Param("startDate") LocalDateTime startDate,
+                                @Param("endDate") LocalDateTime endDate);
+
+    @Query(HISTORY_ROW + "FROM Ride r JOIN r.passengers p LEFT JOIN r.driver d WHERE p.id = :passengerId AND r.createdAt >= :startDate " + BEFORE_KEY)
+    List<RideHistoryRowDto> findPassengerRideHistoryPage(@Param("passengerId") Long passengerId,
+                                                         @Param("startDate") LocalDateTime startDate,
+                                                         @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                                         @Param("beforeId") Long beforeId,
+                                                         Pageable pageable);
+
+    @Query("SELECT COUNT(r) FROM Ride r JOIN r.passengers p WHERE p.id = :passengerId AND r.createdAt BETWEEN :startDate AND :endDate")
+    long countPassengerRideHistory(@Param("passengerId") Long passengerId,
+                                   @Param("startDate") LocalDateTime startDate,
+                                   @Param("endDate") LocalDateTime endDate);
+
+    @Query(HISTORY_ROW + "FROM Ride r LEFT JOIN r.driver d WHERE r.createdAt >= :startDate " + BEFORE_KEY)
+    List<RideHistoryRowDto> findAllRidesHistoryPage(@Param("startDate") LocalDateTime startDate,
+                                                    @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                                    @Param("beforeId") Long beforeId,
+                                                    Pageable pageable);
+
+    @Query("SELECT COUNT(r) FROM Ride r WHERE r.createdAt BETWEEN :startDate AND :endDate")
+    long countAllRidesHistory(@Param("startDate") LocalDateTime startDate,
+                              @Param("endDate") LocalDateTime endDate);
+
+    @Query(HISTORY_ROW + "FROM Ride r LEFT JOIN r.driver d WHERE r.status IN :statuses ORDER BY r.createdAt DESC, r.id DESC")
+    List<RideHistoryRowDto> findActiveRideRows(@Param("statuses") List<RideStatus> statuses);
+
+    @Query(HISTORY_ROW + "FROM Ride r LEFT JOIN r.driver d WHERE r.panicActivated = true AND r.status IN :statuses ORDER BY r.updatedAt DESC")
+    List<RideHistoryRowDto> findActivePanicRideRows(@Param("statuses") List<RideStatus> statuses);
+
+    @Query("SELECT new com.pekara.dto.RideStopRowDto(s.ride.id, s.sequenceIndex, s.address, s.latitude, s.longitude) " +
+           "FROM RideStop s WHERE s.ride.id IN :rideIds ORDER BY s.ride.id, s.sequenceIndex")
+    List<RideStopRowDto> findStopRows(@Param("rideIds") Collection<Long> rideIds);
+
+    @Query("SELECT new com.pekara.dto.RidePassengerRowDto(r.id, p.id, p.firstName, p.lastName, p.email) " +
+           "FROM Ride r JOIN r.passengers p WHERE r.id IN :rideIds ORDER BY r.id, p.id")
+    List<RidePassengerRowDto> findPassengerRows(@Param("rideIds") Collection<Long> rideIds);
+
     @Query("SELECT r FROM Ride r WHERE r.status IN :statuses ORDER BY r.createdAt DESC")
     List<Ride> findAllActiveRides(@Param("statuses") List<RideStatus> statuses);
+
+    /*
+     * Completed-ride totals for the daily stats rollup. A ride belongs to the day it completed;
+     * [from, to) is one day for the backfill and the current partial day for live reads.
+     */
+
+    String COMPLETED_BETWEEN = "r.status = com.pekara.constant.RideStatus.COMPLETED " +
+            "AND r.completedAt >= :from AND r.completedAt < :to";
+
+    @Query("SELECT MIN(r.completedAt) FROM Ride r WHERE r.status = com.pekara.constant.RideStatus.COMPLETED")
+    LocalDateTime findFirstCompletedAt();
+
+    @Query("SELECT new com.pekara.dto.RideStatsTotalsDto(COUNT(r), SUM(r.distanceKm), SUM(r.estimatedPrice)) " +
+           "FROM Ride r WHERE " + COMPLETED_BETWEEN)
+    RideStatsTotalsDto sumCompleted(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.pekara.dto.RideStatsTotalsDto(COUNT(r), SUM(r.distanceKm), SUM(r.estimatedPrice)) " +
+           "FROM Ride r WHERE r.driver.id = :driverId AND " + COMPLETED_BETWEEN)
+    RideStatsTotalsDto sumCompletedForDriver(@Param("driverId") Long driverId,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.pekara.dto.RideStatsTotalsDto(COUNT(r), SUM(r.distanceKm), SUM(r.estimatedPrice)) " +
+           "FROM Ride r JOIN r.passengers p WHERE p.id = :passengerId AND " + COMPLETED_BETWEEN)
+    RideStatsTotalsDto sumCompletedForPassenger(@Param("passengerId") Long passengerId,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.pekara.dto.RideStatsTotalsDto(r.driver.id, COUNT(r), SUM(r.distanceKm), SUM(r.estimatedPrice)) " +
+           "FROM Ride r WHERE r.driver IS NOT NULL AND " + COMPLETED_BETWEEN + " GROUP BY r.driver.id")
+    List<RideStatsTotalsDto> sumCompletedByDriver(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.pekara.dto.RideStatsTotalsDto(p.id, COUNT(r), SUM(r.distanceKm), SUM(r.estimatedPrice)) " +
+           "FROM Ride r JOIN r.passengers p WHERE " + COMPLETED_BETWEEN + " GROUP BY p.id")
+    List<RideStatsTotalsDto> sumCompletedByPassenger(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.pekara.dto.LegacyRouteGeometryDto(r.id, r.routeCoordinates) FROM Ride r " +
+           "WHERE r.id > :afterId AND r.routeCoordinates IS NOT NULL AND r.routePolyline IS NULL ORDER BY r.id")
+    List<LegacyRouteGeometryDto> findLegacyRouteGeometry(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Stores the converted geometry. The legacy JSON stays until the conversion has been verified
+     * across all rides and the column is dropped by hand.
+     */
+    @Modifying
+    @Query("UPDATE Ride r SET r.routePolyline = :polyline WHERE r.id = :rideId")
+    int setRoutePolyline(@Param("rideId") Long rideId, @Param("polyline") String polyline);
 }
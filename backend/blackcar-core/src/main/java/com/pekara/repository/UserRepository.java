@@ -1,10 +1,14 @@
 package com.pekara.repository;
 
+import com.pekara.dto.UserDeviceTokenDto;
 import com.pekara.model.User;
 import com.pekara.model.UserRole;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +26,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByRoleOrderByEmail(UserRole role);
 
     List<User> findByRole(UserRole role);
+
+    @Query("SELECT new com.pekara.dto.UserDeviceTokenDto(u.email, u.deviceToken) FROM User u " +
+           "WHERE u.email IN :emails AND u.deviceToken IS NOT NULL")
+    List<UserDeviceTokenDto> findDeviceTokensByEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT new com.pekara.dto.UserDeviceTokenDto(u.email, u.deviceToken) FROM User u " +
+           "WHERE u.role = :role AND u.deviceToken IS NOT NULL")
+    List<UserDeviceTokenDto> findDeviceTokensByRole(@Param("role") UserRole role);
 }
@@ -0,0 +1,76 @@
+package com.pekara.service;
+
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.dto.RouteDto;
+import com.pekara.util.GeoUtils;
+import com.pekara.util.RouteIndex;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Parts shared by the routing engines: waypoint validation, the straight-line fallback and
+ * distance along a stored route.
+ */
+@Slf4j
+public abstract class AbstractRoutingService implements RoutingService {
+
+    protected void validateWaypoints(List<LocationPointDto> waypoints) {
+        if (waypoints == null || waypoints.size() < 2) {
+            throw new IllegalArgumentException("At least 2 waypoints required for routing");
+        }
+    }
+
+    protected RouteDto fallbackCalculation(List<LocationPointDto> waypoints) {
+        double totalDistanceKm = 0;
+        for (int i = 0; i < waypoints.size() - 1; i++) {
+            LocationPointDto from = waypoints.get(i);
+            LocationPointDto to = waypoints.get(i + 1);
+            totalDistanceKm += GeoUtils.haversineKm(
+                    from.getLatitude(), from.getLongitude(),
+                    to.getLatitude(), to.getLongitude()
+            );
+        }
+
+        int stopCount = waypoints.size() - 2;
+        double durationMinutes = (totalDistanceKm / 40.0) * 60.0 + (stopCount * 3.0);
+
+        return RouteDto.builder()
+                .distanceKm(totalDistanceKm)
+                .durationMinutes(Math.max(1, (int) Math.round(durationMinutes)))
+                .routePoints(waypoints)
+                .build();
+    }
+
+    @Override
+    public Double calculateActualDistanceFromRoute(String encodedRoute, LocationPointDto stopLocation) {
+        if (encodedRoute == null || encodedRoute.isBlank()) {
+            log.warn("Route geometry is null or empty, returning 0");
+            return 0.0;
+        }
+
+        if (stopLocation == null) {
+            log.warn("Stop location is invalid, returning 0");
+            return 0.0;
+        }
+
+        try {
+            RouteIndex route = RouteIndex.fromPolyline(encodedRoute);
+            if (route.size() < 2) {
+                log.warn("Not enough route coordinates, returning 0");
+                return 0.0;
+            }
+
+            RouteIndex.Projection projection = route.project(stopLocation.getLatitude(), stopLocation.getLongitude());
+
+            log.debug("Calculated actual distance: {} km (stop is {} km off the route)",
+                    projection.distanceAlongKm(), projection.offRouteKm());
+
+            return projection.distanceAlongKm();
+
+        } catch (Exception e) {
+            log.error("Error decoding route geometry, returning 0", e);
+            return 0.0;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.pekara.service;
+
+import com.pekara.model.ActiveRideContext;
+import com.pekara.model.Ride;
+import com.pekara.model.RideStop;
+import com.pekara.model.User;
+import com.pekara.repository.RideRepository;
+import com.pekara.util.ReferenceCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * In-memory {@link ActiveRideContext} of the rides being tracked, so location pings and tracking
+ * reads do not touch the database.
+ *
+ * Contexts are loaded on first use, warmed when a ride is ordered and dropped whenever its status
+ * changes (see {@link ActiveRideContextSubscriber}). The drop reaches every instance through
+ * {@link RideCacheEvictions}; the TTL only bounds staleness when that broadcast is lost. Rides that
+ * are no longer active are never cached.
+ */
+@Component
+public class ActiveRideContextCache {
+
+    private final RideRepository rideRepository;
+    private final RideRouteIndexCache routeIndexCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReferenceCache<Long, ActiveRideContext> contexts;
+
+    public ActiveRideContextCache(RideRepository rideRepository,
+                                  RideRouteIndexCache routeIndexCache,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.tracking.context.max-entries:2000}") int maxEntries,
+                                  @Value("${app.tracking.context.ttl:PT1M}") Duration ttl) {
+        this.rideRepository = rideRepository;
+        this.routeIndexCache = routeIndexCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.contexts = new ReferenceCache<>("ride-contexts", maxEntries, ttl, meterRegistry);
+    }
+
+    /**
+     * Context of the ride, or empty if the ride does not exist or is not active for tracking.
+     */
+    public Optional<ActiveRideContext> get(Long rideId) {
+        return contexts.get(rideId, this::load);
+    }
+
+    public void warm(Long rideId) {
+        get(rideId);
+    }
+
+    public void evict(Long rideId) {
+        contexts.invalidate(rideId);
+    }
+
+    private Optional<ActiveRideContext> load(Long rideId) {
+        return readOnlyTransaction.execute(status -> rideRepository.findById(rideId)
+                .filter(ride -> ActiveRideContext.isTracked(ride.getStatus()))
+                .map(this::toContext));
+    }
+
+    private ActiveRideContext toContext(Ride ride) {
+        Set<String> participants = new HashSet<>();
+        if (ride.getDriver() != null) {
+            participants.add(ride.getDriver().getEmail());
+        }
+        if (ride.getCreator() != null) {
+            participants.add(ride.getCreator().getEmail());
+        }
+        for (User passenger : ride.getPassengers()) {
+            participants.add(passenger.getEmail());
+        }
+
+        List<RideStop> stops = ride.getStops();
+        RideStop pickup = stops == null || stops.isEmpty() ? null : stops.get(0);
+        RideStop destination = stops == null || stops.isEmpty() ? null : stops.get(stops.size() - 1);
+
+        return ActiveRideContext.builder()
+                .rideId(ride.getId())
+                .status(ride.getStatus())
+                .driverId(ride.getDriver() != null ? ride.getDriver().getId() : null)
+                .driverEmail(ride.getDriver() != null ? ride.getDriver().getEmail() : null)
+                .driverLicensePlate(ride.getDriver() != null ? ride.getDriver().getLicensePlate() : null)
+                .vehicleType(ride.getVehicleType())
+                .participantEmails(Set.copyOf(participants))
+                .pickupLatitude(pickup != null ? pickup.getLatitude() : null)
+                .pickupLongitude(pickup != null ? pickup.getLongitude() : null)
+                .destinationLatitude(destination != null ? destination.getLatitude() : null)
+                .destinationLongitude(destination != null ? destination.getLongitude() : null)
+                .destinationAddress(destination != null ? destination.getAddress() : null)
+                .estimatedDurationMinutes(ride.getEstimatedDurationMinutes())
+                .routeIndex(routeIndexCache.forRide(ride))
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.pekara.service;
+
+import com.pekara.dto.RideEventPayload;
+import com.pekara.model.RideEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the tracking context of a ride once it has a driver and reloads it whenever its status
+ * changes, dropping it together with the ride's ETA state once the ride has ended. Who may track
+ * the ride is dropped at the same time. Evictions go through {@link RideCacheEvictions}, so they
+ * reach every instance, not just the one that relayed the event.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActiveRideContextSubscriber implements RideEventSubscriber {
+
+    private final ActiveRideContextCache activeRideContextCache;
+    private final RideCacheEvictions rideCacheEvictions;
+    private final RideEtaEstimator rideEtaEstimator;
+
+    @Override
+    public void onRideEvent(RideEvent.Type type, RideEventPayload ride) {
+        switch (type) {
+            case ORDERED, STARTED, STOP_REQUESTED -> {
+                // Tracking reads report the status, and from the start the planned route is followed.
+                rideCacheEvictions.evict(ride.getRideId());
+                activeRideContextCache.warm(ride.getRideId());
+            }
+            case COMPLETED, CANCELLED, STOPPED_EARLY -> {
+                rideCacheEvictions.evict(ride.getRideId());
+                rideEtaEstimator.forget(ride.getRideId());
+            }
+            default -> {
+                // A panic does not change who takes part in the ride or where it goes.
+            }
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class AuthServiceImpl implements AuthService {
     private final MailService mailService;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final UserLookupService userLookupService;
 
     @Override
     @Transactional
@@ -185,6 +186,7 @@ public class AuthServiceImpl implements AuthService {
         User user = token.getUser();
         user.setIsActive(true);
         userRepository.save(user);
+        userLookupService.evict(user.getEmail());
 
         token.setActivatedAt(LocalDateTime.now());
         tokenRepository.save(token);
@@ -215,6 +217,7 @@ public class AuthServiceImpl implements AuthService {
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setIsActive(true);
         userRepository.save(user);
+        userLookupService.evict(user.getEmail());
 
         token.setActivatedAt(LocalDateTime.now());
         tokenRepository.save(token);
@@ -0,0 +1,25 @@
+package com.pekara.service;
+
+import com.pekara.dto.BufferedLocationDto;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Ingestion stage for driver location pings. Keeps only the latest position per driver in memory,
+ * serves reads from it and writes the coalesced positions to the database in periodic batches.
+ */
+public interface DriverLocationBuffer {
+
+    void record(Long driverId, double latitude, double longitude, LocalDateTime recordedAt);
+
+    /**
+     * Latest position received for the driver since startup, whether or not it has been flushed yet.
+     */
+    Optional<BufferedLocationDto> latest(Long driverId);
+
+    /**
+     * Writes all pending positions and returns how many rows were updated.
+     */
+    int flush();
+}
@@ -0,0 +1,107 @@
+package com.pekara.service;
+
+import com.pekara.dto.BufferedLocationDto;
+import com.pekara.repository.DriverStateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest-position-wins buffer. A ping replaces any pending position of the same driver, so a
+ * driver reporting every second costs one row update per flush interval rather than one per ping.
+ *
+ * Metrics: {@code driver.location.ingested} and {@code driver.location.flushed} counters (their
+ * ratio is the coalescing ratio), the {@code driver.location.pending} gauge and the
+ * {@code driver.location.flush} timer.
+ */
+@Slf4j
+@Service
+public class DriverLocationBufferImpl implements DriverLocationBuffer {
+
+    private final DriverStateRepository driverStateRepository;
+    private final DriverLocationIndex driverLocationIndex;
+
+    private final Map<Long, BufferedLocationDto> latest = new ConcurrentHashMap<>();
+    private final Map<Long, BufferedLocationDto> pending = new ConcurrentHashMap<>();
+
+    private final Counter ingested;
+    private final Counter flushed;
+    private final Timer flushTimer;
+
+    public DriverLocationBufferImpl(DriverStateRepository driverStateRepository,
+                                    DriverLocationIndex driverLocationIndex,
+                                    MeterRegistry meterRegistry) {
+        this.driverStateRepository = driverStateRepository;
+        this.driverLocationIndex = driverLocationIndex;
+        this.ingested = meterRegistry.counter("driver.location.ingested");
+        this.flushed = meterRegistry.counter("driver.location.flushed");
+        this.flushTimer = meterRegistry.timer("driver.location.flush");
+        meterRegistry.gaugeMapSize("driver.location.pending", List.of(), pending);
+    }
+
+    @Override
+    public void record(Long driverId, double latitude, double longitude, LocalDateTime recordedAt) {
+        BufferedLocationDto location = new BufferedLocationDto(latitude, longitude, recordedAt);
+        latest.merge(driverId, location, DriverLocationBufferImpl::newer);
+        pending.merge(driverId, location, DriverLocationBufferImpl::newer);
+        driverLocationIndex.updatePosition(driverId, latitude, longitude);
+        ingested.increment();
+    }
+
+    @Override
+    public Optional<BufferedLocationDto> latest(Long driverId) {
+        return Optional.ofNullable(latest.get(driverId));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.drivers.location.flush-interval:PT2S}")
+    public int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<Long, BufferedLocationDto> batch = new HashMap<>();
+        for (Map.Entry<Long, BufferedLocationDto> entry : pending.entrySet()) {
+            // Only take the entry if no newer ping replaced it meanwhile; a replaced one stays for the next flush.
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            int updated = driverStateRepository.batchUpdateLocations(batch);
+            flushed.increment(batch.size());
+            log.debug("Flushed {} driver locations ({} rows updated)", batch.size(), updated);
+            return updated;
+        } catch (RuntimeException ex) {
+            batch.forEach((driverId, location) -> pending.merge(driverId, location, DriverLocationBufferImpl::newer));
+            log.warn("Failed to flush {} driver locations, retrying on the next run: {}", batch.size(), ex.getMessage());
+            return 0;
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static BufferedLocationDto newer(BufferedLocationDto current, BufferedLocationDto candidate) {
+        return candidate.recordedAt().isBefore(current.recordedAt()) ? current : candidate;
+    }
+}
@@ -0,0 +1,74 @@
+package com.pekara.service;
+
+import com.pekara.model.Driver;
+import com.pekara.model.DriverLocationSnapshot;
+import com.pekara.model.DriverState;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Live spatial index of online drivers used as a candidate generator for ride matching.
+ * Kept in process by default; {@code app.drivers.presence.store=redis} shares it between nodes.
+ */
+public interface DriverLocationIndex {
+
+    /**
+     * Adds or refreshes an online driver from its persisted state. The persisted position is only
+     * used for drivers that have no position in the index yet.
+     */
+    void upsert(DriverState state);
+
+    /**
+     * Moves an indexed driver to a newly reported position; ignored for drivers that are not online.
+     */
+    void updatePosition(Long driverId, double latitude, double longitude);
+
+    void updateProfile(Driver driver);
+
+    void remove(Long driverId);
+
+    void rebuild(List<DriverState> onlineStates);
+
+    Optional<DriverLocationSnapshot> get(Long driverId);
+
+    /**
+     * Snapshots of those of the given drivers that are in the index, by driver id.
+     */
+    default Map<Long, DriverLocationSnapshot> getAll(Collection<Long> driverIds) {
+        Map<Long, DriverLocationSnapshot> snapshots = new HashMap<>();
+        for (Long driverId : driverIds) {
+            get(driverId).ifPresent(snapshot -> snapshots.put(driverId, snapshot));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Returns up to {@code limit} drivers accepted by {@code filter}, nearest first.
+     * Drivers without a known position are returned last.
+     */
+    List<DriverLocationSnapshot> findNearest(double latitude, double longitude, int limit,
+                                             Predicate<DriverLocationSnapshot> filter);
+
+    /**
+     * Same as {@link #findNearest(double, double, int, Predicate)}, with the vehicle type (null for
+     * any) and availability the caller is after. Implementations may use them to narrow the search;
+     * the filter must still enforce them.
+     */
+    default List<DriverLocationSnapshot> findNearest(double latitude, double longitude, int limit,
+                                                     String vehicleType, boolean busy,
+                                                     Predicate<DriverLocationSnapshot> filter) {
+        return findNearest(latitude, longitude, limit, filter);
+    }
+
+    /**
+     * Ids of all online drivers in ascending order.
+     */
+    List<Long> onlineDriverIds();
+
+    int size();
+}
@@ -0,0 +1,248 @@
+package com.pekara.service;
+
+import com.pekara.model.Driver;
+import com.pekara.model.DriverLocationSnapshot;
+import com.pekara.model.DriverState;
+import com.pekara.repository.DriverStateRepository;
+import com.pekara.util.GeoUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Grid based driver index. Drivers are bucketed into fixed lat/lon cells and nearest-neighbour
+ * queries walk rings of cells outwards from the query point, so a lookup only touches drivers
+ * in the surrounding area instead of every online driver.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.drivers.presence.store", havingValue = "memory", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DriverLocationIndexImpl implements DriverLocationIndex {
+
+    private static final double CELL_SIZE_DEGREES = 0.02;
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final int MAX_RING = 8;
+
+    private final DriverStateRepository driverStateRepository;
+
+    private final Map<Long, DriverLocationSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+    private final Set<Long> unlocated = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadOnlineDrivers() {
+        List<DriverState> onlineStates = driverStateRepository.findAllOnlineDriversWithDriver();
+        rebuild(onlineStates);
+        log.info("Driver location index loaded with {} online drivers", onlineStates.size());
+    }
+
+    @Override
+    public void upsert(DriverState state) {
+        if (state == null) {
+            return;
+        }
+        Driver driver = state.getDriver();
+        Long driverId = state.getId() != null ? state.getId() : (driver != null ? driver.getId() : null);
+        if (driverId == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(state.getOnline())) {
+            remove(driverId);
+            return;
+        }
+
+        snapshots.compute(driverId, (id, previous) -> {
+            DriverLocationSnapshot next = DriverLocationSnapshot.merge(previous, id, state);
+            relocate(id, previous, next);
+            return next;
+        });
+    }
+
+    @Override
+    public void updatePosition(Long driverId, double latitude, double longitude) {
+        if (driverId == null) {
+            return;
+        }
+        snapshots.computeIfPresent(driverId, (id, previous) -> {
+            DriverLocationSnapshot next = previous.withPosition(latitude, longitude);
+            relocate(id, previous, next);
+            return next;
+        });
+    }
+
+    @Override
+    public void updateProfile(Driver driver) {
+        if (driver == null || driver.getId() == null) {
+            return;
+        }
+        snapshots.computeIfPresent(driver.getId(), (id, previous) -> previous.withProfile(driver));
+    }
+
+    @Override
+    public void remove(Long driverId) {
+        if (driverId == null) {
+            return;
+        }
+        snapshots.computeIfPresent(driverId, (id, previous) -> {
+            relocate(id, previous, null);
+            return null;
+        });
+    }
+
+    @Override
+    public void rebuild(List<DriverState> onlineStates) {
+        snapshots.clear();
+        cells.clear();
+        unlocated.clear();
+        onlineStates.forEach(this::upsert);
+    }
+
+    @Override
+    public Optional<DriverLocationSnapshot> get(Long driverId) {
+        return Optional.ofNullable(snapshots.get(driverId));
+    }
+
+    @Override
+    public List<DriverLocationSnapshot> findNearest(double latitude, double longitude, int limit,
+                                                    Predicate<DriverLocationSnapshot> filter) {
+        if (limit <= 0 || snapshots.isEmpty()) {
+            return List.of();
+        }
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distanceKm).reversed());
+        Set<Long> seen = new HashSet<>();
+
+        long centerLat = cellIndex(latitude);
+        long centerLon = cellIndex(longitude);
+        double ringWidthKm = CELL_SIZE_DEGREES * KM_PER_DEGREE
+                * Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+
+        boolean exhausted = false;
+        for (int ring = 0; ring <= MAX_RING; ring++) {
+            for (long dLat = -ring; dLat <= ring; dLat++) {
+                long step = (dLat == -ring || dLat == ring) ? 1 : 2L * ring;
+                for (long dLon = -ring; dLon <= ring; dLon += step) {
+                    collect(cells.get(cellKey(centerLat + dLat, centerLon + dLon)),
+                            latitude, longitude, limit, filter, best, seen);
+                }
+            }
+            if (best.size() >= limit && best.peek().distanceKm() <= ring * ringWidthKm) {
+                exhausted = true;
+                break;
+            }
+        }
+
+        if (!exhausted) {
+            // Sparse area: finish with a scan of the remaining in-memory entries.
+            collect(snapshots.keySet(), latitude, longitude, limit, filter, best, seen);
+        }
+
+        List<Candidate> ordered = new ArrayList<>(best);
+        ordered.sort(Comparator.comparingDouble(Candidate::distanceKm));
+        List<DriverLocationSnapshot> result = new ArrayList<>(ordered.size());
+        ordered.forEach(candidate -> result.add(candidate.snapshot()));
+        return result;
+    }
+
+    @Override
+    public List<Long> onlineDriverIds() {
+        return snapshots.keySet().stream().sorted().toList();
+    }
+
+    @Override
+    public int size() {
+        return snapshots.size();
+    }
+
+    private void collect(Set<Long> driverIds, double latitude, double longitude, int limit,
+                         Predicate<DriverLocationSnapshot> filter, PriorityQueue<Candidate> best, Set<Long> seen) {
+        if (driverIds == null) {
+            return;
+        }
+        for (Long driverId : driverIds) {
+            if (!seen.add(driverId)) {
+                continue;
+            }
+            DriverLocationSnapshot snapshot = snapshots.get(driverId);
+            if (snapshot == null || !filter.test(snapshot)) {
+                continue;
+            }
+            double distanceKm = snapshot.hasAnchor()
+                    ? GeoUtils.haversineKm(latitude, longitude, snapshot.getAnchorLatitude(), snapshot.getAnchorLongitude())
+                    : Double.MAX_VALUE;
+            if (best.size() < limit) {
+                best.add(new Candidate(snapshot, distanceKm));
+            } else if (distanceKm < best.peek().distanceKm()) {
+                best.poll();
+                best.add(new Candidate(snapshot, distanceKm));
+            }
+        }
+    }
+
+    private void relocate(Long driverId, DriverLocationSnapshot previous, DriverLocationSnapshot next) {
+        Long previousKey = previous != null ? cellKey(previous) : null;
+        Long nextKey = next != null ? cellKey(next) : null;
+        if (previous != null && next != null && Objects.equals(previousKey, nextKey)) {
+            return;
+        }
+
+        if (previous != null) {
+            if (previousKey == null) {
+                unlocated.remove(driverId);
+            } else {
+                cells.computeIfPresent(previousKey, (key, members) -> {
+                    members.remove(driverId);
+                    return members.isEmpty() ? null : members;
+                });
+            }
+        }
+
+        if (next != null) {
+            if (nextKey == null) {
+                unlocated.add(driverId);
+            } else {
+                cells.compute(nextKey, (key, members) -> {
+                    Set<Long> target = members != null ? members : ConcurrentHashMap.newKeySet();
+                    target.add(driverId);
+                    return target;
+                });
+            }
+        }
+    }
+
+    private static Long cellKey(DriverLocationSnapshot snapshot) {
+        if (!snapshot.hasAnchor()) {
+            return null;
+        }
+        return cellKey(cellIndex(snapshot.getAnchorLatitude()), cellIndex(snapshot.getAnchorLongitude()));
+    }
+
+    private static long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / CELL_SIZE_DEGREES);
+    }
+
+    private static long cellKey(long latCell, long lonCell) {
+        return (latCell << 32) ^ (lonCell & 0xffffffffL);
+    }
+
+    private record Candidate(DriverLocationSnapshot snapshot, double distanceKm) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.pekara.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Mirrors saved driver states into the {@link DriverLocationIndex}. Changes are applied only after
+ * their transaction commits, so a rolled-back write never reaches the index, and an index failure
+ * is logged rather than failing a save that has already happened.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DriverLocationIndexUpdater {
+
+    private final DriverLocationIndex driverLocationIndex;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDriverStateChanged(DriverStateChangedEvent event) {
+        try {
+            driverLocationIndex.upsert(event.state());
+        } catch (RuntimeException ex) {
+            log.warn("Could not update the location index for driver {}: {}", event.state().getId(), ex.getMessage());
+        }
+    }
+}
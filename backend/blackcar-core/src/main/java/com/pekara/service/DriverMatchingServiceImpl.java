@@ -3,94 +3,124 @@ package com.pekara.service;
 import com.pekara.dto.common.LocationPointDto;
 import com.pekara.dto.request.OrderRideRequest;
 import com.pekara.exception.NoActiveDriversException;
+import com.pekara.model.DriverLocationSnapshot;
 import com.pekara.model.DriverState;
 import com.pekara.repository.DriverStateRepository;
-import com.pekara.repository.DriverWorkLogRepository;
-import com.pekara.util.GeoUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class DriverMatchingServiceImpl implements DriverMatchingService {
 
+    private static final int CANDIDATE_BATCH_SIZE = 8;
+
     private final DriverStateRepository driverStateRepository;
-    private final DriverWorkLogRepository driverWorkLogRepository;
+    private final DriverWorkTimeTracker driverWorkTimeTracker;
+    private final DriverLocationIndex driverLocationIndex;
 
     @Override
     public Long selectDriverIdForRide(OrderRideRequest request, LocalDateTime now) {
-        List<DriverState> onlineDrivers = driverStateRepository.findAllOnlineDrivers();
-        if (onlineDrivers.isEmpty()) {
+        if (driverLocationIndex.size() == 0) {
             throw new NoActiveDriversException("Currently there are no active drivers");
         }
 
         String reqType = request.getVehicleType();
         boolean needsBaby = Boolean.TRUE.equals(request.getBabyTransport());
         boolean needsPet = Boolean.TRUE.equals(request.getPetTransport());
+        LocalDateTime limit = now.plusMinutes(10);
 
-        List<DriverState> eligible = onlineDrivers.stream()
-                .filter(ds -> ds.getDriver() != null)
-                .filter(ds -> !Boolean.TRUE.equals(ds.getDriver().getBlocked()))
-                .filter(ds -> ds.getNextScheduledRideAt() == null)
-                .filter(ds -> !hasExceededWorkLimit(ds.getDriver().getId(), now))
-                .filter(ds -> {
-                    if (reqType == null) return true;
-                    String driverType = ds.getDriver().getVehicleType();
-                    return driverType != null && driverType.equalsIgnoreCase(reqType);
-                })
-                .filter(ds -> !needsBaby || Boolean.TRUE.equals(ds.getDriver().getBabyFriendly()))
-                .filter(ds -> !needsPet || Boolean.TRUE.equals(ds.getDriver().getPetFriendly()))
-                .toList();
-
-        if (eligible.isEmpty()) {
-            return null;
-        }
+        Predicate<DriverLocationSnapshot> matchesRequest = snapshot -> snapshot.getNextScheduledRideAt() == null
+                && (reqType == null || snapshot.getVehicleType() == null || snapshot.getVehicleType().equalsIgnoreCase(reqType))
+                && (!needsBaby || !Boolean.FALSE.equals(snapshot.getBabyFriendly()))
+                && (!needsPet || !Boolean.FALSE.equals(snapshot.getPetFriendly()));
 
-        List<DriverState> free = eligible.stream()
-                .filter(ds -> !Boolean.TRUE.equals(ds.getBusy()))
-                .toList();
+        Predicate<DriverState> eligible = ds -> ds.getDriver() != null
+                && Boolean.TRUE.equals(ds.getOnline())
+                && !Boolean.TRUE.equals(ds.getDriver().getBlocked())
+                && ds.getNextScheduledRideAt() == null
+                && (reqType == null || (ds.getDriver().getVehicleType() != null && ds.getDriver().getVehicleType().equalsIgnoreCase(reqType)))
+                && (!needsBaby || Boolean.TRUE.equals(ds.getDriver().getBabyFriendly()))
+                && (!needsPet || Boolean.TRUE.equals(ds.getDriver().getPetFriendly()));
 
-        if (!free.isEmpty()) {
-            return free.stream()
-                    .min(Comparator.comparingDouble(ds -> distanceToPickup(ds, request.getPickup())))
-                    .map(ds -> ds.getDriver().getId())
-                    .orElse(null);
+        Long freeDriverId = selectNearest(request.getPickup(), reqType, false,
+                matchesRequest.and(snapshot -> !snapshot.isBusy()),
+                eligible.and(ds -> !Boolean.TRUE.equals(ds.getBusy())),
+                now);
+        if (freeDriverId != null) {
+            return freeDriverId;
         }
 
-        LocalDateTime limit = now.plusMinutes(10);
-        return eligible.stream()
-                .filter(ds -> Boolean.TRUE.equals(ds.getBusy()))
-                .filter(ds -> ds.getCurrentRideEndsAt() != null && !ds.getCurrentRideEndsAt().isAfter(limit))
-                .min(Comparator.comparingDouble(ds -> distanceToPickupFromEnd(ds, request.getPickup())))
-                .map(ds -> ds.getDriver().getId())
-                .orElse(null);
+        return selectNearest(request.getPickup(), reqType, true,
+                matchesRequest.and(snapshot -> snapshot.isBusy() && endsBy(snapshot.getCurrentRideEndsAt(), limit)),
+                eligible.and(ds -> Boolean.TRUE.equals(ds.getBusy()) && endsBy(ds.getCurrentRideEndsAt(), limit)),
+                now);
     }
 
     @Override
     public boolean hasExceededWorkLimit(Long driverId, LocalDateTime now) {
-        LocalDateTime since = now.minusHours(24);
-        long workedMinutes = driverWorkLogRepository.findCompletedSince(driverId, since).stream()
-                .filter(w -> w.getEndedAt() != null)
-                .mapToLong(w -> java.time.Duration.between(w.getStartedAt(), w.getEndedAt()).toMinutes())
-                .sum();
-        return workedMinutes > 8L * 60L;
+        return driverWorkTimeTracker.workedMinutesSince(driverId, now.minusHours(24)) > 8L * 60L;
     }
 
-    private double distanceToPickup(DriverState ds, LocationPointDto pickup) {
-        if (ds.getLatitude() == null || ds.getLongitude() == null) {
-            return Double.MAX_VALUE;
+    /**
+     * Walks index candidates nearest-first in small batches and confirms each batch against the
+     * database, so only a handful of rows are loaded regardless of how many drivers are online.
+     */
+    private Long selectNearest(LocationPointDto pickup, String vehicleType, boolean busy,
+                               Predicate<DriverLocationSnapshot> candidateFilter,
+                               Predicate<DriverState> eligible, LocalDateTime now) {
+        Set<Long> examined = new HashSet<>();
+        while (true) {
+            List<DriverLocationSnapshot> candidates = driverLocationIndex.findNearest(
+                    pickup.getLatitude(), pickup.getLongitude(), CANDIDATE_BATCH_SIZE, vehicleType, busy,
+                    candidateFilter.and(snapshot -> !examined.contains(snapshot.getDriverId())
+                            && !hasExceededWorkLimit(snapshot.getDriverId(), now)));
+            if (candidates.isEmpty()) {
+                return null;
+            }
+
+            List<Long> candidateIds = candidates.stream().map(DriverLocationSnapshot::getDriverId).toList();
+            Map<Long, DriverState> states = driverStateRepository.findAllWithDriverByIdIn(candidateIds).stream()
+                    .collect(Collectors.toMap(DriverState::getId, Function.identity()));
+
+            for (Long driverId : candidateIds) {
+                examined.add(driverId);
+                DriverState state = states.get(driverId);
+                if (state == null || !Boolean.TRUE.equals(state.getOnline())) {
+                    driverLocationIndex.remove(driverId);
+                    continue;
+                }
+                driverLocationIndex.updateProfile(state.getDriver());
+                if (eligible.test(state) && withinWorkLimit(driverId, now)) {
+                    return driverId;
+                }
+            }
+
+            if (candidates.size() < CANDIDATE_BATCH_SIZE) {
+                return null;
+            }
         }
-        return GeoUtils.haversineKm(ds.getLatitude(), ds.getLongitude(), pickup.getLatitude(), pickup.getLongitude());
     }
 
-    private double distanceToPickupFromEnd(DriverState ds, LocationPointDto pickup) {
-        if (ds.getCurrentRideEndLatitude() != null && ds.getCurrentRideEndLongitude() != null) {
-            return GeoUtils.haversineKm(ds.getCurrentRideEndLatitude(), ds.getCurrentRideEndLongitude(), pickup.getLatitude(), pickup.getLongitude());
-        }
-        return distanceToPickup(ds, pickup);
+    /**
+     * The tracker only hears about work completed on this instance, so with several instances
+     * matching the chosen driver is confirmed against the work log before it is returned.
+     */
+    private boolean withinWorkLimit(Long driverId, LocalDateTime now) {
+        driverWorkTimeTracker.refresh(driverId);
+        return !hasExceededWorkLimit(driverId, now);
+    }
+
+    private static boolean endsBy(LocalDateTime currentRideEndsAt, LocalDateTime limit) {
+        return currentRideEndsAt != null && !currentRideEndsAt.isAfter(limit);
     }
 }
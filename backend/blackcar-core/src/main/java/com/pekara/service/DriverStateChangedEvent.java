@@ -0,0 +1,10 @@
+package com.pekara.service;
+
+import com.pekara.model.DriverState;
+
+/**
+ * Published by the services that save a {@link DriverState}, so the {@link DriverLocationIndex}
+ * can pick up the change once the transaction has committed.
+ */
+public record DriverStateChangedEvent(DriverState state) {
+}
@@ -6,7 +6,16 @@ public interface DriverStateManagementService {
 
     void releaseDriverAndClearSchedule(Long driverId);
 
-    void markDriverBusy(Long driverId, int estimatedDurationMinutes, double endLatitude, double endLongitude);
+    /**
+     * Marks the driver busy with an immediate ride in one conditional update. Returns false if the
+     * driver went offline, was booked by another order or will not be free within ten minutes.
+     */
+    boolean reserveForRide(Long driverId, int estimatedDurationMinutes, double endLatitude, double endLongitude,
+                           java.time.LocalDateTime now);
 
-    void setNextScheduledRide(Long driverId, java.time.LocalDateTime scheduledAt);
+    /**
+     * Books the driver for a scheduled ride in one conditional update. Returns false if the driver
+     * went offline or already has a scheduled ride.
+     */
+    boolean reserveForScheduledRide(Long driverId, java.time.LocalDateTime scheduledAt);
 }
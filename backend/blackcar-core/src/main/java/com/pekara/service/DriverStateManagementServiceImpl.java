@@ -4,9 +4,11 @@ import com.pekara.model.DriverState;
 import com.pekara.repository.DriverStateRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Slf4j
@@ -14,7 +16,11 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class DriverStateManagementServiceImpl implements DriverStateManagementService {
 
+    /** A busy driver can take an immediate ride if their current one ends within this window. */
+    private static final Duration BUSY_DRIVER_LIMIT = Duration.ofMinutes(10);
+
     private final DriverStateRepository driverStateRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -29,7 +35,7 @@ public class DriverStateManagementServiceImpl implements DriverStateManagementSe
             driverState.setCurrentRideEndsAt(null);
             driverState.setCurrentRideEndLatitude(null);
             driverState.setCurrentRideEndLongitude(null);
-            driverStateRepository.save(driverState);
+            eventPublisher.publishEvent(new DriverStateChangedEvent(driverStateRepository.save(driverState)));
             log.debug("Driver {} released from ride", driverId);
         }
     }
@@ -48,32 +54,42 @@ public class DriverStateManagementServiceImpl implements DriverStateManagementSe
             driverState.setCurrentRideEndLatitude(null);
             driverState.setCurrentRideEndLongitude(null);
             driverState.setNextScheduledRideAt(null);
-            driverStateRepository.save(driverState);
+            eventPublisher.publishEvent(new DriverStateChangedEvent(driverStateRepository.save(driverState)));
             log.debug("Driver {} released and schedule cleared", driverId);
         }
     }
 
     @Override
     @Transactional
-    public void markDriverBusy(Long driverId, int estimatedDurationMinutes, double endLatitude, double endLongitude) {
-        DriverState driverState = driverStateRepository.findById(driverId)
-                .orElseThrow(() -> new IllegalArgumentException("Driver state not found"));
-
-        LocalDateTime now = LocalDateTime.now();
-        driverState.setBusy(true);
-        driverState.setCurrentRideEndsAt(now.plusMinutes(estimatedDurationMinutes));
-        driverState.setCurrentRideEndLatitude(endLatitude);
-        driverState.setCurrentRideEndLongitude(endLongitude);
-        driverStateRepository.save(driverState);
+    public boolean reserveForRide(Long driverId, int estimatedDurationMinutes, double endLatitude, double endLongitude,
+                                  LocalDateTime now) {
+        LocalDateTime endsAt = now.plusMinutes(estimatedDurationMinutes);
+        int reserved = driverStateRepository.reserveForRide(driverId, endsAt, endLatitude, endLongitude,
+                now.plus(BUSY_DRIVER_LIMIT), LocalDateTime.now());
+        if (reserved == 0) {
+            return false;
+        }
+        publishReserved(driverId);
+        return true;
     }
 
     @Override
     @Transactional
-    public void setNextScheduledRide(Long driverId, LocalDateTime scheduledAt) {
-        DriverState driverState = driverStateRepository.findById(driverId)
-                .orElseThrow(() -> new IllegalArgumentException("Driver state not found"));
+    public boolean reserveForScheduledRide(Long driverId, LocalDateTime scheduledAt) {
+        int reserved = driverStateRepository.reserveForScheduledRide(driverId, scheduledAt, LocalDateTime.now());
+        if (reserved == 0) {
+            return false;
+        }
+        publishReserved(driverId);
+        return true;
+    }
 
-        driverState.setNextScheduledRideAt(scheduledAt);
-        driverStateRepository.save(driverState);
+    /**
+     * Reservations are bulk updates, so the row is read back to give the index listener the state
+     * that will be committed.
+     */
+    private void publishReserved(Long driverId) {
+        driverStateRepository.findById(driverId)
+                .ifPresent(state -> eventPublisher.publishEvent(new DriverStateChangedEvent(state)));
     }
 }
@@ -1,14 +1,17 @@
 package com.pekara.service;
 
+import com.pekara.dto.DriverProfileDto;
 import com.pekara.dto.request.UpdateDriverLocationRequest;
 import com.pekara.dto.request.UpdateDriverOnlineStatusRequest;
 import com.pekara.dto.response.DriverStateResponse;
 import com.pekara.dto.response.OnlineDriverWithVehicleResponse;
 import com.pekara.model.Driver;
+import com.pekara.model.DriverLocationSnapshot;
 import com.pekara.model.DriverState;
 import com.pekara.repository.DriverRepository;
 import com.pekara.repository.DriverStateRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,7 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -26,6 +29,10 @@ public class DriverStateServiceImpl implements com.pekara.service.DriverStateSer
 
     private final DriverRepository driverRepository;
     private final DriverStateRepository driverStateRepository;
+    private final DriverLocationIndex driverLocationIndex;
+    private final DriverLocationBuffer locationBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserLookupService userLookupService;
 
     @Override
     @Transactional
@@ -40,28 +47,46 @@ public class DriverStateServiceImpl implements com.pekara.service.DriverStateSer
         state.setUpdatedAt(LocalDateTime.now());
 
         DriverState saved = driverStateRepository.save(state);
+        eventPublisher.publishEvent(new DriverStateChangedEvent(saved));
         return toResponse(saved);
     }
 
+    /**
+     * Hot path for driver pings: online drivers are served from the location index and the ping is
+     * handed to the {@link DriverLocationBuffer}, which writes it later in a batch. Only a driver
+     * without a state row yet touches the database here.
+     */
     @Override
-    @Transactional
     public DriverStateResponse updateLocation(String driverEmail, UpdateDriverLocationRequest request) {
-        Driver driver = driverRepository.findByEmail(driverEmail)
-                .orElseThrow(() -> new IllegalArgumentException("Driver not found"));
+        Long driverId = resolveDriverId(driverEmail);
 
         if (request.getLatitude() == null || request.getLongitude() == null) {
             throw new IllegalArgumentException("Latitude and longitude are required");
         }
 
-        DriverState state = driverStateRepository.findById(driver.getId())
-                .orElseGet(() -> DriverState.builder().driver(driver).online(false).busy(false).build());
-
-        state.setLatitude(request.getLatitude());
-        state.setLongitude(request.getLongitude());
-        state.setUpdatedAt(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        Optional<DriverLocationSnapshot> indexed = driverLocationIndex.get(driverId);
+        if (indexed.isEmpty() && !driverStateRepository.existsById(driverId)) {
+            DriverState created = driverStateRepository.save(DriverState.builder()
+                    .driver(driverRepository.getReferenceById(driverId))
+                    .online(false)
+                    .busy(false)
+                    .latitude(request.getLatitude())
+                    .longitude(request.getLongitude())
+                    .build());
+            eventPublisher.publishEvent(new DriverStateChangedEvent(created));
+        }
+        locationBuffer.record(driverId, request.getLatitude(), request.getLongitude(), now);
 
-        DriverState saved = driverStateRepository.save(state);
-        return toResponse(saved);
+        return DriverStateResponse.builder()
+                .driverId(driverId)
+                .driverEmail(driverEmail)
+                .online(indexed.isPresent())
+                .busy(indexed.map(DriverLocationSnapshot::isBusy).orElse(false))
+                .latitude(request.getLatitude())
+                .longitude(request.getLongitude())
+                .updatedAt(now)
+                .build();
     }
 
     @Override
@@ -85,6 +110,10 @@ public class DriverStateServiceImpl implements com.pekara.service.DriverStateSer
                 .toList();
     }
 
+    /**
+     * Pages over the online drivers held by the location index and loads only that page's rows,
+     * instead of reading every online state and every active driver.
+     */
     @Override
     @Transactional(readOnly = true)
     public List<OnlineDriverWithVehicleResponse> getOnlineDriversWithVehicles(int page, int size) {
@@ -92,24 +121,23 @@ public class DriverStateServiceImpl implements com.pekara.service.DriverStateSer
             return List.of();
         }
 
-        List<DriverState> onlineStates = driverStateRepository.findAllOnlineDrivers();
-        Map<Long, Driver> activeDrivers = driverRepository.findAllActiveDrivers()
-                .stream()
-                .collect(Collectors.toMap(Driver::getId, Function.identity()));
-
+        List<Long> onlineIds = driverLocationIndex.onlineDriverIds();
         long offset = (long) page * size;
-        return onlineStates.stream()
-                .map(state -> {
-                    Long driverId = state.getDriver() != null ? state.getDriver().getId() : state.getId();
-                    Driver driver = activeDrivers.get(driverId);
-                    if (driver == null) {
-                        return null;
-                    }
-                    return toOnlineResponse(state, driver);
-                })
-                .filter(Objects::nonNull)
-                .skip(offset)
-                .limit(size)
+        if (offset >= onlineIds.size()) {
+            return List.of();
+        }
+        List<Long> pageIds = onlineIds.subList((int) offset, (int) Math.min(offset + size, onlineIds.size()));
+
+        Map<Long, DriverState> states = driverStateRepository.findAllWithDriverByIdIn(pageIds)
+                .stream()
+                .collect(Collectors.toMap(DriverState::getId, Function.identity()));
+
+        return pageIds.stream()
+                .map(states::get)
+                .filter(state -> state != null
+                        && Boolean.TRUE.equals(state.getOnline())
+                        && Boolean.TRUE.equals(state.getDriver().getIsActive()))
+                .map(state -> toOnlineResponse(state, state.getDriver()))
                 .toList();
     }
 
@@ -124,15 +152,29 @@ public class DriverStateServiceImpl implements com.pekara.service.DriverStateSer
         String driverEmail = driver != null
                 ? driver.getEmail()
                 : (state.getDriver() != null ? state.getDriver().getEmail() : null);
-        return DriverStateResponse.builder()
+        DriverStateResponse.DriverStateResponseBuilder response = DriverStateResponse.builder()
                 .driverId(driverId)
                 .driverEmail(driverEmail)
                 .online(state.getOnline())
                 .busy(state.getBusy())
                 .latitude(state.getLatitude())
                 .longitude(state.getLongitude())
-                .updatedAt(state.getUpdatedAt())
-                .build();
+                .updatedAt(state.getUpdatedAt());
+        // The buffer may hold pings that have not been flushed to the row yet.
+        locationBuffer.latest(driverId)
+                .filter(location -> state.getUpdatedAt() == null || !location.recordedAt().isBefore(state.getUpdatedAt()))
+                .ifPresent(location -> response
+                        .latitude(location.latitude())
+                        .longitude(location.longitude())
+                        .updatedAt(location.recordedAt()));
+        return response.build();
+    }
+
+    private Long resolveDriverId(String driverEmail) {
+        // Bounded and expiring, and evicted with the rest of the profile when the account changes.
+        return userLookupService.findDriverProfile(driverEmail)
+                .map(DriverProfileDto::getId)
+                .orElseThrow(() -> new IllegalArgumentException("Driver not found"));
     }
 
     private OnlineDriverWithVehicleResponse toOnlineResponse(DriverState state, Driver driver) {
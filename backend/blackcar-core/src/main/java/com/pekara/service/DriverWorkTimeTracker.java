@@ -0,0 +1,20 @@
+package com.pekara.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rolling per-driver sum of completed work, used for the 8-hour limit in matching.
+ */
+public interface DriverWorkTimeTracker {
+
+    void recordCompleted(Long driverId, Long workLogId, LocalDateTime startedAt, LocalDateTime endedAt);
+
+    void discard(Long driverId, Long workLogId);
+
+    long workedMinutesSince(Long driverId, LocalDateTime since);
+
+    /**
+     * Reloads the driver's segments from the work log, picking up work completed on other instances.
+     */
+    void refresh(Long driverId);
+}
@@ -0,0 +1,176 @@
+package com.pekara.service;
+
+import com.pekara.dto.DriverWorkSegmentDto;
+import com.pekara.repository.DriverWorkLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps completed work segments of the last 24 hours per driver together with their running total.
+ * Segments are added when a work log completes and evicted once they fall out of the 24 hour
+ * retention window, so the limit check is a map lookup instead of a work log query per driver.
+ * Windows shorter than the retention window are answered from the same segments.
+ *
+ * Only work completed on this instance is added as it happens; {@link #refresh} reloads a single
+ * driver from the work log, for callers that must also see work recorded by other instances.
+ */
+@Slf4j
+@Service
+public class DriverWorkTimeTrackerImpl implements DriverWorkTimeTracker {
+
+    private static final Duration WINDOW = Duration.ofHours(24);
+
+    private final DriverWorkLogRepository driverWorkLogRepository;
+    private final Clock clock;
+
+    private final Map<Long, WorkWindow> windows = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DriverWorkTimeTrackerImpl(DriverWorkLogRepository driverWorkLogRepository) {
+        this(driverWorkLogRepository, Clock.systemDefaultZone());
+    }
+
+    DriverWorkTimeTrackerImpl(DriverWorkLogRepository driverWorkLogRepository, Clock clock) {
+        this.driverWorkLogRepository = driverWorkLogRepository;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadRecentWork() {
+        List<DriverWorkSegmentDto> segments = driverWorkLogRepository.findCompletedSegmentsSince(LocalDateTime.now(clock).minus(WINDOW));
+        windows.clear();
+        segments.forEach(s -> window(s.getDriverId()).add(s.getWorkLogId(), s.getStartedAt(), s.getEndedAt()));
+        log.info("Driver work time tracker loaded {} work segments for {} drivers", segments.size(), windows.size());
+    }
+
+    @Override
+    public void recordCompleted(Long driverId, Long workLogId, LocalDateTime startedAt, LocalDateTime endedAt) {
+        if (driverId == null || startedAt == null || endedAt == null) {
+            return;
+        }
+        afterCommit(() -> window(driverId).add(workLogId, startedAt, endedAt));
+    }
+
+    @Override
+    public void discard(Long driverId, Long workLogId) {
+        if (driverId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            WorkWindow window = windows.get(driverId);
+            if (window != null) {
+                window.remove(workLogId);
+            }
+        });
+    }
+
+    @Override
+    public long workedMinutesSince(Long driverId, LocalDateTime since) {
+        WorkWindow window = windows.get(driverId);
+        return window != null ? window.totalSince(since, LocalDateTime.now(clock).minus(WINDOW)) : 0L;
+    }
+
+    @Override
+    public void refresh(Long driverId) {
+        if (driverId == null) {
+            return;
+        }
+        WorkWindow fresh = new WorkWindow();
+        driverWorkLogRepository.findCompletedSegmentsOfDriverSince(driverId, LocalDateTime.now(clock).minus(WINDOW))
+                .forEach(s -> fresh.add(s.getWorkLogId(), s.getStartedAt(), s.getEndedAt()));
+        windows.put(driverId, fresh);
+    }
+
+    private WorkWindow window(Long driverId) {
+        return windows.computeIfAbsent(driverId, id -> new WorkWindow());
+    }
+
+    /**
+     * Applies the change only once the surrounding transaction commits, so rolled back
+     * ride updates never count towards the limit.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class WorkWindow {
+
+        private final TreeSet<Segment> segments = new TreeSet<>(
+                Comparator.comparing(Segment::startedAt).thenComparing(Segment::workLogId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        private final Map<Long, Segment> byWorkLogId = new HashMap<>();
+        private long totalMinutes;
+
+        synchronized void add(Long workLogId, LocalDateTime startedAt, LocalDateTime endedAt) {
+            remove(workLogId);
+            Segment segment = new Segment(workLogId, startedAt, Duration.between(startedAt, endedAt).toMinutes());
+            if (segments.add(segment)) {
+                totalMinutes += segment.minutes();
+                if (workLogId != null) {
+                    byWorkLogId.put(workLogId, segment);
+                }
+            }
+        }
+
+        synchronized void remove(Long workLogId) {
+            if (workLogId == null) {
+                return;
+            }
+            Segment existing = byWorkLogId.remove(workLogId);
+            if (existing != null && segments.remove(existing)) {
+                totalMinutes -= existing.minutes();
+            }
+        }
+
+        /**
+         * Minutes of the segments started at or after {@code since}. Only segments older than the
+         * retention {@code horizon} are evicted, so a caller asking about a shorter window does not
+         * drop what a caller with a longer one still needs.
+         */
+        synchronized long totalSince(LocalDateTime since, LocalDateTime horizon) {
+            while (!segments.isEmpty() && segments.first().startedAt().isBefore(horizon)) {
+                Segment evicted = segments.pollFirst();
+                totalMinutes -= evicted.minutes();
+                if (evicted.workLogId() != null) {
+                    byWorkLogId.remove(evicted.workLogId());
+                }
+            }
+            long total = totalMinutes;
+            for (Segment segment : segments) {
+                if (!segment.startedAt().isBefore(since)) {
+                    break;
+                }
+                total -= segment.minutes();
+            }
+            return total;
+        }
+    }
+
+    private record Segment(Long workLogId, LocalDateTime startedAt, long minutes) {
+    }
+}
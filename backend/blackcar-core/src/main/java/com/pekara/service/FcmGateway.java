@@ -0,0 +1,100 @@
+package com.pekara.service;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Owns the FirebaseApp and sends push messages through it. Initialization is lazy and never fails
+ * the application, so local and dev setups without Firebase credentials simply skip pushes.
+ */
+@Slf4j
+@Component
+public class FcmGateway {
+
+    /** Largest number of messages FCM accepts in one sendEach call. */
+    static final int MAX_BATCH_SIZE = 500;
+
+    @Value("${firebase.projectId:}")
+    private String firebaseProjectId;
+
+    @Value("${firebase.databaseUrl:}")
+    private String firebaseDatabaseUrl;
+
+    @Value("${firebase.serviceAccountPath:}")
+    private String firebaseServiceAccountPath;
+
+    private volatile boolean firebaseInitialized = false;
+
+    @PostConstruct
+    public void init() {
+        initFirebaseIfPossible();
+    }
+
+    public boolean isAvailable() {
+        initFirebaseIfPossible();
+        return firebaseInitialized;
+    }
+
+    /**
+     * Sends up to {@link #MAX_BATCH_SIZE} messages in one request; each message succeeds or fails on its own.
+     */
+    public BatchResponse sendEach(List<Message> messages) throws FirebaseMessagingException {
+        return FirebaseMessaging.getInstance().sendEach(messages);
+    }
+
+    private void initFirebaseIfPossible() {
+        if (firebaseInitialized) return;
+        synchronized (FcmGateway.class) {
+            if (firebaseInitialized) return;
+            try {
+                if (firebaseProjectId == null || firebaseProjectId.isBlank()) {
+                    log.warn("Firebase Project ID not set, skipping initialization");
+                    return;
+                }
+                GoogleCredentials credentials;
+                if (firebaseServiceAccountPath != null && !firebaseServiceAccountPath.isBlank()) {
+                    try {
+                        credentials = GoogleCredentials.fromStream(new FileInputStream(firebaseServiceAccountPath));
+                        log.info("Firebase loaded credentials from specified path: {}", firebaseServiceAccountPath);
+                    } catch (IOException ex) {
+                        log.warn("Failed to load Firebase credentials from {}, attempting application default: {}",
+                                firebaseServiceAccountPath, ex.getMessage());
+                        credentials = GoogleCredentials.getApplicationDefault();
+                    }
+                } else {
+                    credentials = GoogleCredentials.getApplicationDefault();
+                }
+
+                FirebaseOptions.Builder builder = FirebaseOptions.builder().setCredentials(credentials);
+                if (firebaseDatabaseUrl != null && !firebaseDatabaseUrl.isBlank()) {
+                    builder.setDatabaseUrl(firebaseDatabaseUrl);
+                }
+                FirebaseOptions options = builder.build();
+                if (FirebaseApp.getApps().isEmpty()) {
+                    FirebaseApp.initializeApp(options);
+                }
+                firebaseInitialized = true;
+                log.info("FirebaseApp initialized with project ID: {}{}",
+                        firebaseProjectId,
+                        firebaseDatabaseUrl != null ? " and DB URL" : "");
+            } catch (Exception e) {
+                // Do not fail the app if Firebase is not configured in local/dev
+                log.warn("Firebase initialization skipped: {}", e.getMessage());
+                firebaseInitialized = false;
+            }
+        }
+    }
+}
@@ -1,38 +1,87 @@
 package com.pekara.service;
 
-import com.pekara.service.JwtService;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 
+/**
+ * Issues and verifies HS256 tokens.
+ *
+ * The signing key and parser are built once. Verified tokens are kept in a bounded LRU map keyed by
+ * the SHA-256 of the token, so the raw token is never held, until the token's own {@code exp}; a
+ * request carrying a token seen before skips signature verification and JSON parsing. Failed
+ * verifications are not cached.
+ */
 @Service
 public class JwtServiceImpl implements JwtService {
 
-    private final String secretKey;
     private final Long expiration;
+    private final Clock clock;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final int cacheSize;
 
+    private final Map<String, TokenPrincipal> verified;
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    @Autowired
     public JwtServiceImpl(
             @Value("${jwt.secret}") String secretKey,
-            @Value("${jwt.expiration}") Long expiration) {
-        this.secretKey = secretKey;
-        this.expiration = expiration;
+            @Value("${jwt.expiration}") Long expiration,
+            @Value("${jwt.cache.max-entries:10000}") int cacheSize,
+            MeterRegistry meterRegistry) {
+        this(secretKey, expiration, cacheSize, meterRegistry, Clock.systemUTC());
     }
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    JwtServiceImpl(String secretKey, Long expiration, int cacheSize, MeterRegistry meterRegistry, Clock clock) {
+        this.expiration = expiration;
+        this.clock = clock;
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .clock(() -> Date.from(clock.instant()))
+                .build();
+        this.cacheSize = Math.max(cacheSize, 0);
+        this.verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenPrincipal> eldest) {
+                return size() > JwtServiceImpl.this.cacheSize;
+            }
+        };
+
+        this.cacheHits = counter(meterRegistry, "hit");
+        this.cacheMisses = counter(meterRegistry, "miss");
+        meterRegistry.gauge("jwt.cache.size", verified, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        });
     }
 
     @Override
     public String generateToken(String email, String role) {
-        Date now = new Date();
+        Date now = Date.from(clock.instant());
         Date expiryDate = new Date(now.getTime() + expiration);
 
         return Jwts.builder()
@@ -41,37 +90,85 @@ public class JwtServiceImpl implements JwtService {
                 .claim("email", email)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    @Override
+    public Optional<TokenPrincipal> authenticate(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        String key = hash(token);
+        synchronized (verified) {
+            TokenPrincipal principal = verified.get(key);
+            if (principal != null && principal.expiresAt().isAfter(clock.instant())) {
+                cacheHits.increment();
+                return Optional.of(principal);
+            }
+            if (principal != null) {
+                verified.remove(key);
+            }
+        }
+        cacheMisses.increment();
+
+        TokenPrincipal principal;
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getExpiration() == null) {
+                return Optional.empty();
+            }
+            principal = new TokenPrincipal(claims.get("email", String.class), claims.get("role", String.class),
+                    claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (cacheSize > 0) {
+            synchronized (verified) {
+                verified.put(key, principal);
+            }
+        }
+        return Optional.of(principal);
+    }
+
     @Override
     public String getEmailFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("email", String.class);
+        return principal(token).email();
     }
 
     @Override
     public String getRoleFromToken(String token) {
-        Claims claims = parseToken(token);
-        return claims.get("role", String.class);
+        return principal(token).role();
     }
 
     @Override
     public boolean isTokenValid(String token) {
+        return authenticate(token).isPresent();
+    }
+
+    int cachedTokens() {
+        synchronized (verified) {
+            return verified.size();
+        }
+    }
+
+    private TokenPrincipal principal(String token) {
+        return authenticate(token).orElseThrow(() -> new JwtException("Invalid or expired token"));
+    }
+
+    private static String hash(String token) {
         try {
-            Claims claims = parseToken(token);
-            return !claims.getExpiration().before(new Date());
-        } catch (Exception e) {
-            return false;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
     }
 
-    private Claims parseToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("jwt.cache.requests")
+                .description("Verified-token cache lookups by result")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 }
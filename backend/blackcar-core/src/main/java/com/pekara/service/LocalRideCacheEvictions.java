@@ -0,0 +1,24 @@
+package com.pekara.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evictions for a single instance, used when the instances do not share Redis pub/sub
+ * ({@code app.websocket.cluster.enabled} is off).
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.websocket.cluster.enabled", havingValue = "false", matchIfMissing = true)
+public class LocalRideCacheEvictions implements RideCacheEvictions {
+
+    private final ActiveRideContextCache activeRideContextCache;
+    private final RideTrackingAccessCache rideTrackingAccessCache;
+
+    @Override
+    public void evict(Long rideId) {
+        activeRideContextCache.evict(rideId);
+        rideTrackingAccessCache.evict(rideId);
+    }
+}
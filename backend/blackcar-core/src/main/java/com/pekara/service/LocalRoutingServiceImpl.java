@@ -0,0 +1,278 @@
+package com.pekara.service;
+
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.util.GeoUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-process routing over a preprocessed road graph ({@link RoadGraph}), enabled with
+ * {@code app.routing.engine=local}. Waypoints are snapped to the nearest graph node and each leg
+ * is solved with A* on travel time, so estimates need no network call at all. Solved routes go
+ * through the same {@link RouteCache} as the OSRM engine.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.routing.engine", havingValue = "local")
+public class LocalRoutingServiceImpl extends AbstractRoutingService {
+
+    private static final double SNAP_SPEED_METERS_PER_SECOND = 40.0 / 3.6;
+
+    private final RoadGraph graph;
+    private final RouteCache routeCache;
+    private final double maxSnapDistanceKm;
+    private final Timer routeTimer;
+    private final ThreadLocal<SearchState> searchState;
+
+    @Autowired
+    public LocalRoutingServiceImpl(
+            RouteCache routeCache,
+            MeterRegistry meterRegistry,
+            @Value("${app.routing.local.graph-file}") Path graphFile,
+            @Value("${app.routing.local.max-snap-distance-km:1.0}") double maxSnapDistanceKm) throws IOException {
+        this(routeCache, meterRegistry, loadGraph(graphFile), maxSnapDistanceKm);
+    }
+
+    LocalRoutingServiceImpl(RouteCache routeCache, MeterRegistry meterRegistry, RoadGraph graph, double maxSnapDistanceKm) {
+        this.graph = graph;
+        this.routeCache = routeCache;
+        this.maxSnapDistanceKm = maxSnapDistanceKm;
+        this.routeTimer = RoutingMetrics.routeTimer(meterRegistry, "local");
+        this.searchState = ThreadLocal.withInitial(() -> new SearchState(graph.nodeCount()));
+    }
+
+    @Override
+    public RouteDto calculateRoute(List<LocationPointDto> waypoints) {
+        validateWaypoints(waypoints);
+        return cachedRoute(waypoints);
+    }
+
+    @Override
+    public Mono<RouteDto> calculateRouteAsync(List<LocationPointDto> waypoints) {
+        validateWaypoints(waypoints);
+        return Mono.fromSupplier(() -> cachedRoute(waypoints));
+    }
+
+    private RouteDto cachedRoute(List<LocationPointDto> waypoints) {
+        Optional<RouteDto> cached = routeCache.get(waypoints);
+        if (cached.isPresent()) {
+            log.debug("Route cache hit for {} waypoints", waypoints.size());
+            return cached.get();
+        }
+        return routeTimer.record(() -> route(waypoints));
+    }
+
+    /**
+     * Solves the route and caches it. Fallback estimates are returned without caching, as the OSRM
+     * engine does.
+     */
+    private RouteDto route(List<LocationPointDto> waypoints) {
+        int[] nodes = new int[waypoints.size()];
+        double snapMeters = 0;
+        for (int i = 0; i < waypoints.size(); i++) {
+            LocationPointDto waypoint = waypoints.get(i);
+            nodes[i] = graph.nearestNode(waypoint.getLatitude(), waypoint.getLongitude(), maxSnapDistanceKm);
+            if (nodes[i] < 0) {
+                log.debug("Waypoint {} is outside the road graph, falling back to Haversine calculation", i);
+                return fallbackCalculation(waypoints);
+            }
+            snapMeters += GeoUtils.haversineKm(waypoint.getLatitude(), waypoint.getLongitude(),
+                    graph.latitude(nodes[i]), graph.longitude(nodes[i])) * 1000.0;
+        }
+
+        double meters = snapMeters;
+        double seconds = snapMeters / SNAP_SPEED_METERS_PER_SECOND;
+        List<LocationPointDto> routePoints = new ArrayList<>();
+        SearchState state = searchState.get();
+
+        for (int leg = 0; leg < nodes.length - 1; leg++) {
+            int target = nodes[leg + 1];
+            if (!search(state, nodes[leg], target)) {
+                log.debug("No path between waypoints {} and {}, falling back to Haversine calculation", leg, leg + 1);
+                return fallbackCalculation(waypoints);
+            }
+            meters += state.distance[target];
+            seconds += state.cost[target];
+            appendPath(state, target, routePoints, leg > 0);
+        }
+
+        RouteDto route = RouteDto.builder()
+                .distanceKm(meters / 1000.0)
+                .durationMinutes(Math.max(1, (int) Math.ceil(seconds / 60.0)))
+                .routePoints(routePoints)
+                .build();
+        routeCache.put(waypoints, route);
+        return route;
+    }
+
+    /**
+     * A* on travel time. The heuristic is straight-line distance at the fastest edge speed in the
+     * graph, which never overestimates, so the first time the target is settled its cost is optimal.
+     */
+    private boolean search(SearchState state, int source, int target) {
+        state.reset();
+        double targetLat = graph.latitude(target);
+        double targetLon = graph.longitude(target);
+        double maxSpeed = graph.maxSpeedMetersPerSecond();
+
+        state.visit(source, 0, 0, -1);
+        state.push(source, heuristic(source, targetLat, targetLon, maxSpeed));
+
+        while (state.heapSize > 0) {
+            int node = state.pop();
+            if (state.settled[node] == state.generation) {
+                continue;
+            }
+            state.settled[node] = state.generation;
+            if (node == target) {
+                return true;
+            }
+
+            double nodeCost = state.cost[node];
+            for (int edge = graph.firstEdge(node); edge < graph.endEdge(node); edge++) {
+                int next = graph.edgeTarget(edge);
+                if (state.settled[next] == state.generation) {
+                    continue;
+                }
+                double nextCost = nodeCost + graph.edgeDurationSeconds(edge);
+                if (state.seen[next] != state.generation || nextCost < state.cost[next]) {
+                    state.visit(next, nextCost, state.distance[node] + graph.edgeLengthMeters(edge), node);
+                    state.push(next, nextCost + heuristic(next, targetLat, targetLon, maxSpeed));
+                }
+            }
+        }
+        return false;
+    }
+
+    private double heuristic(int node, double targetLat, double targetLon, double maxSpeed) {
+        return GeoUtils.haversineKm(graph.latitude(node), graph.longitude(node), targetLat, targetLon) * 1000.0 / maxSpeed;
+    }
+
+    private void appendPath(SearchState state, int target, List<LocationPointDto> routePoints, boolean skipFirst) {
+        int length = 0;
+        for (int node = target; node >= 0; node = state.parent[node]) {
+            state.path[length++] = node;
+        }
+        for (int i = length - 1 - (skipFirst ? 1 : 0); i >= 0; i--) {
+            int node = state.path[i];
+            routePoints.add(LocationPointDto.builder()
+                    .latitude(graph.latitude(node))
+                    .longitude(graph.longitude(node))
+                    .build());
+        }
+    }
+
+    private static RoadGraph loadGraph(Path graphFile) throws IOException {
+        long started = System.nanoTime();
+        try (InputStream in = Files.newInputStream(graphFile)) {
+            RoadGraph graph = RoadGraph.read(in);
+            log.info("Loaded road graph {} with {} nodes and {} edges in {} ms", graphFile,
+                    graph.nodeCount(), graph.edgeCount(), (System.nanoTime() - started) / 1_000_000);
+            return graph;
+        }
+    }
+
+    /**
+     * Per-thread search arrays. A generation counter marks which entries belong to the current
+     * query, so nothing is cleared or reallocated between searches.
+     */
+    private static final class SearchState {
+
+        private final double[] cost;
+        private final double[] distance;
+        private final int[] parent;
+        private final int[] seen;
+        private final int[] settled;
+        private final int[] path;
+        private int generation;
+
+        private int[] heapNodes = new int[64];
+        private double[] heapKeys = new double[64];
+        private int heapSize;
+
+        SearchState(int nodeCount) {
+            cost = new double[nodeCount];
+            distance = new double[nodeCount];
+            parent = new int[nodeCount];
+            seen = new int[nodeCount];
+            settled = new int[nodeCount];
+            path = new int[nodeCount];
+        }
+
+        void reset() {
+            heapSize = 0;
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(settled, 0);
+                generation = 1;
+            }
+        }
+
+        void visit(int node, double nodeCost, double nodeDistance, int nodeParent) {
+            seen[node] = generation;
+            cost[node] = nodeCost;
+            distance[node] = nodeDistance;
+            parent[node] = nodeParent;
+        }
+
+        void push(int node, double key) {
+            if (heapSize == heapNodes.length) {
+                heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int up = (i - 1) >>> 1;
+                if (heapKeys[up] <= key) {
+                    break;
+                }
+                heapNodes[i] = heapNodes[up];
+                heapKeys[i] = heapKeys[up];
+                i = up;
+            }
+            heapNodes[i] = node;
+            heapKeys[i] = key;
+        }
+
+        int pop() {
+            int top = heapNodes[0];
+            int lastNode = heapNodes[--heapSize];
+            double lastKey = heapKeys[heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                    child++;
+                }
+                if (heapKeys[child] >= lastKey) {
+                    break;
+                }
+                heapNodes[i] = heapNodes[child];
+                heapKeys[i] = heapKeys[child];
+                i = child;
+            }
+            heapNodes[i] = lastNode;
+            heapKeys[i] = lastKey;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.pekara.service;
+
+/**
+ * Delivery stage behind {@link MailService}: rendered emails are queued here and sent by
+ * background workers over long-lived SMTP connections.
+ */
+public interface MailDelivery {
+
+    /**
+     * Queues the email and returns immediately. When the queue is full the email goes to the
+     * retry table instead, so it is delayed rather than lost.
+     */
+    void enqueue(OutgoingMail mail);
+
+    /**
+     * Puts due rows of the retry table back on the queue and returns how many were queued.
+     */
+    int retryDue();
+
+    /**
+     * @param retryId id of the retry row this send is an attempt of, or null for a first attempt
+     * @param attempts failed attempts so far
+     */
+    record OutgoingMail(String recipient, String subject, String body, Long retryId, int attempts) {
+
+        public OutgoingMail(String recipient, String subject, String body) {
+            this(recipient, subject, body, null, 0);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.pekara.service;
+
+import com.pekara.model.MailRetry;
+import com.pekara.repository.MailRetryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends queued emails from a few worker threads, each holding its own SMTP connection.
+ *
+ * A worker takes up to {@code app.mail.delivery.batch-size} emails off the queue at a time and
+ * sends them over its open connection, so the TCP, STARTTLS and AUTH handshakes are paid once per
+ * connection rather than once per email. The connection is closed after
+ * {@code app.mail.delivery.idle-timeout} without work and reopened on demand; a dropped connection
+ * is reopened once before the email counts as failed.
+ *
+ * Failed emails go to {@code mail_retries} and are re-queued by {@link #retryDue()} with an
+ * exponential backoff until {@code app.mail.delivery.max-attempts}. Emails still queued at shutdown
+ * are written there as well. An email whose address cannot be parsed is stored as dead straight
+ * away, without touching the connection, and dead rows are purged by {@link #purgeDead()} after
+ * {@code app.mail.delivery.dead-retention}.
+ *
+ * Metrics: {@code mail.queue} gauge, {@code mail.sent}, {@code mail.failed} and
+ * {@code mail.connections} counters, and {@code mail.batch} timer.
+ */
+@Slf4j
+@Service
+public class MailDeliveryImpl implements MailDelivery {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+    /** How long a retry row taken by {@link #retryDue()} stays hidden from other pollers. */
+    private static final Duration RETRY_LEASE = Duration.ofMinutes(5);
+
+    private final JavaMailSenderImpl mailSender;
+    private final MailRetryRepository mailRetryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String fromEmail;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration idleTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final int retryBatchSize;
+    private final Duration deadRetention;
+
+    private final BlockingQueue<OutgoingMail> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter connections;
+    private final Timer batchTimer;
+
+    public MailDeliveryImpl(JavaMailSenderImpl mailSender,
+                            MailRetryRepository mailRetryRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.mail.from:noreply@blackcar.com}") String fromEmail,
+                            @Value("${app.mail.delivery.workers:2}") int workerCount,
+                            @Value("${app.mail.delivery.queue-capacity:1000}") int queueCapacity,
+                            @Value("${app.mail.delivery.batch-size:50}") int batchSize,
+                            @Value("${app.mail.delivery.idle-timeout:PT30S}") Duration idleTimeout,
+                            @Value("${app.mail.delivery.max-attempts:6}") int maxAttempts,
+                            @Value("${app.mail.delivery.retry-backoff:PT30S}") Duration retryBackoff,
+                            @Value("${app.mail.delivery.retry-batch-size:100}") int retryBatchSize,
+                            @Value("${app.mail.delivery.dead-retention:P7D}") Duration deadRetention) {
+        this.mailSender = mailSender;
+        this.mailRetryRepository = mailRetryRepository;
+        // Failures are often recorded from after-commit callbacks, which must not join the finished transaction.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.fromEmail = fromEmail;
+        this.workerCount = Math.max(workerCount, 1);
+        this.batchSize = Math.max(batchSize, 1);
+        this.idleTimeout = idleTimeout;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.retryBatchSize = Math.max(retryBatchSize, 1);
+        this.deadRetention = deadRetention;
+        this.queue = new LinkedBlockingQueue<>(Math.max(queueCapacity, 1));
+
+        meterRegistry.gauge("mail.queue", queue, BlockingQueue::size);
+        this.sent = meterRegistry.counter("mail.sent");
+        this.failed = meterRegistry.counter("mail.failed");
+        this.connections = meterRegistry.counter("mail.connections");
+        this.batchTimer = meterRegistry.timer("mail.batch");
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(new Worker(), "mail-delivery-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+
+        List<OutgoingMail> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            log.info("Saving {} unsent emails for retry on shutdown", leftover.size());
+            leftover.forEach(this::park);
+        }
+    }
+
+    @Override
+    public void enqueue(OutgoingMail mail) {
+        if (!queue.offer(mail)) {
+            log.warn("Mail queue is full, saving email to {} for retry", mail.recipient());
+            park(mail);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.mail.delivery.retry-interval:PT30S}")
+    public int retryDue() {
+        int capacity = Math.min(queue.remainingCapacity(), retryBatchSize);
+        if (capacity == 0) {
+            return 0;
+        }
+        List<OutgoingMail> due = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<MailRetry> rows = mailRetryRepository.lockDue(now, maxAttempts, PageRequest.of(0, capacity));
+            List<OutgoingMail> mails = new ArrayList<>(rows.size());
+            for (MailRetry row : rows) {
+                // Leased rather than deleted: if this node dies before sending, the row becomes due again.
+                row.setNextAttemptAt(now.plus(RETRY_LEASE));
+                mails.add(new OutgoingMail(row.getRecipient(), row.getSubject(), row.getBody(),
+                        row.getId(), row.getAttempts()));
+            }
+            return mails;
+        });
+        if (due == null) {
+            return 0;
+        }
+        int queued = 0;
+        for (OutgoingMail mail : due) {
+            if (!queue.offer(mail)) {
+                break;
+            }
+            queued++;
+        }
+        return queued;
+    }
+
+    /**
+     * Deletes retry rows that ran out of attempts longer than {@code app.mail.delivery.dead-retention}
+     * ago and returns how many were removed.
+     */
+    @Scheduled(cron = "${app.mail.delivery.cleanup-cron:0 45 3 * * *}")
+    public int purgeDead() {
+        Integer deleted = transactionTemplate.execute(status ->
+                mailRetryRepository.deleteDeadBefore(maxAttempts, LocalDateTime.now().minus(deadRetention)));
+        log.info("Purged {} undeliverable emails", deleted);
+        return deleted != null ? deleted : 0;
+    }
+
+    private final class Worker implements Runnable {
+
+        private Transport transport;
+
+        @Override
+        public void run() {
+            List<OutgoingMail> batch = new ArrayList<>(batchSize);
+            try {
+                while (running) {
+                    OutgoingMail first = queue.poll(idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        disconnect();
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    try {
+                        deliver(batch);
+                    } catch (RuntimeException e) {
+                        log.error("Unexpected error while sending a batch of {} emails: {}", batch.size(), e.getMessage(), e);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                disconnect();
+            }
+        }
+
+        private void deliver(List<OutgoingMail> batch) {
+            long startedAt = System.nanoTime();
+            for (int i = 0; i < batch.size(); i++) {
+                OutgoingMail mail = batch.get(i);
+                MimeMessage message;
+                try {
+                    message = compose(mail);
+                } catch (MessagingException e) {
+                    // Nothing to do with the connection: fail just this email, it will never go through.
+                    rejected(mail, e);
+                    continue;
+                }
+                try {
+                    send(message);
+                    delivered(mail);
+                } catch (SendFailedException e) {
+                    failedOne(mail, e);
+                } catch (MessagingException e) {
+                    // The server may have dropped an idle connection; reconnect once before giving up.
+                    disconnect();
+                    try {
+                        send(message);
+                        delivered(mail);
+                    } catch (SendFailedException retryError) {
+                        failedOne(mail, retryError);
+                    } catch (MessagingException retryError) {
+                        disconnect();
+                        log.warn("SMTP server unavailable, saving {} emails for retry: {}",
+                                batch.size() - i, retryError.getMessage());
+                        for (int j = i; j < batch.size(); j++) {
+                            failedOne(batch.get(j), retryError);
+                        }
+                        break;
+                    }
+                }
+            }
+            batchTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+
+        private MimeMessage compose(OutgoingMail mail) throws MessagingException {
+            MimeMessage message = new MimeMessage(mailSender.getSession());
+            message.setFrom(new InternetAddress(fromEmail));
+            message.setRecipient(Message.RecipientType.TO, new InternetAddress(mail.recipient()));
+            message.setSubject(mail.subject(), StandardCharsets.UTF_8.name());
+            message.setText(mail.body(), StandardCharsets.UTF_8.name());
+            message.setSentDate(new Date());
+            message.saveChanges();
+            return message;
+        }
+
+        private void send(MimeMessage message) throws MessagingException {
+            if (transport == null || !transport.isConnected()) {
+                connect(mailSender.getSession());
+            }
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+
+        private void connect(Session session) throws MessagingException {
+            disconnect();
+            String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+            Transport fresh = session.getTransport(protocol);
+            fresh.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+            transport = fresh;
+            connections.increment();
+        }
+
+        private void disconnect() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Error closing SMTP connection: {}", e.getMessage());
+            }
+            transport = null;
+        }
+    }
+
+    private void delivered(OutgoingMail mail) {
+        sent.increment();
+        if (mail.retryId() == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> mailRetryRepository.deleteById(mail.retryId()));
+        } catch (RuntimeException e) {
+            log.warn("Email to {} was sent but its retry row {} could not be removed: {}",
+                    mail.recipient(), mail.retryId(), e.getMessage());
+        }
+    }
+
+    private void failedOne(OutgoingMail mail, Exception error) {
+        failed.increment();
+        int attempts = mail.attempts() + 1;
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        if (attempts >= maxAttempts) {
+            log.error("Giving up on email '{}' to {} after {} attempts: {}", mail.subject(), mail.recipient(), attempts, message);
+            saveRetry(mail, attempts, LocalDateTime.now(), message);
+            return;
+        }
+        log.warn("Failed to send email '{}' to {} (attempt {}), will retry: {}", mail.subject(), mail.recipient(), attempts, message);
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 16)));
+        saveRetry(mail, attempts, nextAttemptAt, message);
+    }
+
+    /**
+     * Stores an email that can never be sent, such as one with a malformed address, as dead.
+     */
+    private void rejected(OutgoingMail mail, MessagingException error) {
+        failed.increment();
+        String message = error instanceof AddressException
+                ? "Invalid address: " + error.getMessage()
+                : error.getMessage();
+        log.error("Dropping email '{}' to {}: {}", mail.subject(), mail.recipient(), message);
+        saveRetry(mail, Math.max(maxAttempts, mail.attempts() + 1), LocalDateTime.now(), message);
+    }
+
+    /**
+     * Stores an email that was never attempted so the retry poller sends it later.
+     */
+    private void park(OutgoingMail mail) {
+        saveRetry(mail, mail.attempts(), LocalDateTime.now(), null);
+    }
+
+    private void saveRetry(OutgoingMail mail, int attempts, LocalDateTime nextAttemptAt, String error) {
+        String lastError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                MailRetry row = mail.retryId() != null
+                        ? mailRetryRepository.findById(mail.retryId()).orElse(null)
+                        : null;
+                if (row == null) {
+                    row = MailRetry.builder()
+                            .recipient(mail.recipient())
+                            .subject(mail.subject())
+                            .body(mail.body())
+                            .build();
+                }
+                row.setAttempts(attempts);
+                row.setNextAttemptAt(nextAttemptAt);
+                row.setLastError(lastError);
+                mailRetryRepository.save(row);
+            });
+        } catch (RuntimeException e) {
+            log.error("Could not save email to {} for retry, it is lost: {}", mail.recipient(), e.getMessage());
+        }
+    }
+}
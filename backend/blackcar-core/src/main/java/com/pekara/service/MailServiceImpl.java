@@ -1,190 +1,92 @@
 package com.pekara.service;
 
+import com.pekara.service.MailDelivery.OutgoingMail;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Renders emails from their {@link MailTemplate} and queues them on {@link MailDelivery}; none of
+ * these methods waits for SMTP.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MailServiceImpl implements MailService {
 
-    private final JavaMailSender mailSender;
-
-    @Value("${app.mail.from:noreply@blackcar.com}")
-    private String fromEmail;
+    private final MailDelivery mailDelivery;
 
     @Value("${app.frontend.url:http://localhost:4200}")
     private String frontendUrl;
 
-    @Async
     @Override
     public void sendActivationEmail(String toEmail, String activationToken) {
-        try {
-            String activationLink = frontendUrl + "/activate?token=" + activationToken;
-
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("Activate Your BlackCar Account");
-            message.setText(
-                    "Welcome to BlackCar!\n\n" +
-                    "Please click the link below to activate your account:\n" +
-                    activationLink + "\n\n" +
-                    "This link will expire in 24 hours.\n\n" +
-                    "If you didn't create an account, please ignore this email.\n\n" +
-                    "Best regards,\n" +
-                    "BlackCar Team"
-            );
-
-            mailSender.send(message);
-            log.info("Activation email sent successfully to: {}", toEmail);
-
-        } catch (Exception e) {
-            log.error("Failed to send activation email to: {}", toEmail, e);
-            throw new RuntimeException("Failed to send activation email", e);
-        }
+        send(MailTemplate.ACTIVATION, toEmail,
+                "activationLink", frontendUrl + "/activate?token=" + activationToken);
     }
 
-    @Async
     @Override
     public void sendDriverActivationEmail(String toEmail, String activationToken, String driverName) {
-        try {
-            String activationLink = frontendUrl + "/activate?token=" + activationToken + "&mode=driver";
-
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("Welcome to BlackCar - Activate Your Driver Account");
-            message.setText(
-                    "Hello " + driverName + ",\n\n" +
-                    "You have been registered as a driver on BlackCar!\n\n" +
-                    "Please click the link below to activate your account and set up your password:\n" +
-                    activationLink + "\n\n" +
-                    "This link will expire in 24 hours.\n\n" +
-                    "Once activated, you'll be able to start accepting rides and earning with BlackCar.\n\n" +
-                    "If you didn't expect this email, please contact our support team.\n\n" +
-                    "Best regards,\n" +
-                    "BlackCar Team"
-            );
-
-            mailSender.send(message);
-            log.info("Driver activation email sent successfully to: {}", toEmail);
-
-        } catch (Exception e) {
-            log.error("Failed to send driver activation email to: {}", toEmail, e);
-            throw new RuntimeException("Failed to send driver activation email", e);
-        }
+        send(MailTemplate.DRIVER_ACTIVATION, toEmail,
+                "driverName", driverName,
+                "activationLink", frontendUrl + "/activate?token=" + activationToken + "&mode=driver");
     }
 
-    @Async
     @Override
-    public void sendRideAssignedToDriver(String driverEmail, Long rideId, java.time.LocalDateTime scheduledAt) {
-        String when = scheduledAt == null ? "now" : "scheduled for " + scheduledAt;
-        sendPlainText(
-                driverEmail,
-                "New Ride Assigned (Ride #" + rideId + ")",
-                "You have been assigned a new ride (Ride #" + rideId + ") " + when + ".\n\n" +
-                "Please check the application for details.\n\n" +
-                "BlackCar Team"
-        );
+    public void sendRideAssignedToDriver(String driverEmail, Long rideId, LocalDateTime scheduledAt) {
+        send(MailTemplate.RIDE_ASSIGNED, driverEmail,
+                "rideId", rideId,
+                "when", scheduledAt == null ? "now" : "scheduled for " + scheduledAt);
     }
 
-    @Async
     @Override
     public void sendRideOrderAccepted(String toEmail, Long rideId, String status) {
-        sendPlainText(
-                toEmail,
-                "Ride Order Accepted (Ride #" + rideId + ")",
-                "Your ride order has been accepted.\n\n" +
-                "Ride ID: " + rideId + "\n" +
-                "Status: " + status + "\n\n" +
-                "BlackCar Team"
-        );
+        send(MailTemplate.RIDE_ACCEPTED, toEmail,
+                "rideId", rideId,
+                "status", status);
     }
 
-    @Async
     @Override
     public void sendRideOrderRejected(String toEmail, String reason) {
-        sendPlainText(
-                toEmail,
-                "Ride Order Rejected",
-                "Your ride order could not be completed.\n\n" +
-                "Reason: " + reason + "\n\n" +
-                "BlackCar Team"
-        );
+        send(MailTemplate.RIDE_REJECTED, toEmail,
+                "reason", reason);
     }
 
-    @Async
     @Override
     public void sendRideDetailsShared(String toEmail, Long rideId, String creatorEmail) {
-        String trackingLink = frontendUrl + "/rides/" + rideId + "/track";
-        sendPlainText(
-                toEmail,
-                "Ride Details Shared (Ride #" + rideId + ")",
-                creatorEmail + " shared ride details with you.\n\n" +
-                "Ride ID: " + rideId + "\n" +
-                "You can track your ride here: " + trackingLink + "\n\n" +
-                "BlackCar Team"
-        );
+        send(MailTemplate.RIDE_SHARED, toEmail,
+                "rideId", rideId,
+                "creatorEmail", creatorEmail,
+                "trackingLink", frontendUrl + "/rides/" + rideId + "/track");
     }
 
-    @Async
     @Override
-    public void sendRideReminder(String toEmail, Long rideId, java.time.LocalDateTime scheduledAt) {
-        sendPlainText(
-                toEmail,
-                "Ride Reminder (Ride #" + rideId + ")",
-                "Reminder: your scheduled ride (Ride #" + rideId + ") starts at " + scheduledAt + ".\n\n" +
-                "BlackCar Team"
-        );
-    }
-
-    private void sendPlainText(String toEmail, String subject, String text) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject(subject);
-            message.setText(text);
-            mailSender.send(message);
-        } catch (Exception e) {
-            log.error("Failed to send email to: {}", toEmail, e);
-            throw new RuntimeException("Failed to send email", e);
-        }
+    public void sendRideReminder(String toEmail, Long rideId, LocalDateTime scheduledAt) {
+        send(MailTemplate.RIDE_REMINDER, toEmail,
+                "rideId", rideId,
+                "scheduledAt", scheduledAt);
     }
 
-    @Async
     @Override
-    public void sendRideCompleted(String toEmail, Long rideId, java.math.BigDecimal finalPrice) {
-        try {
-            String rideDetailsLink = frontendUrl + "/rides/" + rideId + "/track";
-
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("Ride #" + rideId + " Completed");
-            message.setText(
-                    "Your ride has been completed!\n\n" +
-                            "Ride ID: " + rideId + "\n" +
-                            "Final Price: " + (finalPrice != null ? finalPrice + " RSD" : "N/A") + "\n\n" +
-                            "You can see your ride details here:\n" +
-                            rideDetailsLink + "\n\n" +
-                            "Thank you for choosing BlackCar!\n\n" +
-                            "Best regards,\n" +
-                            "BlackCar Team"
-            );
-
-            mailSender.send(message);
-            log.info("Ride completion email sent successfully to: {} for ride: {}", toEmail, rideId);
+    public void sendRideCompleted(String toEmail, Long rideId, BigDecimal finalPrice) {
+        send(MailTemplate.RIDE_COMPLETED, toEmail,
+                "rideId", rideId,
+                "finalPrice", finalPrice != null ? finalPrice + " RSD" : "N/A",
+                "rideDetailsLink", frontendUrl + "/rides/" + rideId + "/track");
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to send ride completion email to: {} for ride: {}", toEmail, rideId, e);
-            throw new RuntimeException("Failed to send ride completion email", e);
+    private void send(MailTemplate template, String toEmail, Object... keyValues) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            values.put((String) keyValues[i], keyValues[i + 1]);
         }
+        mailDelivery.enqueue(new OutgoingMail(toEmail, template.subject(values), template.body(values)));
+        log.debug("Queued {} email for {}", template, toEmail);
     }
 }
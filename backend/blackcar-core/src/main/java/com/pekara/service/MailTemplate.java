@@ -0,0 +1,149 @@
+package com.pekara.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain-text email templates. Placeholders are written as {@code {name}}; each template is split
+ * into literal and placeholder segments once, when the class loads, so rendering is a single pass
+ * that only appends strings.
+ */
+enum MailTemplate {
+
+    ACTIVATION("Activate Your BlackCar Account", """
+            Welcome to BlackCar!
+
+            Please click the link below to activate your account:
+            {activationLink}
+
+            This link will expire in 24 hours.
+
+            If you didn't create an account, please ignore this email.
+
+            Best regards,
+            BlackCar Team"""),
+
+    DRIVER_ACTIVATION("Welcome to BlackCar - Activate Your Driver Account", """
+            Hello {driverName},
+
+            You have been registered as a driver on BlackCar!
+
+            Please click the link below to activate your account and set up your password:
+            {activationLink}
+
+            This link will expire in 24 hours.
+
+            Once activated, you'll be able to start accepting rides and earning with BlackCar.
+
+            If you didn't expect this email, please contact our support team.
+
+            Best regards,
+            BlackCar Team"""),
+
+    RIDE_ASSIGNED("New Ride Assigned (Ride #{rideId})", """
+            You have been assigned a new ride (Ride #{rideId}) {when}.
+
+            Please check the application for details.
+
+            BlackCar Team"""),
+
+    RIDE_ACCEPTED("Ride Order Accepted (Ride #{rideId})", """
+            Your ride order has been accepted.
+
+            Ride ID: {rideId}
+            Status: {status}
+
+            BlackCar Team"""),
+
+    RIDE_REJECTED("Ride Order Rejected", """
+            Your ride order could not be completed.
+
+            Reason: {reason}
+
+            BlackCar Team"""),
+
+    RIDE_SHARED("Ride Details Shared (Ride #{rideId})", """
+            {creatorEmail} shared ride details with you.
+
+            Ride ID: {rideId}
+            You can track your ride here: {trackingLink}
+
+            BlackCar Team"""),
+
+    RIDE_REMINDER("Ride Reminder (Ride #{rideId})", """
+            Reminder: your scheduled ride (Ride #{rideId}) starts at {scheduledAt}.
+
+            BlackCar Team"""),
+
+    RIDE_COMPLETED("Ride #{rideId} Completed", """
+            Your ride has been completed!
+
+            Ride ID: {rideId}
+            Final Price: {finalPrice}
+
+            You can see your ride details here:
+            {rideDetailsLink}
+
+            Thank you for choosing BlackCar!
+
+            Best regards,
+            BlackCar Team""");
+
+    private final Compiled subject;
+    private final Compiled body;
+
+    MailTemplate(String subject, String body) {
+        this.subject = Compiled.parse(subject);
+        this.body = Compiled.parse(body);
+    }
+
+    String subject(Map<String, ?> values) {
+        return subject.render(values);
+    }
+
+    String body(Map<String, ?> values) {
+        return body.render(values);
+    }
+
+    /**
+     * A template as alternating segments: even indexes are literal text, odd indexes placeholder names.
+     */
+    private record Compiled(String[] segments, int literalLength) {
+
+        static Compiled parse(String template) {
+            List<String> segments = new ArrayList<>();
+            int literalLength = 0;
+            int from = 0;
+            while (true) {
+                int open = template.indexOf('{', from);
+                int close = open < 0 ? -1 : template.indexOf('}', open);
+                if (close < 0) {
+                    segments.add(template.substring(from));
+                    literalLength += template.length() - from;
+                    break;
+                }
+                segments.add(template.substring(from, open));
+                segments.add(template.substring(open + 1, close));
+                literalLength += open - from;
+                from = close + 1;
+            }
+            return new Compiled(segments.toArray(String[]::new), literalLength);
+        }
+
+        String render(Map<String, ?> values) {
+            StringBuilder out = new StringBuilder(literalLength + 64);
+            for (int i = 0; i < segments.length; i++) {
+                if (i % 2 == 0) {
+                    out.append(segments[i]);
+                    continue;
+                }
+                if (!values.containsKey(segments[i])) {
+                    throw new IllegalArgumentException("No value for mail placeholder {" + segments[i] + "}");
+                }
+                out.append(values.get(segments[i]));
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.pekara.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbound stage for user notifications. Callers describe what to send; the dispatcher waits for
+ * the surrounding transaction to finish and fans the notifications out per channel on its own
+ * bounded executors, so no email, push or WebSocket call runs while the caller holds row locks.
+ */
+public interface NotificationDispatcher {
+
+    /**
+     * Sends the notifications once the current transaction commits, or right away if there is none.
+     * Nothing is sent if the transaction rolls back.
+     */
+    void dispatch(List<OutboundNotification> notifications);
+
+    /**
+     * Sends the notifications once the current transaction completes, whether it commits or rolls back.
+     * For notifications that report the failure itself, such as a rejected ride order.
+     */
+    void dispatchAfterCompletion(List<OutboundNotification> notifications);
+
+    sealed interface OutboundNotification permits Mail, Push, Socket {
+    }
+
+    /**
+     * An email handed to {@link MailService}, which queues it for background delivery.
+     */
+    record Mail(String recipient, Runnable send) implements OutboundNotification {
+    }
+
+    /**
+     * An FCM push. The device token is looked up by email when it is not already known.
+     */
+    record Push(String email, String deviceToken, String title, String body, Map<String, String> data)
+            implements OutboundNotification {
+
+        public Push(String email, String title, String body, Map<String, String> data) {
+            this(email, null, title, body, data);
+        }
+    }
+
+    record Socket(String destination, Object payload) implements OutboundNotification {
+    }
+}
@@ -0,0 +1,299 @@
+package com.pekara.service;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import com.pekara.dto.UserDeviceTokenDto;
+import com.pekara.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Fans notifications out per channel once the caller's transaction is over.
+ *
+ * Pushes and WebSocket messages each run on a small bounded executor; a full queue drops the
+ * notification and counts it rather than blocking the request thread. All pushes of one dispatch
+ * resolve their device tokens with a single query and go to FCM through {@code sendEach}, in
+ * batches of up to 500. Emails are handed straight to {@link MailService}, which only renders
+ * them and queues them on {@link MailDelivery}.
+ *
+ * Metrics, tagged by {@code channel}: {@code notification.queue} gauge, {@code notification.latency}
+ * timer (from dispatch to delivery), and {@code notification.sent}, {@code notification.failed} and
+ * {@code notification.dropped} counters.
+ */
+@Slf4j
+@Service
+public class NotificationDispatcherImpl implements NotificationDispatcher {
+
+    enum Channel {
+        MAIL, PUSH, SOCKET;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final FcmGateway fcmGateway;
+
+    private final ThreadPoolTaskExecutor pushExecutor;
+    private final ThreadPoolTaskExecutor socketExecutor;
+
+    private final Map<Channel, ChannelMeters> meters = new EnumMap<>(Channel.class);
+
+    public NotificationDispatcherImpl(UserRepository userRepository,
+                                      SimpMessagingTemplate messagingTemplate,
+                                      FcmGateway fcmGateway,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.notifications.push.threads:2}") int pushThreads,
+                                      @Value("${app.notifications.socket.threads:2}") int socketThreads,
+                                      @Value("${app.notifications.queue-capacity:1000}") int queueCapacity) {
+        this.userRepository = userRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.fcmGateway = fcmGateway;
+        this.pushExecutor = executor("notify-push-", pushThreads, queueCapacity);
+        this.socketExecutor = executor("notify-socket-", socketThreads, queueCapacity);
+
+        for (Channel channel : Channel.values()) {
+            meters.put(channel, new ChannelMeters(meterRegistry, channel));
+        }
+        meterRegistry.gauge("notification.queue", Tags.of("channel", Channel.PUSH.tag()), pushExecutor,
+                executor -> executor.getThreadPoolExecutor().getQueue().size());
+        meterRegistry.gauge("notification.queue", Tags.of("channel", Channel.SOCKET.tag()), socketExecutor,
+                executor -> executor.getThreadPoolExecutor().getQueue().size());
+    }
+
+    @Override
+    public void dispatch(List<OutboundNotification> notifications) {
+        if (notifications == null || notifications.isEmpty()) {
+            return;
+        }
+        List<OutboundNotification> batch = List.copyOf(notifications);
+        afterTransaction(false, () -> fanOut(batch));
+    }
+
+    @Override
+    public void dispatchAfterCompletion(List<OutboundNotification> notifications) {
+        if (notifications == null || notifications.isEmpty()) {
+            return;
+        }
+        List<OutboundNotification> batch = List.copyOf(notifications);
+        afterTransaction(true, () -> fanOut(batch));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pushExecutor.shutdown();
+        socketExecutor.shutdown();
+    }
+
+    private void fanOut(List<OutboundNotification> notifications) {
+        long dispatchedAt = System.nanoTime();
+        List<Push> pushes = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        for (OutboundNotification notification : notifications) {
+            if (notification instanceof Mail mail) {
+                sendMail(mail);
+            } else if (notification instanceof Push push) {
+                pushes.add(push);
+            } else if (notification instanceof Socket socket) {
+                sockets.add(socket);
+            }
+        }
+        if (!pushes.isEmpty()) {
+            submit(Channel.PUSH, pushExecutor, pushes.size(), dispatchedAt, () -> sendPushes(pushes));
+        }
+        if (!sockets.isEmpty()) {
+            submit(Channel.SOCKET, socketExecutor, sockets.size(), dispatchedAt, () -> sendSockets(sockets));
+        }
+    }
+
+    private void sendMail(Mail mail) {
+        ChannelMeters channel = meters.get(Channel.MAIL);
+        try {
+            mail.send().run();
+            channel.sent.increment();
+        } catch (RuntimeException e) {
+            channel.failed.increment();
+            log.warn("Failed to hand email for {} to the mail service: {}", mail.recipient(), e.getMessage());
+        }
+    }
+
+    private void sendSockets(List<Socket> sockets) {
+        ChannelMeters channel = meters.get(Channel.SOCKET);
+        for (Socket socket : sockets) {
+            try {
+                messagingTemplate.convertAndSend(socket.destination(), socket.payload());
+                channel.sent.increment();
+            } catch (RuntimeException e) {
+                channel.failed.increment();
+                log.warn("Failed to send WebSocket notification to {}: {}", socket.destination(), e.getMessage());
+            }
+        }
+    }
+
+    private void sendPushes(List<Push> pushes) {
+        ChannelMeters channel = meters.get(Channel.PUSH);
+        if (!fcmGateway.isAvailable()) {
+            log.debug("Firebase not initialized; skipping {} push notifications", pushes.size());
+            return;
+        }
+
+        Map<String, String> tokens = resolveTokens(pushes);
+        List<Message> messages = new ArrayList<>();
+        List<String> recipients = new ArrayList<>();
+        for (Push push : pushes) {
+            String token = push.deviceToken() != null ? push.deviceToken() : tokens.get(push.email());
+            if (token == null || token.isBlank()) {
+                log.debug("No device token for {}; cannot send FCM", push.email());
+                continue;
+            }
+            messages.add(toMessage(push, token));
+            recipients.add(push.email());
+        }
+
+        for (int from = 0; from < messages.size(); from += FcmGateway.MAX_BATCH_SIZE) {
+            int to = Math.min(from + FcmGateway.MAX_BATCH_SIZE, messages.size());
+            try {
+                BatchResponse response = fcmGateway.sendEach(messages.subList(from, to));
+                channel.sent.increment(response.getSuccessCount());
+                channel.failed.increment(response.getFailureCount());
+                List<SendResponse> responses = response.getResponses();
+                for (int i = 0; i < responses.size(); i++) {
+                    if (!responses.get(i).isSuccessful()) {
+                        log.warn("Failed to send FCM to {}: {}", recipients.get(from + i),
+                                responses.get(i).getException() != null ? responses.get(i).getException().getMessage() : "unknown error");
+                    }
+                }
+            } catch (Exception e) {
+                channel.failed.increment(to - from);
+                log.warn("Failed to send a batch of {} FCM messages: {}", to - from, e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, String> resolveTokens(List<Push> pushes) {
+        Set<String> emails = pushes.stream()
+                .filter(push -> push.deviceToken() == null && push.email() != null && !push.email().isBlank())
+                .map(Push::email)
+                .collect(Collectors.toSet());
+        if (emails.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return userRepository.findDeviceTokensByEmails(emails).stream()
+                    .collect(Collectors.toMap(UserDeviceTokenDto::getEmail, UserDeviceTokenDto::getDeviceToken,
+                            (first, second) -> first));
+        } catch (RuntimeException e) {
+            log.warn("Unable to fetch device tokens for {} users: {}", emails.size(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static Message toMessage(Push push, String token) {
+        Message.Builder builder = Message.builder().setToken(token);
+        if (push.title() != null || push.body() != null) {
+            Notification.Builder notification = Notification.builder();
+            if (push.title() != null) notification.setTitle(push.title());
+            if (push.body() != null) notification.setBody(push.body());
+            builder.setNotification(notification.build());
+        }
+        if (push.data() != null && !push.data().isEmpty()) {
+            builder.putAllData(push.data());
+        }
+        return builder.build();
+    }
+
+    private void submit(Channel channel, ThreadPoolTaskExecutor executor, int count, long dispatchedAt, Runnable task) {
+        ChannelMeters channelMeters = meters.get(channel);
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("Unexpected error while sending {} notifications: {}", channel.tag(), e.getMessage());
+                } finally {
+                    channelMeters.latency.record(System.nanoTime() - dispatchedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            channelMeters.dropped.increment(count);
+            log.warn("Notification queue for {} is full, dropped {} notifications", channel.tag(), count);
+        }
+    }
+
+    /**
+     * Runs the action after the current transaction commits, or after it completes either way when
+     * {@code evenOnRollback} is set. Without a transaction the action runs immediately.
+     */
+    private static void afterTransaction(boolean evenOnRollback, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (!evenOnRollback) {
+                    action.run();
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (evenOnRollback) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static ThreadPoolTaskExecutor executor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(threads, 1));
+        executor.setMaxPoolSize(Math.max(threads, 1));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    private static final class ChannelMeters {
+        private final Counter sent;
+        private final Counter failed;
+        private final Counter dropped;
+        private final Timer latency;
+
+        private ChannelMeters(MeterRegistry registry, Channel channel) {
+            Tags tags = Tags.of("channel", channel.tag());
+            this.sent = registry.counter("notification.sent", tags);
+            this.failed = registry.counter("notification.failed", tags);
+            this.dropped = registry.counter("notification.dropped", tags);
+            this.latency = registry.timer("notification.latency", tags);
+        }
+    }
+}
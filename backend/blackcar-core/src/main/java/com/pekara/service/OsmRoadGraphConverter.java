@@ -0,0 +1,248 @@
+package com.pekara.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converts an OSM XML extract ({@code .osm} or {@code .osm.gz}) into the {@link RoadGraph} file read
+ * by the local routing engine. PBF extracts are converted to XML first, see
+ * {@code scripts/build-road-graph.sh}.
+ *
+ * Only ways drivable by car are kept. Each way becomes edges between consecutive nodes, one way or
+ * both depending on its {@code oneway} and {@code junction} tags, with travel time taken from
+ * {@code maxspeed} or a default speed for the highway class. The file is read twice: ways first, to
+ * learn which nodes are needed, then the coordinates of just those nodes.
+ *
+ * Usage: {@code java -cp blackcar-core/target/classes com.pekara.service.OsmRoadGraphConverter <extract.osm> <graph.bcrg>}
+ */
+public final class OsmRoadGraphConverter {
+
+    private static final Map<String, Double> DEFAULT_SPEEDS_KMH = Map.ofEntries(
+            Map.entry("motorway", 110.0),
+            Map.entry("motorway_link", 60.0),
+            Map.entry("trunk", 90.0),
+            Map.entry("trunk_link", 50.0),
+            Map.entry("primary", 70.0),
+            Map.entry("primary_link", 40.0),
+            Map.entry("secondary", 60.0),
+            Map.entry("secondary_link", 40.0),
+            Map.entry("tertiary", 50.0),
+            Map.entry("tertiary_link", 30.0),
+            Map.entry("unclassified", 40.0),
+            Map.entry("residential", 30.0),
+            Map.entry("living_street", 10.0),
+            Map.entry("service", 15.0));
+
+    private static final Set<String> NO_ACCESS = Set.of("no", "private");
+
+    private OsmRoadGraphConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: OsmRoadGraphConverter <extract.osm[.gz]> <graph.bcrg>");
+            System.exit(2);
+        }
+        Path output = Path.of(args[1]);
+        RoadGraph graph = convert(Path.of(args[0]));
+        try (OutputStream out = Files.newOutputStream(output)) {
+            graph.write(out);
+        }
+        System.out.printf("Wrote %s: %d nodes, %d edges%n", output, graph.nodeCount(), graph.edgeCount());
+    }
+
+    public static RoadGraph convert(Path osmFile) throws IOException {
+        List<Way> ways = readWays(osmFile);
+        Set<Long> usedNodes = new HashSet<>();
+        ways.forEach(way -> {
+            for (long ref : way.nodeRefs()) {
+                usedNodes.add(ref);
+            }
+        });
+
+        RoadGraph.Builder builder = RoadGraph.builder();
+        Map<Long, Integer> nodeIndex = readNodes(osmFile, usedNodes, builder);
+
+        for (Way way : ways) {
+            long[] refs = way.nodeRefs();
+            for (int i = 0; i + 1 < refs.length; i++) {
+                Integer from = nodeIndex.get(refs[i]);
+                Integer to = nodeIndex.get(refs[i + 1]);
+                if (from == null || to == null || from.equals(to)) {
+                    // Extracts clipped at a boundary can reference nodes they do not contain.
+                    continue;
+                }
+                if (way.direction() >= 0) {
+                    builder.addOneWayRoad(from, to, way.speedKmh());
+                }
+                if (way.direction() <= 0) {
+                    builder.addOneWayRoad(to, from, way.speedKmh());
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static List<Way> readWays(Path osmFile) throws IOException {
+        List<Way> ways = new ArrayList<>();
+        try (InputStream in = open(osmFile)) {
+            XMLStreamReader xml = XMLInputFactory.newFactory().createXMLStreamReader(in);
+            List<Long> refs = null;
+            Map<String, String> tags = null;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "way" -> {
+                            refs = new ArrayList<>();
+                            tags = new HashMap<>();
+                        }
+                        case "nd" -> {
+                            if (refs != null) {
+                                refs.add(Long.parseLong(xml.getAttributeValue(null, "ref")));
+                            }
+                        }
+                        case "tag" -> {
+                            if (tags != null) {
+                                tags.put(xml.getAttributeValue(null, "k"), xml.getAttributeValue(null, "v"));
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(xml.getLocalName())) {
+                    Way way = toWay(refs, tags);
+                    if (way != null) {
+                        ways.add(way);
+                    }
+                    refs = null;
+                    tags = null;
+                }
+            }
+            xml.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot read OSM file " + osmFile, ex);
+        }
+        return ways;
+    }
+
+    private static Map<Long, Integer> readNodes(Path osmFile, Set<Long> usedNodes, RoadGraph.Builder builder)
+            throws IOException {
+        Map<Long, Integer> nodeIndex = new HashMap<>(usedNodes.size() * 2);
+        try (InputStream in = open(osmFile)) {
+            XMLStreamReader xml = XMLInputFactory.newFactory().createXMLStreamReader(in);
+            while (xml.hasNext()) {
+                if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String element = xml.getLocalName();
+                if ("way".equals(element) || "relation".equals(element)) {
+                    // OSM files list nodes before ways and relations.
+                    break;
+                }
+                if (!"node".equals(element)) {
+                    continue;
+                }
+                long id = Long.parseLong(xml.getAttributeValue(null, "id"));
+                if (usedNodes.contains(id)) {
+                    nodeIndex.put(id, builder.addNode(
+                            Double.parseDouble(xml.getAttributeValue(null, "lat")),
+                            Double.parseDouble(xml.getAttributeValue(null, "lon"))));
+                }
+            }
+            xml.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot read OSM file " + osmFile, ex);
+        }
+        return nodeIndex;
+    }
+
+    /**
+     * Returns the routable way, or null for ways a car cannot use.
+     */
+    static Way toWay(List<Long> refs, Map<String, String> tags) {
+        if (refs == null || refs.size() < 2) {
+            return null;
+        }
+        Double defaultSpeed = DEFAULT_SPEEDS_KMH.get(tags.get("highway"));
+        if (defaultSpeed == null
+                || noAccess(tags.get("access"))
+                || noAccess(tags.get("motor_vehicle"))
+                || "yes".equals(tags.get("area"))) {
+            return null;
+        }
+
+        String oneway = tags.getOrDefault("oneway", "");
+        int direction;
+        if ("-1".equals(oneway) || "reverse".equals(oneway)) {
+            direction = -1;
+        } else if ("yes".equals(oneway) || "1".equals(oneway) || "true".equals(oneway)) {
+            direction = 1;
+        } else if ("no".equals(oneway)) {
+            direction = 0;
+        } else {
+            boolean impliedOneway = "motorway".equals(tags.get("highway"))
+                    || "roundabout".equals(tags.get("junction"))
+                    || "circular".equals(tags.get("junction"));
+            direction = impliedOneway ? 1 : 0;
+        }
+
+        long[] nodeRefs = refs.stream().mapToLong(Long::longValue).toArray();
+        return new Way(nodeRefs, parseSpeed(tags.get("maxspeed"), defaultSpeed), direction);
+    }
+
+    private static boolean noAccess(String value) {
+        return value != null && NO_ACCESS.contains(value);
+    }
+
+    /**
+     * Parses numeric {@code maxspeed} values such as {@code 50} or {@code 30 mph}. Anything else
+     * (zones, {@code walk}, {@code none}) keeps the highway default.
+     */
+    static double parseSpeed(String maxspeed, double defaultSpeed) {
+        if (maxspeed == null) {
+            return defaultSpeed;
+        }
+        String value = maxspeed.trim().toLowerCase(Locale.ROOT);
+        boolean mph = value.endsWith("mph");
+        if (mph) {
+            value = value.substring(0, value.length() - 3).trim();
+        }
+        try {
+            double speed = Double.parseDouble(value);
+            if (speed <= 0) {
+                return defaultSpeed;
+            }
+            return mph ? speed * 1.609344 : speed;
+        } catch (NumberFormatException ex) {
+            return defaultSpeed;
+        }
+    }
+
+    private static InputStream open(Path osmFile) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(osmFile), 1 << 16);
+        return osmFile.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    /**
+     * A routable way: its node ids, speed and direction (1 forward only, -1 backward only, 0 both).
+     */
+    record Way(long[] nodeRefs, double speedKmh, int direction) {
+    }
+}
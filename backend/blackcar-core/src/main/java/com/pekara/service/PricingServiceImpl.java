@@ -3,22 +3,38 @@ package com.pekara.service;
 import com.pekara.dto.PricingDto;
 import com.pekara.model.Pricing;
 import com.pekara.repository.PricingRepository;
+import com.pekara.util.ReferenceCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Pricing per vehicle type. Lookups, including the fallback to STANDARD, are served from a
+ * {@link ReferenceCache} that {@link #updatePricing} clears.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PricingServiceImpl implements PricingService {
 
     private final PricingRepository pricingRepository;
+    private final ReferenceCache<String, PricingDto> cache;
+
+    public PricingServiceImpl(PricingRepository pricingRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.cache.pricing.ttl:PT10M}") Duration ttl) {
+        this.pricingRepository = pricingRepository;
+        this.cache = new ReferenceCache<>("pricing", 64, ttl, meterRegistry);
+    }
 
     @PostConstruct
     public void initDefaultPricing() {
@@ -51,7 +67,13 @@ public class PricingServiceImpl implements PricingService {
 
     @Override
     public PricingDto getPricingByVehicleType(String vehicleType) {
-        return pricingRepository.findById(vehicleType.toUpperCase())
+        PricingDto cached = cache.get(vehicleType.toUpperCase(Locale.ROOT), type -> Optional.of(loadPricing(type))).orElseThrow();
+        // PricingDto is mutable, so callers never get the cached instance itself.
+        return copy(cached);
+    }
+
+    private PricingDto loadPricing(String vehicleType) {
+        return pricingRepository.findById(vehicleType)
                 .map(this::mapToDto)
                 .orElseGet(() -> {
                     log.warn("Pricing not found for vehicle type: {}, returning default STANDARD pricing", vehicleType);
@@ -75,9 +97,19 @@ public class PricingServiceImpl implements PricingService {
         pricing.setPricePerKm(pricingDto.getPricePerKm());
         
         Pricing saved = pricingRepository.save(pricing);
+        // Every type may have fallen back to this row, so drop them all.
+        cache.invalidateAll();
         return mapToDto(saved);
     }
 
+    private static PricingDto copy(PricingDto pricing) {
+        return PricingDto.builder()
+                .vehicleType(pricing.getVehicleType())
+                .basePrice(pricing.getBasePrice())
+                .pricePerKm(pricing.getPricePerKm())
+                .build();
+    }
+
     private PricingDto mapToDto(Pricing pricing) {
         return PricingDto.builder()
                 .vehicleType(pricing.getVehicleType())
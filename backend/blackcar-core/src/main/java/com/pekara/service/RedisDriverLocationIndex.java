@@ -0,0 +1,419 @@
+package com.pekara.service;
+
+import com.pekara.model.Driver;
+import com.pekara.model.DriverLocationSnapshot;
+import com.pekara.model.DriverState;
+import com.pekara.repository.DriverStateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.domain.geo.GeoReference;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Driver presence shared between backend nodes through Redis, enabled with
+ * {@code app.drivers.presence.store=redis}.
+ *
+ * Layout:
+ * <pre>
+ *   drivers:presence:{id}              snapshot JSON
+ *   drivers:geo:{vehicleType}:{free|busy}  GEO set of driver ids at their matching anchor
+ *   drivers:geo:sets                   names of the GEO sets in use
+ *   drivers:unlocated                  online drivers without a known position
+ *   drivers:online                     all online driver ids
+ * </pre>
+ * Nearest-driver queries run GEOSEARCH on the sets that match the requested vehicle type and
+ * availability. Writes are read-modify-write without locking; the last writer wins, and the
+ * database stays the source of truth that matching confirms candidates against. A write reads the
+ * snapshot and sends all its changes in one pipeline, so it costs two round trips. A Redis failure
+ * is logged and skipped rather than failing the caller, whose change is already committed.
+ *
+ * Presence keys expire after {@code app.drivers.presence.ttl} without a write, so a driver that
+ * is never removed (a node crashing mid-update) does not stay around for good. Set members whose
+ * presence key has expired are dropped when a search comes across them.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.drivers.presence.store", havingValue = "redis")
+public class RedisDriverLocationIndex implements DriverLocationIndex {
+
+    static final String ONLINE_KEY = "drivers:online";
+    static final String UNLOCATED_KEY = "drivers:unlocated";
+    static final String GEO_SETS_KEY = "drivers:geo:sets";
+    private static final String PRESENCE_PREFIX = "drivers:presence:";
+    private static final String GEO_PREFIX = "drivers:geo:";
+    private static final String UNKNOWN_TYPE = "unknown";
+
+    private static final double SEARCH_RADIUS_KM = 500.0;
+    private static final int MIN_SEARCH_COUNT = 32;
+
+    private final DriverStateRepository driverStateRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisTemplate<String, DriverLocationSnapshot> driverPresenceRedisTemplate;
+    private final RedisSerializer<DriverLocationSnapshot> presenceSerializer;
+    private final Duration presenceTtl;
+
+    @SuppressWarnings("unchecked")
+    public RedisDriverLocationIndex(DriverStateRepository driverStateRepository,
+                                    StringRedisTemplate redisTemplate,
+                                    RedisTemplate<String, DriverLocationSnapshot> driverPresenceRedisTemplate,
+                                    @Value("${app.drivers.presence.ttl:PT12H}") Duration presenceTtl) {
+        this.driverStateRepository = driverStateRepository;
+        this.redisTemplate = redisTemplate;
+        this.driverPresenceRedisTemplate = driverPresenceRedisTemplate;
+        this.presenceSerializer = (RedisSerializer<DriverLocationSnapshot>) driverPresenceRedisTemplate.getValueSerializer();
+        this.presenceTtl = presenceTtl;
+    }
+
+    /**
+     * Reconciles the shared presence with the database instead of clearing it, so a restarting
+     * node does not wipe positions reported through the other nodes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadOnlineDrivers() {
+        List<DriverState> onlineStates = driverStateRepository.findAllOnlineDriversWithDriver();
+        try {
+            rebuild(onlineStates);
+            log.info("Redis driver presence reconciled with {} online drivers", onlineStates.size());
+        } catch (RuntimeException ex) {
+            log.warn("Could not reconcile the Redis driver presence: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public void upsert(DriverState state) {
+        if (state == null) {
+            return;
+        }
+        Driver driver = state.getDriver();
+        Long driverId = state.getId() != null ? state.getId() : (driver != null ? driver.getId() : null);
+        if (driverId == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(state.getOnline())) {
+            remove(driverId);
+            return;
+        }
+        write("update", driverId, () -> {
+            DriverLocationSnapshot previous = load(driverId);
+            store(driverId, previous, DriverLocationSnapshot.merge(previous, driverId, state));
+        });
+    }
+
+    @Override
+    public void updatePosition(Long driverId, double latitude, double longitude) {
+        if (driverId == null) {
+            return;
+        }
+        write("move", driverId, () -> {
+            DriverLocationSnapshot previous = load(driverId);
+            if (previous != null) {
+                store(driverId, previous, previous.withPosition(latitude, longitude));
+            }
+        });
+    }
+
+    @Override
+    public void updateProfile(Driver driver) {
+        if (driver == null || driver.getId() == null) {
+            return;
+        }
+        write("update the profile of", driver.getId(), () -> {
+            DriverLocationSnapshot previous = load(driver.getId());
+            if (previous != null) {
+                store(driver.getId(), previous, previous.withProfile(driver));
+            }
+        });
+    }
+
+    @Override
+    public void remove(Long driverId) {
+        if (driverId == null) {
+            return;
+        }
+        write("remove", driverId, () -> {
+            DriverLocationSnapshot previous = load(driverId);
+            String member = driverId.toString();
+            pipelined(operations -> {
+                if (previous != null && previous.hasAnchor()) {
+                    operations.opsForGeo().remove(geoKey(previous), member);
+                }
+                operations.opsForSet().remove(UNLOCATED_KEY, member);
+                operations.opsForSet().remove(ONLINE_KEY, member);
+                operations.delete(presenceKey(driverId));
+            });
+        });
+    }
+
+    @Override
+    public void rebuild(List<DriverState> onlineStates) {
+        Set<String> online = new HashSet<>();
+        for (DriverState state : onlineStates) {
+            upsert(state);
+            Long driverId = state.getId() != null ? state.getId() : state.getDriver().getId();
+            online.add(driverId.toString());
+        }
+        Set<String> known = redisTemplate.opsForSet().members(ONLINE_KEY);
+        if (known != null) {
+            known.stream()
+                    .filter(member -> !online.contains(member))
+                    .forEach(member -> remove(Long.valueOf(member)));
+        }
+    }
+
+    @Override
+    public Optional<DriverLocationSnapshot> get(Long driverId) {
+        return Optional.ofNullable(load(driverId));
+    }
+
+    @Override
+    public Map<Long, DriverLocationSnapshot> getAll(Collection<Long> driverIds) {
+        List<Long> ids = List.copyOf(driverIds);
+        Map<Long, DriverLocationSnapshot> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+        List<DriverLocationSnapshot> snapshots = driverPresenceRedisTemplate.opsForValue()
+                .multiGet(ids.stream().map(RedisDriverLocationIndex::presenceKey).toList());
+        if (snapshots != null) {
+            for (int i = 0; i < ids.size(); i++) {
+                if (snapshots.get(i) != null) {
+                    result.put(ids.get(i), snapshots.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<DriverLocationSnapshot> findNearest(double latitude, double longitude, int limit,
+                                                    Predicate<DriverLocationSnapshot> filter) {
+        Set<String> keys = redisTemplate.opsForSet().members(GEO_SETS_KEY);
+        return findNearest(latitude, longitude, limit, keys != null ? keys : Set.of(), filter);
+    }
+
+    @Override
+    public List<DriverLocationSnapshot> findNearest(double latitude, double longitude, int limit,
+                                                    String vehicleType, boolean busy,
+                                                    Predicate<DriverLocationSnapshot> filter) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (vehicleType == null) {
+            Set<String> all = redisTemplate.opsForSet().members(GEO_SETS_KEY);
+            if (all != null) {
+                all.stream().filter(key -> key.endsWith(availability(busy))).forEach(keys::add);
+            }
+        } else {
+            keys.add(geoKey(vehicleType, busy));
+            // Drivers whose profile the index has not seen yet may still be of the requested type.
+            keys.add(geoKey(null, busy));
+        }
+        return findNearest(latitude, longitude, limit, keys, filter);
+    }
+
+    @Override
+    public List<Long> onlineDriverIds() {
+        Set<String> members = redisTemplate.opsForSet().members(ONLINE_KEY);
+        if (members == null) {
+            return List.of();
+        }
+        return members.stream().map(Long::valueOf).sorted().toList();
+    }
+
+    @Override
+    public int size() {
+        Long size = redisTemplate.opsForSet().size(ONLINE_KEY);
+        return size != null ? size.intValue() : 0;
+    }
+
+    /**
+     * Asks each GEO set for its nearest {@code count} drivers, merges them by distance and applies
+     * the filter. If the filter leaves too few and some set had more to give, the count is doubled.
+     */
+    private List<DriverLocationSnapshot> findNearest(double latitude, double longitude, int limit,
+                                                     Set<String> keys, Predicate<DriverLocationSnapshot> filter) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        int count = Math.max(limit * 4, MIN_SEARCH_COUNT);
+        while (true) {
+            List<Candidate> candidates = new ArrayList<>();
+            boolean saturated = false;
+            for (String key : keys) {
+                GeoResults<RedisGeoCommands.GeoLocation<String>> results = redisTemplate.opsForGeo().search(key,
+                        GeoReference.fromCoordinate(longitude, latitude),
+                        new Distance(SEARCH_RADIUS_KM, Metrics.KILOMETERS),
+                        RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs()
+                                .includeDistance().sortAscending().limit(count));
+                if (results == null) {
+                    continue;
+                }
+                saturated |= results.getContent().size() >= count;
+                for (GeoResult<RedisGeoCommands.GeoLocation<String>> result : results) {
+                    candidates.add(new Candidate(result.getContent().getName(), result.getDistance().getValue()));
+                }
+            }
+            candidates.sort(Comparator.comparingDouble(Candidate::distanceKm));
+
+            List<DriverLocationSnapshot> accepted = accept(candidates.stream().map(Candidate::driverId).toList(),
+                    limit, filter, keys);
+            if (accepted.size() >= limit || !saturated) {
+                if (accepted.size() < limit) {
+                    Set<String> unlocated = redisTemplate.opsForSet().members(UNLOCATED_KEY);
+                    if (unlocated != null) {
+                        accepted.addAll(accept(unlocated.stream().sorted().toList(), limit - accepted.size(), filter,
+                                Set.of()));
+                    }
+                }
+                return accepted;
+            }
+            count *= 2;
+        }
+    }
+
+    private List<DriverLocationSnapshot> accept(List<String> driverIds, int limit,
+                                                Predicate<DriverLocationSnapshot> filter, Set<String> geoKeys) {
+        List<DriverLocationSnapshot> accepted = new ArrayList<>();
+        if (driverIds.isEmpty() || limit <= 0) {
+            return accepted;
+        }
+        List<DriverLocationSnapshot> snapshots = driverPresenceRedisTemplate.opsForValue()
+                .multiGet(driverIds.stream().map(PRESENCE_PREFIX::concat).toList());
+        if (snapshots == null) {
+            return accepted;
+        }
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < snapshots.size() && accepted.size() < limit; i++) {
+            DriverLocationSnapshot snapshot = snapshots.get(i);
+            if (snapshot == null) {
+                expired.add(driverIds.get(i));
+            } else if (filter.test(snapshot)) {
+                accepted.add(snapshot);
+            }
+        }
+        if (!expired.isEmpty()) {
+            dropExpired(expired, geoKeys);
+        }
+        return accepted;
+    }
+
+    /**
+     * Removes set members whose presence key has expired.
+     */
+    private void dropExpired(List<String> members, Set<String> geoKeys) {
+        String[] expired = members.toArray(String[]::new);
+        try {
+            pipelined(operations -> {
+                geoKeys.forEach(key -> operations.opsForGeo().remove(key, expired));
+                operations.opsForSet().remove(ONLINE_KEY, (Object[]) expired);
+                operations.opsForSet().remove(UNLOCATED_KEY, (Object[]) expired);
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Could not drop {} expired drivers from the Redis presence store: {}", expired.length, ex.getMessage());
+        }
+    }
+
+    private DriverLocationSnapshot load(Long driverId) {
+        return driverPresenceRedisTemplate.opsForValue().get(presenceKey(driverId));
+    }
+
+    private void store(Long driverId, DriverLocationSnapshot previous, DriverLocationSnapshot next) {
+        String member = driverId.toString();
+        String presence = new String(presenceSerializer.serialize(next), StandardCharsets.UTF_8);
+        String previousKey = previous != null && previous.hasAnchor() ? geoKey(previous) : null;
+        String nextKey = next.hasAnchor() ? geoKey(next) : null;
+
+        pipelined(operations -> {
+            operations.opsForValue().set(presenceKey(driverId), presence, presenceTtl);
+            operations.opsForSet().add(ONLINE_KEY, member);
+            if (previousKey != null && !Objects.equals(previousKey, nextKey)) {
+                operations.opsForGeo().remove(previousKey, member);
+            }
+            if (nextKey == null) {
+                operations.opsForSet().add(UNLOCATED_KEY, member);
+                return;
+            }
+            if (previous == null || previousKey == null) {
+                operations.opsForSet().remove(UNLOCATED_KEY, member);
+            }
+            if (!Objects.equals(previousKey, nextKey)) {
+                operations.opsForSet().add(GEO_SETS_KEY, nextKey);
+            }
+            operations.opsForGeo().add(nextKey, new Point(next.getAnchorLongitude(), next.getAnchorLatitude()), member);
+        });
+    }
+
+    /**
+     * Sends the commands in one round trip. The presence JSON goes through the string template
+     * too, already serialized, so both kinds of key share the pipeline.
+     */
+    private void pipelined(Consumer<RedisOperations<String, String>> commands) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                commands.accept((RedisOperations<String, String>) operations);
+                return null;
+            }
+        });
+    }
+
+    private static void write(String action, Long driverId, Runnable write) {
+        try {
+            write.run();
+        } catch (RuntimeException ex) {
+            log.warn("Could not {} driver {} in the Redis presence store: {}", action, driverId, ex.getMessage());
+        }
+    }
+
+    private static String presenceKey(Long driverId) {
+        return PRESENCE_PREFIX + driverId;
+    }
+
+    private static String geoKey(DriverLocationSnapshot snapshot) {
+        return geoKey(snapshot.getVehicleType(), snapshot.isBusy());
+    }
+
+    static String geoKey(String vehicleType, boolean busy) {
+        String type = vehicleType != null ? vehicleType.toUpperCase(Locale.ROOT) : UNKNOWN_TYPE;
+        return GEO_PREFIX + type + availability(busy);
+    }
+
+    private static String availability(boolean busy) {
+        return busy ? ":busy" : ":free";
+    }
+
+    private record Candidate(String driverId, double distanceKm) {
+    }
+}
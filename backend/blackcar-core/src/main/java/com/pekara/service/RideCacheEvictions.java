@@ -0,0 +1,11 @@
+package com.pekara.service;
+
+/**
+ * Drops the cached tracking state of a ride - its {@link ActiveRideContextCache} context and its
+ * {@link RideTrackingAccessCache} entry - on every instance. Ride events are relayed on one instance
+ * only, so without this the other instances would keep a stale context until its TTL ran out.
+ */
+public interface RideCacheEvictions {
+
+    void evict(Long rideId);
+}
@@ -0,0 +1,27 @@
+package com.pekara.service;
+
+import com.pekara.dto.response.RideStatsResponse;
+import com.pekara.model.RideDailyStats;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Ride statistics served from the {@code ride_daily_stats} rollup. Days that have been rolled up
+ * are read from the pre-aggregated rows; later days, normally just today, are summed live from the
+ * rides table.
+ */
+public interface RideDailyStatsService {
+
+    /**
+     * Stats for one scope between the days of {@code startDate} and {@code endDate}, inclusive.
+     * {@code subjectId} is the driver or passenger id and is ignored for GLOBAL.
+     */
+    RideStatsResponse getStats(RideDailyStats.Scope scope, Long subjectId, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Recomputes the rows of every day in the range from the rides table and returns how many
+     * rows were written.
+     */
+    int rebuild(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,246 @@
+package com.pekara.service;
+
+import com.pekara.dto.RideStatsTotalsDto;
+import com.pekara.dto.response.RideStatsDayDto;
+import com.pekara.dto.response.RideStatsResponse;
+import com.pekara.model.RideDailyStats;
+import com.pekara.repository.RideDailyStatsRepository;
+import com.pekara.repository.RideRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the daily rollup and serves stats from it.
+ *
+ * Each day has one writer. Closed days are written only by rebuilds from the rides table: the
+ * nightly job for the last {@code app.stats.rollup.rebuild-days} days, so rides committed just
+ * after midnight are still counted, and a backfill of all history when the rollup is empty. Days
+ * after the last rolled-up one, normally just today, are summed live from the rides table. A
+ * rebuild locks the day's GLOBAL row first, so rebuilds of the same day on several nodes run one
+ * after the other instead of colliding on the unique key.
+ */
+@Slf4j
+@Service
+public class RideDailyStatsServiceImpl implements RideDailyStatsService {
+
+    private final RideRepository rideRepository;
+    private final RideDailyStatsRepository rideDailyStatsRepository;
+    private final TransactionTemplate requiresNew;
+    private final int rebuildDays;
+
+    public RideDailyStatsServiceImpl(RideRepository rideRepository,
+                                     RideDailyStatsRepository rideDailyStatsRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.stats.rollup.rebuild-days:2}") int rebuildDays) {
+        this.rideRepository = rideRepository;
+        this.rideDailyStatsRepository = rideDailyStatsRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildDays = rebuildDays;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public RideStatsResponse getStats(RideDailyStats.Scope scope, Long subjectId, LocalDateTime startDate, LocalDateTime endDate) {
+        Long subject = scope == RideDailyStats.Scope.GLOBAL ? RideDailyStats.GLOBAL_SUBJECT : subjectId;
+        LocalDate start = startDate.toLocalDate();
+        LocalDate end = endDate.toLocalDate();
+        LocalDate today = LocalDate.now();
+        LocalDate lastRolledUp = rideDailyStatsRepository.findLastRolledUpDay();
+
+        Map<LocalDate, RideDailyStats> rolledUp = lastRolledUp != null && !start.isAfter(lastRolledUp)
+                ? rideDailyStatsRepository.findRange(scope, subject, start, end.isBefore(lastRolledUp) ? end : lastRolledUp)
+                        .stream()
+                        .collect(Collectors.toMap(RideDailyStats::getStatDate, Function.identity()))
+                : Map.of();
+
+        List<RideStatsDayDto> dailyData = new ArrayList<>();
+        long totalRides = 0;
+        double totalDistanceKm = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            long count = 0;
+            double distance = 0;
+            BigDecimal amount = BigDecimal.ZERO;
+            if (!date.isAfter(today) && (lastRolledUp == null || date.isAfter(lastRolledUp))) {
+                RideStatsTotalsDto live = liveTotals(scope, subject, date);
+                count = live.getRideCount();
+                distance = live.getDistanceKm();
+                amount = live.getAmount();
+            } else {
+                RideDailyStats row = rolledUp.get(date);
+                if (row != null) {
+                    count = row.getRideCount();
+                    distance = row.getDistanceKm();
+                    amount = row.getAmount();
+                }
+            }
+
+            dailyData.add(RideStatsDayDto.builder()
+                    .date(date)
+                    .rideCount(count)
+                    .distanceKm(distance)
+                    .amount(amount)
+                    .build());
+
+            totalRides += count;
+            totalDistanceKm += distance;
+            totalAmount = totalAmount.add(amount);
+        }
+
+        long daysInRange = ChronoUnit.DAYS.between(start, end) + 1;
+        double avgRidesPerDay = daysInRange > 0 ? (double) totalRides / daysInRange : 0;
+        double avgDistancePerDay = daysInRange > 0 ? totalDistanceKm / daysInRange : 0;
+        BigDecimal avgAmountPerDay = daysInRange > 0
+                ? totalAmount.divide(BigDecimal.valueOf(daysInRange), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+
+        return RideStatsResponse.builder()
+                .dailyData(dailyData)
+                .totalRides(totalRides)
+                .totalDistanceKm(totalDistanceKm)
+                .totalAmount(totalAmount)
+                .avgRidesPerDay(avgRidesPerDay)
+                .avgDistancePerDay(avgDistancePerDay)
+                .avgAmountPerDay(avgAmountPerDay)
+                .build();
+    }
+
+    @Override
+    public int rebuild(LocalDate from, LocalDate to) {
+        int written = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate current = day;
+            Integer rows = requiresNew.execute(status -> rebuildDay(current));
+            written += rows != null ? rows : 0;
+        }
+        log.info("Rebuilt daily ride stats from {} to {} ({} rows)", from, to, written);
+        return written;
+    }
+
+    /**
+     * Recomputes the last {@code app.stats.rollup.rebuild-days} closed days shortly after midnight.
+     */
+    @Scheduled(cron = "${app.stats.rollup.cron:0 5 0 * * *}")
+    public void rebuildRecentDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate from = yesterday.minusDays(Math.max(rebuildDays, 1) - 1L);
+        LocalDate lastRolledUp = rideDailyStatsRepository.findLastRolledUpDay();
+        if (lastRolledUp != null && lastRolledUp.isBefore(from)) {
+            // Catch up on nights when no node was running.
+            from = lastRolledUp.plusDays(1);
+        }
+        rebuild(from, yesterday);
+    }
+
+    /**
+     * Rolls up all history once, when the rollup does not reach back to the first completed ride:
+     * on the first start after the table was added, or on a fresh database once rides exist.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        LocalDateTime firstCompletedAt = rideRepository.findFirstCompletedAt();
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        if (firstCompletedAt == null || firstCompletedAt.toLocalDate().isAfter(yesterday)) {
+            return;
+        }
+        LocalDate firstDay = firstCompletedAt.toLocalDate();
+        LocalDate firstRolledUp = rideDailyStatsRepository.findFirstRolledUpDay();
+        if (firstRolledUp != null && !firstRolledUp.isAfter(firstDay)) {
+            return;
+        }
+        log.info("Daily ride stats do not cover the rides before {}, backfilling from {}", firstRolledUp, firstDay);
+        rebuild(firstDay, yesterday);
+    }
+
+    private int rebuildDay(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        RideDailyStats global = lockGlobalRow(day);
+        rideDailyStatsRepository.deleteSubjectRows(day);
+
+        RideStatsTotalsDto totals = rideRepository.sumCompleted(from, to);
+        global.setRideCount(totals.getRideCount());
+        global.setDistanceKm(totals.getDistanceKm());
+        global.setAmount(totals.getAmount());
+
+        List<RideDailyStats> rows = new ArrayList<>();
+        rows.add(global);
+        for (RideStatsTotalsDto driver : rideRepository.sumCompletedByDriver(from, to)) {
+            rows.add(toRow(day, RideDailyStats.Scope.DRIVER, driver.getSubjectId(), driver));
+        }
+        for (RideStatsTotalsDto passenger : rideRepository.sumCompletedByPassenger(from, to)) {
+            rows.add(toRow(day, RideDailyStats.Scope.PASSENGER, passenger.getSubjectId(), passenger));
+        }
+        rideDailyStatsRepository.saveAll(rows);
+        return rows.size();
+    }
+
+    /**
+     * Creates the day's GLOBAL row if it does not exist yet, in its own transaction so a node that
+     * loses the race only hits the unique key there, then locks it for the rest of the rebuild.
+     */
+    private RideDailyStats lockGlobalRow(LocalDate day) {
+        Optional<RideDailyStats> existing = rideDailyStatsRepository.lockGlobalRow(day);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        try {
+            requiresNew.executeWithoutResult(status -> rideDailyStatsRepository.saveAndFlush(RideDailyStats.builder()
+                    .statDate(day)
+                    .scope(RideDailyStats.Scope.GLOBAL)
+                    .subjectId(RideDailyStats.GLOBAL_SUBJECT)
+                    .rideCount(0L)
+                    .distanceKm(0.0)
+                    .amount(BigDecimal.ZERO)
+                    .build()));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("GLOBAL stats row of {} was created concurrently", day);
+        }
+        return rideDailyStatsRepository.lockGlobalRow(day)
+                .orElseThrow(() -> new IllegalStateException("No GLOBAL stats row for " + day));
+    }
+
+    private RideStatsTotalsDto liveTotals(RideDailyStats.Scope scope, Long subjectId, LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        return switch (scope) {
+            case GLOBAL -> rideRepository.sumCompleted(from, to);
+            case DRIVER -> rideRepository.sumCompletedForDriver(subjectId, from, to);
+            case PASSENGER -> rideRepository.sumCompletedForPassenger(subjectId, from, to);
+        };
+    }
+
+    private static RideDailyStats toRow(LocalDate day, RideDailyStats.Scope scope, Long subjectId, RideStatsTotalsDto totals) {
+        return RideDailyStats.builder()
+                .statDate(day)
+                .scope(scope)
+                .subjectId(subjectId)
+                .rideCount(totals.getRideCount())
+                .distanceKm(totals.getDistanceKm())
+                .amount(totals.getAmount())
+                .build();
+    }
+}
@@ -1,21 +1,34 @@
 package com.pekara.service;
 
+import com.pekara.dto.PricingDto;
 import com.pekara.dto.common.LocationPointDto;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface RideEstimationService {
 
     RouteData calculateRouteWithStops(LocationPointDto pickup, LocationPointDto dropoff, List<LocationPointDto> stops);
 
+    /**
+     * Validates the locations on the calling thread and completes once the route is known,
+     * without holding the caller while the routing engine responds.
+     */
+    CompletableFuture<RouteData> calculateRouteWithStopsAsync(LocationPointDto pickup, LocationPointDto dropoff, List<LocationPointDto> stops);
+
     BigDecimal calculatePrice(String vehicleType, double distanceKm);
 
+    BigDecimal applyPricing(PricingDto pricing, double distanceKm);
+
     Double roundKm(double km);
 
-    String serializeRouteCoordinates(List<LocationPointDto> routePoints);
+    /**
+     * Encodes route points for storage in {@code Ride.routePolyline}.
+     */
+    String encodeRoutePolyline(List<LocationPointDto> routePoints);
 
     void validateLocation(LocationPointDto point, String name);
 
@@ -1,10 +1,9 @@
 package com.pekara.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pekara.dto.PricingDto;
 import com.pekara.dto.RouteDto;
 import com.pekara.dto.common.LocationPointDto;
+import com.pekara.util.PolylineCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -13,6 +12,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
@@ -20,34 +20,28 @@ import java.util.List;
 public class RideEstimationServiceImpl implements RideEstimationService {
 
     private final RoutingService routingService;
-    private final ObjectMapper objectMapper;
     private final PricingService pricingService;
 
     @Override
     public RouteData calculateRouteWithStops(LocationPointDto pickup, LocationPointDto dropoff, List<LocationPointDto> stops) {
-        validateLocation(pickup, "pickup");
-        validateLocation(dropoff, "dropoff");
-
-        if (stops != null) {
-            for (LocationPointDto stop : stops) {
-                validateLocation(stop, "stop");
-            }
-        }
-
-        List<LocationPointDto> waypoints = new ArrayList<>();
-        waypoints.add(pickup);
-        if (stops != null) {
-            waypoints.addAll(stops);
-        }
-        waypoints.add(dropoff);
+        RouteDto routeDto = routingService.calculateRoute(buildWaypoints(pickup, dropoff, stops));
+        return toRouteData(routeDto);
+    }
 
-        RouteDto routeDto = routingService.calculateRoute(waypoints);
-        return new RideEstimationService.RouteData(routeDto.getDistanceKm(), routeDto.getDurationMinutes(), routeDto.getRoutePoints());
+    @Override
+    public CompletableFuture<RouteData> calculateRouteWithStopsAsync(LocationPointDto pickup, LocationPointDto dropoff, List<LocationPointDto> stops) {
+        return routingService.calculateRouteAsync(buildWaypoints(pickup, dropoff, stops))
+                .map(this::toRouteData)
+                .toFuture();
     }
 
     @Override
     public BigDecimal calculatePrice(String vehicleType, double distanceKm) {
-        PricingDto pricing = pricingService.getPricingByVehicleType(vehicleType);
+        return applyPricing(pricingService.getPricingByVehicleType(vehicleType), distanceKm);
+    }
+
+    @Override
+    public BigDecimal applyPricing(PricingDto pricing, double distanceKm) {
         BigDecimal base = pricing.getBasePrice();
         BigDecimal kmPart = pricing.getPricePerKm().multiply(BigDecimal.valueOf(distanceKm));
         return base.add(kmPart).setScale(2, RoundingMode.HALF_UP);
@@ -59,19 +53,8 @@ public class RideEstimationServiceImpl implements RideEstimationService {
     }
 
     @Override
-    public String serializeRouteCoordinates(List<LocationPointDto> routePoints) {
-        if (routePoints == null || routePoints.isEmpty()) {
-            return null;
-        }
-        List<double[]> coordinates = routePoints.stream()
-                .map(point -> new double[] {point.getLatitude(), point.getLongitude()})
-                .toList();
-        try {
-            return objectMapper.writeValueAsString(coordinates);
-        } catch (JsonProcessingException e) {
-            log.warn("Failed to serialize route coordinates", e);
-            return null;
-        }
+    public String encodeRoutePolyline(List<LocationPointDto> routePoints) {
+        return PolylineCodec.encode(routePoints);
     }
 
     @Override
@@ -84,4 +67,26 @@ public class RideEstimationServiceImpl implements RideEstimationService {
         }
     }
 
+    private List<LocationPointDto> buildWaypoints(LocationPointDto pickup, LocationPointDto dropoff, List<LocationPointDto> stops) {
+        validateLocation(pickup, "pickup");
+        validateLocation(dropoff, "dropoff");
+
+        if (stops != null) {
+            for (LocationPointDto stop : stops) {
+                validateLocation(stop, "stop");
+            }
+        }
+
+        List<LocationPointDto> waypoints = new ArrayList<>();
+        waypoints.add(pickup);
+        if (stops != null) {
+            waypoints.addAll(stops);
+        }
+        waypoints.add(dropoff);
+        return waypoints;
+    }
+
+    private RouteData toRouteData(RouteDto routeDto) {
+        return new RideEstimationService.RouteData(routeDto.getDistanceKm(), routeDto.getDurationMinutes(), routeDto.getRoutePoints());
+    }
 }
@@ -0,0 +1,284 @@
+package com.pekara.service;
+
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.model.ActiveRideContext;
+import com.pekara.util.RouteIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remaining distance and time for live tracking, computed incrementally from location pings.
+ *
+ * Each ride follows a route: the stored one once the passengers are on board, otherwise the one
+ * the router returned from the driver's position, through the pickup before it is reached. A ping
+ * is projected onto that route and the remaining distance read from its cumulative-distance index. The remaining time blends the
+ * route's planned pace with the speed observed along the route between pings, trusting the
+ * observed speed more as samples accumulate.
+ *
+ * The router is only called when a ride has no route yet or the driver is further than
+ * {@code app.tracking.eta.off-route-km} from it, at most once per {@code app.tracking.eta.reroute-interval}
+ * per ride; its geometry then becomes the ride's route. Per-ride state is held in a bounded LRU
+ * on each instance and reset when the ride's status changes.
+ */
+@Slf4j
+@Component
+public class RideEtaEstimator {
+
+    /**
+     * Time constant of the observed speed: long enough that a stop at a light does not swamp it,
+     * short enough to follow a change in traffic within a few minutes.
+     */
+    private static final double SPEED_TIME_CONSTANT_SECONDS = 120.0;
+    /** Observation time before the observed speed gets its full weight. */
+    private static final double WARMUP_SECONDS = 60.0;
+    private static final double MAX_OBSERVED_WEIGHT = 0.7;
+    /** Floor for the observed speed, so a car waiting at a light does not report an endless ETA. */
+    private static final double MIN_OBSERVED_KMH = 5.0;
+    private static final double MAX_OBSERVED_KMH = 150.0;
+    /** Pings further apart than this say nothing about the current speed. */
+    private static final Duration MAX_SAMPLE_GAP = Duration.ofMinutes(2);
+    /**
+     * A ping is snapped within a window around the previous position: this much back for GPS
+     * jitter, and forward the most the car can have covered since, but at least this much.
+     */
+    private static final double SNAP_MARGIN_KM = 0.05;
+
+    private final RoutingService routingService;
+    private final Clock clock;
+    private final double offRouteKm;
+    private final Duration rerouteInterval;
+    private final Map<Long, Track> tracks;
+    private final Counter reroutes;
+
+    @Autowired
+    public RideEtaEstimator(RoutingService routingService,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.tracking.eta.max-entries:2000}") int maxEntries,
+                            @Value("${app.tracking.eta.off-route-km:0.2}") double offRouteKm,
+                            @Value("${app.tracking.eta.reroute-interval:PT15S}") Duration rerouteInterval) {
+        this(routingService, meterRegistry, maxEntries, offRouteKm, rerouteInterval, Clock.systemUTC());
+    }
+
+    RideEtaEstimator(RoutingService routingService, MeterRegistry meterRegistry, int maxEntries,
+                     double offRouteKm, Duration rerouteInterval, Clock clock) {
+        this.routingService = routingService;
+        this.clock = clock;
+        this.offRouteKm = offRouteKm;
+        this.rerouteInterval = rerouteInterval;
+        this.tracks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Track> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.reroutes = Counter.builder("tracking.eta.reroutes")
+                .description("Routing requests made to re-plan a tracked ride")
+                .register(meterRegistry);
+        meterRegistry.gauge("tracking.eta.rides", tracks, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        });
+    }
+
+    /**
+     * Estimate for the driver of the ride being at the given position, or null if the ride has no
+     * destination or no route could be planned.
+     */
+    public Eta estimate(ActiveRideContext ride, double latitude, double longitude, LocalDateTime recordedAt) {
+        if (!ride.hasDestination()) {
+            return null;
+        }
+        Track track;
+        synchronized (tracks) {
+            track = tracks.get(ride.getRideId());
+            if (track == null || track.status != ride.getStatus()) {
+                track = new Track(ride);
+                tracks.put(ride.getRideId(), track);
+            }
+        }
+        synchronized (track) {
+            return estimate(track, ride, latitude, longitude, recordedAt);
+        }
+    }
+
+    /**
+     * Drops the state of a ride that is no longer tracked.
+     */
+    public void forget(Long rideId) {
+        synchronized (tracks) {
+            tracks.remove(rideId);
+        }
+    }
+
+    int trackedRides() {
+        synchronized (tracks) {
+            return tracks.size();
+        }
+    }
+
+    private Eta estimate(Track track, ActiveRideContext ride, double latitude, double longitude, LocalDateTime recordedAt) {
+        RouteIndex.Projection projection = track.route != null ? track.project(latitude, longitude, recordedAt) : null;
+        if (projection != null && projection.offRouteKm() > offRouteKm && track.lastRecordedAt != null) {
+            // Nothing near the previous position: a gap in the pings, so look along the whole route.
+            projection = track.route.project(latitude, longitude);
+        }
+        if ((projection == null || projection.offRouteKm() > offRouteKm) && reroute(track, ride, latitude, longitude)) {
+            projection = track.route.project(latitude, longitude);
+        }
+        if (projection == null) {
+            return null;
+        }
+
+        double alongKm = projection.distanceAlongKm();
+        track.observe(alongKm, recordedAt);
+
+        // Still off the route while waiting to re-plan: count the way back to it.
+        double remainingKm = track.route.remainingKm(projection) + Math.max(projection.offRouteKm() - offRouteKm, 0.0);
+        double plannedSeconds = remainingKm * track.plannedSecondsPerKm;
+        double seconds = plannedSeconds;
+        if (track.observedSeconds > 0) {
+            double weight = MAX_OBSERVED_WEIGHT * Math.min(track.observedSeconds / WARMUP_SECONDS, 1.0);
+            double observedSeconds = remainingKm / Math.max(track.observedKmh, MIN_OBSERVED_KMH) * 3600.0;
+            seconds = (1 - weight) * plannedSeconds + weight * observedSeconds;
+        }
+        return new Eta(remainingKm, (int) Math.ceil(seconds));
+    }
+
+    /**
+     * Plans a new route from the current position to the destination, through the pickup if the
+     * passengers are not on board yet. Returns false while the previous attempt is too recent or
+     * when the router gives nothing usable.
+     */
+    private boolean reroute(Track track, ActiveRideContext ride, double latitude, double longitude) {
+        long now = clock.millis();
+        if (track.reroutedAt != null && now - track.reroutedAt < rerouteInterval.toMillis()) {
+            return false;
+        }
+        track.reroutedAt = now;
+        reroutes.increment();
+
+        List<LocationPointDto> waypoints = new ArrayList<>();
+        waypoints.add(point(latitude, longitude, null));
+        if (!ride.followsPlannedRoute() && ride.hasPickup()) {
+            waypoints.add(point(ride.getPickupLatitude(), ride.getPickupLongitude(), null));
+        }
+        waypoints.add(point(ride.getDestinationLatitude(), ride.getDestinationLongitude(), ride.getDestinationAddress()));
+
+        RouteDto route;
+        try {
+            route = routingService.calculateRoute(waypoints);
+        } catch (Exception ex) {
+            log.warn("Failed to calculate ETA for ride {}: {}", ride.getRideId(), ex.getMessage());
+            return false;
+        }
+        if (route == null || route.getRoutePoints() == null || route.getRoutePoints().size() < 2
+                || route.getDurationMinutes() == null) {
+            return false;
+        }
+        RouteIndex index = RouteIndex.of(route.getRoutePoints());
+        if (index.totalKm() <= 0) {
+            return false;
+        }
+        track.follow(index, route.getDurationMinutes() * 60.0);
+        return true;
+    }
+
+    private static LocationPointDto point(Double latitude, Double longitude, String address) {
+        return LocationPointDto.builder()
+                .latitude(latitude)
+                .longitude(longitude)
+                .address(address)
+                .build();
+    }
+
+    public record Eta(double remainingKm, int remainingSeconds) {
+    }
+
+    private static final class Track {
+
+        final RideStatus status;
+        RouteIndex route;
+        double plannedSecondsPerKm;
+        Long reroutedAt;
+
+        double lastAlongKm;
+        LocalDateTime lastRecordedAt;
+        double observedKmh;
+        double observedSeconds;
+
+        Track(ActiveRideContext ride) {
+            this.status = ride.getStatus();
+            RouteIndex planned = ride.getRouteIndex();
+            if (ride.followsPlannedRoute() && planned != null && planned.totalKm() > 0
+                    && ride.getEstimatedDurationMinutes() != null) {
+                follow(planned, ride.getEstimatedDurationMinutes() * 60.0);
+            }
+        }
+
+        void follow(RouteIndex index, double plannedSeconds) {
+            route = index;
+            plannedSecondsPerKm = plannedSeconds / index.totalKm();
+            if (observedSeconds == 0) {
+                observedKmh = 3600.0 / plannedSecondsPerKm;
+            }
+            // Progress is measured along the route, so the previous position means nothing on a new one.
+            lastRecordedAt = null;
+        }
+
+        /**
+         * Projects a ping onto the route near the previous position, so a route that doubles back
+         * does not snap onto the other leg. The first ping on a route is matched against all of it.
+         */
+        RouteIndex.Projection project(double latitude, double longitude, LocalDateTime recordedAt) {
+            if (lastRecordedAt == null) {
+                return route.project(latitude, longitude);
+            }
+            double elapsedSeconds = recordedAt != null
+                    ? Math.max(Duration.between(lastRecordedAt, recordedAt).toMillis() / 1000.0, 0.0)
+                    : 0.0;
+            double aheadKm = Math.max(elapsedSeconds * MAX_OBSERVED_KMH / 3600.0, SNAP_MARGIN_KM);
+            return route.project(latitude, longitude, lastAlongKm - SNAP_MARGIN_KM, lastAlongKm + aheadKm);
+        }
+
+        /**
+         * Folds the progress since the previous ping into the observed speed. Out-of-order pings and
+         * long gaps are not samples. Backward moves are kept, so GPS jitter along the route averages
+         * out instead of adding up.
+         */
+        void observe(double alongKm, LocalDateTime recordedAt) {
+            if (recordedAt == null) {
+                return;
+            }
+            if (lastRecordedAt != null) {
+                if (!recordedAt.isAfter(lastRecordedAt)) {
+                    return;
+                }
+                Duration gap = Duration.between(lastRecordedAt, recordedAt);
+                double progressKm = alongKm - lastAlongKm;
+                if (gap.compareTo(MAX_SAMPLE_GAP) <= 0) {
+                    double seconds = gap.toMillis() / 1000.0;
+                    double kmh = Math.max(Math.min(progressKm / seconds * 3600.0, MAX_OBSERVED_KMH), -MAX_OBSERVED_KMH);
+                    observedKmh += (1 - Math.exp(-seconds / SPEED_TIME_CONSTANT_SECONDS)) * (kmh - observedKmh);
+                    observedSeconds += seconds;
+                }
+            }
+            lastAlongKm = alongKm;
+            lastRecordedAt = recordedAt;
+        }
+    }
+}
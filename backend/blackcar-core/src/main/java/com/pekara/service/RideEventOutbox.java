@@ -0,0 +1,13 @@
+package com.pekara.service;
+
+import com.pekara.dto.RideEventPayload;
+import com.pekara.model.RideEvent;
+
+/**
+ * Records ride lifecycle events in the {@code ride_events} outbox. Must be called inside the
+ * transaction that changes the ride, so the event exists exactly when the change does.
+ */
+public interface RideEventOutbox {
+
+    void record(RideEvent.Type type, RideEventPayload payload);
+}
@@ -0,0 +1,33 @@
+package com.pekara.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pekara.dto.RideEventPayload;
+import com.pekara.model.RideEvent;
+import com.pekara.repository.RideEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+public class RideEventOutboxImpl implements RideEventOutbox {
+
+    private final RideEventRepository rideEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(RideEvent.Type type, RideEventPayload payload) {
+        try {
+            rideEventRepository.save(RideEvent.builder()
+                    .rideId(payload.getRideId())
+                    .type(type)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + type + " event of ride " + payload.getRideId(), e);
+        }
+    }
+}
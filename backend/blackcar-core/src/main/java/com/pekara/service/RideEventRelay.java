@@ -0,0 +1,174 @@
+package com.pekara.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pekara.dto.RideEventPayload;
+import com.pekara.model.RideEvent;
+import com.pekara.repository.RideEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delivers {@code ride_events} to the {@link RideEventSubscriber}s.
+ *
+ * Each poll locks a batch of pending events with SKIP LOCKED and marks them published in that
+ * transaction, so several nodes can relay in parallel and an event left behind by a crash is picked
+ * up again after restart. Every subscriber call runs in its own REQUIRES_NEW transaction: a failing
+ * subscriber rolls back only its own writes, the ones that succeeded are recorded on the event and
+ * skipped when it is retried. A failed event is retried with a linear backoff; after
+ * {@code app.outbox.max-attempts} it is no longer picked up and stays in the table as a dead
+ * letter, with the subscriber and error that stopped it in {@code last_error}.
+ *
+ * Metrics: {@code ride.events.published} and {@code ride.events.failed} counters.
+ */
+@Slf4j
+@Component
+public class RideEventRelay {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final RideEventRepository rideEventRepository;
+    private final List<RideEventSubscriber> subscribers;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate subscriberTransaction;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration retention;
+
+    private final Counter published;
+    private final Counter failed;
+
+    public RideEventRelay(RideEventRepository rideEventRepository,
+                          List<RideEventSubscriber> subscribers,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.outbox.batch-size:100}") int batchSize,
+                          @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                          @Value("${app.outbox.retry-backoff:PT10S}") Duration retryBackoff,
+                          @Value("${app.outbox.retention:P7D}") Duration retention) {
+        this.rideEventRepository = rideEventRepository;
+        this.subscribers = subscribers;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.subscriberTransaction = new TransactionTemplate(transactionManager);
+        this.subscriberTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.retention = retention;
+        this.published = meterRegistry.counter("ride.events.published");
+        this.failed = meterRegistry.counter("ride.events.failed");
+    }
+
+    /**
+     * Delivers pending events batch by batch until a batch comes back short, and returns how many
+     * events were handled.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:PT0.5S}")
+    public int relay() {
+        int total = 0;
+        int handled;
+        do {
+            Integer batch = transactionTemplate.execute(status -> relayBatch());
+            handled = batch != null ? batch : 0;
+            total += handled;
+        } while (handled == batchSize);
+        return total;
+    }
+
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 30 3 * * *}")
+    public int purgePublished() {
+        Integer deleted = transactionTemplate.execute(status ->
+                rideEventRepository.deletePublishedBefore(LocalDateTime.now().minus(retention)));
+        log.info("Purged {} published ride events", deleted);
+        return deleted != null ? deleted : 0;
+    }
+
+    private int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<RideEvent> events = rideEventRepository.lockPending(now, maxAttempts, PageRequest.of(0, batchSize));
+        for (RideEvent event : events) {
+            deliver(event, now);
+        }
+        return events.size();
+    }
+
+    private void deliver(RideEvent event, LocalDateTime now) {
+        String error;
+        try {
+            RideEventPayload payload = objectMapper.readValue(event.getPayload(), RideEventPayload.class);
+            error = deliverToSubscribers(event, payload);
+        } catch (JsonProcessingException e) {
+            error = message(e);
+        }
+        if (error == null) {
+            event.setPublishedAt(now);
+            event.setLastError(null);
+            published.increment();
+            return;
+        }
+
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        event.setAvailableAt(now.plus(retryBackoff.multipliedBy(attempts)));
+        failed.increment();
+        if (attempts >= maxAttempts) {
+            log.error("Giving up on {} event {} of ride {} after {} attempts: {}",
+                    event.getType(), event.getId(), event.getRideId(), attempts, error);
+        } else {
+            log.warn("Delivery of {} event {} of ride {} failed (attempt {}), retrying: {}",
+                    event.getType(), event.getId(), event.getRideId(), attempts, error);
+        }
+    }
+
+    /**
+     * Hands the event to every subscriber that has not handled it yet, each in its own transaction,
+     * and returns the first failure or null when all of them succeeded.
+     */
+    private String deliverToSubscribers(RideEvent event, RideEventPayload payload) {
+        Set<String> delivered = new LinkedHashSet<>();
+        if (event.getDeliveredTo() != null) {
+            delivered.addAll(Arrays.asList(event.getDeliveredTo().split(",")));
+        }
+        String error = null;
+        for (RideEventSubscriber subscriber : subscribers) {
+            String name = subscriber.name();
+            if (delivered.contains(name)) {
+                continue;
+            }
+            try {
+                subscriberTransaction.executeWithoutResult(status -> subscriber.onRideEvent(event.getType(), payload));
+                delivered.add(name);
+            } catch (RuntimeException e) {
+                if (error == null) {
+                    error = name + ": " + message(e);
+                }
+            }
+        }
+        event.setDeliveredTo(delivered.isEmpty() ? null : String.join(",", delivered));
+        return error;
+    }
+
+    private static String message(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,24 @@
+package com.pekara.service;
+
+import com.pekara.dto.RideEventPayload;
+import com.pekara.model.RideEvent;
+import org.springframework.util.ClassUtils;
+
+/**
+ * In-process consumer of ride events delivered by {@link RideEventRelay}. Each call runs in its own
+ * transaction, and a failed event is retried only for the subscribers that threw. Delivery is
+ * still at least once: a node dying between a subscriber's commit and the relay's bookkeeping
+ * hands the event to that subscriber again, so handlers must tolerate duplicates.
+ */
+public interface RideEventSubscriber {
+
+    void onRideEvent(RideEvent.Type type, RideEventPayload payload);
+
+    /**
+     * Name recorded on the event once this subscriber has handled it; must be stable across
+     * restarts and unique among subscribers.
+     */
+    default String name() {
+        return ClassUtils.getUserClass(this).getSimpleName();
+    }
+}
@@ -0,0 +1,98 @@
+package com.pekara.service;
+
+import com.pekara.dto.RideHistoryRowDto;
+import com.pekara.dto.response.HistoryPage;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyset pagination shared by the ride history views.
+ *
+ * A cursor carries the (createdAt, id) key of the last row served, the number of the page it leads
+ * to and the total counted on the first page, so following it is a single seek query with no
+ * OFFSET and no COUNT. Requests by page number without a cursor still work and fall back to an
+ * OFFSET on the same query. The total is only counted when the page is full; a short page already
+ * tells where the history ends.
+ */
+final class RideHistoryPaging {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    @FunctionalInterface
+    interface SeekQuery {
+        List<RideHistoryRowDto> find(LocalDateTime beforeCreatedAt, Long beforeId, Pageable pageable);
+    }
+
+    private RideHistoryPaging() {
+    }
+
+    static <T> HistoryPage<T> fetch(String cursorToken, int page, int size, LocalDateTime endDate,
+                                    SeekQuery query, LongSupplier count,
+                                    Function<List<RideHistoryRowDto>, List<T>> mapper) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Cursor cursor = Cursor.decode(cursorToken);
+
+        List<RideHistoryRowDto> rides;
+        int pageNumber;
+        long total;
+        if (cursor != null) {
+            pageNumber = cursor.page();
+            rides = query.find(cursor.createdAt(), cursor.id(), PageRequest.of(0, pageSize));
+            total = cursor.total();
+        } else {
+            pageNumber = Math.max(page, 0);
+            rides = query.find(endDate, Long.MAX_VALUE, PageRequest.of(pageNumber, pageSize));
+            long offset = (long) pageNumber * pageSize;
+            total = rides.size() < pageSize && (!rides.isEmpty() || pageNumber == 0)
+                    ? offset + rides.size()
+                    : count.getAsLong();
+        }
+
+        String nextCursor = null;
+        if (rides.size() == pageSize && (long) (pageNumber + 1) * pageSize < total) {
+            RideHistoryRowDto last = rides.get(rides.size() - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId(), pageNumber + 1, total).encode();
+        }
+
+        return HistoryPage.<T>builder()
+                .content(mapper.apply(rides))
+                .page(pageNumber)
+                .size(pageSize)
+                .totalElements(total)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    record Cursor(LocalDateTime createdAt, Long id, int page, long total) {
+
+        String encode() {
+            String raw = createdAt + "|" + id + "|" + page + "|" + total;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token) {
+            if (token == null || token.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|");
+                if (parts.length != 4) {
+                    throw new IllegalArgumentException("Invalid history cursor");
+                }
+                return new Cursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]),
+                        Integer.parseInt(parts[2]), Long.parseLong(parts[3]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid history cursor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.pekara.service;
+
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.RideHistoryRowDto;
+import com.pekara.dto.RidePassengerRowDto;
+import com.pekara.dto.RideStopRowDto;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.dto.response.AdminRideHistoryResponse;
+import com.pekara.dto.response.DriverRideHistoryResponse;
+import com.pekara.dto.response.HistoryPage;
+import com.pekara.dto.response.PassengerRideHistoryResponse;
+import com.pekara.repository.RideRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Read model behind the ride history lists. A page is one projection query for the rides and
+ * their drivers, plus at most one IN query for all of the page's stops and one for its passengers,
+ * so the number of round trips does not grow with the page size.
+ */
+@Component
+@RequiredArgsConstructor
+public class RideHistoryReader {
+
+    private final RideRepository rideRepository;
+
+    public HistoryPage<DriverRideHistoryResponse> driverHistory(Long driverId, LocalDateTime startDate, LocalDateTime endDate,
+                                                                int page, int size, String cursor) {
+        return RideHistoryPaging.fetch(cursor, page, size, endDate,
+                (beforeCreatedAt, beforeId, pageable) -> rideRepository.findDriverRideHistoryPage(
+                        driverId, startDate, beforeCreatedAt, beforeId, pageable),
+                () -> rideRepository.countDriverRideHistory(driverId, startDate, endDate),
+                this::toDriverHistory);
+    }
+
+    public HistoryPage<PassengerRideHistoryResponse> passengerHistory(Long passengerId, LocalDateTime startDate, LocalDateTime endDate,
+                                                                      int page, int size, String cursor) {
+        return RideHistoryPaging.fetch(cursor, page, size, endDate,
+                (beforeCreatedAt, beforeId, pageable) -> rideRepository.findPassengerRideHistoryPage(
+                        passengerId, startDate, beforeCreatedAt, beforeId, pageable),
+                () -> rideRepository.countPassengerRideHistory(passengerId, startDate, endDate),
+                this::toPassengerHistory);
+    }
+
+    public HistoryPage<AdminRideHistoryResponse> allHistory(LocalDateTime startDate, LocalDateTime endDate,
+                                                            int page, int size, String cursor) {
+        return RideHistoryPaging.fetch(cursor, page, size, endDate,
+                (beforeCreatedAt, beforeId, pageable) -> rideRepository.findAllRidesHistoryPage(
+                        startDate, beforeCreatedAt, beforeId, pageable),
+                () -> rideRepository.countAllRidesHistory(startDate, endDate),
+                this::toAdminHistory);
+    }
+
+    public List<DriverRideHistoryResponse> toDriverHistory(List<RideHistoryRowDto> rows) {
+        Map<Long, List<RideStopRowDto>> stops = stopsByRide(rows);
+        Map<Long, List<RidePassengerRowDto>> passengers = passengersByRide(rows);
+
+        return rows.stream()
+                .map(row -> {
+                    List<RideStopRowDto> rideStops = stops.getOrDefault(row.getId(), List.of());
+                    return DriverRideHistoryResponse.builder()
+                            .id(row.getId())
+                            .startTime(row.getStartedAt())
+                            .endTime(row.getCompletedAt())
+                            .pickupLocation(!rideStops.isEmpty() ? rideStops.get(0).getAddress() : null)
+                            .dropoffLocation(rideStops.size() > 1 ? rideStops.get(rideStops.size() - 1).getAddress() : null)
+                            .cancelled(row.getStatus() == RideStatus.CANCELLED)
+                            .cancelledBy(row.getCancelledBy())
+                            .price(row.getEstimatedPrice())
+                            .panicActivated(row.getPanicActivated())
+                            .panickedBy(row.getPanickedBy())
+                            .status(row.getStatus().name())
+                            .passengers(passengers.getOrDefault(row.getId(), List.of()).stream()
+                                    .map(p -> DriverRideHistoryResponse.PassengerInfo.builder()
+                                            .id(p.getId())
+                                            .firstName(p.getFirstName())
+                                            .lastName(p.getLastName())
+                                            .email(p.getEmail())
+                                            .build())
+                                    .collect(Collectors.toList()))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    public List<PassengerRideHistoryResponse> toPassengerHistory(List<RideHistoryRowDto> rows) {
+        Map<Long, List<RideStopRowDto>> stops = stopsByRide(rows);
+
+        return rows.stream()
+                .map(row -> {
+                    List<RideStopRowDto> rideStops = stops.getOrDefault(row.getId(), List.of());
+                    RideStopRowDto pickup = !rideStops.isEmpty() ? rideStops.get(0) : null;
+                    RideStopRowDto dropoff = rideStops.size() > 1 ? rideStops.get(rideStops.size() - 1) : null;
+
+                    PassengerRideHistoryResponse.DriverInfo driverInfo = null;
+                    if (row.getDriverId() != null) {
+                        driverInfo = PassengerRideHistoryResponse.DriverInfo.builder()
+                                .id(row.getDriverId())
+                                .firstName(row.getDriverFirstName())
+                                .lastName(row.getDriverLastName())
+                                .email(row.getDriverEmail())
+                                .build();
+                    }
+
+                    return PassengerRideHistoryResponse.builder()
+                            .id(row.getId())
+                            .startTime(row.getStartedAt())
+                            .endTime(row.getCompletedAt())
+                            .pickupLocation(pickup != null ? pickup.getAddress() : null)
+                            .dropoffLocation(dropoff != null ? dropoff.getAddress() : null)
+                            .pickup(toLocation(pickup))
+                            .dropoff(toLocation(dropoff))
+                            .stops(intermediateStops(rideStops))
+                            .cancelled(row.getStatus() == RideStatus.CANCELLED)
+                            .cancelledBy(row.getCancelledBy())
+                            .price(row.getEstimatedPrice())
+                            .panicActivated(row.getPanicActivated())
+                            .panickedBy(row.getPanickedBy())
+                            .status(row.getStatus().name())
+                            .vehicleType(row.getVehicleType())
+                            .babyTransport(row.getBabyTransport())
+                            .petTransport(row.getPetTransport())
+                            .distanceKm(row.getDistanceKm())
+                            .driver(driverInfo)
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    public List<AdminRideHistoryResponse> toAdminHistory(List<RideHistoryRowDto> rows) {
+        Map<Long, List<RideStopRowDto>> stops = stopsByRide(rows);
+        Map<Long, List<RidePassengerRowDto>> passengers = passengersByRide(rows);
+
+        return rows.stream()
+                .map(row -> {
+                    List<RideStopRowDto> rideStops = stops.getOrDefault(row.getId(), List.of());
+                    RideStopRowDto pickup = rideStops.isEmpty() ? null : rideStops.get(0);
+                    RideStopRowDto dropoff = rideStops.isEmpty() ? null : rideStops.get(rideStops.size() - 1);
+
+                    AdminRideHistoryResponse.DriverBasicInfo driverInfo = null;
+                    if (row.getDriverId() != null) {
+                        driverInfo = AdminRideHistoryResponse.DriverBasicInfo.builder()
+                                .id(row.getDriverId())
+                                .firstName(row.getDriverFirstName())
+                                .lastName(row.getDriverLastName())
+                                .email(row.getDriverEmail())
+                                .phoneNumber(row.getDriverPhoneNumber())
+                                .build();
+                    }
+
+                    return AdminRideHistoryResponse.builder()
+                            .id(row.getId())
+                            .status(row.getStatus().name())
+                            // Dates
+                            .createdAt(row.getCreatedAt())
+                            .scheduledAt(row.getScheduledAt())
+                            .startedAt(row.getStartedAt())
+                            .completedAt(row.getCompletedAt())
+                            // Locations
+                            .pickupAddress(pickup != null ? pickup.getAddress() : null)
+                            .dropoffAddress(dropoff != null ? dropoff.getAddress() : null)
+                            .pickup(toLocation(pickup))
+                            .dropoff(toLocation(dropoff))
+                            .stops(intermediateStops(rideStops))
+                            // Cancellation
+                            .cancelled(row.getCancelledBy() != null)
+                            .cancelledBy(row.getCancelledBy())
+                            .cancellationReason(row.getCancellationReason())
+                            .cancelledAt(row.getCancelledAt())
+                            // Pricing
+                            .price(row.getEstimatedPrice())
+                            .distanceKm(row.getDistanceKm())
+                            .estimatedDurationMinutes(row.getEstimatedDurationMinutes())
+                            // Panic
+                            .panicActivated(row.getPanicActivated())
+                            .panickedBy(row.getPanickedBy())
+                            // Vehicle
+                            .vehicleType(row.getVehicleType())
+                            .babyTransport(row.getBabyTransport())
+                            .petTransport(row.getPetTransport())
+                            // Participants
+                            .driver(driverInfo)
+                            .passengers(passengers.getOrDefault(row.getId(), List.of()).stream()
+                                    .map(p -> AdminRideHistoryResponse.PassengerBasicInfo.builder()
+                                            .id(p.getId())
+                                            .firstName(p.getFirstName())
+                                            .lastName(p.getLastName())
+                                            .email(p.getEmail())
+                                            .build())
+                                    .collect(Collectors.toList()))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, List<RideStopRowDto>> stopsByRide(List<RideHistoryRowDto> rows) {
+        if (rows.isEmpty()) {
+            return Map.of();
+        }
+        // Rows come ordered by ride and sequence index, which groupingBy preserves.
+        return rideRepository.findStopRows(rideIds(rows)).stream()
+                .collect(Collectors.groupingBy(RideStopRowDto::getRideId));
+    }
+
+    private Map<Long, List<RidePassengerRowDto>> passengersByRide(List<RideHistoryRowDto> rows) {
+        if (rows.isEmpty()) {
+            return Map.of();
+        }
+        return rideRepository.findPassengerRows(rideIds(rows)).stream()
+                .collect(Collectors.groupingBy(RidePassengerRowDto::getRideId));
+    }
+
+    private static List<Long> rideIds(List<RideHistoryRowDto> rows) {
+        return rows.stream().map(RideHistoryRowDto::getId).toList();
+    }
+
+    private static List<LocationPointDto> intermediateStops(List<RideStopRowDto> stops) {
+        List<LocationPointDto> intermediate = new ArrayList<>();
+        for (int i = 1; i < stops.size() - 1; i++) {
+            intermediate.add(toLocation(stops.get(i)));
+        }
+        return intermediate;
+    }
+
+    private static LocationPointDto toLocation(RideStopRowDto stop) {
+        if (stop == null) {
+            return null;
+        }
+        return LocationPointDto.builder()
+                .address(stop.getAddress())
+                .latitude(stop.getLatitude())
+                .longitude(stop.getLongitude())
+                .build();
+    }
+}
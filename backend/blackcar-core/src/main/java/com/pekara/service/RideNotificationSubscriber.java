@@ -0,0 +1,34 @@
+package com.pekara.service;
+
+import com.pekara.dto.RideEventPayload;
+import com.pekara.model.RideEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns ride events into email, push and WebSocket notifications.
+ */
+@Component
+@RequiredArgsConstructor
+public class RideNotificationSubscriber implements RideEventSubscriber {
+
+    private final RideNotificationService rideNotificationService;
+
+    @Override
+    public void onRideEvent(RideEvent.Type type, RideEventPayload ride) {
+        switch (type) {
+            case ORDERED -> rideNotificationService.sendRideOrderNotifications(ride.getDriverEmail(), ride.getCreatorEmail(),
+                    ride.getRideId(), ride.getStatus(), ride.getScheduledAt(), ride.getInvitedEmails());
+            case COMPLETED -> rideNotificationService.sendRideCompletionNotifications(ride.getRideId(),
+                    ride.getPassengerEmails(), ride.getPrice());
+            case CANCELLED -> rideNotificationService.sendCancellationNotifications(ride.getDriverEmail(), ride.getCreatorEmail(),
+                    Boolean.TRUE.equals(ride.getCancelledByDriver()), Boolean.TRUE.equals(ride.getCancelledByCreator()),
+                    ride.getReason());
+            case PANIC -> rideNotificationService.sendPanicNotificationToAdmins(ride.getRideId(), ride.getPanickedBy(),
+                    ride.getActorEmail());
+            default -> {
+                // STARTED and STOPPED_EARLY do not notify anyone.
+            }
+        }
+    }
+}
@@ -1,63 +1,271 @@
 package com.pekara.service;
 
-import com.pekara.constant.RideStatus;
-import com.pekara.model.Ride;
+import com.pekara.dto.RideReminderDto;
 import com.pekara.repository.RideRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Emails the creator of a scheduled ride 15 minutes before it starts and every 5 minutes after that.
+ *
+ * Upcoming reminders are kept in a {@link DelayQueue} and fired at their exact time by one thread.
+ * Rides are added and removed as they are ordered, started or cancelled (see
+ * {@link RideReminderSubscriber}), and {@link #resync()} reloads the next
+ * {@code app.reminders.horizon} of scheduled rides from the database to pick up rides handled by
+ * other instances.
+ *
+ * Reminders due together are claimed with one UPDATE that stamps {@code lastReminderSentAt}; the
+ * stamp acts as a lease, so when several instances track the same ride only the one whose update
+ * matched sends the email. The lease is taken before the email is queued, so two instances never
+ * both send it: when queueing throws, the lease is released and the reminder retried after
+ * {@link #RETRY_DELAY}, but an instance dying between the claim and the hand-off skips that one
+ * reminder and the ride carries on with the next. A claim that fails, for example because the
+ * database is unreachable, is retried after the same delay.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class RideReminderScheduler {
 
+    static final Duration FIRST_REMINDER_LEAD = Duration.ofMinutes(15);
+    static final Duration REMINDER_INTERVAL = Duration.ofMinutes(5);
+    /** Slack for clock skew between instances when checking that the previous reminder is old enough. */
+    private static final Duration CLAIM_TOLERANCE = Duration.ofSeconds(5);
+    static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
     private final RideRepository rideRepository;
     private final MailService mailService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration horizon;
+
+    private final DelayQueue<Reminder> reminders = new DelayQueue<>();
+    /** Rides being tracked and their start time; queue entries that no longer match are stale. */
+    private final Map<Long, LocalDateTime> tracked = new ConcurrentHashMap<>();
+    private Thread worker;
+
+    public RideReminderScheduler(RideRepository rideRepository,
+                                 MailService mailService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.reminders.horizon:PT1H}") Duration horizon) {
+        this.rideRepository = rideRepository;
+        this.mailService = mailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizon = horizon;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(this::runReminders, "ride-reminders");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    /**
+     * Starts tracking a scheduled ride, or moves its reminders if the start time changed.
+     */
+    public void track(Long rideId, LocalDateTime scheduledAt, LocalDateTime lastReminderSentAt) {
+        if (rideId == null || scheduledAt == null) {
+            return;
+        }
+        LocalDateTime previous = tracked.put(rideId, scheduledAt);
+        if (scheduledAt.equals(previous)) {
+            return;
+        }
+        enqueueNext(rideId, scheduledAt, lastReminderSentAt);
+    }
+
+    /**
+     * Stops reminders for a ride that started or was cancelled.
+     */
+    public void untrack(Long rideId) {
+        if (rideId != null) {
+            tracked.remove(rideId);
+        }
+    }
 
-    @Scheduled(fixedRate = 60_000)
-    @Transactional
-    public void sendUpcomingRideReminders() {
+    /**
+     * Loads the scheduled rides starting within the horizon and drops tracked rides that are no
+     * longer scheduled. Runs once at startup and then as a safety net.
+     */
+    @Scheduled(fixedDelayString = "${app.reminders.resync-interval:PT5M}")
+    public int resync() {
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime upper = now.plusMinutes(16);
+        LocalDateTime upper = now.plus(horizon);
+        List<RideReminderDto> rows = rideRepository.findReminderRows(now, upper);
 
-        List<Ride> rides = rideRepository.findScheduledRidesStartingBefore(RideStatus.SCHEDULED, now, upper);
-        for (Ride ride : rides) {
-            if (ride.getScheduledAt() == null) {
-                continue;
-            }
+        Set<Long> scheduled = new HashSet<>();
+        for (RideReminderDto row : rows) {
+            scheduled.add(row.getRideId());
+            track(row.getRideId(), row.getScheduledAt(), row.getLastReminderSentAt());
+        }
+        // Rides beyond the horizon were added by events and are not in this result yet.
+        tracked.entrySet().removeIf(entry -> !scheduled.contains(entry.getKey()) && !entry.getValue().isAfter(upper));
+        log.debug("Tracking reminders for {} scheduled rides", tracked.size());
+        return rows.size();
+    }
 
-            long minutesUntilStart = Duration.between(now, ride.getScheduledAt()).toMinutes();
-            if (minutesUntilStart <= 0) {
-                continue;
-            }
+    int pendingReminders() {
+        return reminders.size();
+    }
 
-            if (shouldSendReminder(ride, now, minutesUntilStart)) {
+    private void runReminders() {
+        List<Reminder> due = new ArrayList<>();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                due.add(reminders.take());
+                reminders.drainTo(due);
                 try {
-                    mailService.sendRideReminder(ride.getCreator().getEmail(), ride.getId(), ride.getScheduledAt());
-                    ride.setLastReminderSentAt(now);
-                    rideRepository.save(ride);
-                } catch (Exception e) {
-                    log.warn("Failed to send reminder for ride {}", ride.getId(), e);
+                    fire(due);
+                } catch (RuntimeException e) {
+                    log.error("Failed to send {} ride reminders: {}", due.size(), e.getMessage(), e);
                 }
+                due.clear();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private boolean shouldSendReminder(Ride ride, LocalDateTime now, long minutesUntilStart) {
-        // First reminder at T-15 (or the first scheduler tick after that)
-        if (ride.getLastReminderSentAt() == null) {
-            return minutesUntilStart <= 15;
+    /**
+     * Claims and sends the given reminders, then queues each ride's next one.
+     */
+    void fire(List<Reminder> due) {
+        List<Reminder> live = due.stream()
+                .filter(reminder -> reminder.scheduledAt().equals(tracked.get(reminder.rideId())))
+                .toList();
+        if (live.isEmpty()) {
+            return;
+        }
+
+        // Truncated so the stamp compares equal after a round trip through a microsecond-precision column.
+        LocalDateTime sentAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Set<Long> rideIds = new HashSet<>();
+        live.forEach(reminder -> rideIds.add(reminder.rideId()));
+        List<RideReminderDto> claimed;
+        try {
+            claimed = transactionTemplate.execute(status -> {
+                int updated = rideRepository.claimReminders(rideIds, sentAt,
+                        sentAt.minus(REMINDER_INTERVAL).plus(CLAIM_TOLERANCE));
+                return updated == 0 ? List.of() : rideRepository.findClaimedReminders(rideIds, sentAt);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to claim {} ride reminders, retrying in {}: {}", live.size(), RETRY_DELAY, e.getMessage());
+            live.forEach(this::retryLater);
+            return;
         }
 
-        // Then every 5 minutes after the first reminder, until start.
-        long minutesSinceLast = Duration.between(ride.getLastReminderSentAt(), now).toMinutes();
-        return minutesSinceLast >= 5;
+        Set<Long> unsent = new HashSet<>();
+        for (RideReminderDto ride : claimed != null ? claimed : List.<RideReminderDto>of()) {
+            try {
+                mailService.sendRideReminder(ride.getCreatorEmail(), ride.getRideId(), ride.getScheduledAt());
+            } catch (RuntimeException e) {
+                log.warn("Failed to send reminder for ride {}, retrying in {}", ride.getRideId(), RETRY_DELAY, e);
+                unsent.add(ride.getRideId());
+            }
+        }
+        if (!unsent.isEmpty()) {
+            release(unsent, sentAt);
+        }
+
+        // Rides claimed by another instance were just reminded as well, so the next slot is the same.
+        for (Reminder reminder : live) {
+            if (unsent.contains(reminder.rideId())) {
+                retryLater(reminder);
+            } else {
+                enqueueNext(reminder.rideId(), reminder.scheduledAt(), sentAt);
+            }
+        }
+    }
+
+    /**
+     * Gives back leases whose email was not sent, dating them one interval back so the retry can
+     * claim them again.
+     */
+    private void release(Set<Long> rideIds, LocalDateTime sentAt) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    rideRepository.releaseReminders(rideIds, sentAt, sentAt.minus(REMINDER_INTERVAL)));
+        } catch (RuntimeException e) {
+            log.warn("Failed to release reminder leases of rides {}, they resume with the next reminder: {}",
+                    rideIds, e.getMessage());
+        }
+    }
+
+    /**
+     * Queues the reminder again after {@link #RETRY_DELAY}, or stops tracking the ride when it
+     * starts before then.
+     */
+    private void retryLater(Reminder reminder) {
+        LocalDateTime retryAt = LocalDateTime.now().plus(RETRY_DELAY);
+        if (retryAt.isBefore(reminder.scheduledAt())) {
+            reminders.add(new Reminder(reminder.rideId(), reminder.scheduledAt(), retryAt));
+        } else {
+            tracked.remove(reminder.rideId(), reminder.scheduledAt());
+        }
+    }
+
+    private void enqueueNext(Long rideId, LocalDateTime scheduledAt, LocalDateTime lastReminderSentAt) {
+        LocalDateTime next = nextReminderAt(scheduledAt, lastReminderSentAt);
+        if (next == null) {
+            tracked.remove(rideId, scheduledAt);
+            return;
+        }
+        reminders.add(new Reminder(rideId, scheduledAt, next));
+    }
+
+    /**
+     * When the next reminder for a ride is due, or null once the ride is about to start.
+     */
+    static LocalDateTime nextReminderAt(LocalDateTime scheduledAt, LocalDateTime lastReminderSentAt) {
+        LocalDateTime next = lastReminderSentAt == null
+                ? scheduledAt.minus(FIRST_REMINDER_LEAD)
+                : lastReminderSentAt.plus(REMINDER_INTERVAL);
+        return next.isBefore(scheduledAt) ? next : null;
+    }
+
+    record Reminder(Long rideId, LocalDateTime scheduledAt, LocalDateTime fireAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            long fireAtMillis = fireAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return unit.convert(fireAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return other instanceof Reminder reminder
+                    ? fireAt.compareTo(reminder.fireAt)
+                    : Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
     }
 }
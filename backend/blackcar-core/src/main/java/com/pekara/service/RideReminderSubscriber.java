@@ -0,0 +1,32 @@
+package com.pekara.service;
+
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.RideEventPayload;
+import com.pekara.model.RideEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the reminder schedule in step with scheduled rides as they are ordered, started or cancelled.
+ */
+@Component
+@RequiredArgsConstructor
+public class RideReminderSubscriber implements RideEventSubscriber {
+
+    private final RideReminderScheduler rideReminderScheduler;
+
+    @Override
+    public void onRideEvent(RideEvent.Type type, RideEventPayload ride) {
+        switch (type) {
+            case ORDERED -> {
+                if (RideStatus.SCHEDULED.name().equals(ride.getStatus())) {
+                    rideReminderScheduler.track(ride.getRideId(), ride.getScheduledAt(), null);
+                }
+            }
+            case STARTED, CANCELLED -> rideReminderScheduler.untrack(ride.getRideId());
+            default -> {
+                // Completed, stopped and panicking rides were already started.
+            }
+        }
+    }
+}
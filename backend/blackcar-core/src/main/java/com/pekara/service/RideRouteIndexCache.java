@@ -0,0 +1,72 @@
+package com.pekara.service;
+
+import com.pekara.model.Ride;
+import com.pekara.util.PolylineCodec;
+import com.pekara.util.RouteIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link RouteIndex} of recently tracked rides so location updates do not decode the
+ * stored geometry again on every ping. Bounded LRU keyed by ride id; an entry is rebuilt if the
+ * ride's geometry changes.
+ */
+@Slf4j
+@Component
+public class RideRouteIndexCache {
+
+    private final Map<Long, Entry> entries;
+
+    public RideRouteIndexCache(@Value("${app.tracking.route-index.max-entries:2000}") int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Index of the ride's route, or null if the ride has no usable geometry.
+     */
+    public RouteIndex forRide(Ride ride) {
+        String encoded = PolylineCodec.encodedRoute(ride.getRoutePolyline(), ride.getRouteCoordinates());
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry cached = entries.get(ride.getId());
+            if (cached != null && cached.encoded().equals(encoded)) {
+                return cached.index();
+            }
+        }
+
+        RouteIndex index;
+        try {
+            index = RouteIndex.fromPolyline(encoded);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Ride {} has unreadable route geometry: {}", ride.getId(), ex.getMessage());
+            return null;
+        }
+        if (index.size() < 2) {
+            return null;
+        }
+        synchronized (entries) {
+            entries.put(ride.getId(), new Entry(encoded, index));
+        }
+        return index;
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(String encoded, RouteIndex index) {
+    }
+}
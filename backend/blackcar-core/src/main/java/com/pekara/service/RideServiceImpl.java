@@ -1,47 +1,54 @@
 package com.pekara.service;
 
 import com.pekara.constant.RideStatus;
+import com.pekara.dto.InconsistencyReportRowDto;
+import com.pekara.dto.PricingDto;
+import com.pekara.dto.RideEventPayload;
+import com.pekara.dto.RideRatingRowDto;
+import com.pekara.dto.UserSummaryDto;
 import com.pekara.dto.common.LocationPointDto;
 import com.pekara.dto.request.EstimateRideRequest;
 import com.pekara.dto.request.InconsistencyReportRequest;
 import com.pekara.dto.request.OrderRideRequest;
 import com.pekara.dto.request.RideRatingRequest;
 import com.pekara.dto.response.ActiveRideResponse;
+import com.pekara.dto.response.HistoryPage;
 import com.pekara.dto.response.OrderRideResponse;
 import com.pekara.dto.response.PassengerRideDetailResponse;
 import com.pekara.dto.response.RideEstimateResponse;
-import com.pekara.dto.response.RideStatsDayDto;
 import com.pekara.dto.response.RideStatsResponse;
 import com.pekara.exception.ActiveRideConflictException;
 import com.pekara.exception.InvalidScheduleTimeException;
 import com.pekara.exception.NoDriversAvailableException;
 import com.pekara.exception.UserBlockedException;
 import com.pekara.model.Driver;
-import com.pekara.model.DriverState;
 import com.pekara.model.InconsistencyReport;
 import com.pekara.model.Ride;
+import com.pekara.model.RideDailyStats;
+import com.pekara.model.RideEvent;
 import com.pekara.model.RideRating;
 import com.pekara.model.RideStop;
 import com.pekara.model.User;
-import com.pekara.repository.DriverStateRepository;
+import com.pekara.repository.DriverRepository;
 import com.pekara.repository.InconsistencyReportRepository;
 import com.pekara.repository.RideRatingRepository;
 import com.pekara.repository.RideRepository;
 import com.pekara.repository.UserRepository;
 import com.pekara.util.GeoUtils;
-import jakarta.persistence.EntityManager;
+import com.pekara.util.PolylineCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -50,11 +57,15 @@ import java.util.stream.Collectors;
 public class RideServiceImpl implements RideService {
 
     private final UserRepository userRepository;
+    private final UserLookupService userLookupService;
     private final RideRepository rideRepository;
     private final RideRatingRepository rideRatingRepository;
     private final InconsistencyReportRepository inconsistencyReportRepository;
-    private final DriverStateRepository driverStateRepository;
-    private final EntityManager entityManager;
+    private final DriverRepository driverRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final RideHistoryReader rideHistoryReader;
+    private final RideDailyStatsService rideDailyStatsService;
+    private final RideEventOutbox rideEventOutbox;
 
     private final RideEstimationService rideEstimationService;
     private final DriverMatchingService driverMatchingService;
@@ -62,6 +73,7 @@ public class RideServiceImpl implements RideService {
     private final RideWorkLogService rideWorkLogService;
     private final RideNotificationService rideNotificationService;
     private final RoutingService routingService;
+    private final PricingService pricingService;
 
     @Override
     @Transactional(readOnly = true)
@@ -71,6 +83,24 @@ public class RideServiceImpl implements RideService {
 
         BigDecimal estimatedPrice = rideEstimationService.calculatePrice(request.getVehicleType(), route.getDistanceKm());
 
+        return toEstimateResponse(request, route, estimatedPrice);
+    }
+
+    @Override
+    public CompletableFuture<RideEstimateResponse> estimateRideAsync(EstimateRideRequest request) {
+        CompletableFuture<RideEstimationService.RouteData> routeFuture = rideEstimationService.calculateRouteWithStopsAsync(
+                request.getPickup(), request.getDropoff(), request.getStops());
+
+        // Pricing is read here while the route is being calculated, so the completion stage
+        // (running on the HTTP client thread) only does arithmetic.
+        PricingDto pricing = pricingService.getPricingByVehicleType(request.getVehicleType());
+
+        return routeFuture.thenApply(route -> toEstimateResponse(request, route,
+                rideEstimationService.applyPricing(pricing, route.getDistanceKm())));
+    }
+
+    private RideEstimateResponse toEstimateResponse(EstimateRideRequest request, RideEstimationService.RouteData route,
+                                                    BigDecimal estimatedPrice) {
         return RideEstimateResponse.builder()
                 .estimatedPrice(estimatedPrice)
                 .estimatedDurationMinutes(route.getDurationMinutes())
@@ -80,25 +110,22 @@ public class RideServiceImpl implements RideService {
                 .build();
     }
 
+    /**
+     * Orders a ride in three steps so no row lock is held while the route is computed:
+     * validation, routing, pricing and matching run outside a transaction; the chosen driver is
+     * then reserved with a conditional update and the ride is written in one short transaction.
+     * If another order reserved the driver first, nothing is written and the order is rejected.
+     */
     @Override
-    @Transactional
     public OrderRideResponse orderRide(String creatorEmail, OrderRideRequest request) {
         LocalDateTime now = LocalDateTime.now();
 
-        User creator = userRepository.findByEmail(creatorEmail)
+        UserSummaryDto creatorSummary = userLookupService.findByEmail(creatorEmail)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        entityManager.flush();
+        ensureNotBlocked(creatorSummary.isBlocked(), creatorSummary.getBlockedNote());
 
-        if (Boolean.TRUE.equals(creator.getBlocked())) {
-            String reason = creator.getBlockedNote() != null && !creator.getBlockedNote().isBlank()
-                    ? creator.getBlockedNote()
-                    : "Contact support for details.";
-            String message = "You have been blocked by an administrator and cannot order new rides. Reason: " + reason;
-            throw new UserBlockedException(message);
-        }
-
-        validateNoActiveRides(creator, creatorEmail);
+        validateNoActiveRides(creatorSummary.getId(), creatorEmail);
         validateScheduleTime(request.getScheduledAt(), now);
 
         RideEstimationService.RouteData routeData = rideEstimationService.calculateRouteWithStops(
@@ -107,7 +134,7 @@ public class RideServiceImpl implements RideService {
         double distanceKm = routeData.getDistanceKm();
         int estimatedDurationMinutes = routeData.getDurationMinutes();
         BigDecimal estimatedPrice = rideEstimationService.calculatePrice(request.getVehicleType(), distanceKm);
-        String routeCoordinates = rideEstimationService.serializeRouteCoordinates(routeData.getRoutePoints());
+        String routePolyline = rideEstimationService.encodeRoutePolyline(routeData.getRoutePoints());
 
         Long candidateDriverId = driverMatchingService.selectDriverIdForRide(request, now);
 
@@ -116,53 +143,64 @@ public class RideServiceImpl implements RideService {
             throw new NoDriversAvailableException("Currently there are no active drivers available");
         }
 
-        entityManager.flush();
-        entityManager.clear();
-
-        creator = userRepository.findByEmail(creatorEmail)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-
-        DriverState lockedState = driverStateRepository.findByDriverIdForUpdate(candidateDriverId)
-                .orElseThrow(() -> new NoDriversAvailableException("Driver became unavailable"));
-
-        validateDriverAvailability(lockedState, creator.getEmail(), request.getScheduledAt(), now);
-
-        Driver driver = lockedState.getDriver();
-
-        Ride ride = buildRide(creator, driver, request, estimatedPrice, distanceKm, estimatedDurationMinutes, routeCoordinates);
-
-        addPassengersToRide(ride, creator, request.getPassengerEmails());
-        addStopsToRide(ride, request);
-
-        if (request.getScheduledAt() != null) {
-            driverStateManagementService.setNextScheduledRide(candidateDriverId, request.getScheduledAt());
-        } else {
-            driverStateManagementService.markDriverBusy(candidateDriverId, estimatedDurationMinutes,
-                    request.getDropoff().getLatitude(), request.getDropoff().getLongitude());
-        }
+        Ride saved = new TransactionTemplate(transactionManager).execute(status -> {
+            User creator = userRepository.findByEmail(creatorEmail)
+                    .orElseThrow(() -> new IllegalArgumentException("User not found"));
+            // The summary above may be cached on this node; the row is authoritative.
+            ensureNotBlocked(Boolean.TRUE.equals(creator.getBlocked()), creator.getBlockedNote());
+            Driver driver = driverRepository.findById(candidateDriverId)
+                    .orElseThrow(() -> new NoDriversAvailableException("Driver became unavailable"));
+
+            Ride ride = buildRide(creator, driver, request, estimatedPrice, distanceKm, estimatedDurationMinutes, routePolyline);
+            addPassengersToRide(ride, creator, request.getPassengerEmails());
+            addStopsToRide(ride, request);
+
+            // The driver row stays locked from here until commit, which covers only the inserts below.
+            boolean reserved = request.getScheduledAt() != null
+                    ? driverStateManagementService.reserveForScheduledRide(candidateDriverId, request.getScheduledAt())
+                    : driverStateManagementService.reserveForRide(candidateDriverId, estimatedDurationMinutes,
+                            request.getDropoff().getLatitude(), request.getDropoff().getLongitude(), now);
+            if (!reserved) {
+                // Nothing has been written yet, so there is nothing to roll back.
+                return null;
+            }
 
-        Ride saved = rideRepository.save(ride);
+            Ride persisted = rideRepository.save(ride);
+            if (request.getScheduledAt() == null) {
+                rideWorkLogService.createWorkLogForRide(persisted.getId(), driver.getId(), now);
+            }
+            rideEventOutbox.record(RideEvent.Type.ORDERED, eventOf(persisted)
+                    .invitedEmails(request.getPassengerEmails())
+                    .build());
+            return persisted;
+        });
 
-        if (request.getScheduledAt() == null) {
-            rideWorkLogService.createWorkLogForRide(saved.getId(), driver.getId(), now);
+        if (saved == null) {
+            rideNotificationService.sendRejectionNotification(creatorEmail, "Driver became unavailable");
+            throw new NoDriversAvailableException("Driver became unavailable");
         }
 
-        rideNotificationService.sendRideOrderNotifications(driver.getEmail(), creator.getEmail(),
-                saved.getId(), saved.getStatus().name(), saved.getScheduledAt(), request.getPassengerEmails());
-
         return OrderRideResponse.builder()
                 .rideId(saved.getId())
                 .status(saved.getStatus().name())
                 .message(saved.getStatus() == RideStatus.SCHEDULED ? "Ride scheduled successfully." : "Ride ordered successfully.")
                 .estimatedPrice(saved.getEstimatedPrice())
                 .scheduledAt(saved.getScheduledAt())
-                .assignedDriverEmail(driver.getEmail())
+                .assignedDriverEmail(saved.getDriver().getEmail())
                 .build();
     }
 
-    private void validateNoActiveRides(User creator, String creatorEmail) {
+    private void ensureNotBlocked(boolean blocked, String blockedNote) {
+        if (!blocked) {
+            return;
+        }
+        String reason = blockedNote != null && !blockedNote.isBlank() ? blockedNote : "Contact support for details.";
+        throw new UserBlockedException("You have been blocked by an administrator and cannot order new rides. Reason: " + reason);
+    }
+
+    private void validateNoActiveRides(Long creatorId, String creatorEmail) {
         List<RideStatus> activeStatuses = List.of(RideStatus.ACCEPTED, RideStatus.SCHEDULED, RideStatus.IN_PROGRESS);
-        List<Ride> activeRides = rideRepository.findPassengerActiveRides(creator.getId(), activeStatuses);
+        List<Ride> activeRides = rideRepository.findPassengerActiveRides(creatorId, activeStatuses);
 
         if (!activeRides.isEmpty()) {
             Ride conflictingRide = activeRides.get(0);
@@ -192,22 +230,7 @@ public class RideServiceImpl implements RideService {
         }
     }
 
-    private void validateDriverAvailability(DriverState lockedState, String creatorEmail, LocalDateTime scheduledAt, LocalDateTime now) {
-        if (!Boolean.TRUE.equals(lockedState.getOnline())) {
-            rideNotificationService.sendRejectionNotification(creatorEmail, "Driver became unavailable");
-            throw new NoDriversAvailableException("Driver became unavailable");
-        }
-
-        if (Boolean.TRUE.equals(lockedState.getBusy()) && scheduledAt == null) {
-            if (lockedState.getCurrentRideEndsAt() == null ||
-                    lockedState.getCurrentRideEndsAt().isAfter(now.plusMinutes(10))) {
-                rideNotificationService.sendRejectionNotification(creatorEmail, "Driver became unavailable");
-                throw new NoDriversAvailableException("Driver became unavailable");
-            }
-        }
-    }
-
-    private Ride buildRide(User creator, Driver driver, OrderRideRequest request, BigDecimal estimatedPrice, double distanceKm, int estimatedDurationMinutes, String routeCoordinates) {
+    private Ride buildRide(User creator, Driver driver, OrderRideRequest request, BigDecimal estimatedPrice, double distanceKm, int estimatedDurationMinutes, String routePolyline) {
         return Ride.builder()
                 .creator(creator)
                 .driver(driver)
@@ -219,7 +242,7 @@ public class RideServiceImpl implements RideService {
                 .estimatedPrice(estimatedPrice)
                 .distanceKm(rideEstimationService.roundKm(distanceKm))
                 .estimatedDurationMinutes(estimatedDurationMinutes)
-                .routeCoordinates(routeCoordinates)
+                .routePolyline(routePolyline)
                 .build();
     }
 
@@ -280,6 +303,7 @@ public class RideServiceImpl implements RideService {
         rideRepository.save(ride);
 
         rideWorkLogService.startWorkLog(rideId, now);
+        rideEventOutbox.record(RideEvent.Type.STARTED, eventOf(ride).build());
 
         log.info("Ride {} started by driver {}", rideId, driverEmail);
     }
@@ -300,13 +324,9 @@ public class RideServiceImpl implements RideService {
 
         driverStateManagementService.releaseDriverAfterRide(ride.getDriver().getId());
         rideWorkLogService.completeWorkLog(rideId, now);
-        List<String> passengerEmails = ride.getPassengers().stream()
-                .map(passenger -> passenger.getEmail())
-                .collect(Collectors.toList());
-        rideNotificationService.sendRideCompletionNotifications(rideId, passengerEmails, ride.getEstimatedPrice());
-
-        log.info("Ride {} completed by driver {}, notifications sent to {} passengers", rideId, driverEmail, passengerEmails.size());
+        rideEventOutbox.record(RideEvent.Type.COMPLETED, eventOf(ride).build());
 
+        log.info("Ride {} completed by driver {}", rideId, driverEmail);
     }
 
     @Override
@@ -360,18 +380,20 @@ public class RideServiceImpl implements RideService {
             rideWorkLogService.cancelWorkLog(rideId, now);
         }
 
-        log.info("Ride {} cancelled by {}. Reason: {}", rideId, userEmail, reason);
+        rideEventOutbox.record(RideEvent.Type.CANCELLED, eventOf(ride)
+                .cancelledByDriver(isDriver)
+                .cancelledByCreator(isCreator)
+                .reason(reason)
+                .actorEmail(userEmail)
+                .build());
 
-        rideNotificationService.sendCancellationNotifications(
-                ride.getDriver() != null ? ride.getDriver().getEmail() : null,
-                ride.getCreator().getEmail(),
-                isDriver, isCreator, reason);
+        log.info("Ride {} cancelled by {}. Reason: {}", rideId, userEmail, reason);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<ActiveRideResponse> getActiveRideForDriver(String driverEmail) {
-        User driver = userRepository.findByEmail(driverEmail)
+        UserSummaryDto driver = userLookupService.findByEmail(driverEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Driver not found"));
 
         List<RideStatus> activeStatuses = List.of(RideStatus.ACCEPTED, RideStatus.SCHEDULED, RideStatus.IN_PROGRESS, RideStatus.STOP_REQUESTED);
@@ -388,7 +410,7 @@ public class RideServiceImpl implements RideService {
     @Override
     @Transactional(readOnly = true)
     public Optional<ActiveRideResponse> getActiveRideForPassenger(String passengerEmail) {
-        User passenger = userRepository.findByEmail(passengerEmail)
+        UserSummaryDto passenger = userLookupService.findByEmail(passengerEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Passenger not found"));
 
         List<RideStatus> activeStatuses = List.of(RideStatus.ACCEPTED, RideStatus.SCHEDULED, RideStatus.IN_PROGRESS, RideStatus.STOP_REQUESTED);
@@ -467,7 +489,7 @@ public class RideServiceImpl implements RideService {
                 .distanceKm(ride.getDistanceKm())
                 .estimatedDurationMinutes(ride.getEstimatedDurationMinutes())
                 .startedAt(ride.getStartedAt())
-                .routeCoordinates(ride.getRouteCoordinates())
+                .routeCoordinates(PolylineCodec.coordinatesJson(ride.getRoutePolyline(), ride.getRouteCoordinates()))
                 .pickup(pickup)
                 .dropoff(dropoff)
                 .stops(intermediateStops)
@@ -495,6 +517,7 @@ public class RideServiceImpl implements RideService {
 
         ride.setStatus(RideStatus.STOP_REQUESTED);
         rideRepository.save(ride);
+        rideEventOutbox.record(RideEvent.Type.STOP_REQUESTED, eventOf(ride).build());
 
         log.info("Ride {} stop requested by passenger {}", rideId, passengerEmail);
     }
@@ -517,7 +540,7 @@ public class RideServiceImpl implements RideService {
         LocalDateTime now = LocalDateTime.now();
 
         Double actualDistanceKm = routingService.calculateActualDistanceFromRoute(
-                ride.getRouteCoordinates(),
+                PolylineCodec.encodedRoute(ride.getRoutePolyline(), ride.getRouteCoordinates()),
                 actualStopLocation
         );
 
@@ -553,11 +576,31 @@ public class RideServiceImpl implements RideService {
 
         driverStateManagementService.releaseDriverAfterRide(ride.getDriver().getId());
         rideWorkLogService.completeWorkLog(rideId, now);
+        rideEventOutbox.record(RideEvent.Type.STOPPED_EARLY, eventOf(ride).build());
 
         log.info("Ride {} stopped early by driver {} at new location. Actual distance: {} km, Actual price: {}",
                 rideId, driverEmail, actualDistanceKm, actualPrice);
     }
 
+    /**
+     * Outbox payload with the ride's state at the time of the change; callers add the fields
+     * specific to their event type.
+     */
+    private static RideEventPayload.RideEventPayloadBuilder eventOf(Ride ride) {
+        return RideEventPayload.builder()
+                .rideId(ride.getId())
+                .status(ride.getStatus().name())
+                .driverId(ride.getDriver() != null ? ride.getDriver().getId() : null)
+                .driverEmail(ride.getDriver() != null ? ride.getDriver().getEmail() : null)
+                .creatorEmail(ride.getCreator() != null ? ride.getCreator().getEmail() : null)
+                .passengerIds(ride.getPassengers().stream().map(User::getId).toList())
+                .passengerEmails(ride.getPassengers().stream().map(User::getEmail).toList())
+                .scheduledAt(ride.getScheduledAt())
+                .completedAt(ride.getCompletedAt())
+                .distanceKm(ride.getDistanceKm())
+                .price(ride.getEstimatedPrice());
+    }
+
     private void validateDriver(Ride ride, String driverEmail) {
         if (ride.getDriver() == null || !ride.getDriver().getEmail().equals(driverEmail)) {
             throw new IllegalArgumentException("You are not the assigned driver for this ride");
@@ -581,199 +624,40 @@ public class RideServiceImpl implements RideService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<com.pekara.dto.response.DriverRideHistoryResponse> getDriverRideHistory(String driverEmail, LocalDateTime startDate, LocalDateTime endDate) {
-        User driver = userRepository.findByEmail(driverEmail)
+    public HistoryPage<com.pekara.dto.response.DriverRideHistoryResponse> getDriverRideHistory(String driverEmail, LocalDateTime startDate, LocalDateTime endDate,
+                                                                                               int page, int size, String cursor) {
+        UserSummaryDto driver = userLookupService.findByEmail(driverEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Driver not found"));
 
-        List<Ride> rides = rideRepository.findDriverRideHistory(driver.getId(), startDate, endDate);
-
-        return rides.stream()
-                .map(this::mapToDriverRideHistoryResponse)
-                .collect(Collectors.toList());
+        return rideHistoryReader.driverHistory(driver.getId(), startDate, endDate, page, size, cursor);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<com.pekara.dto.response.PassengerRideHistoryResponse> getPassengerRideHistory(String passengerEmail, LocalDateTime startDate, LocalDateTime endDate) {
-        User passenger = userRepository.findByEmail(passengerEmail)
+    public HistoryPage<com.pekara.dto.response.PassengerRideHistoryResponse> getPassengerRideHistory(String passengerEmail, LocalDateTime startDate, LocalDateTime endDate,
+                                                                                                     int page, int size, String cursor) {
+        UserSummaryDto passenger = userLookupService.findByEmail(passengerEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Passenger not found"));
 
-        List<Ride> rides = rideRepository.findPassengerRideHistory(passenger.getId(), startDate, endDate);
-
-        return rides.stream()
-                .map(this::mapToPassengerRideHistoryResponse)
-                .collect(Collectors.toList());
+        return rideHistoryReader.passengerHistory(passenger.getId(), startDate, endDate, page, size, cursor);
     }
 
     @Override
     @Transactional(readOnly = true)
     public RideStatsResponse getDriverRideStats(String driverEmail, LocalDateTime startDate, LocalDateTime endDate) {
-        User driver = userRepository.findByEmail(driverEmail)
+        UserSummaryDto driver = userLookupService.findByEmail(driverEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Driver not found"));
 
-        List<Ride> rides = rideRepository.findDriverRideHistory(driver.getId(), startDate, endDate);
-        return buildRideStatsResponse(rides, startDate, endDate);
+        return rideDailyStatsService.getStats(RideDailyStats.Scope.DRIVER, driver.getId(), startDate, endDate);
     }
 
     @Override
     @Transactional(readOnly = true)
     public RideStatsResponse getPassengerRideStats(String passengerEmail, LocalDateTime startDate, LocalDateTime endDate) {
-        User passenger = userRepository.findByEmail(passengerEmail)
+        UserSummaryDto passenger = userLookupService.findByEmail(passengerEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Passenger not found"));
 
-        List<Ride> rides = rideRepository.findPassengerRideHistory(passenger.getId(), startDate, endDate);
-        return buildRideStatsResponse(rides, startDate, endDate);
-    }
-
-    private RideStatsResponse buildRideStatsResponse(List<Ride> rides, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Ride> completedRides = rides.stream()
-                .filter(r -> r.getStatus() == RideStatus.COMPLETED)
-                .collect(Collectors.toList());
-
-        LocalDate start = startDate.toLocalDate();
-        LocalDate end = endDate.toLocalDate();
-        long daysInRange = java.time.temporal.ChronoUnit.DAYS.between(start, end) + 1;
-
-        Map<LocalDate, List<Ride>> ridesByDate = completedRides.stream()
-                .collect(Collectors.groupingBy(r -> {
-                    LocalDateTime dt = r.getCompletedAt() != null ? r.getCompletedAt()
-                            : (r.getStartedAt() != null ? r.getStartedAt() : r.getCreatedAt());
-                    return dt.toLocalDate();
-                }));
-
-        List<RideStatsDayDto> dailyData = new ArrayList<>();
-        long totalRides = 0;
-        double totalDistanceKm = 0;
-        BigDecimal totalAmount = BigDecimal.ZERO;
-
-        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-            List<Ride> dayRides = ridesByDate.getOrDefault(date, List.of());
-            long count = dayRides.size();
-            double distance = dayRides.stream()
-                    .mapToDouble(r -> r.getDistanceKm() != null ? r.getDistanceKm() : 0.0)
-                    .sum();
-            BigDecimal amount = dayRides.stream()
-                    .map(r -> r.getEstimatedPrice() != null ? r.getEstimatedPrice() : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            dailyData.add(RideStatsDayDto.builder()
-                    .date(date)
-                    .rideCount(count)
-                    .distanceKm(distance)
-                    .amount(amount)
-                    .build());
-
-            totalRides += count;
-            totalDistanceKm += distance;
-            totalAmount = totalAmount.add(amount);
-        }
-
-        double avgRidesPerDay = daysInRange > 0 ? (double) totalRides / daysInRange : 0;
-        double avgDistancePerDay = daysInRange > 0 ? totalDistanceKm / daysInRange : 0;
-        BigDecimal avgAmountPerDay = daysInRange > 0 ? totalAmount.divide(BigDecimal.valueOf(daysInRange), 2, java.math.RoundingMode.HALF_UP) : BigDecimal.ZERO;
-
-        return RideStatsResponse.builder()
-                .dailyData(dailyData)
-                .totalRides(totalRides)
-                .totalDistanceKm(totalDistanceKm)
-                .totalAmount(totalAmount)
-                .avgRidesPerDay(avgRidesPerDay)
-                .avgDistancePerDay(avgDistancePerDay)
-                .avgAmountPerDay(avgAmountPerDay)
-                .build();
-    }
-
-    private com.pekara.dto.response.DriverRideHistoryResponse mapToDriverRideHistoryResponse(Ride ride) {
-        List<RideStop> stops = ride.getStops();
-        String pickupLocation = !stops.isEmpty() ? stops.get(0).getAddress() : null;
-        String dropoffLocation = stops.size() > 1 ? stops.get(stops.size() - 1).getAddress() : null;
-
-        List<com.pekara.dto.response.DriverRideHistoryResponse.PassengerInfo> passengers = ride.getPassengers().stream()
-                .map(p -> com.pekara.dto.response.DriverRideHistoryResponse.PassengerInfo.builder()
-                        .id(p.getId())
-                        .firstName(p.getFirstName())
-                        .lastName(p.getLastName())
-                        .email(p.getEmail())
-                        .build())
-                .collect(Collectors.toList());
-
-        return com.pekara.dto.response.DriverRideHistoryResponse.builder()
-                .id(ride.getId())
-                .startTime(ride.getStartedAt())
-                .endTime(ride.getCompletedAt())
-                .pickupLocation(pickupLocation)
-                .dropoffLocation(dropoffLocation)
-                .cancelled(ride.getStatus() == RideStatus.CANCELLED)
-                .cancelledBy(ride.getCancelledBy())
-                .price(ride.getEstimatedPrice())
-                .panicActivated(ride.getPanicActivated())
-                .panickedBy(ride.getPanickedBy())
-                .status(ride.getStatus().name())
-                .passengers(passengers)
-                .build();
-    }
-
-    private com.pekara.dto.response.PassengerRideHistoryResponse mapToPassengerRideHistoryResponse(Ride ride) {
-        List<RideStop> stops = ride.getStops();
-        String pickupLocation = !stops.isEmpty() ? stops.get(0).getAddress() : null;
-        String dropoffLocation = stops.size() > 1 ? stops.get(stops.size() - 1).getAddress() : null;
-
-        com.pekara.dto.common.LocationPointDto pickupDto = !stops.isEmpty() ?
-                com.pekara.dto.common.LocationPointDto.builder()
-                        .address(stops.get(0).getAddress())
-                        .latitude(stops.get(0).getLatitude())
-                        .longitude(stops.get(0).getLongitude())
-                        .build() : null;
-
-        com.pekara.dto.common.LocationPointDto dropoffDto = stops.size() > 1 ?
-                com.pekara.dto.common.LocationPointDto.builder()
-                        .address(stops.get(stops.size() - 1).getAddress())
-                        .latitude(stops.get(stops.size() - 1).getLatitude())
-                        .longitude(stops.get(stops.size() - 1).getLongitude())
-                        .build() : null;
-
-        List<com.pekara.dto.common.LocationPointDto> stopsDto = new ArrayList<>();
-        if (stops.size() > 2) {
-            for (int i = 1; i < stops.size() - 1; i++) {
-                stopsDto.add(com.pekara.dto.common.LocationPointDto.builder()
-                        .address(stops.get(i).getAddress())
-                        .latitude(stops.get(i).getLatitude())
-                        .longitude(stops.get(i).getLongitude())
-                        .build());
-            }
-        }
-
-        com.pekara.dto.response.PassengerRideHistoryResponse.DriverInfo driverInfo = null;
-        if (ride.getDriver() != null) {
-            driverInfo = com.pekara.dto.response.PassengerRideHistoryResponse.DriverInfo.builder()
-                    .id(ride.getDriver().getId())
-                    .firstName(ride.getDriver().getFirstName())
-                    .lastName(ride.getDriver().getLastName())
-                    .email(ride.getDriver().getEmail())
-                    .build();
-        }
-
-        return com.pekara.dto.response.PassengerRideHistoryResponse.builder()
-                .id(ride.getId())
-                .startTime(ride.getStartedAt())
-                .endTime(ride.getCompletedAt())
-                .pickupLocation(pickupLocation)
-                .dropoffLocation(dropoffLocation)
-                .pickup(pickupDto)
-                .dropoff(dropoffDto)
-                .stops(stopsDto)
-                .cancelled(ride.getStatus() == RideStatus.CANCELLED)
-                .cancelledBy(ride.getCancelledBy())
-                .price(ride.getEstimatedPrice())
-                .panicActivated(ride.getPanicActivated())
-                .panickedBy(ride.getPanickedBy())
-                .status(ride.getStatus().name())
-                .vehicleType(ride.getVehicleType())
-                .babyTransport(ride.getBabyTransport())
-                .petTransport(ride.getPetTransport())
-                .distanceKm(ride.getDistanceKm())
-                .driver(driverInfo)
-                .build();
+        return rideDailyStatsService.getStats(RideDailyStats.Scope.PASSENGER, passenger.getId(), startDate, endDate);
     }
 
     @Override
@@ -805,14 +689,13 @@ public class RideServiceImpl implements RideService {
         ride.setPanickedBy(panickedBy);
         rideRepository.save(ride);
 
-        log.warn("PANIC ACTIVATED - Ride ID: {}, Activated by: {}, User: {}", rideId, panickedBy, userEmail);
+        // Admins are notified by the outbox relay once this commits.
+        rideEventOutbox.record(RideEvent.Type.PANIC, eventOf(ride)
+                .panickedBy(panickedBy)
+                .actorEmail(userEmail)
+                .build());
 
-        // Send panic notification to all admins
-        try {
-            rideNotificationService.sendPanicNotificationToAdmins(rideId, panickedBy, userEmail);
-        } catch (Exception e) {
-            log.error("Failed to send panic notification to admins: {}", e.getMessage(), e);
-        }
+        log.warn("PANIC ACTIVATED - Ride ID: {}, Activated by: {}, User: {}", rideId, panickedBy, userEmail);
     }
 
     @Override
@@ -924,17 +807,13 @@ public class RideServiceImpl implements RideService {
     @Transactional(readOnly = true)
     public List<com.pekara.dto.response.DriverRideHistoryResponse> getActivePanicRides() {
         List<RideStatus> activeStatuses = List.of(RideStatus.IN_PROGRESS, RideStatus.STOP_REQUESTED);
-        List<Ride> panicRides = rideRepository.findActivePanicRides(activeStatuses);
-
-        return panicRides.stream()
-                .map(this::mapToDriverRideHistoryResponse)
-                .collect(Collectors.toList());
+        return rideHistoryReader.toDriverHistory(rideRepository.findActivePanicRideRows(activeStatuses));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<ActiveRideResponse> getNextScheduledRideForDriver(String driverEmail) {
-        User driver = userRepository.findByEmail(driverEmail)
+        UserSummaryDto driver = userLookupService.findByEmail(driverEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Driver not found"));
 
         LocalDateTime now = LocalDateTime.now();
@@ -957,7 +836,7 @@ public class RideServiceImpl implements RideService {
     public PassengerRideDetailResponse getPassengerRideDetail(Long rideId, String passengerEmail) {
         log.debug("Fetching ride detail for rideId: {} by passenger: {}", rideId, passengerEmail);
 
-        User passenger = userRepository.findByEmail(passengerEmail)
+        UserSummaryDto passenger = userLookupService.findByEmail(passengerEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Passenger not found"));
 
         Ride ride = rideRepository.findById(rideId)
@@ -970,13 +849,13 @@ public class RideServiceImpl implements RideService {
             throw new IllegalArgumentException("You are not authorized to view this ride");
         }
 
-        List<RideRating> ratings = rideRatingRepository.findAllByRideId(rideId);
-        List<InconsistencyReport> reports = inconsistencyReportRepository.findAllByRideId(rideId);
+        List<RideRatingRowDto> ratings = rideRatingRepository.findRowsByRideId(rideId);
+        List<InconsistencyReportRowDto> reports = inconsistencyReportRepository.findRowsByRideId(rideId);
 
         return mapToPassengerRideDetailResponse(ride, ratings, reports);
     }
 
-    private PassengerRideDetailResponse mapToPassengerRideDetailResponse(Ride ride, List<RideRating> ratings, List<InconsistencyReport> reports) {
+    private PassengerRideDetailResponse mapToPassengerRideDetailResponse(Ride ride, List<RideRatingRowDto> ratings, List<InconsistencyReportRowDto> reports) {
         // Get pickup and dropoff from stops (first and last)
         List<RideStop> stops = ride.getStops();
         RideStop pickup = stops.isEmpty() ? null : stops.get(0);
@@ -1018,7 +897,7 @@ public class RideServiceImpl implements RideService {
                         .build() : null)
                 .stops(intermediateStops)
                 // Route for map
-                .routeCoordinates(ride.getRouteCoordinates())
+                .routeCoordinates(PolylineCodec.coordinatesJson(ride.getRoutePolyline(), ride.getRouteCoordinates()))
                 // Cancellation
                 .cancelled(ride.getCancelledBy() != null)
                 .cancelledBy(ride.getCancelledBy())
@@ -1059,14 +938,14 @@ public class RideServiceImpl implements RideService {
                 .build();
     }
 
-    private List<PassengerRideDetailResponse.RideRatingInfo> mapPassengerRatings(List<RideRating> ratings) {
+    private List<PassengerRideDetailResponse.RideRatingInfo> mapPassengerRatings(List<RideRatingRowDto> ratings) {
         if (ratings == null || ratings.isEmpty()) return new ArrayList<>();
 
         return ratings.stream()
                 .map(r -> PassengerRideDetailResponse.RideRatingInfo.builder()
                         .id(r.getId())
-                        .passengerId(r.getPassenger().getId())
-                        .passengerName(r.getPassenger().getFirstName() + " " + r.getPassenger().getLastName())
+                        .passengerId(r.getPassengerId())
+                        .passengerName(r.getPassengerFirstName() + " " + r.getPassengerLastName())
                         .vehicleRating(r.getVehicleRating())
                         .driverRating(r.getDriverRating())
                         .comment(r.getComment())
@@ -1075,14 +954,14 @@ public class RideServiceImpl implements RideService {
                 .collect(Collectors.toList());
     }
 
-    private List<PassengerRideDetailResponse.InconsistencyReportInfo> mapPassengerInconsistencyReports(List<InconsistencyReport> reports) {
+    private List<PassengerRideDetailResponse.InconsistencyReportInfo> mapPassengerInconsistencyReports(List<InconsistencyReportRowDto> reports) {
         if (reports == null || reports.isEmpty()) return new ArrayList<>();
 
         return reports.stream()
                 .map(r -> PassengerRideDetailResponse.InconsistencyReportInfo.builder()
                         .id(r.getId())
-                        .reportedByUserId(r.getReportedBy().getId())
-                        .reportedByName(r.getReportedBy().getFirstName() + " " + r.getReportedBy().getLastName())
+                        .reportedByUserId(r.getReportedByUserId())
+                        .reportedByName(r.getReportedByFirstName() + " " + r.getReportedByLastName())
                         .description(r.getDescription())
                         .reportedAt(r.getCreatedAt())
                         .build())
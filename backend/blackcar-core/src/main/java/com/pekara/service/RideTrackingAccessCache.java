@@ -0,0 +1,50 @@
+package com.pekara.service;
+
+import com.pekara.model.ActiveRideContext;
+import com.pekara.util.ReferenceCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Who may follow the live tracking of a ride: its participants while the ride is being tracked,
+ * and nobody once it is not. Unlike {@link ActiveRideContextCache} the answer for a missing or
+ * finished ride is cached too, so clients that reconnect and resubscribe to a ride that has ended
+ * do not reach the database each time.
+ *
+ * Entries are dropped on every instance when the ride changes status (see
+ * {@link ActiveRideContextSubscriber}); the short TTL bounds how long a stale answer is kept when
+ * that broadcast is lost.
+ */
+@Component
+public class RideTrackingAccessCache {
+
+    private final ActiveRideContextCache activeRideContextCache;
+    private final ReferenceCache<Long, Set<String>> viewers;
+
+    public RideTrackingAccessCache(ActiveRideContextCache activeRideContextCache,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.tracking.acl.max-entries:5000}") int maxEntries,
+                                   @Value("${app.tracking.acl.ttl:PT30S}") Duration ttl) {
+        this.activeRideContextCache = activeRideContextCache;
+        this.viewers = new ReferenceCache<>("ride-tracking-acl", maxEntries, ttl, meterRegistry);
+    }
+
+    /**
+     * Emails of the ride's participants, or an empty set if the ride cannot be tracked.
+     */
+    public Set<String> viewers(Long rideId) {
+        return viewers.get(rideId, id -> Optional.of(activeRideContextCache.get(id)
+                        .map(ActiveRideContext::getParticipantEmails)
+                        .orElse(Set.of())))
+                .orElseThrow();
+    }
+
+    public void evict(Long rideId) {
+        viewers.invalidate(rideId);
+    }
+}
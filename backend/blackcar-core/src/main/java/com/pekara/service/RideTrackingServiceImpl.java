@@ -1,30 +1,30 @@
 package com.pekara.service;
 
-import com.pekara.constant.RideStatus;
-import com.pekara.dto.RouteDto;
-import com.pekara.dto.common.LocationPointDto;
+import com.pekara.dto.UserSummaryDto;
 import com.pekara.dto.common.RideLocationDto;
 import com.pekara.dto.request.RideLocationUpdateRequest;
 import com.pekara.dto.response.RideTrackingResponse;
-import com.pekara.model.Ride;
-import com.pekara.model.RideStop;
-import com.pekara.model.User;
+import com.pekara.model.ActiveRideContext;
+import com.pekara.model.RideLocationCacheEntry;
 import com.pekara.model.UserRole;
 import com.pekara.repository.RideRepository;
-import com.pekara.repository.UserRepository;
-import com.pekara.model.RideLocationCacheEntry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
 
+/**
+ * Live ride tracking. The ride's participants, destination and route come from
+ * {@link ActiveRideContextCache} and the ETA from {@link RideEtaEstimator}, so a location ping is
+ * validated and enriched without database queries or, while the driver stays on the route, routing
+ * requests, and costs a single Redis write. The database is only read when a context is loaded or
+ * a request is rejected.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -33,20 +33,18 @@ public class RideTrackingServiceImpl implements RideTrackingService {
     private static final Duration LOCATION_TTL = Duration.ofHours(6);
 
     private final RideRepository rideRepository;
-    private final UserRepository userRepository;
-    private final RoutingService routingService;
+    private final UserLookupService userLookupService;
+    private final RideEtaEstimator rideEtaEstimator;
     private final RedisTemplate<String, RideLocationCacheEntry> rideLocationRedisTemplate;
+    private final ActiveRideContextCache activeRideContextCache;
+    private final RideTrackingAccessCache rideTrackingAccessCache;
 
     @Override
-    @Transactional
-    public void updateLocation(Long rideId, String driverEmail, RideLocationUpdateRequest request) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new IllegalArgumentException("Ride not found"));
+    public RideTrackingResponse updateLocation(Long rideId, String driverEmail, RideLocationUpdateRequest request) {
+        ActiveRideContext ride = activeContext(rideId);
 
-        validateDriver(ride, driverEmail);
-
-        if (!isActiveForTracking(ride.getStatus())) {
-            throw new IllegalStateException("Ride is not active for tracking");
+        if (!ride.isDriver(driverEmail)) {
+            throw new IllegalArgumentException("You are not the assigned driver for this ride");
         }
 
         validateCoordinates(request.getLatitude(), request.getLongitude());
@@ -54,26 +52,7 @@ public class RideTrackingServiceImpl implements RideTrackingService {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime recordedAt = request.getRecordedAt() != null ? request.getRecordedAt() : now;
 
-        LocationPointDto destination = finalDestination(ride);
-        RouteDto route = null;
-        if (destination != null) {
-            try {
-                route = routingService.calculateRoute(List.of(
-                        toLocationPoint(request.getLatitude(), request.getLongitude(), null),
-                        destination
-                ));
-            } catch (Exception ex) {
-                log.warn("Failed to calculate ETA for ride {}: {}", rideId, ex.getMessage());
-            }
-        }
-
-        Integer etaSeconds = route != null && route.getDurationMinutes() != null
-                ? route.getDurationMinutes() * 60
-                : null;
-
-        Double distanceToDestinationKm = route != null && route.getDistanceKm() != null
-                ? round(route.getDistanceKm())
-                : null;
+        RideEtaEstimator.Eta eta = rideEtaEstimator.estimate(ride, request.getLatitude(), request.getLongitude(), recordedAt);
 
         RideLocationCacheEntry cacheEntry = RideLocationCacheEntry.builder()
                 .rideId(rideId)
@@ -82,31 +61,26 @@ public class RideTrackingServiceImpl implements RideTrackingService {
                 .longitude(request.getLongitude())
                 .heading(request.getHeading())
                 .speed(request.getSpeed())
-                .etaSeconds(etaSeconds)
-                .distanceToDestinationKm(distanceToDestinationKm)
+                .etaSeconds(eta != null ? eta.remainingSeconds() : null)
+                .distanceToDestinationKm(eta != null ? round(eta.remainingKm()) : null)
                 .recordedAt(recordedAt)
                 .updatedAt(now)
-                .driverId(ride.getDriver() != null ? ride.getDriver().getId() : null)
-                .driverLicensePlate(ride.getDriver() != null ? ride.getDriver().getLicensePlate() : null)
+                .driverId(ride.getDriverId())
+                .driverLicensePlate(ride.getDriverLicensePlate())
                 .vehicleType(ride.getVehicleType())
-                .nextStopAddress(destination != null ? destination.getAddress() : null)
+                .nextStopAddress(ride.getDestinationAddress())
                 .build();
 
         rideLocationRedisTemplate.opsForValue().set(cacheKey(rideId), cacheEntry, LOCATION_TTL);
         log.debug("Ride {} tracking updated in Redis by {}", rideId, driverEmail);
+        return toResponse(cacheEntry);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public RideTrackingResponse getTracking(Long rideId, String requesterEmail) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new IllegalArgumentException("Ride not found"));
+        ActiveRideContext ride = activeContext(rideId);
 
-        if (!isActiveForTracking(ride.getStatus())) {
-            throw new IllegalStateException("Ride is not active for tracking");
-        }
-
-        if (!isParticipant(ride, requesterEmail)) {
+        if (!ride.isParticipant(requesterEmail) && !isAdmin(requesterEmail)) {
             throw new IllegalArgumentException("You are not authorized to view tracking for this ride");
         }
 
@@ -114,18 +88,55 @@ public class RideTrackingServiceImpl implements RideTrackingService {
 
         if (cacheEntry == null) {
             return RideTrackingResponse.builder()
-                    .rideId(ride.getId())
+                    .rideId(ride.getRideId())
                     .rideStatus(ride.getStatus())
-                    .driverId(ride.getDriver() != null ? ride.getDriver().getId() : null)
-                    .driverLicensePlate(ride.getDriver() != null ? ride.getDriver().getLicensePlate() : null)
+                    .driverId(ride.getDriverId())
+                    .driverLicensePlate(ride.getDriverLicensePlate())
                     .vehicleType(ride.getVehicleType())
-                    .nextStopAddress(lastStopAddress(ride))
+                    .nextStopAddress(ride.getDestinationAddress())
                     .build();
         }
 
+        RideTrackingResponse response = toResponse(cacheEntry);
+        response.setRideStatus(ride.getStatus());
+        return response;
+    }
+
+    @Override
+    public boolean canTrack(Long rideId, String requesterEmail) {
+        return rideTrackingAccessCache.viewers(rideId).contains(requesterEmail) || isAdmin(requesterEmail);
+    }
+
+    /**
+     * Context of a ride that can be tracked. Only when there is none is the ride looked up, to tell
+     * a missing ride from one that is no longer active.
+     */
+    private ActiveRideContext activeContext(Long rideId) {
+        return activeRideContextCache.get(rideId).orElseThrow(() -> rideRepository.existsById(rideId)
+                ? new IllegalStateException("Ride is not active for tracking")
+                : new IllegalArgumentException("Ride not found"));
+    }
+
+    private boolean isAdmin(String email) {
+        return userLookupService.findByEmail(email)
+                .map(UserSummaryDto::getRole)
+                .filter(role -> role == UserRole.ADMIN)
+                .isPresent();
+    }
+
+    private void validateCoordinates(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            throw new IllegalArgumentException("Latitude and longitude are required");
+        }
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Invalid coordinate values");
+        }
+    }
+
+    private RideTrackingResponse toResponse(RideLocationCacheEntry cacheEntry) {
         return RideTrackingResponse.builder()
                 .rideId(cacheEntry.getRideId())
-                .rideStatus(ride.getStatus())
+                .rideStatus(cacheEntry.getRideStatus())
                 .lastLocation(RideLocationDto.builder()
                         .latitude(cacheEntry.getLatitude())
                         .longitude(cacheEntry.getLongitude())
@@ -143,63 +154,6 @@ public class RideTrackingServiceImpl implements RideTrackingService {
                 .build();
     }
 
-    private boolean isActiveForTracking(RideStatus status) {
-        return status == RideStatus.ACCEPTED || status == RideStatus.IN_PROGRESS || status == RideStatus.SCHEDULED || status == RideStatus.STOP_REQUESTED;
-    }
-
-    private void validateDriver(Ride ride, String driverEmail) {
-        if (ride.getDriver() == null || !ride.getDriver().getEmail().equals(driverEmail)) {
-            throw new IllegalArgumentException("You are not the assigned driver for this ride");
-        }
-    }
-
-    private void validateCoordinates(Double latitude, Double longitude) {
-        if (latitude == null || longitude == null) {
-            throw new IllegalArgumentException("Latitude and longitude are required");
-        }
-        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
-            throw new IllegalArgumentException("Invalid coordinate values");
-        }
-    }
-
-    private boolean isParticipant(Ride ride, String requesterEmail) {
-        User user = userRepository.findByEmail(requesterEmail).orElse(null);
-        if (user != null && user.getRole() == UserRole.ADMIN) {
-            return true;
-        }
-
-        boolean isDriver = ride.getDriver() != null && ride.getDriver().getEmail().equals(requesterEmail);
-        boolean isCreator = ride.getCreator() != null && ride.getCreator().getEmail().equals(requesterEmail);
-        boolean isPassenger = ride.getPassengers().stream()
-                .anyMatch(p -> p.getEmail().equals(requesterEmail));
-        return isDriver || isCreator || isPassenger;
-    }
-
-    private LocationPointDto finalDestination(Ride ride) {
-        List<RideStop> stops = ride.getStops();
-        if (stops == null || stops.isEmpty()) {
-            return null;
-        }
-        RideStop last = stops.get(stops.size() - 1);
-        return toLocationPoint(last.getLatitude(), last.getLongitude(), last.getAddress());
-    }
-
-    private String lastStopAddress(Ride ride) {
-        List<RideStop> stops = ride.getStops();
-        if (stops == null || stops.isEmpty()) {
-            return null;
-        }
-        return stops.get(stops.size() - 1).getAddress();
-    }
-
-    private LocationPointDto toLocationPoint(Double lat, Double lon, String address) {
-        return LocationPointDto.builder()
-                .latitude(lat)
-                .longitude(lon)
-                .address(address)
-                .build();
-    }
-
     private String cacheKey(Long rideId) {
         return "ride:%d:location".formatted(rideId);
     }
@@ -18,6 +18,7 @@ public class RideWorkLogServiceImpl implements RideWorkLogService {
 
     private final DriverWorkLogRepository driverWorkLogRepository;
     private final RideRepository rideRepository;
+    private final DriverWorkTimeTracker driverWorkTimeTracker;
 
     @Override
     @Transactional
@@ -54,7 +55,8 @@ public class RideWorkLogServiceImpl implements RideWorkLogService {
         DriverWorkLog workLog = findOrCreateWorkLog(ride, endTime);
         workLog.setEndedAt(endTime);
         workLog.setCompleted(true);
-        driverWorkLogRepository.save(workLog);
+        DriverWorkLog saved = driverWorkLogRepository.save(workLog);
+        driverWorkTimeTracker.recordCompleted(saved.getDriver().getId(), saved.getId(), saved.getStartedAt(), saved.getEndedAt());
         log.debug("Work log completed for ride {}: {} to {}",
                 ride.getId(), workLog.getStartedAt(), workLog.getEndedAt());
     }
@@ -69,6 +71,7 @@ public class RideWorkLogServiceImpl implements RideWorkLogService {
             workLog.setCompleted(false);
             workLog.setEndedAt(endTime);
             driverWorkLogRepository.save(workLog);
+            driverWorkTimeTracker.discard(workLog.getDriver().getId(), workLog.getId());
             log.debug("Work log cancelled for ride {}", ride.getId());
         });
     }
@@ -0,0 +1,342 @@
+package com.pekara.service;
+
+import com.pekara.util.GeoUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Immutable directed road graph in compressed sparse row form. Node coordinates are stored as
+ * micro-degrees and edges as parallel primitive arrays, so a city extract with a few hundred
+ * thousand edges takes a few megabytes and no per-edge objects.
+ *
+ * Binary file layout (big endian):
+ * <pre>
+ *   int   magic ("BCRG")
+ *   int   version (1)
+ *   int   nodeCount, int edgeCount
+ *   nodeCount x (int latE6, int lonE6)
+ *   (nodeCount + 1) x int firstEdge
+ *   edgeCount x (int target, float lengthMeters, float durationSeconds)
+ * </pre>
+ * Files are produced offline from an OSM extract with {@link OsmRoadGraphConverter} (see
+ * {@code scripts/build-road-graph.sh}); {@link Builder} and {@link #write(OutputStream)} produce the
+ * same format.
+ */
+public final class RoadGraph {
+
+    private static final int MAGIC = 0x42435247;
+    private static final int VERSION = 1;
+    private static final double E6 = 1_000_000.0;
+    private static final double CELL_SIZE_DEGREES = 0.01;
+
+    private final int[] latE6;
+    private final int[] lonE6;
+    private final int[] firstEdge;
+    private final int[] edgeTarget;
+    private final float[] edgeLengthMeters;
+    private final float[] edgeDurationSeconds;
+    private final double maxSpeedMetersPerSecond;
+
+    // Spatial index for snapping: node ids sorted by cell, cell keys sorted for binary search.
+    private final long[] cellKeys;
+    private final int[] cellStart;
+    private final int[] cellNodes;
+
+    private RoadGraph(int[] latE6, int[] lonE6, int[] firstEdge, int[] edgeTarget,
+                      float[] edgeLengthMeters, float[] edgeDurationSeconds) {
+        this.latE6 = latE6;
+        this.lonE6 = lonE6;
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeLengthMeters = edgeLengthMeters;
+        this.edgeDurationSeconds = edgeDurationSeconds;
+
+        double maxSpeed = 0;
+        for (int e = 0; e < edgeTarget.length; e++) {
+            if (edgeDurationSeconds[e] > 0) {
+                maxSpeed = Math.max(maxSpeed, edgeLengthMeters[e] / edgeDurationSeconds[e]);
+            }
+        }
+        this.maxSpeedMetersPerSecond = maxSpeed > 0 ? maxSpeed : 1;
+
+        int nodeCount = latE6.length;
+        long[] keyed = new long[nodeCount];
+        Integer[] order = new Integer[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            keyed[node] = cellKey(cellIndex(latitude(node)), cellIndex(longitude(node)));
+            order[node] = node;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keyed[a], keyed[b]));
+
+        int cellCount = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (i == 0 || keyed[order[i]] != keyed[order[i - 1]]) {
+                cellCount++;
+            }
+        }
+        this.cellKeys = new long[cellCount];
+        this.cellStart = new int[cellCount + 1];
+        this.cellNodes = new int[nodeCount];
+        int cell = -1;
+        for (int i = 0; i < nodeCount; i++) {
+            int node = order[i];
+            if (i == 0 || keyed[node] != keyed[order[i - 1]]) {
+                cell++;
+                cellKeys[cell] = keyed[node];
+                cellStart[cell] = i;
+            }
+            cellNodes[i] = node;
+        }
+        cellStart[cellCount] = nodeCount;
+    }
+
+    public int nodeCount() {
+        return latE6.length;
+    }
+
+    public int edgeCount() {
+        return edgeTarget.length;
+    }
+
+    public double latitude(int node) {
+        return latE6[node] / E6;
+    }
+
+    public double longitude(int node) {
+        return lonE6[node] / E6;
+    }
+
+    public int firstEdge(int node) {
+        return firstEdge[node];
+    }
+
+    public int endEdge(int node) {
+        return firstEdge[node + 1];
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTarget[edge];
+    }
+
+    public double edgeLengthMeters(int edge) {
+        return edgeLengthMeters[edge];
+    }
+
+    public double edgeDurationSeconds(int edge) {
+        return edgeDurationSeconds[edge];
+    }
+
+    /**
+     * Fastest speed on any edge; dividing straight-line distance by it gives an admissible A* heuristic.
+     */
+    public double maxSpeedMetersPerSecond() {
+        return maxSpeedMetersPerSecond;
+    }
+
+    /**
+     * Returns the node closest to the given point within {@code maxDistanceKm}, or -1 if there is none.
+     */
+    public int nearestNode(double latitude, double longitude, double maxDistanceKm) {
+        long centerLat = cellIndex(latitude);
+        long centerLon = cellIndex(longitude);
+        double cellKm = CELL_SIZE_DEGREES * 111.32 * Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        int maxRing = (int) Math.ceil(maxDistanceKm / cellKm) + 1;
+
+        int best = -1;
+        double bestKm = maxDistanceKm;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (long dLat = -ring; dLat <= ring; dLat++) {
+                long step = (dLat == -ring || dLat == ring) ? 1 : 2L * ring;
+                for (long dLon = -ring; dLon <= ring; dLon += step) {
+                    int cell = Arrays.binarySearch(cellKeys, cellKey(centerLat + dLat, centerLon + dLon));
+                    if (cell < 0) {
+                        continue;
+                    }
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int node = cellNodes[i];
+                        double km = GeoUtils.haversineKm(latitude, longitude, latitude(node), longitude(node));
+                        if (km <= bestKm) {
+                            bestKm = km;
+                            best = node;
+                        }
+                    }
+                }
+            }
+            if (best >= 0 && bestKm <= (ring - 1) * cellKm) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    public static RoadGraph read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a road graph file");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported road graph version " + version);
+        }
+        int nodeCount = data.readInt();
+        int edgeCount = data.readInt();
+        if (nodeCount < 0 || edgeCount < 0) {
+            throw new IOException("Corrupt road graph header");
+        }
+
+        int[] latE6 = new int[nodeCount];
+        int[] lonE6 = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            latE6[node] = data.readInt();
+            lonE6[node] = data.readInt();
+        }
+        int[] firstEdge = new int[nodeCount + 1];
+        for (int node = 0; node <= nodeCount; node++) {
+            firstEdge[node] = data.readInt();
+        }
+        int[] edgeTarget = new int[edgeCount];
+        float[] edgeLength = new float[edgeCount];
+        float[] edgeDuration = new float[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            edgeTarget[edge] = data.readInt();
+            edgeLength[edge] = data.readFloat();
+            edgeDuration[edge] = data.readFloat();
+            if (edgeTarget[edge] < 0 || edgeTarget[edge] >= nodeCount) {
+                throw new IOException("Corrupt road graph edge " + edge);
+            }
+        }
+        if (firstEdge[nodeCount] != edgeCount) {
+            throw new IOException("Corrupt road graph edge offsets");
+        }
+        return new RoadGraph(latE6, lonE6, firstEdge, edgeTarget, edgeLength, edgeDuration);
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(nodeCount());
+        data.writeInt(edgeCount());
+        for (int node = 0; node < nodeCount(); node++) {
+            data.writeInt(latE6[node]);
+            data.writeInt(lonE6[node]);
+        }
+        for (int value : firstEdge) {
+            data.writeInt(value);
+        }
+        for (int edge = 0; edge < edgeCount(); edge++) {
+            data.writeInt(edgeTarget[edge]);
+            data.writeFloat(edgeLengthMeters[edge]);
+            data.writeFloat(edgeDurationSeconds[edge]);
+        }
+        data.flush();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / CELL_SIZE_DEGREES);
+    }
+
+    private static long cellKey(long latCell, long lonCell) {
+        return (latCell << 32) ^ (lonCell & 0xffffffffL);
+    }
+
+    /**
+     * Collects nodes and edges in any order and packs them into the CSR arrays.
+     */
+    public static final class Builder {
+
+        private int[] latE6 = new int[16];
+        private int[] lonE6 = new int[16];
+        private int nodeCount;
+
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private float[] length = new float[16];
+        private float[] duration = new float[16];
+        private int edgeCount;
+
+        private Builder() {
+        }
+
+        public int addNode(double latitude, double longitude) {
+            if (nodeCount == latE6.length) {
+                latE6 = Arrays.copyOf(latE6, nodeCount * 2);
+                lonE6 = Arrays.copyOf(lonE6, nodeCount * 2);
+            }
+            latE6[nodeCount] = (int) Math.round(latitude * E6);
+            lonE6[nodeCount] = (int) Math.round(longitude * E6);
+            return nodeCount++;
+        }
+
+        public Builder addEdge(int source, int target, double lengthMeters, double durationSeconds) {
+            if (source < 0 || source >= nodeCount || target < 0 || target >= nodeCount) {
+                throw new IllegalArgumentException("Unknown node in edge " + source + " -> " + target);
+            }
+            if (edgeCount == from.length) {
+                from = Arrays.copyOf(from, edgeCount * 2);
+                to = Arrays.copyOf(to, edgeCount * 2);
+                length = Arrays.copyOf(length, edgeCount * 2);
+                duration = Arrays.copyOf(duration, edgeCount * 2);
+            }
+            from[edgeCount] = source;
+            to[edgeCount] = target;
+            length[edgeCount] = (float) lengthMeters;
+            duration[edgeCount] = (float) durationSeconds;
+            edgeCount++;
+            return this;
+        }
+
+        /**
+         * Adds a two-way road between two nodes, using the straight-line length and the given speed.
+         */
+        public Builder addRoad(int a, int b, double speedKmh) {
+            addOneWayRoad(a, b, speedKmh);
+            return addOneWayRoad(b, a, speedKmh);
+        }
+
+        /**
+         * Adds a road that can only be driven from {@code source} to {@code target}.
+         */
+        public Builder addOneWayRoad(int source, int target, double speedKmh) {
+            if (source < 0 || source >= nodeCount || target < 0 || target >= nodeCount) {
+                throw new IllegalArgumentException("Unknown node in edge " + source + " -> " + target);
+            }
+            double meters = GeoUtils.haversineKm(latE6[source] / E6, lonE6[source] / E6,
+                    latE6[target] / E6, lonE6[target] / E6) * 1000.0;
+            return addEdge(source, target, meters, meters / (speedKmh / 3.6));
+        }
+
+        public RoadGraph build() {
+            int[] firstEdge = new int[nodeCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                firstEdge[from[e] + 1]++;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                firstEdge[node + 1] += firstEdge[node];
+            }
+            int[] next = Arrays.copyOf(firstEdge, nodeCount);
+            int[] edgeTarget = new int[edgeCount];
+            float[] edgeLength = new float[edgeCount];
+            float[] edgeDuration = new float[edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                int slot = next[from[e]]++;
+                edgeTarget[slot] = to[e];
+                edgeLength[slot] = length[e];
+                edgeDuration[slot] = duration[e];
+            }
+            return new RoadGraph(Arrays.copyOf(latE6, nodeCount), Arrays.copyOf(lonE6, nodeCount),
+                    firstEdge, edgeTarget, edgeLength, edgeDuration);
+        }
+    }
+}
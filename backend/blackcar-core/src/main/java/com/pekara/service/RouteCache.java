@@ -0,0 +1,18 @@
+package com.pekara.service;
+
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cache of calculated routes keyed by quantized waypoint coordinates, so repeated lookups of
+ * the same trip (estimate followed by order, tracking pings) skip the routing engine.
+ */
+public interface RouteCache {
+
+    Optional<RouteDto> get(List<LocationPointDto> waypoints);
+
+    void put(List<LocationPointDto> waypoints, RouteDto route);
+}
@@ -0,0 +1,202 @@
+package com.pekara.service;
+
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Two tier route cache. The first tier is a bounded in-process LRU map, the optional second tier
+ * is Redis (shared between instances) and is consulted only on a local miss. Both tiers expire
+ * entries after the same TTL.
+ *
+ * Waypoints are rounded to {@code app.routing.cache.precision} decimal places before building the
+ * key; the default of 4 (~11 m) lets pings from practically the same spot share one entry.
+ */
+@Slf4j
+@Service
+public class RouteCacheImpl implements RouteCache {
+
+    private static final String KEY_PREFIX = "route:";
+
+    private final RedisTemplate<String, RouteDto> routeRedisTemplate;
+    private final Clock clock;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final boolean redisEnabled;
+    private final double scale;
+
+    private final Map<String, Entry> entries;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter evictions;
+
+    @Autowired
+    public RouteCacheImpl(
+            RedisTemplate<String, RouteDto> routeRedisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.routing.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.routing.cache.ttl:PT10M}") Duration ttl,
+            @Value("${app.routing.cache.precision:4}") int precision,
+            @Value("${app.routing.cache.redis.enabled:false}") boolean redisEnabled) {
+        this(routeRedisTemplate, meterRegistry, Clock.systemUTC(), maxEntries, ttl, precision, redisEnabled);
+    }
+
+    RouteCacheImpl(RedisTemplate<String, RouteDto> routeRedisTemplate, MeterRegistry meterRegistry, Clock clock,
+                   int maxEntries, Duration ttl, int precision, boolean redisEnabled) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Route cache size must be positive");
+        }
+        this.routeRedisTemplate = routeRedisTemplate;
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.redisEnabled = redisEnabled;
+        this.scale = Math.pow(10, precision);
+
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > RouteCacheImpl.this.maxEntries;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+
+        this.localHits = counter(meterRegistry, "local", "hit");
+        this.localMisses = counter(meterRegistry, "local", "miss");
+        this.redisHits = counter(meterRegistry, "redis", "hit");
+        this.redisMisses = counter(meterRegistry, "redis", "miss");
+        this.evictions = Counter.builder("routing.cache.evictions")
+                .description("Routes evicted from the in-process route cache because it was full")
+                .register(meterRegistry);
+        meterRegistry.gauge("routing.cache.size", entries, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        });
+    }
+
+    @Override
+    public Optional<RouteDto> get(List<LocationPointDto> waypoints) {
+        String key = key(waypoints);
+        long now = clock.millis();
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                localHits.increment();
+                return Optional.of(copy(entry.route()));
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        localMisses.increment();
+
+        if (!redisEnabled) {
+            return Optional.empty();
+        }
+
+        RouteDto shared = readShared(key);
+        if (shared == null) {
+            redisMisses.increment();
+            return Optional.empty();
+        }
+        redisHits.increment();
+        putLocal(key, shared, now);
+        return Optional.of(copy(shared));
+    }
+
+    @Override
+    public void put(List<LocationPointDto> waypoints, RouteDto route) {
+        if (route == null) {
+            return;
+        }
+        String key = key(waypoints);
+        RouteDto stored = copy(route);
+        putLocal(key, stored, clock.millis());
+
+        if (redisEnabled) {
+            try {
+                routeRedisTemplate.opsForValue().set(key, stored, ttl);
+            } catch (Exception ex) {
+                log.warn("Failed to store route in Redis: {}", ex.getMessage());
+            }
+        }
+    }
+
+    int localSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void putLocal(String key, RouteDto route, long now) {
+        synchronized (entries) {
+            entries.put(key, new Entry(route, now + ttl.toMillis()));
+        }
+    }
+
+    private RouteDto readShared(String key) {
+        try {
+            return routeRedisTemplate.opsForValue().get(key);
+        } catch (Exception ex) {
+            log.warn("Failed to read route from Redis: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private String key(List<LocationPointDto> waypoints) {
+        StringBuilder key = new StringBuilder(KEY_PREFIX);
+        for (int i = 0; i < waypoints.size(); i++) {
+            LocationPointDto point = waypoints.get(i);
+            if (i > 0) {
+                key.append(';');
+            }
+            key.append(Math.round(point.getLatitude() * scale))
+                    .append(',')
+                    .append(Math.round(point.getLongitude() * scale));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Callers are free to modify the route they get back, so the cache never hands out its own instance.
+     */
+    private static RouteDto copy(RouteDto route) {
+        return RouteDto.builder()
+                .distanceKm(route.getDistanceKm())
+                .durationMinutes(route.getDurationMinutes())
+                .routePoints(route.getRoutePoints() != null ? List.copyOf(route.getRoutePoints()) : null)
+                .build();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("routing.cache.requests")
+                .description("Route cache lookups by tier and result")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Entry(RouteDto route, long expiresAt) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.pekara.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pekara.dto.LegacyRouteGeometryDto;
+import com.pekara.repository.RideRepository;
+import com.pekara.util.PolylineCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Fills the encoded polyline column of rides that only carry JSON route geometry.
+ * Runs once per startup in small transactions walking the ride ids, so it is safe to
+ * interrupt and picks up where it stopped on the next start.
+ *
+ * The JSON column is left in place. Each polyline is decoded again and compared point by point
+ * with the JSON before it is written, and a ride that does not match keeps only its JSON
+ * geometry, which readers still fall back to.
+ */
+@Slf4j
+@Component
+public class RouteGeometryMigration {
+
+    private static final double TOLERANCE = 0.6e-5;
+
+    private final RideRepository rideRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public RouteGeometryMigration(
+            RideRepository rideRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.routes.migrate-legacy-geometry:true}") boolean enabled,
+            @Value("${app.routes.migration-batch-size:500}") int batchSize) {
+        this.rideRepository = rideRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyGeometry() {
+        if (!enabled) {
+            return;
+        }
+        long lastId = 0L;
+        int converted = 0;
+        while (true) {
+            Long afterId = lastId;
+            List<LegacyRouteGeometryDto> batch = transactionTemplate.execute(status -> convertBatch(afterId));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            converted += batch.size();
+            lastId = batch.get(batch.size() - 1).getRideId();
+        }
+        if (converted > 0) {
+            log.info("Checked route geometry of {} rides for conversion to encoded polylines", converted);
+        }
+    }
+
+    private List<LegacyRouteGeometryDto> convertBatch(Long afterId) {
+        List<LegacyRouteGeometryDto> batch = rideRepository.findLegacyRouteGeometry(afterId, PageRequest.of(0, batchSize));
+        for (LegacyRouteGeometryDto ride : batch) {
+            String polyline;
+            try {
+                polyline = PolylineCodec.fromCoordinatesJson(ride.getRouteCoordinates());
+                verify(ride.getRouteCoordinates(), polyline);
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Skipping ride {} with route coordinates that do not convert: {}", ride.getRideId(), ex.getMessage());
+                continue;
+            }
+            rideRepository.setRoutePolyline(ride.getRideId(), polyline);
+        }
+        return batch;
+    }
+
+    /**
+     * Parses the JSON independently of the encoder and checks that the polyline decodes to the
+     * same points, within the format's 1e-5 degree precision.
+     */
+    private void verify(String coordinatesJson, String polyline) throws IOException {
+        double[][] points = objectMapper.readValue(coordinatesJson, double[][].class);
+        PolylineCodec.Decoder decoder = PolylineCodec.decoder(polyline);
+        for (int i = 0; i < points.length; i++) {
+            if (points[i].length < 2 || !decoder.next()) {
+                throw new IllegalStateException("Point " + i + " is missing from the polyline");
+            }
+            if (Math.abs(decoder.latitude() - points[i][0]) > TOLERANCE
+                    || Math.abs(decoder.longitude() - points[i][1]) > TOLERANCE) {
+                throw new IllegalStateException("Point " + i + " differs after encoding");
+            }
+        }
+        if (decoder.next()) {
+            throw new IllegalStateException("Polyline has more points than the JSON");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pekara.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Minimal circuit breaker for the routing engine. After {@code failureThreshold} consecutive
+ * failures the circuit opens and calls are rejected straight away; once {@code openDuration}
+ * has passed a single probe call is let through and its outcome closes or re-opens the circuit.
+ */
+@Slf4j
+public class RoutingCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public RoutingCircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns true if the call may go to the routing engine.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        // While half open the timer guards the probe, so a probe that never reports back
+        // does not keep the circuit half open forever.
+        long now = clock.millis();
+        if (now - openedAt >= openDuration.toMillis()) {
+            state = State.HALF_OPEN;
+            openedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Routing circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("Routing circuit opened after {} consecutive failures", consecutiveFailures);
+            state = State.OPEN;
+            openedAt = clock.millis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,21 @@
+package com.pekara.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters shared by the routing engines, tagged by engine so OSRM and the local graph can be compared.
+ */
+final class RoutingMetrics {
+
+    private RoutingMetrics() {
+    }
+
+    static Timer routeTimer(MeterRegistry meterRegistry, String engine) {
+        return Timer.builder("routing.route.duration")
+                .description("Time to calculate a route, excluding route cache hits")
+                .tag("engine", engine)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -2,11 +2,18 @@ package com.pekara.service;
 
 import com.pekara.dto.common.LocationPointDto;
 import com.pekara.dto.RouteDto;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 public interface RoutingService {
     RouteDto calculateRoute(List<LocationPointDto> waypoints);
 
+    /**
+     * Non-blocking variant of {@link #calculateRoute(List)}. Never errors because of the routing
+     * engine: timeouts, failures and an open circuit all complete with the straight-line estimate.
+     */
+    Mono<RouteDto> calculateRouteAsync(List<LocationPointDto> waypoints);
+
     Double calculateActualDistanceFromRoute(String routeCoordinatesJson, LocationPointDto stopLocation);
 }
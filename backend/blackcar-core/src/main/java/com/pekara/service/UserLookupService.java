@@ -0,0 +1,22 @@
+package com.pekara.service;
+
+import com.pekara.dto.DriverProfileDto;
+import com.pekara.dto.UserSummaryDto;
+
+import java.util.Optional;
+
+/**
+ * Cached lookups by email for code paths that need a user's id, role or block state, or a driver's
+ * profile, but not the managed entity.
+ */
+public interface UserLookupService {
+
+    Optional<UserSummaryDto> findByEmail(String email);
+
+    Optional<DriverProfileDto> findDriverProfile(String email);
+
+    /**
+     * Drops everything cached for the user. Call after changing their profile, activation or block state.
+     */
+    void evict(String email);
+}
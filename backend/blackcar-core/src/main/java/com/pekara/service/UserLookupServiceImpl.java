@@ -0,0 +1,60 @@
+package com.pekara.service;
+
+import com.pekara.dto.DriverProfileDto;
+import com.pekara.dto.UserSummaryDto;
+import com.pekara.repository.DriverRepository;
+import com.pekara.repository.UserRepository;
+import com.pekara.util.ReferenceCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Service
+public class UserLookupServiceImpl implements UserLookupService {
+
+    private final UserRepository userRepository;
+    private final DriverRepository driverRepository;
+    private final ReferenceCache<String, UserSummaryDto> users;
+    private final ReferenceCache<String, DriverProfileDto> driverProfiles;
+
+    public UserLookupServiceImpl(UserRepository userRepository,
+                                 DriverRepository driverRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.cache.users.max-entries:10000}") int maxUsers,
+                                 @Value("${app.cache.users.ttl:PT5M}") Duration userTtl,
+                                 @Value("${app.cache.driver-profiles.max-entries:2000}") int maxDriverProfiles,
+                                 @Value("${app.cache.driver-profiles.ttl:PT5M}") Duration driverProfileTtl) {
+        this.userRepository = userRepository;
+        this.driverRepository = driverRepository;
+        this.users = new ReferenceCache<>("users", maxUsers, userTtl, meterRegistry);
+        this.driverProfiles = new ReferenceCache<>("driver-profiles", maxDriverProfiles, driverProfileTtl, meterRegistry);
+    }
+
+    @Override
+    public Optional<UserSummaryDto> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return users.get(email, key -> userRepository.findByEmail(key).map(UserSummaryDto::of));
+    }
+
+    @Override
+    public Optional<DriverProfileDto> findDriverProfile(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return driverProfiles.get(email, key -> driverRepository.findByEmail(key).map(DriverProfileDto::of));
+    }
+
+    @Override
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        users.invalidate(email);
+        driverProfiles.invalidate(email);
+    }
+}
@@ -0,0 +1,223 @@
+package com.pekara.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pekara.dto.request.ActiveVehiclesQuery;
+import com.pekara.dto.response.ActiveVehicleMapResponse;
+import com.pekara.dto.response.ActiveVehicleResponse;
+import com.pekara.dto.response.VehicleClusterResponse;
+import com.pekara.model.Driver;
+import com.pekara.model.DriverLocationSnapshot;
+import com.pekara.model.DriverState;
+import com.pekara.repository.DriverStateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the public map from an immutable snapshot of all active vehicles, rebuilt every
+ * {@code app.vehicles.snapshot-interval}. Requests only filter and cluster the snapshot, so map
+ * traffic costs no database work. The version is a hash of the serialized snapshot, so clients can
+ * revalidate with an ETag against any node that has the same vehicles.
+ */
+@Slf4j
+@Service
+public class VehicleServiceImpl implements VehicleService {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Cluster cells are a quarter of a 256 px map tile at the requested zoom.
+    private static final int CLUSTER_CELLS_PER_TILE = 4;
+
+    private final DriverStateRepository driverStateRepository;
+    private final DriverLocationIndex driverLocationIndex;
+    private final ObjectMapper objectMapper;
+    private final int clusterBelowZoom;
+
+    private volatile Snapshot snapshot;
+
+    public VehicleServiceImpl(DriverStateRepository driverStateRepository,
+                              DriverLocationIndex driverLocationIndex,
+                              ObjectMapper objectMapper,
+                              @Value("${app.vehicles.cluster-below-zoom:14}") int clusterBelowZoom) {
+        this.driverStateRepository = driverStateRepository;
+        this.driverLocationIndex = driverLocationIndex;
+        this.objectMapper = objectMapper;
+        this.clusterBelowZoom = clusterBelowZoom;
+        this.snapshot = new Snapshot(contentHash(List.of()), List.of(), new double[0]);
+    }
+
+    @Scheduled(fixedDelayString = "${app.vehicles.snapshot-interval:PT2S}")
+    @Transactional(readOnly = true)
+    public void refreshSnapshot() {
+        List<DriverState> states = driverStateRepository.findAllOnlineDriversWithDriver().stream()
+                .filter(state -> Boolean.TRUE.equals(state.getDriver().getIsActive())
+                        && !Boolean.TRUE.equals(state.getDriver().getBlocked()))
+                .toList();
+        // The index has positions that may not have been flushed to the table yet; one batched read.
+        Map<Long, DriverLocationSnapshot> livePositions = driverLocationIndex.getAll(
+                states.stream().map(state -> state.getDriver().getId()).toList());
+
+        List<ActiveVehicleResponse> vehicles = new ArrayList<>();
+        for (DriverState state : states) {
+            Driver driver = state.getDriver();
+            DriverLocationSnapshot live = livePositions.get(driver.getId());
+            Double latitude = live != null && live.getLatitude() != null ? live.getLatitude() : state.getLatitude();
+            Double longitude = live != null && live.getLongitude() != null ? live.getLongitude() : state.getLongitude();
+            if (latitude == null || longitude == null) {
+                continue;
+            }
+            vehicles.add(ActiveVehicleResponse.builder()
+                    .vehicleId(driver.getId())
+                    .vehicleType(driver.getVehicleType())
+                    .licensePlate(driver.getLicensePlate())
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .busy(Boolean.TRUE.equals(state.getBusy()))
+                    .driverId(driver.getId())
+                    .driverFirstName(driver.getFirstName())
+                    .driverLastName(driver.getLastName())
+                    .build());
+        }
+        vehicles.sort(Comparator.comparingDouble(ActiveVehicleResponse::getLatitude)
+                .thenComparing(ActiveVehicleResponse::getVehicleId));
+
+        Snapshot current = snapshot;
+        if (vehicles.equals(current.vehicles())) {
+            return;
+        }
+        double[] latitudes = vehicles.stream().mapToDouble(ActiveVehicleResponse::getLatitude).toArray();
+        snapshot = new Snapshot(contentHash(vehicles), List.copyOf(vehicles), latitudes);
+        log.debug("Active vehicles snapshot {} built with {} vehicles", snapshot.version(), vehicles.size());
+    }
+
+    @Override
+    public String snapshotVersion() {
+        return snapshot.version();
+    }
+
+    @Override
+    public ActiveVehicleMapResponse getActiveVehicles(ActiveVehiclesQuery query) {
+        Snapshot current = snapshot;
+        int size = Math.min(Math.max(query.getSize(), 1), MAX_PAGE_SIZE);
+        int page = Math.max(query.getPage(), 0);
+
+        List<ActiveVehicleResponse> visible = inViewport(current, query);
+        List<VehicleClusterResponse> clusters = new ArrayList<>();
+        List<ActiveVehicleResponse> single = query.getZoom() != null && query.getZoom() < clusterBelowZoom
+                ? cluster(visible, query.getZoom(), clusters)
+                : visible;
+
+        long offset = (long) page * size;
+        List<ActiveVehicleResponse> content = offset >= single.size()
+                ? List.of()
+                : single.subList((int) offset, (int) Math.min(offset + size, single.size()));
+
+        return ActiveVehicleMapResponse.builder()
+                .version(current.version())
+                .vehicles(content)
+                .clusters(clusters)
+                .totalVehicles(single.size())
+                .page(page)
+                .size(size)
+                .build();
+    }
+
+    private static List<ActiveVehicleResponse> inViewport(Snapshot snapshot, ActiveVehiclesQuery query) {
+        if (query.getMinLatitude() == null || query.getMaxLatitude() == null
+                || query.getMinLongitude() == null || query.getMaxLongitude() == null) {
+            return snapshot.vehicles();
+        }
+        double minLon = query.getMinLongitude();
+        double maxLon = query.getMaxLongitude();
+        // Vehicles are sorted by latitude, so the latitude band is a contiguous range.
+        int from = lowerBound(snapshot.latitudes(), query.getMinLatitude());
+        List<ActiveVehicleResponse> result = new ArrayList<>();
+        for (int i = from; i < snapshot.latitudes().length && snapshot.latitudes()[i] <= query.getMaxLatitude(); i++) {
+            ActiveVehicleResponse vehicle = snapshot.vehicles().get(i);
+            double lon = vehicle.getLongitude();
+            // A viewport crossing the antimeridian has minLongitude > maxLongitude.
+            boolean inside = minLon <= maxLon ? lon >= minLon && lon <= maxLon : lon >= minLon || lon <= maxLon;
+            if (inside) {
+                result.add(vehicle);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Grid clustering: vehicles sharing a cell with others are replaced by one cluster at their
+     * centroid; vehicles alone in their cell are returned as they are.
+     */
+    private static List<ActiveVehicleResponse> cluster(List<ActiveVehicleResponse> vehicles, int zoom,
+                                                       List<VehicleClusterResponse> clusters) {
+        double cellDegrees = 360.0 / Math.pow(2, Math.max(zoom, 0)) / CLUSTER_CELLS_PER_TILE;
+        Map<Long, List<ActiveVehicleResponse>> cells = new LinkedHashMap<>();
+        for (ActiveVehicleResponse vehicle : vehicles) {
+            long latCell = (long) Math.floor(vehicle.getLatitude() / cellDegrees);
+            long lonCell = (long) Math.floor(vehicle.getLongitude() / cellDegrees);
+            cells.computeIfAbsent((latCell << 32) ^ (lonCell & 0xffffffffL), key -> new ArrayList<>()).add(vehicle);
+        }
+
+        List<ActiveVehicleResponse> single = new ArrayList<>();
+        for (List<ActiveVehicleResponse> members : cells.values()) {
+            if (members.size() == 1) {
+                single.add(members.get(0));
+                continue;
+            }
+            double latSum = 0;
+            double lonSum = 0;
+            int busy = 0;
+            for (ActiveVehicleResponse member : members) {
+                latSum += member.getLatitude();
+                lonSum += member.getLongitude();
+                busy += Boolean.TRUE.equals(member.getBusy()) ? 1 : 0;
+            }
+            clusters.add(VehicleClusterResponse.builder()
+                    .latitude(latSum / members.size())
+                    .longitude(lonSum / members.size())
+                    .count(members.size())
+                    .busyCount(busy)
+                    .build());
+        }
+        return single;
+    }
+
+    /**
+     * First 64 bits of the SHA-256 of the vehicles as JSON. They are sorted, so equal content gives
+     * the same hash on every node.
+     */
+    private String contentHash(List<ActiveVehicleResponse> vehicles) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(vehicles));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Cannot hash the active vehicles snapshot", ex);
+        }
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && sorted[index - 1] == value) {
+            index--;
+        }
+        return index;
+    }
+
+    private record Snapshot(String version, List<ActiveVehicleResponse> vehicles, double[] latitudes) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.pekara.util;
+
+import com.pekara.dto.common.LocationPointDto;
+
+import java.util.List;
+
+/**
+ * Encoded polyline format (the one used by Google Maps and OSRM, precision 1e-5) for stored route
+ * geometry. Each coordinate is a zigzag encoded delta from the previous one written as base64-like
+ * 5-bit chunks, so a typical city route point takes 4-8 characters instead of ~36 in the legacy
+ * {@code [[lat,lon],...]} JSON.
+ */
+public final class PolylineCodec {
+
+    private static final double SCALE = 1e5;
+
+    private PolylineCodec() {
+    }
+
+    public static String encode(List<LocationPointDto> points) {
+        if (points == null || points.isEmpty()) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder(points.size() * 8);
+        long previousLat = 0;
+        long previousLon = 0;
+        for (LocationPointDto point : points) {
+            long lat = Math.round(point.getLatitude() * SCALE);
+            long lon = Math.round(point.getLongitude() * SCALE);
+            writeValue(out, lat - previousLat);
+            writeValue(out, lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns a cursor over the encoded points. Nothing is allocated per point.
+     */
+    public static Decoder decoder(String encoded) {
+        return new Decoder(encoded != null ? encoded : "");
+    }
+
+    /**
+     * Geometry of a ride in the encoded format, converting a legacy JSON value if that is all the ride has.
+     */
+    public static String encodedRoute(String polyline, String legacyCoordinatesJson) {
+        if (polyline != null) {
+            return polyline;
+        }
+        if (legacyCoordinatesJson == null) {
+            return null;
+        }
+        try {
+            return fromCoordinatesJson(legacyCoordinatesJson);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Geometry of a ride as the {@code [[lat,lon],...]} JSON the clients expect.
+     */
+    public static String coordinatesJson(String polyline, String legacyCoordinatesJson) {
+        return polyline != null ? toCoordinatesJson(polyline) : legacyCoordinatesJson;
+    }
+
+    public static String toCoordinatesJson(String encoded) {
+        Decoder decoder = decoder(encoded);
+        StringBuilder json = new StringBuilder(encoded.length() * 5 + 2).append('[');
+        boolean first = true;
+        while (decoder.next()) {
+            if (!first) {
+                json.append(',');
+            }
+            json.append('[').append(decoder.latitude()).append(',').append(decoder.longitude()).append(']');
+            first = false;
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Re-encodes legacy {@code [[lat,lon],...]} JSON by scanning the numbers in place, without
+     * building the intermediate list of boxed doubles.
+     */
+    public static String fromCoordinatesJson(String json) {
+        StringBuilder out = new StringBuilder(json.length() / 4);
+        long previousLat = 0;
+        long previousLon = 0;
+        int index = 0;
+        int length = json.length();
+        while (true) {
+            int latStart = nextNumberStart(json, index);
+            if (latStart < 0) {
+                break;
+            }
+            int latEnd = numberEnd(json, latStart);
+            int lonStart = nextNumberStart(json, latEnd);
+            if (lonStart < 0) {
+                throw new IllegalArgumentException("Route coordinates contain an incomplete point");
+            }
+            int lonEnd = numberEnd(json, lonStart);
+
+            long lat = Math.round(Double.parseDouble(json.substring(latStart, latEnd)) * SCALE);
+            long lon = Math.round(Double.parseDouble(json.substring(lonStart, lonEnd)) * SCALE);
+            writeValue(out, lat - previousLat);
+            writeValue(out, lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+
+            index = lonEnd;
+            // Skip anything else inside the point array (e.g. altitude) up to its closing bracket.
+            while (index < length && json.charAt(index) != ']') {
+                index++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static int nextNumberStart(String json, int from) {
+        for (int i = from; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int numberEnd(String json, int start) {
+        int i = start + 1;
+        while (i < json.length()) {
+            char c = json.charAt(i);
+            if (!(c >= '0' && c <= '9') && c != '.' && c != 'e' && c != 'E' && c != '-' && c != '+') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static void writeValue(StringBuilder out, long delta) {
+        long value = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (value >= 0x20) {
+            out.append((char) ((0x20 | (value & 0x1f)) + 63));
+            value >>= 5;
+        }
+        out.append((char) (value + 63));
+    }
+
+    public static final class Decoder {
+
+        private final String encoded;
+        private int index;
+        private long lat;
+        private long lon;
+
+        private Decoder(String encoded) {
+            this.encoded = encoded;
+        }
+
+        /**
+         * Advances to the next point; returns false at the end of the route.
+         */
+        public boolean next() {
+            if (index >= encoded.length()) {
+                return false;
+            }
+            lat += readValue();
+            lon += readValue();
+            return true;
+        }
+
+        public double latitude() {
+            return lat / SCALE;
+        }
+
+        public double longitude() {
+            return lon / SCALE;
+        }
+
+        private long readValue() {
+            long result = 0;
+            int shift = 0;
+            int chunk;
+            do {
+                if (index >= encoded.length()) {
+                    throw new IllegalArgumentException("Truncated polyline");
+                }
+                chunk = encoded.charAt(index++) - 63;
+                result |= (long) (chunk & 0x1f) << shift;
+                shift += 5;
+            } while (chunk >= 0x20);
+            return (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+        }
+    }
+}
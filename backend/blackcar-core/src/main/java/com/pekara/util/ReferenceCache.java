@@ -0,0 +1,155 @@
+package com.pekara.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring, read-through cache for read-mostly reference data such as pricing and user
+ * profiles. Entries are kept in an LRU map and dropped after the TTL, so a change made by another
+ * instance is picked up within one TTL; changes made here are invalidated explicitly.
+ *
+ * Missing values are not cached. Cached values are shared between callers and must be immutable.
+ * A load that overlaps an invalidation is returned to its caller but not stored, so it cannot put
+ * the old value back after the invalidation.
+ *
+ * Metrics, tagged with {@code cache}: {@code cache.gets} (by {@code result}), {@code cache.puts},
+ * {@code cache.evictions}, {@code cache.size} and {@code cache.hit.ratio}.
+ */
+public final class ReferenceCache<K, V> {
+
+    private final Clock clock;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<K, Entry<V>> entries;
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Counter puts;
+    private final Counter evictions;
+
+    public ReferenceCache(String name, int maxEntries, Duration ttl, MeterRegistry meterRegistry) {
+        this(name, maxEntries, ttl, meterRegistry, Clock.systemUTC());
+    }
+
+    public ReferenceCache(String name, int maxEntries, Duration ttl, MeterRegistry meterRegistry, Clock clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + name);
+        }
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                boolean evict = size() > ReferenceCache.this.maxEntries;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+
+        Tags tags = Tags.of("cache", name);
+        FunctionCounter.builder("cache.gets", hits, AtomicLong::get).tags(tags).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, AtomicLong::get).tags(tags).tag("result", "miss").register(meterRegistry);
+        this.puts = Counter.builder("cache.puts").tags(tags).register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tags(tags).register(meterRegistry);
+        Gauge.builder("cache.size", this, ReferenceCache::size).tags(tags).register(meterRegistry);
+        Gauge.builder("cache.hit.ratio", this, ReferenceCache::hitRatio).tags(tags).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached value for the key, calling the loader on a miss or after expiry.
+     */
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        long now = clock.millis();
+        long loadGeneration;
+        synchronized (entries) {
+            loadGeneration = generation;
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.incrementAndGet();
+                return Optional.of(entry.value());
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+
+        Optional<V> loaded = loader.apply(key);
+        if (loaded.isPresent()) {
+            synchronized (entries) {
+                if (generation != loadGeneration) {
+                    return loaded;
+                }
+                entries.put(key, new Entry<>(loaded.get(), now + ttlMillis));
+            }
+            puts.increment();
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops the key now and, inside a transaction, again once it completes, so a reader that loaded
+     * the old row before the commit cannot leave it behind.
+     */
+    public void invalidate(K key) {
+        afterTransaction(() -> {
+            synchronized (entries) {
+                generation++;
+                entries.remove(key);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        afterTransaction(() -> {
+            synchronized (entries) {
+                generation++;
+                entries.clear();
+            }
+        });
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    double hitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private static void afterTransaction(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
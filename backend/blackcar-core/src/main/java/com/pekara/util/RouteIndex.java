@@ -0,0 +1,239 @@
+package com.pekara.util;
+
+import com.pekara.dto.common.LocationPointDto;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Route geometry prepared for repeated position queries: vertices as primitive arrays, the
+ * cumulative distance at every vertex and a bounding box per block of {@value #BLOCK} segments.
+ *
+ * {@link #project(double, double)} snaps a point onto the closest segment (not just the closest
+ * vertex). The segments of the block with the nearest bounding box are examined first, and after
+ * that only blocks whose box is closer than the best segment so far, so a query costs one pass
+ * over the block boxes and a few blocks of segments, without allocating per block.
+ */
+public final class RouteIndex {
+
+    private static final int BLOCK = 16;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] cumulativeKm;
+    private final int size;
+
+    private final double[] blockMinLat;
+    private final double[] blockMaxLat;
+    private final double[] blockMinLon;
+    private final double[] blockMaxLon;
+
+    private RouteIndex(double[] lat, double[] lon, int size) {
+        this.lat = lat;
+        this.lon = lon;
+        this.size = size;
+
+        this.cumulativeKm = new double[size];
+        for (int i = 1; i < size; i++) {
+            cumulativeKm[i] = cumulativeKm[i - 1] + GeoUtils.haversineKm(lat[i - 1], lon[i - 1], lat[i], lon[i]);
+        }
+
+        int segments = Math.max(size - 1, 0);
+        int blocks = (segments + BLOCK - 1) / BLOCK;
+        blockMinLat = new double[blocks];
+        blockMaxLat = new double[blocks];
+        blockMinLon = new double[blocks];
+        blockMaxLon = new double[blocks];
+        for (int block = 0; block < blocks; block++) {
+            int first = block * BLOCK;
+            int last = Math.min(first + BLOCK, segments);
+            double minLat = Double.MAX_VALUE;
+            double maxLat = -Double.MAX_VALUE;
+            double minLon = Double.MAX_VALUE;
+            double maxLon = -Double.MAX_VALUE;
+            for (int i = first; i <= last; i++) {
+                minLat = Math.min(minLat, lat[i]);
+                maxLat = Math.max(maxLat, lat[i]);
+                minLon = Math.min(minLon, lon[i]);
+                maxLon = Math.max(maxLon, lon[i]);
+            }
+            blockMinLat[block] = minLat;
+            blockMaxLat[block] = maxLat;
+            blockMinLon[block] = minLon;
+            blockMaxLon[block] = maxLon;
+        }
+    }
+
+    public static RouteIndex fromPolyline(String encoded) {
+        PolylineCodec.Decoder decoder = PolylineCodec.decoder(encoded);
+        double[] lat = new double[64];
+        double[] lon = new double[64];
+        int size = 0;
+        while (decoder.next()) {
+            if (size == lat.length) {
+                lat = Arrays.copyOf(lat, size * 2);
+                lon = Arrays.copyOf(lon, size * 2);
+            }
+            lat[size] = decoder.latitude();
+            lon[size] = decoder.longitude();
+            size++;
+        }
+        return new RouteIndex(lat, lon, size);
+    }
+
+    public static RouteIndex of(List<LocationPointDto> points) {
+        double[] lat = new double[points.size()];
+        double[] lon = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            lat[i] = points.get(i).getLatitude();
+            lon[i] = points.get(i).getLongitude();
+        }
+        return new RouteIndex(lat, lon, points.size());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double totalKm() {
+        return size > 0 ? cumulativeKm[size - 1] : 0.0;
+    }
+
+    public double remainingKm(Projection projection) {
+        return Math.max(totalKm() - projection.distanceAlongKm(), 0.0);
+    }
+
+    /**
+     * Closest position on the route to the given point, or null for a route without points.
+     */
+    public Projection project(double latitude, double longitude) {
+        return project(latitude, longitude, 0.0, totalKm());
+    }
+
+    /**
+     * Closest position to the given point among those between {@code fromKm} and {@code toKm} along
+     * the route, or null for a route without points. Tracking passes a window around the previous
+     * position, so a route that doubles back on itself does not snap onto the wrong leg.
+     */
+    public Projection project(double latitude, double longitude, double fromKm, double toKm) {
+        if (size == 0) {
+            return null;
+        }
+        // Local equirectangular frame centred on the query point; plenty accurate at city scale.
+        double kmPerDegreeLon = KM_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        if (size == 1) {
+            return new Projection(0.0, planarKm(latitude, longitude, lat[0], lon[0], kmPerDegreeLon), 0);
+        }
+
+        fromKm = Math.max(fromKm, 0.0);
+        toKm = Math.max(Math.min(toKm, totalKm()), fromKm);
+        int firstSegment = segmentAt(fromKm);
+        int lastSegment = segmentAt(toKm);
+        if (lastSegment > firstSegment && cumulativeKm[lastSegment] >= toKm) {
+            // The window ends on a vertex: the segment starting there is outside it.
+            lastSegment--;
+        }
+        int firstBlock = firstSegment / BLOCK;
+        int lastBlock = lastSegment / BLOCK;
+
+        // Seed with the nearest block, then visit only the blocks whose box can still beat it.
+        int nearestBlock = firstBlock;
+        double nearestBound = Double.MAX_VALUE;
+        for (int block = firstBlock; block <= lastBlock; block++) {
+            double bound = blockBoundKm(block, latitude, longitude, kmPerDegreeLon);
+            if (bound < nearestBound) {
+                nearestBound = bound;
+                nearestBlock = block;
+            }
+        }
+        Search search = new Search(latitude, longitude, kmPerDegreeLon, fromKm, toKm);
+        scan(search, nearestBlock, firstSegment, lastSegment);
+        for (int block = firstBlock; block <= lastBlock; block++) {
+            if (block != nearestBlock && blockBoundKm(block, latitude, longitude, kmPerDegreeLon) < search.bestKm) {
+                scan(search, block, firstSegment, lastSegment);
+            }
+        }
+        return new Projection(search.bestAlong, search.bestKm, search.bestSegment);
+    }
+
+    /**
+     * Index of the segment containing the given distance along the route, clamped to the route.
+     */
+    private int segmentAt(double km) {
+        int index = Arrays.binarySearch(cumulativeKm, 0, size, km);
+        int vertex = index >= 0 ? index : -index - 2;
+        return Math.max(0, Math.min(vertex, size - 2));
+    }
+
+    private double blockBoundKm(int block, double latitude, double longitude, double kmPerDegreeLon) {
+        double dLat = Math.max(0, Math.max(blockMinLat[block] - latitude, latitude - blockMaxLat[block])) * KM_PER_DEGREE;
+        double dLon = Math.max(0, Math.max(blockMinLon[block] - longitude, longitude - blockMaxLon[block])) * kmPerDegreeLon;
+        return Math.hypot(dLat, dLon);
+    }
+
+    private void scan(Search search, int block, int firstSegment, int lastSegment) {
+        int first = Math.max(block * BLOCK, firstSegment);
+        int last = Math.min(Math.min(block * BLOCK + BLOCK, size - 1), lastSegment + 1);
+        for (int segment = first; segment < last; segment++) {
+            double ax = (lon[segment] - search.longitude) * search.kmPerDegreeLon;
+            double ay = (lat[segment] - search.latitude) * KM_PER_DEGREE;
+            double bx = (lon[segment + 1] - search.longitude) * search.kmPerDegreeLon;
+            double by = (lat[segment + 1] - search.latitude) * KM_PER_DEGREE;
+            double dx = bx - ax;
+            double dy = by - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double segmentKm = cumulativeKm[segment + 1] - cumulativeKm[segment];
+            double t = lengthSquared > 0 ? -(ax * dx + ay * dy) / lengthSquared : 0.0;
+            if (segmentKm > 0) {
+                // The segments at the ends of the window are only partly inside it.
+                t = Math.max(t, (search.fromKm - cumulativeKm[segment]) / segmentKm);
+                t = Math.min(t, (search.toKm - cumulativeKm[segment]) / segmentKm);
+            }
+            t = clamp(t);
+            double distanceKm = Math.hypot(ax + t * dx, ay + t * dy);
+            if (distanceKm < search.bestKm) {
+                search.bestKm = distanceKm;
+                search.bestSegment = segment;
+                search.bestAlong = cumulativeKm[segment] + t * segmentKm;
+            }
+        }
+    }
+
+    private static double planarKm(double lat1, double lon1, double lat2, double lon2, double kmPerDegreeLon) {
+        return Math.hypot((lat2 - lat1) * KM_PER_DEGREE, (lon2 - lon1) * kmPerDegreeLon);
+    }
+
+    private static double clamp(double t) {
+        return t < 0 ? 0 : Math.min(t, 1);
+    }
+
+    /**
+     * @param distanceAlongKm distance from the start of the route to the snapped position
+     * @param offRouteKm      distance from the query point to the snapped position
+     * @param segment         index of the segment the point snapped to
+     */
+    public record Projection(double distanceAlongKm, double offRouteKm, int segment) {
+    }
+
+    private static final class Search {
+
+        final double latitude;
+        final double longitude;
+        final double kmPerDegreeLon;
+        final double fromKm;
+        final double toKm;
+
+        double bestKm = Double.MAX_VALUE;
+        double bestAlong;
+        int bestSegment;
+
+        Search(double latitude, double longitude, double kmPerDegreeLon, double fromKm, double toKm) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.kmPerDegreeLon = kmPerDegreeLon;
+            this.fromKm = fromKm;
+            this.toKm = toKm;
+        }
+    }
+}
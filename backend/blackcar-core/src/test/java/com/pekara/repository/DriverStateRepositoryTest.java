@@ -1,6 +1,7 @@
 package com.pekara.repository;
 
 import com.pekara.config.TestConfig;
+import com.pekara.dto.BufferedLocationDto;
 import com.pekara.model.Driver;
 import com.pekara.model.DriverState;
 import com.pekara.model.UserRole;
@@ -17,11 +18,12 @@ import org.testng.annotations.Test;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
- * Repository tests for DriverStateRepository - ride ordering (find online drivers, lock for update).
+ * Repository tests for DriverStateRepository - ride ordering (find online drivers, reserve a driver).
  */
 @SpringBootTest(classes = TestConfig.class)
 @ActiveProfiles("test")
@@ -162,8 +164,74 @@ public class DriverStateRepositoryTest extends AbstractTransactionalTestNGSpring
         assertThat(page1.getContent()).hasSize(1);
     }
 
-    @Test(description = "Should return driver state by driver id for update")
-    public void findByDriverIdForUpdate_ExistingState_ReturnsState() {
+    @Test(description = "Should reserve a free driver once and refuse a second immediate ride")
+    public void reserveForRide_FreeDriver_ReservedOnlyOnce() {
+        DriverState state = persistState(driver1, true, false, null);
+        Long version = state.getVersion();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        int first = driverStateRepository.reserveForRide(driver1.getId(), now.plusMinutes(20), 45.27, 19.85,
+                now.plusMinutes(10), now);
+        int second = driverStateRepository.reserveForRide(driver1.getId(), now.plusMinutes(20), 45.27, 19.85,
+                now.plusMinutes(10), now);
+        entityManager.clear();
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        DriverState reloaded = driverStateRepository.findById(driver1.getId()).orElseThrow();
+        assertThat(reloaded.getBusy()).isTrue();
+        assertThat(reloaded.getCurrentRideEndsAt()).isEqualTo(now.plusMinutes(20));
+        assertThat(reloaded.getCurrentRideEndLatitude()).isEqualTo(45.27);
+        assertThat(reloaded.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test(description = "Should reserve a busy driver only when their ride ends within the limit")
+    public void reserveForRide_BusyDriver_DependsOnRideEnd() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        DriverState finishing = persistState(driver1, true, true, null);
+        finishing.setCurrentRideEndsAt(now.plusMinutes(5));
+        DriverState longRide = persistState(driver2, true, true, null);
+        longRide.setCurrentRideEndsAt(now.plusMinutes(30));
+        entityManager.flush();
+
+        assertThat(driverStateRepository.reserveForRide(driver1.getId(), now.plusMinutes(20), 45.27, 19.85,
+                now.plusMinutes(10), now)).isEqualTo(1);
+        assertThat(driverStateRepository.reserveForRide(driver2.getId(), now.plusMinutes(20), 45.27, 19.85,
+                now.plusMinutes(10), now)).isZero();
+    }
+
+    @Test(description = "Should not reserve an offline driver or one with a scheduled ride")
+    public void reserveForRide_OfflineOrScheduled_NotReserved() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        persistState(driver1, false, false, null);
+        persistState(driver2, true, false, now.plusHours(2));
+
+        assertThat(driverStateRepository.reserveForRide(driver1.getId(), now.plusMinutes(20), 45.27, 19.85,
+                now.plusMinutes(10), now)).isZero();
+        assertThat(driverStateRepository.reserveForRide(driver2.getId(), now.plusMinutes(20), 45.27, 19.85,
+                now.plusMinutes(10), now)).isZero();
+        assertThat(driverStateRepository.reserveForRide(99999L, now.plusMinutes(20), 45.27, 19.85,
+                now.plusMinutes(10), now)).isZero();
+    }
+
+    @Test(description = "Should book a driver for one scheduled ride at a time")
+    public void reserveForScheduledRide_BooksOnce() {
+        persistState(driver1, true, true, null);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        int first = driverStateRepository.reserveForScheduledRide(driver1.getId(), now.plusHours(2), now);
+        int second = driverStateRepository.reserveForScheduledRide(driver1.getId(), now.plusHours(3), now);
+        entityManager.clear();
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        DriverState reloaded = driverStateRepository.findById(driver1.getId()).orElseThrow();
+        assertThat(reloaded.getNextScheduledRideAt()).isEqualTo(now.plusHours(2));
+        assertThat(reloaded.getBusy()).isTrue();
+    }
+
+    @Test(description = "Should write buffered locations in one batch without touching the version")
+    public void batchUpdateLocations_UpdatesRowsAndSkipsUnknownDrivers() {
         DriverState state = DriverState.builder()
                 .id(driver1.getId())
                 .driver(driver1)
@@ -173,17 +241,33 @@ public class DriverStateRepositoryTest extends AbstractTransactionalTestNGSpring
                 .build();
         entityManager.persist(state);
         entityManager.flush();
+        Long version = state.getVersion();
+        LocalDateTime recordedAt = LocalDateTime.now().plusSeconds(5).withNano(0);
 
-        var result = driverStateRepository.findByDriverIdForUpdate(driver1.getId());
+        int updated = driverStateRepository.batchUpdateLocations(Map.of(
+                driver1.getId(), new BufferedLocationDto(45.2671, 19.8335, recordedAt),
+                99999L, new BufferedLocationDto(45.0, 19.0, recordedAt)));
+        entityManager.clear();
 
-        assertThat(result).isPresent();
-        assertThat(result.get().getId()).isEqualTo(driver1.getId());
-        assertThat(result.get().getDriver().getId()).isEqualTo(driver1.getId());
+        assertThat(updated).isEqualTo(1);
+        DriverState reloaded = driverStateRepository.findById(driver1.getId()).orElseThrow();
+        assertThat(reloaded.getLatitude()).isEqualTo(45.2671);
+        assertThat(reloaded.getLongitude()).isEqualTo(19.8335);
+        assertThat(reloaded.getUpdatedAt()).isEqualTo(recordedAt);
+        assertThat(reloaded.getVersion()).isEqualTo(version);
     }
 
-    @Test(description = "Should return empty when driver state does not exist")
-    public void findByDriverIdForUpdate_NonExistent_ReturnsEmpty() {
-        var result = driverStateRepository.findByDriverIdForUpdate(99999L);
-        assertThat(result).isEmpty();
+    private DriverState persistState(Driver driver, boolean online, boolean busy, LocalDateTime nextScheduledRideAt) {
+        DriverState state = DriverState.builder()
+                .id(driver.getId())
+                .driver(driver)
+                .online(online)
+                .busy(busy)
+                .nextScheduledRideAt(nextScheduledRideAt)
+                .updatedAt(LocalDateTime.now())
+                .build();
+        entityManager.persist(state);
+        entityManager.flush();
+        return state;
     }
 }
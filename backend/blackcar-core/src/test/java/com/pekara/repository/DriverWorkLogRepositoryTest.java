@@ -1,6 +1,7 @@
 package com.pekara.repository;
 
 import com.pekara.config.TestConfig;
+import com.pekara.dto.DriverWorkSegmentDto;
 import com.pekara.model.Driver;
 import com.pekara.model.DriverWorkLog;
 import com.pekara.model.Ride;
@@ -23,7 +24,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
- * Repository tests for DriverWorkLogRepository - ride ordering (8h work limit: findCompletedSince, findSince, findByRideId).
+ * Repository tests for DriverWorkLogRepository - ride ordering (8h work limit: findCompletedSegmentsSince, findSince, findByRideId).
  */
 @SpringBootTest(classes = TestConfig.class)
 @ActiveProfiles("test")
@@ -92,8 +93,8 @@ public class DriverWorkLogRepositoryTest extends AbstractTransactionalTestNGSpri
         entityManager.flush();
     }
 
-    @Test(description = "Should return completed work logs since given time")
-    public void findCompletedSince_CompletedAfterSince_ReturnsThem() {
+    @Test(description = "Should return completed work segments since given time")
+    public void findCompletedSegmentsSince_CompletedAfterSince_ReturnsThem() {
         LocalDateTime since = LocalDateTime.now().minusHours(24);
         LocalDateTime started = since.plusHours(1);
         LocalDateTime ended = started.plusHours(2);
@@ -109,15 +110,16 @@ public class DriverWorkLogRepositoryTest extends AbstractTransactionalTestNGSpri
         entityManager.persist(log);
         entityManager.flush();
 
-        List<DriverWorkLog> result = driverWorkLogRepository.findCompletedSince(driver.getId(), since);
+        List<DriverWorkSegmentDto> result = driverWorkLogRepository.findCompletedSegmentsSince(since);
 
         assertThat(result).hasSize(1);
-        assertThat(result.get(0).getCompleted()).isTrue();
+        assertThat(result.get(0).getDriverId()).isEqualTo(driver.getId());
+        assertThat(result.get(0).getWorkLogId()).isEqualTo(log.getId());
         assertThat(result.get(0).getStartedAt()).isAfter(since);
     }
 
     @Test(description = "Should not return work logs started before since")
-    public void findCompletedSince_StartedBeforeSince_ReturnsEmpty() {
+    public void findCompletedSegmentsSince_StartedBeforeSince_ReturnsEmpty() {
         LocalDateTime since = LocalDateTime.now().minusHours(12);
         LocalDateTime started = since.minusHours(2);
         LocalDateTime ended = started.plusHours(1);
@@ -133,13 +135,13 @@ public class DriverWorkLogRepositoryTest extends AbstractTransactionalTestNGSpri
         entityManager.persist(log);
         entityManager.flush();
 
-        List<DriverWorkLog> result = driverWorkLogRepository.findCompletedSince(driver.getId(), since);
+        List<DriverWorkSegmentDto> result = driverWorkLogRepository.findCompletedSegmentsSince(since);
 
         assertThat(result).isEmpty();
     }
 
     @Test(description = "Should not return incomplete work logs")
-    public void findCompletedSince_NotCompleted_ReturnsEmpty() {
+    public void findCompletedSegmentsSince_NotCompleted_ReturnsEmpty() {
         LocalDateTime since = LocalDateTime.now().minusHours(24);
         LocalDateTime started = since.plusHours(1);
 
@@ -154,11 +156,32 @@ public class DriverWorkLogRepositoryTest extends AbstractTransactionalTestNGSpri
         entityManager.persist(log);
         entityManager.flush();
 
-        List<DriverWorkLog> result = driverWorkLogRepository.findCompletedSince(driver.getId(), since);
+        List<DriverWorkSegmentDto> result = driverWorkLogRepository.findCompletedSegmentsSince(since);
 
         assertThat(result).isEmpty();
     }
 
+    @Test(description = "Should return only the given driver's completed work segments")
+    public void findCompletedSegmentsOfDriverSince_FiltersByDriver() {
+        LocalDateTime since = LocalDateTime.now().minusHours(24);
+        LocalDateTime started = since.plusHours(1);
+        DriverWorkLog log = DriverWorkLog.builder()
+                .driver(driver)
+                .ride(ride)
+                .startedAt(started)
+                .endedAt(started.plusHours(2))
+                .completed(true)
+                .createdAt(started)
+                .build();
+        entityManager.persist(log);
+        entityManager.flush();
+
+        assertThat(driverWorkLogRepository.findCompletedSegmentsOfDriverSince(driver.getId(), since))
+                .extracting(DriverWorkSegmentDto::getWorkLogId)
+                .containsExactly(log.getId());
+        assertThat(driverWorkLogRepository.findCompletedSegmentsOfDriverSince(driver.getId() + 1000, since)).isEmpty();
+    }
+
     @Test(description = "Should return all work logs for driver since given time")
     public void findSince_ReturnsAllLogsAfterSince() {
         LocalDateTime since = LocalDateTime.now().minusHours(24);
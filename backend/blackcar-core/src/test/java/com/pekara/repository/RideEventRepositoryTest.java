@@ -0,0 +1,75 @@
+package com.pekara.repository;
+
+import com.pekara.config.TestConfig;
+import com.pekara.model.RideEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.annotations.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Repository tests for RideEventRepository - outbox polling and cleanup.
+ */
+@SpringBootTest(classes = TestConfig.class)
+@ActiveProfiles("test")
+@Transactional
+public class RideEventRepositoryTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private RideEventRepository rideEventRepository;
+
+    @Test(description = "Should lock only unpublished, due events below the attempt limit, oldest first")
+    public void lockPending_ReturnsDeliverableEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        RideEvent first = event(1L, now.minusSeconds(5), null, 0);
+        RideEvent second = event(2L, now.minusSeconds(1), null, 3);
+        event(3L, now.minusSeconds(5), now, 0);
+        event(4L, now.plusMinutes(1), null, 1);
+        event(5L, now.minusSeconds(5), null, 10);
+        entityManager.flush();
+
+        List<RideEvent> pending = rideEventRepository.lockPending(now, 10, PageRequest.of(0, 10));
+
+        assertThat(pending).extracting(RideEvent::getId).containsExactly(first.getId(), second.getId());
+    }
+
+    @Test(description = "Should purge only events published before the cutoff")
+    public void deletePublishedBefore_KeepsRecentAndPending() {
+        LocalDateTime now = LocalDateTime.now();
+        event(1L, now.minusDays(9), now.minusDays(8), 0);
+        event(2L, now.minusDays(1), now.minusDays(1), 0);
+        event(3L, now.minusDays(9), null, 10);
+        entityManager.flush();
+
+        int deleted = rideEventRepository.deletePublishedBefore(now.minusDays(7));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(rideEventRepository.count()).isEqualTo(2);
+    }
+
+    private RideEvent event(Long rideId, LocalDateTime availableAt, LocalDateTime publishedAt, int attempts) {
+        RideEvent event = RideEvent.builder()
+                .rideId(rideId)
+                .type(RideEvent.Type.COMPLETED)
+                .payload("{\"rideId\":" + rideId + "}")
+                .availableAt(availableAt)
+                .publishedAt(publishedAt)
+                .attempts(attempts)
+                .build();
+        entityManager.persist(event);
+        return event;
+    }
+}
@@ -2,6 +2,10 @@ package com.pekara.repository;
 
 import com.pekara.config.TestConfig;
 import com.pekara.constant.RideStatus;
+import com.pekara.dto.LegacyRouteGeometryDto;
+import com.pekara.dto.RideHistoryRowDto;
+import com.pekara.dto.RideReminderDto;
+import com.pekara.dto.RideStatsTotalsDto;
 import com.pekara.model.Driver;
 import com.pekara.model.Ride;
 import com.pekara.model.RideStop;
@@ -11,6 +15,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +29,7 @@ import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 /**
  * Repository tests for RideRepository - Early Ride Stoppage functionality
@@ -456,6 +462,50 @@ public class RideRepositoryTest extends AbstractTransactionalTestNGSpringContext
         assertThat(result.get(0).getId()).isEqualTo(scheduledRide.getId());
     }
 
+    @Test(description = "Should claim each reminder once and return only the rides claimed with the stamp")
+    public void claimReminders_ClaimsOnce() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Ride fresh = createRide(passenger1, driver1, RideStatus.SCHEDULED);
+        fresh.setScheduledAt(now.plusMinutes(10));
+        Ride remindedLongAgo = createRide(passenger2, driver2, RideStatus.SCHEDULED);
+        remindedLongAgo.setScheduledAt(now.plusMinutes(8));
+        remindedLongAgo.setLastReminderSentAt(now.minusMinutes(6));
+        Ride remindedJustNow = createRide(passenger1, driver2, RideStatus.SCHEDULED);
+        remindedJustNow.setScheduledAt(now.plusMinutes(12));
+        remindedJustNow.setLastReminderSentAt(now.minusMinutes(1));
+        entityManager.flush();
+        List<Long> ids = List.of(fresh.getId(), remindedLongAgo.getId(), remindedJustNow.getId());
+
+        int claimed = rideRepository.claimReminders(ids, now, now.minusMinutes(5));
+        int claimedAgain = rideRepository.claimReminders(ids, now.plusSeconds(1), now.minusMinutes(5));
+        entityManager.clear();
+
+        assertThat(claimed).isEqualTo(2);
+        assertThat(claimedAgain).isZero();
+        assertThat(rideRepository.findClaimedReminders(ids, now))
+                .extracting(RideReminderDto::getRideId, RideReminderDto::getCreatorEmail)
+                .containsExactlyInAnyOrder(tuple(fresh.getId(), "passenger1@test.com"),
+                        tuple(remindedLongAgo.getId(), "passenger2@test.com"));
+    }
+
+    @Test(description = "Should release only leases still holding the given stamp")
+    public void releaseReminders_ReleasesOwnLease() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Ride ride = createRide(passenger1, driver1, RideStatus.SCHEDULED);
+        ride.setScheduledAt(now.plusMinutes(10));
+        entityManager.flush();
+        List<Long> ids = List.of(ride.getId());
+        rideRepository.claimReminders(ids, now, now.minusMinutes(5));
+
+        int wrongStamp = rideRepository.releaseReminders(ids, now.minusSeconds(1), now.minusMinutes(5));
+        int released = rideRepository.releaseReminders(ids, now, now.minusMinutes(5));
+        int claimedAgain = rideRepository.claimReminders(ids, now.plusSeconds(30), now.plusSeconds(30).minusMinutes(5));
+
+        assertThat(wrongStamp).isZero();
+        assertThat(released).isEqualTo(1);
+        assertThat(claimedAgain).isEqualTo(1);
+    }
+
     @Test(description = "Should find driver rides since specified time")
     public void findDriverRidesSince_Success() {
         LocalDateTime since = LocalDateTime.now().minusHours(1);
@@ -521,6 +571,31 @@ public class RideRepositoryTest extends AbstractTransactionalTestNGSpringContext
         assertThat(result.get(0).getId()).isEqualTo(ride.getId());
     }
 
+    @Test(description = "Should page driver history by (createdAt, id) and continue after the last key")
+    public void findDriverRideHistoryPage_SeeksPastLastKey() {
+        LocalDateTime start = LocalDateTime.now().minusDays(2);
+        LocalDateTime end = LocalDateTime.now().plusDays(1);
+
+        createRide(passenger1, driver1, RideStatus.COMPLETED);
+        createRide(passenger1, driver1, RideStatus.COMPLETED);
+        createRide(passenger1, driver1, RideStatus.CANCELLED);
+        createRide(passenger2, driver2, RideStatus.COMPLETED);
+        entityManager.flush();
+
+        List<RideHistoryRowDto> first = rideRepository.findDriverRideHistoryPage(
+                driver1.getId(), start, end, Long.MAX_VALUE, PageRequest.of(0, 2));
+        RideHistoryRowDto last = first.get(first.size() - 1);
+        List<RideHistoryRowDto> second = rideRepository.findDriverRideHistoryPage(
+                driver1.getId(), start, last.getCreatedAt(), last.getId(), PageRequest.of(0, 2));
+
+        assertThat(first).hasSize(2);
+        assertThat(second).hasSize(1);
+        assertThat(first).doesNotContainAnyElementsOf(second);
+        assertThat(first.get(0).getCreatedAt()).isAfterOrEqualTo(first.get(1).getCreatedAt());
+        assertThat(first.get(0).getDriverEmail()).isEqualTo("driver1@test.com");
+        assertThat(rideRepository.countDriverRideHistory(driver1.getId(), start, end)).isEqualTo(3);
+    }
+
     @Test(description = "Should find active panic rides")
     public void findActivePanicRides_Success() {
         Ride panicRide = createRide(passenger1, driver1, RideStatus.IN_PROGRESS);
@@ -564,4 +639,55 @@ public class RideRepositoryTest extends AbstractTransactionalTestNGSpringContext
 
         assertThat(result).hasSize(2);
     }
+
+    @Test(description = "Should page through rides with legacy geometry and add a polyline, keeping the JSON")
+    public void findLegacyRouteGeometry_And_SetRoutePolyline() {
+        Ride legacy = createRide(passenger1, driver1, RideStatus.COMPLETED);
+        Ride converted = createRide(passenger2, driver2, RideStatus.COMPLETED);
+        converted.setRouteCoordinates(null);
+        converted.setRoutePolyline("_p~iF~ps|U");
+        entityManager.flush();
+
+        List<LegacyRouteGeometryDto> pending = rideRepository.findLegacyRouteGeometry(0L, PageRequest.of(0, 10));
+
+        assertThat(pending).extracting(LegacyRouteGeometryDto::getRideId).containsExactly(legacy.getId());
+        assertThat(pending.get(0).getRouteCoordinates()).isEqualTo("[[45.2551,19.8451],[45.2671,19.8335]]");
+
+        rideRepository.setRoutePolyline(legacy.getId(), "encoded");
+        entityManager.clear();
+
+        Ride reloaded = rideRepository.findById(legacy.getId()).orElseThrow();
+        assertThat(reloaded.getRoutePolyline()).isEqualTo("encoded");
+        assertThat(reloaded.getRouteCoordinates()).isEqualTo("[[45.2551,19.8451],[45.2671,19.8335]]");
+        assertThat(rideRepository.findLegacyRouteGeometry(0L, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test(description = "Should sum completed rides by completion time, overall and per passenger")
+    public void sumCompleted_ByCompletionDay() {
+        LocalDateTime day = LocalDateTime.now().minusDays(3).toLocalDate().atStartOfDay();
+        Ride first = createRide(passenger1, driver1, RideStatus.COMPLETED, passenger2);
+        first.setCompletedAt(day.plusHours(9));
+        Ride second = createRide(passenger1, driver2, RideStatus.COMPLETED);
+        second.setCompletedAt(day.plusHours(23));
+        Ride nextDay = createRide(passenger2, driver1, RideStatus.COMPLETED);
+        nextDay.setCompletedAt(day.plusDays(1));
+        createRide(passenger1, driver1, RideStatus.CANCELLED);
+        entityManager.flush();
+
+        assertThat(rideRepository.findFirstCompletedAt()).isEqualTo(day.plusHours(9));
+        RideStatsTotalsDto global = rideRepository.sumCompleted(day, day.plusDays(1));
+        assertThat(global.getRideCount()).isEqualTo(2);
+        assertThat(global.getDistanceKm()).isEqualTo(10.0);
+        assertThat(global.getAmount()).isEqualByComparingTo("1000.00");
+
+        assertThat(rideRepository.sumCompletedByPassenger(day, day.plusDays(1)))
+                .extracting(RideStatsTotalsDto::getSubjectId, RideStatsTotalsDto::getRideCount)
+                .containsExactlyInAnyOrder(
+                        tuple(passenger1.getId(), 2L),
+                        tuple(passenger2.getId(), 1L));
+
+        RideStatsTotalsDto empty = rideRepository.sumCompletedForDriver(driver2.getId(), day.plusDays(1), day.plusDays(2));
+        assertThat(empty.getRideCount()).isZero();
+        assertThat(empty.getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
 }
@@ -0,0 +1,98 @@
+package com.pekara.service;
+
+import com.pekara.dto.BufferedLocationDto;
+import com.pekara.repository.DriverStateRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for DriverLocationBufferImpl - coalescing of pings, batched flush and retry.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class DriverLocationBufferImplTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @Mock
+    private DriverStateRepository driverStateRepository;
+
+    @Mock
+    private DriverLocationIndex driverLocationIndex;
+
+    private MeterRegistry meterRegistry;
+    private DriverLocationBufferImpl buffer;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new DriverLocationBufferImpl(driverStateRepository, driverLocationIndex, meterRegistry);
+    }
+
+    @Test(description = "Should keep only the latest ping per driver and write them in one batch")
+    @SuppressWarnings("unchecked")
+    public void flush_CoalescesPingsPerDriver() {
+        buffer.record(1L, 45.20, 19.80, T0);
+        buffer.record(1L, 45.21, 19.81, T0.plusSeconds(1));
+        buffer.record(1L, 45.22, 19.82, T0.plusSeconds(2));
+        buffer.record(2L, 45.30, 19.90, T0);
+        when(driverStateRepository.batchUpdateLocations(anyMap())).thenReturn(2);
+
+        int updated = buffer.flush();
+
+        ArgumentCaptor<Map<Long, BufferedLocationDto>> batch = ArgumentCaptor.forClass(Map.class);
+        verify(driverStateRepository).batchUpdateLocations(batch.capture());
+        assertThat(updated).isEqualTo(2);
+        assertThat(batch.getValue()).containsOnlyKeys(1L, 2L);
+        assertThat(batch.getValue().get(1L).latitude()).isEqualTo(45.22);
+        assertThat(meterRegistry.counter("driver.location.ingested").count()).isEqualTo(4.0);
+        assertThat(meterRegistry.counter("driver.location.flushed").count()).isEqualTo(2.0);
+        verify(driverLocationIndex).updatePosition(1L, 45.22, 19.82);
+
+        assertThat(buffer.flush()).isZero();
+        verify(driverStateRepository, times(1)).batchUpdateLocations(anyMap());
+    }
+
+    @Test(description = "Should ignore a ping that arrives out of order")
+    public void record_OlderPing_DoesNotReplaceNewer() {
+        buffer.record(1L, 45.22, 19.82, T0.plusSeconds(5));
+        buffer.record(1L, 45.20, 19.80, T0);
+
+        assertThat(buffer.latest(1L)).get()
+                .extracting(BufferedLocationDto::latitude).isEqualTo(45.22);
+        assertThat(buffer.latest(2L)).isEmpty();
+    }
+
+    @Test(description = "Should keep positions for the next flush when the batch fails")
+    public void flush_Failure_RequeuesPositions() {
+        buffer.record(1L, 45.20, 19.80, T0);
+        when(driverStateRepository.batchUpdateLocations(anyMap()))
+                .thenThrow(new IllegalStateException("connection reset"))
+                .thenReturn(1);
+
+        assertThat(buffer.flush()).isZero();
+        assertThat(buffer.flush()).isEqualTo(1);
+        assertThat(meterRegistry.counter("driver.location.flushed").count()).isEqualTo(1.0);
+    }
+
+    @Test(description = "Should not touch the database when nothing is pending")
+    public void flush_NothingPending_NoWrite() {
+        assertThat(buffer.flush()).isZero();
+        verifyNoInteractions(driverStateRepository);
+    }
+}
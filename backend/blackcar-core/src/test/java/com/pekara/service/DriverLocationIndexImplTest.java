@@ -0,0 +1,139 @@
+package com.pekara.service;
+
+import com.pekara.model.Driver;
+import com.pekara.model.DriverLocationSnapshot;
+import com.pekara.model.DriverState;
+import com.pekara.repository.DriverStateRepository;
+import com.pekara.util.GeoUtils;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for DriverLocationIndexImpl - grid based nearest driver lookup.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class DriverLocationIndexImplTest {
+
+    @Mock
+    private DriverStateRepository driverStateRepository;
+
+    private DriverLocationIndexImpl index;
+
+    @BeforeMethod
+    public void setUp() {
+        index = new DriverLocationIndexImpl(driverStateRepository);
+    }
+
+    @Test(description = "Should return drivers ordered by distance and respect the limit")
+    public void findNearest_ReturnsClosestFirst() {
+        index.upsert(state(1L, 45.30, 19.90, false));
+        index.upsert(state(2L, 45.251, 19.841, false));
+        index.upsert(state(3L, 45.26, 19.85, false));
+
+        List<DriverLocationSnapshot> result = index.findNearest(45.25, 19.84, 2, s -> true);
+
+        assertThat(result).extracting(DriverLocationSnapshot::getDriverId).containsExactly(2L, 3L);
+    }
+
+    @Test(description = "Should find far drivers when no driver is in the surrounding cells")
+    public void findNearest_SparseArea_FallsBackToFullScan() {
+        index.upsert(state(1L, 44.80, 20.46, false));
+
+        List<DriverLocationSnapshot> result = index.findNearest(45.25, 19.84, 5, s -> true);
+
+        assertThat(result).extracting(DriverLocationSnapshot::getDriverId).containsExactly(1L);
+    }
+
+    @Test(description = "Should apply filter and place drivers without location last")
+    public void findNearest_FilterAndUnlocated() {
+        index.upsert(state(1L, 45.25, 19.84, true));
+        index.upsert(state(2L, null, null, false));
+        index.upsert(state(3L, 45.27, 19.86, false));
+
+        List<DriverLocationSnapshot> result = index.findNearest(45.25, 19.84, 5, s -> !s.isBusy());
+
+        assertThat(result).extracting(DriverLocationSnapshot::getDriverId).containsExactly(3L, 2L);
+    }
+
+    @Test(description = "Should rank busy drivers by where their current ride ends")
+    public void findNearest_BusyDriver_UsesRideEndPosition() {
+        DriverState busy = state(1L, 45.40, 20.00, true);
+        busy.setCurrentRideEndsAt(LocalDateTime.now().plusMinutes(5));
+        busy.setCurrentRideEndLatitude(45.251);
+        busy.setCurrentRideEndLongitude(19.841);
+        index.upsert(busy);
+        index.upsert(state(2L, 45.26, 19.85, false));
+
+        List<DriverLocationSnapshot> result = index.findNearest(45.25, 19.84, 2, s -> true);
+
+        assertThat(result).extracting(DriverLocationSnapshot::getDriverId).containsExactly(1L, 2L);
+    }
+
+    @Test(description = "Should move driver between cells on location update and drop it when offline")
+    public void updatePosition_MovesAndRemovesDriver() {
+        DriverState state = state(1L, 45.25, 19.84, false);
+        index.upsert(state);
+
+        index.updatePosition(1L, 45.50, 20.10);
+        assertThat(index.findNearest(45.50, 20.10, 1, s -> true))
+                .extracting(DriverLocationSnapshot::getLatitude).containsExactly(45.50);
+
+        // A status write carrying the position loaded earlier must not move the driver back.
+        state.setBusy(true);
+        index.upsert(state);
+        assertThat(index.get(1L)).get()
+                .extracting(DriverLocationSnapshot::getLatitude, DriverLocationSnapshot::isBusy)
+                .containsExactly(45.50, true);
+
+        state.setOnline(false);
+        index.upsert(state);
+        assertThat(index.size()).isZero();
+        assertThat(index.findNearest(45.50, 20.10, 1, s -> true)).isEmpty();
+    }
+
+    @Test(description = "Should keep nearest ordering for many drivers")
+    public void findNearest_ManyDrivers_MatchesBruteForce() {
+        List<DriverState> states = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) {
+                states.add(state(id++, 45.0 + i * 0.013, 19.5 + j * 0.017, false));
+            }
+        }
+        index.rebuild(states);
+
+        List<DriverLocationSnapshot> result = index.findNearest(45.2345, 19.8765, 3, s -> true);
+
+        List<Long> expected = states.stream()
+                .sorted(Comparator.comparingDouble(s -> GeoUtils.haversineKm(
+                        45.2345, 19.8765, s.getLatitude(), s.getLongitude())))
+                .limit(3)
+                .map(DriverState::getId)
+                .toList();
+        assertThat(result).extracting(DriverLocationSnapshot::getDriverId).containsExactlyElementsOf(expected);
+    }
+
+    private static DriverState state(Long id, Double lat, Double lon, boolean busy) {
+        Driver driver = new Driver();
+        driver.setId(id);
+        driver.setVehicleType("STANDARD");
+        DriverState ds = new DriverState();
+        ds.setId(id);
+        ds.setDriver(driver);
+        ds.setOnline(true);
+        ds.setBusy(busy);
+        ds.setLatitude(lat);
+        ds.setLongitude(lon);
+        return ds;
+    }
+}
@@ -1,28 +1,30 @@
 package com.pekara.service;
 
+import com.pekara.dto.DriverWorkSegmentDto;
 import com.pekara.dto.common.LocationPointDto;
 import com.pekara.dto.request.OrderRideRequest;
 import com.pekara.exception.NoActiveDriversException;
 import com.pekara.model.Driver;
 import com.pekara.model.DriverState;
-import com.pekara.model.DriverWorkLog;
 import com.pekara.repository.DriverStateRepository;
 import com.pekara.repository.DriverWorkLogRepository;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.Collections;
+import java.time.ZoneId;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 /**
@@ -37,7 +39,10 @@ public class DriverMatchingServiceImplTest {
     @Mock
     private DriverWorkLogRepository driverWorkLogRepository;
 
-    @InjectMocks
+    private DriverLocationIndex driverLocationIndex;
+
+    private DriverWorkTimeTracker driverWorkTimeTracker;
+
     private DriverMatchingServiceImpl driverMatchingService;
 
     private OrderRideRequest request;
@@ -47,6 +52,10 @@ public class DriverMatchingServiceImplTest {
     @BeforeMethod
     public void setUp() {
         now = LocalDateTime.of(2025, 2, 18, 12, 0);
+        driverLocationIndex = new DriverLocationIndexImpl(driverStateRepository);
+        driverWorkTimeTracker = new DriverWorkTimeTrackerImpl(driverWorkLogRepository,
+                Clock.fixed(now.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+        driverMatchingService = new DriverMatchingServiceImpl(driverStateRepository, driverWorkTimeTracker, driverLocationIndex);
         pickup = LocationPointDto.builder()
                 .address("Pickup")
                 .latitude(45.25)
@@ -63,7 +72,7 @@ public class DriverMatchingServiceImplTest {
 
     @Test(description = "Should throw when no online drivers")
     public void selectDriverIdForRide_NoOnlineDrivers_Throws() {
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(Collections.emptyList());
+        givenOnlineDrivers();
 
         assertThatThrownBy(() -> driverMatchingService.selectDriverIdForRide(request, now))
                 .isInstanceOf(NoActiveDriversException.class)
@@ -74,8 +83,7 @@ public class DriverMatchingServiceImplTest {
     public void selectDriverIdForRide_VehicleTypeMismatch_ReturnsNull() {
         Driver sedanDriver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(sedanDriver, false, 45.24, 19.83, null, null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
-        when(driverWorkLogRepository.findCompletedSince(eq(1L), any())).thenReturn(Collections.emptyList());
+        givenOnlineDrivers(state);
 
         request.setVehicleType("SUV");
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
@@ -87,8 +95,7 @@ public class DriverMatchingServiceImplTest {
     public void selectDriverIdForRide_NeedsBaby_DriverNotBabyFriendly_ReturnsNull() {
         Driver driver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(driver, false, 45.24, 19.83, null, null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
-        when(driverWorkLogRepository.findCompletedSince(eq(1L), any())).thenReturn(Collections.emptyList());
+        givenOnlineDrivers(state);
 
         request.setBabyTransport(true);
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
@@ -100,8 +107,7 @@ public class DriverMatchingServiceImplTest {
     public void selectDriverIdForRide_NeedsPet_DriverNotPetFriendly_ReturnsNull() {
         Driver driver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(driver, false, 45.24, 19.83, null, null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
-        when(driverWorkLogRepository.findCompletedSince(eq(1L), any())).thenReturn(Collections.emptyList());
+        givenOnlineDrivers(state);
 
         request.setPetTransport(true);
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
@@ -113,8 +119,7 @@ public class DriverMatchingServiceImplTest {
     public void selectDriverIdForRide_OneFreeDriver_ReturnsDriverId() {
         Driver driver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(driver, false, 45.24, 19.83, null, null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
-        when(driverWorkLogRepository.findCompletedSince(eq(1L), any())).thenReturn(Collections.emptyList());
+        givenOnlineDrivers(state);
 
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
 
@@ -127,12 +132,26 @@ public class DriverMatchingServiceImplTest {
         Driver driver2 = driver(2L, "SEDAN", false, false);
         DriverState state1 = driverState(driver1, false, 45.20, 19.80, null, null, null);
         DriverState state2 = driverState(driver2, false, 45.255, 19.845, null, null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state1, state2));
-        when(driverWorkLogRepository.findCompletedSince(any(), any())).thenReturn(Collections.emptyList());
+        givenOnlineDrivers(state1, state2);
+
+        Long result = driverMatchingService.selectDriverIdForRide(request, now);
+
+        assertThat(result).isEqualTo(2L);
+    }
+
+    @Test(description = "Should skip indexed driver that no longer exists and pick the next nearest")
+    public void selectDriverIdForRide_StaleIndexEntry_SkipsIt() {
+        Driver stale = driver(1L, "SEDAN", false, false);
+        Driver driver2 = driver(2L, "SEDAN", false, false);
+        DriverState staleState = driverState(stale, false, 45.251, 19.841, null, null, null);
+        DriverState state2 = driverState(driver2, false, 45.26, 19.85, null, null, null);
+        driverLocationIndex.rebuild(List.of(staleState, state2));
+        when(driverStateRepository.findAllWithDriverByIdIn(anyCollection())).thenReturn(List.of(state2));
 
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
 
         assertThat(result).isEqualTo(2L);
+        assertThat(driverLocationIndex.get(1L)).isEmpty();
     }
 
     @Test(description = "Should return null when driver has nextScheduledRideAt set")
@@ -140,7 +159,7 @@ public class DriverMatchingServiceImplTest {
         Driver driver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(driver, false, 45.24, 19.83, null, null, null);
         state.setNextScheduledRideAt(now.plusHours(1));
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
+        givenOnlineDrivers(state);
 
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
 
@@ -151,29 +170,36 @@ public class DriverMatchingServiceImplTest {
     public void selectDriverIdForRide_ExceededWorkLimit_ReturnsNull() {
         Driver driver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(driver, false, 45.24, 19.83, null, null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
+        givenOnlineDrivers(state);
         LocalDateTime since = now.minusHours(24);
-        DriverWorkLog longLog = DriverWorkLog.builder()
-                .driver(driver)
-                .startedAt(since)
-                .endedAt(since.plusHours(9))
-                .completed(true)
-                .createdAt(since)
-                .build();
-        when(driverWorkLogRepository.findCompletedSince(eq(1L), any())).thenReturn(List.of(longLog));
+        driverWorkTimeTracker.recordCompleted(1L, 10L, since, since.plusHours(9));
 
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
 
         assertThat(result).isNull();
     }
 
+    @Test(description = "Should return null when the work log shows 8h recorded on another instance")
+    public void selectDriverIdForRide_WorkRecordedElsewhere_ReturnsNull() {
+        Driver driver = driver(1L, "SEDAN", false, false);
+        DriverState state = driverState(driver, false, 45.24, 19.83, null, null, null);
+        givenOnlineDrivers(state);
+        LocalDateTime started = now.minusHours(20);
+        when(driverWorkLogRepository.findCompletedSegmentsOfDriverSince(eq(1L), any(LocalDateTime.class)))
+                .thenReturn(List.of(new DriverWorkSegmentDto(1L, 10L, started, started.plusHours(9))));
+
+        Long result = driverMatchingService.selectDriverIdForRide(request, now);
+
+        assertThat(result).isNull();
+        assertThat(driverWorkTimeTracker.workedMinutesSince(1L, now.minusHours(24))).isEqualTo(9 * 60L);
+    }
+
     @Test(description = "Should return busy driver when current ride ends within 10 min")
     public void selectDriverIdForRide_BusyDriver_EndsWithin10Min_ReturnsDriverId() {
         Driver driver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(driver, true, 45.24, 19.83,
                 now.plusMinutes(5), 45.26, 19.85);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
-        when(driverWorkLogRepository.findCompletedSince(eq(1L), any())).thenReturn(Collections.emptyList());
+        givenOnlineDrivers(state);
 
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
 
@@ -185,8 +211,7 @@ public class DriverMatchingServiceImplTest {
         Driver driver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(driver, true, 45.24, 19.83,
                 now.plusMinutes(15), null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
-        when(driverWorkLogRepository.findCompletedSince(eq(1L), any())).thenReturn(Collections.emptyList());
+        givenOnlineDrivers(state);
 
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
 
@@ -197,8 +222,7 @@ public class DriverMatchingServiceImplTest {
     public void selectDriverIdForRide_NullVehicleType_AcceptsDriver() {
         Driver driver = driver(1L, "SEDAN", false, false);
         DriverState state = driverState(driver, false, 45.24, 19.83, null, null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
-        when(driverWorkLogRepository.findCompletedSince(eq(1L), any())).thenReturn(Collections.emptyList());
+        givenOnlineDrivers(state);
 
         request.setVehicleType(null);
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
@@ -211,7 +235,7 @@ public class DriverMatchingServiceImplTest {
         Driver driver = driver(1L, "SEDAN", false, false);
         driver.setBlocked(true);
         DriverState state = driverState(driver, false, 45.24, 19.83, null, null, null);
-        when(driverStateRepository.findAllOnlineDrivers()).thenReturn(List.of(state));
+        givenOnlineDrivers(state);
 
         Long result = driverMatchingService.selectDriverIdForRide(request, now);
 
@@ -222,14 +246,7 @@ public class DriverMatchingServiceImplTest {
     public void hasExceededWorkLimit_Under8h_ReturnsFalse() {
         LocalDateTime since = now.minusHours(24);
         Driver driver = driver(1L, "SEDAN", false, false);
-        DriverWorkLog log = DriverWorkLog.builder()
-                .driver(driver)
-                .startedAt(since)
-                .endedAt(since.plusHours(4))
-                .completed(true)
-                .createdAt(since)
-                .build();
-        when(driverWorkLogRepository.findCompletedSince(1L, since)).thenReturn(List.of(log));
+        driverWorkTimeTracker.recordCompleted(1L, 10L, since, since.plusHours(4));
 
         boolean result = driverMatchingService.hasExceededWorkLimit(1L, now);
 
@@ -240,14 +257,7 @@ public class DriverMatchingServiceImplTest {
     public void hasExceededWorkLimit_Over8h_ReturnsTrue() {
         LocalDateTime since = now.minusHours(24);
         Driver driver = driver(1L, "SEDAN", false, false);
-        DriverWorkLog log = DriverWorkLog.builder()
-                .driver(driver)
-                .startedAt(since)
-                .endedAt(since.plusHours(9))
-                .completed(true)
-                .createdAt(since)
-                .build();
-        when(driverWorkLogRepository.findCompletedSince(1L, since)).thenReturn(List.of(log));
+        driverWorkTimeTracker.recordCompleted(1L, 10L, since, since.plusHours(9));
 
         boolean result = driverMatchingService.hasExceededWorkLimit(1L, now);
 
@@ -258,20 +268,50 @@ public class DriverMatchingServiceImplTest {
     public void hasExceededWorkLimit_Exactly8h_ReturnsFalse() {
         LocalDateTime since = now.minusHours(24);
         Driver driver = driver(1L, "SEDAN", false, false);
-        DriverWorkLog log = DriverWorkLog.builder()
-                .driver(driver)
-                .startedAt(since)
-                .endedAt(since.plusHours(8))
-                .completed(true)
-                .createdAt(since)
-                .build();
-        when(driverWorkLogRepository.findCompletedSince(1L, since)).thenReturn(List.of(log));
+        driverWorkTimeTracker.recordCompleted(1L, 10L, since, since.plusHours(8));
+
+        boolean result = driverMatchingService.hasExceededWorkLimit(1L, now);
+
+        assertThat(result).isFalse();
+    }
+
+    @Test(description = "hasExceededWorkLimit ignores work started more than 24h ago")
+    public void hasExceededWorkLimit_WorkOutsideWindow_ReturnsFalse() {
+        LocalDateTime since = now.minusHours(24);
+        driverWorkTimeTracker.recordCompleted(1L, 10L, since.minusHours(1), since.plusHours(8));
+        driverWorkTimeTracker.recordCompleted(1L, 11L, since.plusHours(9), since.plusHours(12));
+
+        boolean result = driverMatchingService.hasExceededWorkLimit(1L, now);
+
+        assertThat(result).isFalse();
+        assertThat(driverWorkTimeTracker.workedMinutesSince(1L, since)).isEqualTo(180L);
+    }
+
+    @Test(description = "workedMinutesSince keeps older segments after a shorter window was asked for")
+    public void workedMinutesSince_ShorterWindowFirst_KeepsOlderSegments() {
+        driverWorkTimeTracker.recordCompleted(1L, 10L, now.minusHours(20), now.minusHours(18));
+        driverWorkTimeTracker.recordCompleted(1L, 11L, now.minusHours(2), now.minusHours(1));
+
+        assertThat(driverWorkTimeTracker.workedMinutesSince(1L, now.minusHours(12))).isEqualTo(60L);
+        assertThat(driverWorkTimeTracker.workedMinutesSince(1L, now.minusHours(24))).isEqualTo(180L);
+    }
+
+    @Test(description = "hasExceededWorkLimit no longer counts a discarded work log")
+    public void hasExceededWorkLimit_DiscardedWorkLog_ReturnsFalse() {
+        LocalDateTime since = now.minusHours(24);
+        driverWorkTimeTracker.recordCompleted(1L, 10L, since.plusHours(1), since.plusHours(10));
+        driverWorkTimeTracker.discard(1L, 10L);
 
         boolean result = driverMatchingService.hasExceededWorkLimit(1L, now);
 
         assertThat(result).isFalse();
     }
 
+    private void givenOnlineDrivers(DriverState... states) {
+        driverLocationIndex.rebuild(List.of(states));
+        lenient().when(driverStateRepository.findAllWithDriverByIdIn(anyCollection())).thenReturn(List.of(states));
+    }
+
     private static Driver driver(Long id, String vehicleType, boolean babyFriendly, boolean petFriendly) {
         Driver d = new Driver();
         d.setId(id);
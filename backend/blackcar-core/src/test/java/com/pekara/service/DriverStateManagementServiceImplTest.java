@@ -0,0 +1,66 @@
+package com.pekara.service;
+
+import com.pekara.model.DriverState;
+import com.pekara.repository.DriverStateRepository;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.context.ApplicationEventPublisher;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for DriverStateManagementServiceImpl - reservations and the state change events they publish.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class DriverStateManagementServiceImplTest {
+
+    @Mock
+    private DriverStateRepository driverStateRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private DriverStateManagementServiceImpl driverStateManagementService;
+
+    @Test(description = "Should publish the reserved state read back after the update")
+    public void reserveForRide_Reserved_PublishesState() {
+        LocalDateTime now = LocalDateTime.of(2025, 2, 18, 12, 0);
+        DriverState state = DriverState.builder().id(1L).online(true).busy(true).currentRideEndsAt(now.plusMinutes(20)).build();
+        when(driverStateRepository.reserveForRide(eq(1L), eq(now.plusMinutes(20)), anyDouble(), anyDouble(), eq(now.plusMinutes(10)), any()))
+                .thenReturn(1);
+        when(driverStateRepository.findById(1L)).thenReturn(Optional.of(state));
+
+        boolean reserved = driverStateManagementService.reserveForRide(1L, 20, 45.27, 19.85, now);
+
+        assertThat(reserved).isTrue();
+        ArgumentCaptor<DriverStateChangedEvent> event = ArgumentCaptor.forClass(DriverStateChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().state()).isSameAs(state);
+    }
+
+    @Test(description = "Should publish nothing when another order reserved the driver first")
+    public void reserveForScheduledRide_NotReserved_PublishesNothing() {
+        LocalDateTime scheduledAt = LocalDateTime.of(2025, 2, 18, 14, 0);
+        when(driverStateRepository.reserveForScheduledRide(eq(1L), eq(scheduledAt), any())).thenReturn(0);
+
+        boolean reserved = driverStateManagementService.reserveForScheduledRide(1L, scheduledAt);
+
+        assertThat(reserved).isFalse();
+        verify(driverStateRepository, never()).findById(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+}
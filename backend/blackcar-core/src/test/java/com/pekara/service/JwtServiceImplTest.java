@@ -0,0 +1,126 @@
+package com.pekara.service;
+
+import com.pekara.service.JwtService.TokenPrincipal;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for JwtServiceImpl - single verification per token and the verified-token cache.
+ */
+public class JwtServiceImplTest {
+
+    private static final String SECRET = "testsecretkeytestsecretkeytestsecretkeytestsecretkey";
+    private static final long EXPIRATION_MS = Duration.ofHours(1).toMillis();
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private JwtServiceImpl jwtService;
+
+    @BeforeMethod
+    public void setUp() {
+        clock = new MutableClock();
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtServiceImpl(SECRET, EXPIRATION_MS, 100, meterRegistry, clock);
+    }
+
+    @Test(description = "Should verify a token once and serve repeat lookups from the cache")
+    public void authenticate_CachesVerifiedToken() {
+        String token = jwtService.generateToken("user@test.com", "PASSENGER");
+
+        Optional<TokenPrincipal> first = jwtService.authenticate(token);
+        Optional<TokenPrincipal> second = jwtService.authenticate(token);
+
+        assertThat(first).isPresent();
+        assertThat(first.get().email()).isEqualTo("user@test.com");
+        assertThat(first.get().role()).isEqualTo("PASSENGER");
+        assertThat(second).contains(first.get());
+        assertThat(meterRegistry.counter("jwt.cache.requests", "result", "miss").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("jwt.cache.requests", "result", "hit").count()).isEqualTo(1.0);
+    }
+
+    @Test(description = "Should reject a token signed with another key and not cache it")
+    public void authenticate_ForgedToken_Empty() {
+        JwtServiceImpl otherIssuer = new JwtServiceImpl("othersecretkeyothersecretkeyothersecretkeyothersecret",
+                EXPIRATION_MS, 100, new SimpleMeterRegistry(), clock);
+        String forged = otherIssuer.generateToken("admin@test.com", "ADMIN");
+
+        assertThat(jwtService.authenticate(forged)).isEmpty();
+        assertThat(jwtService.isTokenValid("not-a-token")).isFalse();
+        assertThat(jwtService.cachedTokens()).isZero();
+    }
+
+    @Test(description = "Should stop accepting a cached token once it expires")
+    public void authenticate_ExpiredToken_EvictedFromCache() {
+        String token = jwtService.generateToken("user@test.com", "DRIVER");
+        assertThat(jwtService.isTokenValid(token)).isTrue();
+
+        clock.advance(Duration.ofMinutes(61));
+
+        assertThat(jwtService.authenticate(token)).isEmpty();
+        assertThat(jwtService.cachedTokens()).isZero();
+        assertThatThrownBy(() -> jwtService.getEmailFromToken(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test(description = "Should evict the least recently used token when the cache is full")
+    public void authenticate_FullCache_EvictsEldest() {
+        JwtServiceImpl small = new JwtServiceImpl(SECRET, EXPIRATION_MS, 2, new SimpleMeterRegistry(), clock);
+        small.authenticate(small.generateToken("a@test.com", "PASSENGER"));
+        small.authenticate(small.generateToken("b@test.com", "PASSENGER"));
+        small.authenticate(small.generateToken("c@test.com", "PASSENGER"));
+
+        assertThat(small.cachedTokens()).isEqualTo(2);
+    }
+
+    @Test(description = "Should verify a token once however often it is presented, and every time when the cache is off")
+    public void authenticate_RepeatedToken_VerifiedOnce() {
+        SimpleMeterRegistry uncachedRegistry = new SimpleMeterRegistry();
+        JwtServiceImpl uncached = new JwtServiceImpl(SECRET, EXPIRATION_MS, 0, uncachedRegistry, clock);
+        String token = jwtService.generateToken("user@test.com", "PASSENGER");
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(jwtService.authenticate(token)).isPresent();
+            assertThat(uncached.authenticate(token)).isPresent();
+        }
+
+        assertThat(meterRegistry.counter("jwt.cache.requests", "result", "miss").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("jwt.cache.requests", "result", "hit").count()).isEqualTo(99.0);
+        assertThat(uncachedRegistry.counter("jwt.cache.requests", "result", "miss").count()).isEqualTo(100.0);
+        assertThat(uncached.cachedTokens()).isZero();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
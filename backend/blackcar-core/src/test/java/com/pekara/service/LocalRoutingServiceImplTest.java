@@ -0,0 +1,162 @@
+package com.pekara.service;
+
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.util.GeoUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for LocalRoutingServiceImpl and RoadGraph - A* over an in-memory road grid.
+ */
+public class LocalRoutingServiceImplTest {
+
+    private static final double STEP = 0.005;
+    private static final int SIZE = 10;
+
+    private RoadGraph graph;
+    private RouteCache routeCache;
+    private LocalRoutingServiceImpl routingService;
+
+    @BeforeMethod
+    public void setUp() {
+        // 10x10 street grid at 30 km/h with a 90 km/h avenue along the bottom row.
+        RoadGraph.Builder builder = RoadGraph.builder();
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                builder.addNode(45.0 + row * STEP, 19.0 + col * STEP);
+            }
+        }
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                if (col + 1 < SIZE) {
+                    builder.addRoad(node(row, col), node(row, col + 1), row == 0 ? 90 : 30);
+                }
+                if (row + 1 < SIZE) {
+                    builder.addRoad(node(row, col), node(row + 1, col), 30);
+                }
+            }
+        }
+        graph = builder.build();
+        routeCache = newRouteCache();
+        routingService = new LocalRoutingServiceImpl(routeCache, new SimpleMeterRegistry(), graph, 1.0);
+    }
+
+    @Test(description = "Should prefer the faster avenue over the shorter street route")
+    public void calculateRoute_PrefersFasterRoad() {
+        RouteDto route = routingService.calculateRoute(List.of(point(1, 0), point(1, 9)));
+
+        // Straight along row 1 takes 9 blocks at 30 km/h; dropping to the avenue adds two blocks but is faster.
+        assertThat(route.getRoutePoints()).hasSize(12);
+        assertThat(route.getRoutePoints().get(1).getLatitude()).isCloseTo(45.0, within(1e-9));
+        assertThat(route.getDistanceKm()).isCloseTo(2 * blockKm() + 9 * blockKmEastWest(), within(0.01));
+    }
+
+    @Test(description = "Should return the shortest path length on a uniform grid")
+    public void calculateRoute_UniformStreets_ManhattanDistance() {
+        RouteDto route = routingService.calculateRoute(List.of(point(3, 2), point(7, 5)));
+
+        assertThat(route.getRoutePoints()).hasSize(8);
+        assertThat(route.getRoutePoints().get(0).getLatitude()).isCloseTo(45.0 + 3 * STEP, within(1e-9));
+        assertThat(route.getDistanceKm()).isCloseTo(4 * blockKm() + 3 * blockKmEastWest(), within(0.01));
+    }
+
+    @Test(description = "Should chain legs through intermediate stops without duplicating the stop point")
+    public void calculateRoute_WithStop_ConcatenatesLegs() {
+        RouteDto direct = routingService.calculateRoute(List.of(point(2, 2), point(2, 6)));
+        RouteDto viaStop = routingService.calculateRoute(List.of(point(2, 2), point(5, 4), point(2, 6)));
+
+        assertThat(viaStop.getDistanceKm()).isGreaterThan(direct.getDistanceKm());
+        assertThat(viaStop.getRoutePoints()).hasSize(3 + 2 + 3 + 2 + 1);
+    }
+
+    @Test(description = "Should fall back to the straight-line estimate outside the graph")
+    public void calculateRoute_OutsideGraph_FallsBack() {
+        LocationPointDto farAway = LocationPointDto.builder().latitude(44.0).longitude(20.5).build();
+
+        RouteDto route = routingService.calculateRoute(List.of(point(0, 0), farAway));
+
+        assertThat(route.getRoutePoints()).hasSize(2);
+    }
+
+    @Test(description = "Should serve a repeated route from the route cache")
+    public void calculateRoute_Repeated_ServedFromCache() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LocalRoutingServiceImpl service = new LocalRoutingServiceImpl(routeCache, registry, graph, 1.0);
+
+        RouteDto first = service.calculateRoute(List.of(point(3, 2), point(7, 5)));
+        RouteDto second = service.calculateRoute(List.of(point(3, 2), point(7, 5)));
+
+        assertThat(second.getDistanceKm()).isEqualTo(first.getDistanceKm());
+        assertThat(second.getRoutePoints()).hasSameSizeAs(first.getRoutePoints());
+        assertThat(registry.get("routing.route.duration").timer().count()).isEqualTo(1);
+    }
+
+    @Test(description = "Should not cache the straight-line fallback")
+    public void calculateRoute_Fallback_NotCached() {
+        LocationPointDto farAway = LocationPointDto.builder().latitude(44.0).longitude(20.5).build();
+
+        routingService.calculateRoute(List.of(point(0, 0), farAway));
+
+        assertThat(routeCache.get(List.of(point(0, 0), farAway))).isEmpty();
+    }
+
+    @Test(description = "Should reject fewer than two waypoints")
+    public void calculateRoute_SingleWaypoint_Throws() {
+        assertThatThrownBy(() -> routingService.calculateRoute(List.of(point(0, 0))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test(description = "Should read back the same graph it writes")
+    public void roadGraph_WriteRead_RoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        graph.write(out);
+
+        RoadGraph copy = RoadGraph.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(copy.nodeCount()).isEqualTo(graph.nodeCount());
+        assertThat(copy.edgeCount()).isEqualTo(graph.edgeCount());
+        assertThat(copy.nearestNode(45.0 + 4 * STEP + 0.0004, 19.0 + 6 * STEP - 0.0003, 1.0)).isEqualTo(node(4, 6));
+        assertThat(new LocalRoutingServiceImpl(newRouteCache(), new SimpleMeterRegistry(), copy, 1.0)
+                .calculateRoute(List.of(point(3, 2), point(7, 5))).getDistanceKm())
+                .isCloseTo(routingService.calculateRoute(List.of(point(3, 2), point(7, 5))).getDistanceKm(), within(1e-6));
+    }
+
+    @Test(description = "Should reject files that are not road graphs")
+    public void roadGraph_InvalidFile_Throws() {
+        assertThatThrownBy(() -> RoadGraph.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8})))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static RouteCache newRouteCache() {
+        return new RouteCacheImpl(null, new SimpleMeterRegistry(), Clock.systemUTC(), 100, Duration.ofMinutes(10), 4, false);
+    }
+
+    private static int node(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    private static LocationPointDto point(int row, int col) {
+        return LocationPointDto.builder().latitude(45.0 + row * STEP).longitude(19.0 + col * STEP).build();
+    }
+
+    private static double blockKm() {
+        return GeoUtils.haversineKm(45.0, 19.0, 45.0 + STEP, 19.0);
+    }
+
+    private static double blockKmEastWest() {
+        return GeoUtils.haversineKm(45.0, 19.0, 45.0, 19.0 + STEP);
+    }
+}
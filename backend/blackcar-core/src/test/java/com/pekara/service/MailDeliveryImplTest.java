@@ -0,0 +1,267 @@
+package com.pekara.service;
+
+import com.pekara.model.MailRetry;
+import com.pekara.repository.MailRetryRepository;
+import com.pekara.service.MailDelivery.OutgoingMail;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for MailDeliveryImpl - batching over one SMTP connection and the retry table,
+ * against a minimal in-process SMTP server.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class MailDeliveryImplTest {
+
+    @Mock
+    private MailRetryRepository mailRetryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private FakeSmtpServer smtp;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MailDeliveryImpl delivery;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        smtp = new FakeSmtpServer();
+        meterRegistry = new SimpleMeterRegistry();
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.port());
+        delivery = new MailDeliveryImpl(mailSender, mailRetryRepository, transactionManager, meterRegistry,
+                "noreply@blackcar.com", 1, 100, 50, Duration.ofSeconds(30), 3, Duration.ofSeconds(30), 10, Duration.ofDays(7));
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        delivery.shutdown();
+        smtp.close();
+    }
+
+    @Test(description = "Should send a whole batch over a single SMTP connection")
+    public void enqueue_SendsBatchOverOneConnection() throws Exception {
+        int count = 40;
+        for (int i = 0; i < count; i++) {
+            delivery.enqueue(new OutgoingMail("user" + i + "@test.com", "Subject " + i, "Body " + i));
+        }
+
+        delivery.start();
+        // The server sees the last message just before the worker counts it as sent.
+        await(() -> smtp.messages.get() == count && meterRegistry.counter("mail.sent").count() == count);
+
+        assertThat(smtp.connections.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter("mail.connections").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("mail.sent").count()).isEqualTo(count);
+        verify(mailRetryRepository, never()).save(any());
+    }
+
+    @Test(description = "Should store a rejected email for retry and keep sending the rest")
+    public void enqueue_RejectedRecipient_SavedForRetry() throws Exception {
+        delivery.enqueue(new OutgoingMail("first@test.com", "First", "Body"));
+        delivery.enqueue(new OutgoingMail("bad@test.com", "Second", "Body"));
+        delivery.enqueue(new OutgoingMail("third@test.com", "Third", "Body"));
+
+        delivery.start();
+        await(() -> smtp.messages.get() == 2 && meterRegistry.counter("mail.failed").count() == 1.0);
+
+        ArgumentCaptor<MailRetry> retry = ArgumentCaptor.forClass(MailRetry.class);
+        verify(mailRetryRepository).save(retry.capture());
+        assertThat(retry.getValue().getRecipient()).isEqualTo("bad@test.com");
+        assertThat(retry.getValue().getAttempts()).isEqualTo(1);
+        assertThat(retry.getValue().getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(20));
+        assertThat(smtp.connections.get()).isEqualTo(1);
+    }
+
+    @Test(description = "Should store an email with a malformed address as dead and keep the connection for the rest")
+    public void enqueue_MalformedAddress_StoredAsDead() throws Exception {
+        delivery.enqueue(new OutgoingMail("first@test.com", "First", "Body"));
+        delivery.enqueue(new OutgoingMail("not an address", "Second", "Body"));
+        delivery.enqueue(new OutgoingMail("third@test.com", "Third", "Body"));
+
+        delivery.start();
+        await(() -> meterRegistry.counter("mail.sent").count() == 2.0 && meterRegistry.counter("mail.failed").count() == 1.0);
+
+        ArgumentCaptor<MailRetry> retry = ArgumentCaptor.forClass(MailRetry.class);
+        verify(mailRetryRepository).save(retry.capture());
+        assertThat(retry.getValue().getRecipient()).isEqualTo("not an address");
+        assertThat(retry.getValue().getAttempts()).isEqualTo(3);
+        assertThat(retry.getValue().getLastError()).startsWith("Invalid address");
+        assertThat(smtp.messages.get()).isEqualTo(2);
+        assertThat(smtp.connections.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter("mail.connections").count()).isEqualTo(1.0);
+    }
+
+    @Test(description = "Should delete retry rows that ran out of attempts before the dead retention")
+    public void purgeDead_DeletesOldDeadRows() {
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(mailRetryRepository.deleteDeadBefore(eq(3), before.capture())).thenReturn(2);
+
+        assertThat(delivery.purgeDead()).isEqualTo(2);
+        assertThat(before.getValue()).isBefore(LocalDateTime.now().minusDays(6));
+    }
+
+    @Test(description = "Should save an email to the retry table instead of dropping it when the queue is full")
+    public void enqueue_QueueFull_SavedForRetry() {
+        meterRegistry = new SimpleMeterRegistry();
+        delivery = new MailDeliveryImpl(new JavaMailSenderImpl(), mailRetryRepository, transactionManager, meterRegistry,
+                "noreply@blackcar.com", 1, 1, 50, Duration.ofSeconds(30), 3, Duration.ofSeconds(30), 10, Duration.ofDays(7));
+
+        delivery.enqueue(new OutgoingMail("first@test.com", "First", "Body"));
+        delivery.enqueue(new OutgoingMail("second@test.com", "Second", "Body"));
+
+        ArgumentCaptor<MailRetry> retry = ArgumentCaptor.forClass(MailRetry.class);
+        verify(mailRetryRepository).save(retry.capture());
+        assertThat(retry.getValue().getRecipient()).isEqualTo("second@test.com");
+        assertThat(retry.getValue().getAttempts()).isZero();
+    }
+
+    @Test(description = "Should lease due retries, send them and delete the rows once delivered")
+    public void retryDue_SendsAndDeletesRow() throws Exception {
+        MailRetry row = MailRetry.builder()
+                .id(5L)
+                .recipient("retry@test.com")
+                .subject("Retry")
+                .body("Body")
+                .attempts(2)
+                .nextAttemptAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+        when(mailRetryRepository.lockDue(any(LocalDateTime.class), eq(3), any(Pageable.class))).thenReturn(List.of(row));
+
+        int queued = delivery.retryDue();
+        assertThat(queued).isEqualTo(1);
+        assertThat(row.getNextAttemptAt()).isAfter(LocalDateTime.now().plusMinutes(1));
+
+        delivery.start();
+        await(() -> meterRegistry.counter("mail.sent").count() == 1.0);
+        await(() -> {
+            try {
+                verify(mailRetryRepository).deleteById(5L);
+                return true;
+            } catch (AssertionError e) {
+                return false;
+            }
+        });
+        assertThat(smtp.messages.get()).isEqualTo(1);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 10 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Just enough SMTP to accept mail: every command gets a 250, DATA is read up to the closing dot,
+     * and recipients starting with {@code bad@} are rejected with a 550.
+     */
+    private static final class FakeSmtpServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger messages = new AtomicInteger();
+
+        private FakeSmtpServer() throws IOException {
+            Thread acceptor = new Thread(this::acceptLoop, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread session = new Thread(() -> serve(socket), "fake-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                 OutputStream raw = socket.getOutputStream();
+                 PrintStream out = new PrintStream(raw, true, StandardCharsets.US_ASCII)) {
+                reply(out, "220 localhost ESMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase(Locale.ROOT);
+                    if (command.startsWith("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // message content is not inspected
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("RCPT") && command.contains("<BAD@")) {
+                        reply(out, "550 No such user");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException e) {
+                // client went away
+            }
+        }
+
+        private static void reply(PrintStream out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
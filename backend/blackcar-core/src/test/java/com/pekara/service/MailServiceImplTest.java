@@ -0,0 +1,59 @@
+package com.pekara.service;
+
+import com.pekara.service.MailDelivery.OutgoingMail;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for MailServiceImpl - template rendering and hand-off to delivery.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class MailServiceImplTest {
+
+    @Mock
+    private MailDelivery mailDelivery;
+
+    @InjectMocks
+    private MailServiceImpl mailService;
+
+    @BeforeMethod
+    public void setUp() {
+        ReflectionTestUtils.setField(mailService, "frontendUrl", "http://localhost:4200");
+    }
+
+    @Test(description = "Should render the completion template and queue it")
+    public void sendRideCompleted_QueuesRenderedMail() {
+        mailService.sendRideCompleted("p@test.com", 12L, new BigDecimal("450.00"));
+
+        ArgumentCaptor<OutgoingMail> mail = ArgumentCaptor.forClass(OutgoingMail.class);
+        verify(mailDelivery).enqueue(mail.capture());
+        assertThat(mail.getValue().recipient()).isEqualTo("p@test.com");
+        assertThat(mail.getValue().subject()).isEqualTo("Ride #12 Completed");
+        assertThat(mail.getValue().body())
+                .startsWith("Your ride has been completed!\n\nRide ID: 12\nFinal Price: 450.00 RSD\n")
+                .contains("http://localhost:4200/rides/12/track\n")
+                .endsWith("Best regards,\nBlackCar Team");
+    }
+
+    @Test(description = "Should render missing values the way string concatenation did")
+    public void sendRideOrderRejected_NullReason() {
+        mailService.sendRideOrderRejected("p@test.com", null);
+
+        ArgumentCaptor<OutgoingMail> mail = ArgumentCaptor.forClass(OutgoingMail.class);
+        verify(mailDelivery).enqueue(mail.capture());
+        assertThat(mail.getValue().subject()).isEqualTo("Ride Order Rejected");
+        assertThat(mail.getValue().body()).contains("Reason: null\n");
+        assertThat(mail.getValue().retryId()).isNull();
+    }
+}
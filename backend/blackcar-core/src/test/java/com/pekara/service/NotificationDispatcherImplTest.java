@@ -0,0 +1,133 @@
+package com.pekara.service;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.Message;
+import com.pekara.dto.UserDeviceTokenDto;
+import com.pekara.repository.UserRepository;
+import com.pekara.service.NotificationDispatcher.Mail;
+import com.pekara.service.NotificationDispatcher.Push;
+import com.pekara.service.NotificationDispatcher.Socket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for NotificationDispatcherImpl - after-commit fan-out, bulk token lookup and FCM batching.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class NotificationDispatcherImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private FcmGateway fcmGateway;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private NotificationDispatcherImpl dispatcher;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(fcmGateway.isAvailable()).thenReturn(true);
+        dispatcher = new NotificationDispatcherImpl(userRepository, messagingTemplate, fcmGateway, meterRegistry, 1, 1, 10);
+    }
+
+    @Test(description = "Should resolve all device tokens with one query and send the pushes in one batch")
+    public void dispatch_ResolvesTokensInBulk() throws Exception {
+        when(userRepository.findDeviceTokensByEmails(Set.of("a@test.com", "b@test.com", "c@test.com")))
+                .thenReturn(List.of(new UserDeviceTokenDto("a@test.com", "token-a"),
+                        new UserDeviceTokenDto("b@test.com", "token-b")));
+        BatchResponse response = mock(BatchResponse.class);
+        when(response.getSuccessCount()).thenReturn(3);
+        when(response.getResponses()).thenReturn(List.of());
+        when(fcmGateway.sendEach(anyList())).thenReturn(response);
+        AtomicInteger mails = new AtomicInteger();
+
+        dispatcher.dispatch(List.of(
+                new Mail("a@test.com", mails::incrementAndGet),
+                new Push("a@test.com", "Ride", "Assigned", Map.of("type", "ASSIGNED")),
+                new Push("b@test.com", "Ride", "Accepted", Map.of()),
+                new Push("c@test.com", "Ride", "No token", Map.of()),
+                new Push("admin@test.com", "token-admin", "Panic", "Ride #1", Map.of()),
+                new Socket("/topic/notifications/a@test.com", "payload")));
+        dispatcher.shutdown();
+
+        assertThat(mails.get()).isEqualTo(1);
+        verify(messagingTemplate).convertAndSend("/topic/notifications/a@test.com", (Object) "payload");
+        ArgumentCaptor<List<Message>> batch = ArgumentCaptor.forClass(List.class);
+        verify(fcmGateway).sendEach(batch.capture());
+        assertThat(batch.getValue()).hasSize(3);
+        assertThat(meterRegistry.counter("notification.sent", "channel", "push").count()).isEqualTo(3.0);
+        assertThat(meterRegistry.timer("notification.latency", "channel", "socket").count()).isEqualTo(1L);
+    }
+
+    @Test(description = "Should hold notifications until commit and drop them on rollback")
+    public void dispatch_RolledBack_SendsNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            dispatcher.dispatch(List.of(new Socket("/topic/notifications/a@test.com", "payload")));
+            verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        dispatcher.shutdown();
+
+        verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @Test(description = "Should send rejection notifications even though the transaction rolls back")
+    public void dispatchAfterCompletion_RolledBack_Sends() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            dispatcher.dispatchAfterCompletion(List.of(new Socket("/topic/notifications/a@test.com", "rejected")));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        dispatcher.shutdown();
+
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/notifications/a@test.com", (Object) "rejected");
+    }
+
+    @Test(description = "Should skip the token lookup when Firebase is not configured")
+    public void dispatch_FirebaseUnavailable_SkipsPushes() throws Exception {
+        when(fcmGateway.isAvailable()).thenReturn(false);
+
+        dispatcher.dispatch(List.of(new Push("a@test.com", "Ride", "Assigned", Map.of())));
+        dispatcher.shutdown();
+
+        verify(userRepository, never()).findDeviceTokensByEmails(any());
+        verify(fcmGateway, never()).sendEach(anyList());
+    }
+}
@@ -0,0 +1,98 @@
+package com.pekara.service;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for OsmRoadGraphConverter - building the local routing graph from an OSM XML extract.
+ */
+public class OsmRoadGraphConverterTest {
+
+    private static final String EXTRACT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <osm version="0.6">
+              <node id="1" lat="45.2500" lon="19.8300"/>
+              <node id="2" lat="45.2500" lon="19.8400"/>
+              <node id="3" lat="45.2600" lon="19.8400">
+                <tag k="highway" v="traffic_signals"/>
+              </node>
+              <node id="4" lat="45.2700" lon="19.8400"/>
+              <node id="5" lat="45.3000" lon="19.9000"/>
+              <way id="10">
+                <nd ref="1"/><nd ref="2"/>
+                <tag k="highway" v="residential"/>
+              </way>
+              <way id="11">
+                <nd ref="2"/><nd ref="3"/>
+                <tag k="highway" v="primary"/>
+                <tag k="oneway" v="yes"/>
+                <tag k="maxspeed" v="50"/>
+              </way>
+              <way id="12">
+                <nd ref="3"/><nd ref="4"/>
+                <tag k="highway" v="footway"/>
+              </way>
+              <way id="13">
+                <nd ref="4"/><nd ref="5"/>
+                <tag k="highway" v="service"/>
+                <tag k="access" v="private"/>
+              </way>
+            </osm>
+            """;
+
+    @Test(description = "Should keep only drivable ways and the nodes they use")
+    public void convert_MixedWays_KeepsDrivableOnes() throws IOException {
+        RoadGraph graph = OsmRoadGraphConverter.convert(write(".osm"));
+
+        assertThat(graph.nodeCount()).isEqualTo(3);
+        // Two-way residential street plus the one-way primary road.
+        assertThat(graph.edgeCount()).isEqualTo(3);
+        // Node 4 is only used by the footway and the private service road.
+        assertThat(graph.nearestNode(45.27, 19.84, 0.5)).isEqualTo(-1);
+    }
+
+    @Test(description = "Should route along one-way roads only in their direction")
+    public void convert_OnewayRoad_SingleDirection() throws IOException {
+        RoadGraph graph = OsmRoadGraphConverter.convert(write(".osm.gz"));
+        int second = graph.nearestNode(45.25, 19.84, 0.1);
+        int third = graph.nearestNode(45.26, 19.84, 0.1);
+
+        assertThat(graph.endEdge(third) - graph.firstEdge(third)).isZero();
+        int edge = graph.firstEdge(second);
+        while (graph.edgeTarget(edge) != third) {
+            edge++;
+        }
+        assertThat(graph.edgeDurationSeconds(edge)).isCloseTo(graph.edgeLengthMeters(edge) / (50 / 3.6), within(0.01));
+    }
+
+    @Test(description = "Should read numeric maxspeed values and keep the default for anything else")
+    public void parseSpeed_Values() {
+        assertThat(OsmRoadGraphConverter.parseSpeed("60", 30)).isEqualTo(60.0);
+        assertThat(OsmRoadGraphConverter.parseSpeed("30 mph", 30)).isCloseTo(48.28, within(0.01));
+        assertThat(OsmRoadGraphConverter.parseSpeed("RS:urban", 30)).isEqualTo(30.0);
+        assertThat(OsmRoadGraphConverter.parseSpeed(null, 40)).isEqualTo(40.0);
+    }
+
+    private static Path write(String suffix) throws IOException {
+        Path file = Files.createTempFile("extract", suffix);
+        file.toFile().deleteOnExit();
+        byte[] content = EXTRACT.strip().getBytes(StandardCharsets.UTF_8);
+        if (suffix.endsWith(".gz")) {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+                out.write(content);
+            }
+        } else {
+            Files.write(file, content);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,217 @@
+package com.pekara.service;
+
+import com.pekara.model.Driver;
+import com.pekara.model.DriverLocationSnapshot;
+import com.pekara.model.DriverState;
+import com.pekara.repository.DriverStateRepository;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RedisDriverLocationIndex - GEO set per vehicle type and availability.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class RedisDriverLocationIndexTest {
+
+    private static final Duration TTL = Duration.ofHours(12);
+
+    @Mock
+    private DriverStateRepository driverStateRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private GeoOperations<String, String> geoOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private RedisTemplate<String, DriverLocationSnapshot> driverPresenceRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, DriverLocationSnapshot> presenceOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private RedisDriverLocationIndex index;
+
+    @BeforeMethod
+    public void setUp() {
+        lenient().when(redisTemplate.opsForGeo()).thenReturn(geoOperations);
+        lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<?>>getArgument(0).execute(redisTemplate);
+            return List.of();
+        });
+        lenient().when(driverPresenceRedisTemplate.opsForValue()).thenReturn(presenceOperations);
+        when(driverPresenceRedisTemplate.getValueSerializer())
+                .thenAnswer(invocation -> new Jackson2JsonRedisSerializer<>(DriverLocationSnapshot.class));
+        index = new RedisDriverLocationIndex(driverStateRepository, redisTemplate, driverPresenceRedisTemplate, TTL);
+    }
+
+    @Test(description = "Should add a new online driver to the GEO set of its vehicle type")
+    public void upsert_NewDriver_AddsToTypeSet() {
+        index.upsert(state(1L, "sedan", false, 45.25, 19.84));
+
+        String key = RedisDriverLocationIndex.geoKey("SEDAN", false);
+        assertThat(key).isEqualTo("drivers:geo:SEDAN:free");
+        verify(valueOperations).set(eq("drivers:presence:1"), contains("\"driverId\":1"), eq(TTL));
+        verify(setOperations).add(RedisDriverLocationIndex.ONLINE_KEY, "1");
+        verify(setOperations).add(RedisDriverLocationIndex.GEO_SETS_KEY, key);
+        verify(geoOperations).add(key, new Point(19.84, 45.25), "1");
+    }
+
+    @Test(description = "Should move a driver to the busy set and keep its live position")
+    public void upsert_BecomesBusy_MovesBetweenSets() {
+        DriverLocationSnapshot previous = DriverLocationSnapshot.builder()
+                .driverId(1L).vehicleType("SEDAN").busy(false).latitude(45.26).longitude(19.85).build();
+        when(presenceOperations.get("drivers:presence:1")).thenReturn(previous);
+
+        index.upsert(state(1L, "SEDAN", true, 45.20, 19.80));
+
+        verify(geoOperations).remove("drivers:geo:SEDAN:free", "1");
+        verify(geoOperations).add("drivers:geo:SEDAN:busy", new Point(19.85, 45.26), "1");
+    }
+
+    @Test(description = "Should drop an offline driver from every structure")
+    public void upsert_Offline_Removes() {
+        DriverLocationSnapshot previous = DriverLocationSnapshot.builder()
+                .driverId(1L).vehicleType("SEDAN").busy(false).latitude(45.26).longitude(19.85).build();
+        when(presenceOperations.get("drivers:presence:1")).thenReturn(previous);
+        DriverState state = state(1L, "SEDAN", false, 45.26, 19.85);
+        state.setOnline(false);
+
+        index.upsert(state);
+
+        verify(geoOperations).remove("drivers:geo:SEDAN:free", "1");
+        verify(setOperations).remove(RedisDriverLocationIndex.ONLINE_KEY, "1");
+        verify(redisTemplate).delete("drivers:presence:1");
+        verify(valueOperations, never()).set(any(), any(), any(Duration.class));
+    }
+
+    @Test(description = "Should search only the requested type and availability and merge by distance")
+    public void findNearest_WithHints_SearchesMatchingSets() {
+        when(geoOperations.search(eq("drivers:geo:SEDAN:free"), any(), any(Distance.class), any()))
+                .thenReturn(results(location("2", 1.5), location("3", 4.0)));
+        when(geoOperations.search(eq("drivers:geo:unknown:free"), any(), any(Distance.class), any()))
+                .thenReturn(results(location("5", 0.5)));
+        when(presenceOperations.multiGet(anyList())).thenAnswer(invocation -> ((List<String>) invocation.getArgument(0))
+                .stream()
+                .map(key -> DriverLocationSnapshot.builder()
+                        .driverId(Long.valueOf(key.substring(key.lastIndexOf(':') + 1)))
+                        .build())
+                .toList());
+        when(setOperations.members(RedisDriverLocationIndex.UNLOCATED_KEY)).thenReturn(Set.of());
+
+        List<DriverLocationSnapshot> result = index.findNearest(45.25, 19.84, 5, "SEDAN", false,
+                snapshot -> snapshot.getDriverId() != 3L);
+
+        assertThat(result).extracting(DriverLocationSnapshot::getDriverId).containsExactly(5L, 2L);
+        verify(geoOperations, never()).search(eq("drivers:geo:SEDAN:busy"), any(), any(Distance.class), any());
+    }
+
+    @Test(description = "Should drop set members whose presence has expired while searching")
+    public void findNearest_ExpiredPresence_DropsMember() {
+        when(geoOperations.search(eq("drivers:geo:SEDAN:free"), any(), any(Distance.class), any()))
+                .thenReturn(results(location("2", 1.5), location("7", 2.0)));
+        when(presenceOperations.multiGet(List.of("drivers:presence:2", "drivers:presence:7")))
+                .thenReturn(Arrays.asList(DriverLocationSnapshot.builder().driverId(2L).build(), null));
+        when(setOperations.members(RedisDriverLocationIndex.UNLOCATED_KEY)).thenReturn(Set.of());
+
+        List<DriverLocationSnapshot> result = index.findNearest(45.25, 19.84, 5, "SEDAN", false, snapshot -> true);
+
+        assertThat(result).extracting(DriverLocationSnapshot::getDriverId).containsExactly(2L);
+        verify(geoOperations).remove("drivers:geo:SEDAN:free", "7");
+        verify(setOperations).remove(RedisDriverLocationIndex.ONLINE_KEY, "7");
+    }
+
+    @Test(description = "Should read the snapshots of many drivers in one MGET")
+    public void getAll_ReadsInOneCall() {
+        when(presenceOperations.multiGet(List.of("drivers:presence:1", "drivers:presence:2")))
+                .thenReturn(Arrays.asList(DriverLocationSnapshot.builder().driverId(1L).build(), null));
+
+        assertThat(index.getAll(List.of(1L, 2L))).containsOnlyKeys(1L);
+        verify(presenceOperations, never()).get(any());
+    }
+
+    @Test(description = "Should log and skip a write that Redis fails")
+    public void upsert_RedisDown_DoesNotThrow() {
+        when(presenceOperations.get("drivers:presence:1")).thenThrow(new RedisConnectionFailureException("down"));
+
+        index.upsert(state(1L, "SEDAN", false, 45.25, 19.84));
+
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test(description = "Should remove drivers that are no longer online when reconciling")
+    public void rebuild_RemovesStaleDrivers() {
+        when(setOperations.members(RedisDriverLocationIndex.ONLINE_KEY)).thenReturn(Set.of("1", "9"));
+
+        index.rebuild(List.of(state(1L, "SEDAN", false, 45.25, 19.84)));
+
+        verify(setOperations).remove(RedisDriverLocationIndex.ONLINE_KEY, "9");
+        verify(redisTemplate).delete("drivers:presence:9");
+        verify(redisTemplate, never()).delete("drivers:presence:1");
+    }
+
+    @SafeVarargs
+    private static GeoResults<RedisGeoCommands.GeoLocation<String>> results(
+            GeoResult<RedisGeoCommands.GeoLocation<String>>... results) {
+        return new GeoResults<>(Arrays.asList(results), Metrics.KILOMETERS);
+    }
+
+    private static GeoResult<RedisGeoCommands.GeoLocation<String>> location(String member, double km) {
+        return new GeoResult<>(new RedisGeoCommands.GeoLocation<>(member, new Point(19.84, 45.25)),
+                new Distance(km, Metrics.KILOMETERS));
+    }
+
+    private static DriverState state(Long id, String vehicleType, boolean busy, double lat, double lon) {
+        Driver driver = new Driver();
+        driver.setId(id);
+        driver.setVehicleType(vehicleType);
+        DriverState state = new DriverState();
+        state.setId(id);
+        state.setDriver(driver);
+        state.setOnline(true);
+        state.setBusy(busy);
+        state.setLatitude(lat);
+        state.setLongitude(lon);
+        return state;
+    }
+}
@@ -0,0 +1,185 @@
+package com.pekara.service;
+
+import com.pekara.dto.RideStatsTotalsDto;
+import com.pekara.dto.response.RideStatsDayDto;
+import com.pekara.dto.response.RideStatsResponse;
+import com.pekara.model.RideDailyStats;
+import com.pekara.repository.RideDailyStatsRepository;
+import com.pekara.repository.RideRepository;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RideDailyStatsServiceImpl - range reads, rebuilds and the backfill.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class RideDailyStatsServiceImplTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private RideDailyStatsRepository rideDailyStatsRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RideDailyStatsServiceImpl service;
+
+    @BeforeMethod
+    public void setUp() {
+        service = new RideDailyStatsServiceImpl(rideRepository, rideDailyStatsRepository, transactionManager, 2);
+    }
+
+    @Test(description = "Should read closed days from the rollup and compute today from the rides table")
+    public void getStats_MergesRollupWithToday() {
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+        when(rideDailyStatsRepository.findLastRolledUpDay()).thenReturn(yesterday);
+        when(rideDailyStatsRepository.findRange(RideDailyStats.Scope.DRIVER, 3L, yesterday, yesterday))
+                .thenReturn(List.of(RideDailyStats.builder()
+                        .statDate(yesterday)
+                        .scope(RideDailyStats.Scope.DRIVER)
+                        .subjectId(3L)
+                        .rideCount(2L)
+                        .distanceKm(10.0)
+                        .amount(new BigDecimal("800.00"))
+                        .build()));
+        when(rideRepository.sumCompletedForDriver(3L, today.atStartOfDay(), today.plusDays(1).atStartOfDay()))
+                .thenReturn(new RideStatsTotalsDto(1L, 4.0, new BigDecimal("300.00")));
+
+        RideStatsResponse response = service.getStats(RideDailyStats.Scope.DRIVER, 3L,
+                yesterday.atStartOfDay(), today.atTime(23, 59));
+
+        assertThat(response.getDailyData()).hasSize(2);
+        assertThat(response.getTotalRides()).isEqualTo(3L);
+        assertThat(response.getTotalDistanceKm()).isEqualTo(14.0);
+        assertThat(response.getTotalAmount()).isEqualByComparingTo("1100.00");
+        assertThat(response.getAvgAmountPerDay()).isEqualByComparingTo("550.00");
+    }
+
+    @Test(description = "Should sum days after the last rolled-up one live, before the nightly rebuild has run")
+    public void getStats_DayNotRolledUpYet_SummedLive() {
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+        when(rideDailyStatsRepository.findLastRolledUpDay()).thenReturn(yesterday.minusDays(1));
+        when(rideDailyStatsRepository.findRange(RideDailyStats.Scope.GLOBAL, RideDailyStats.GLOBAL_SUBJECT,
+                yesterday.minusDays(1), yesterday.minusDays(1))).thenReturn(List.of());
+        when(rideRepository.sumCompleted(yesterday.atStartOfDay(), today.atStartOfDay()))
+                .thenReturn(new RideStatsTotalsDto(2L, 6.0, new BigDecimal("500.00")));
+        when(rideRepository.sumCompleted(today.atStartOfDay(), today.plusDays(1).atStartOfDay()))
+                .thenReturn(new RideStatsTotalsDto(1L, 4.0, new BigDecimal("300.00")));
+
+        RideStatsResponse response = service.getStats(RideDailyStats.Scope.GLOBAL, null,
+                yesterday.minusDays(1).atStartOfDay(), today.plusDays(1).atStartOfDay());
+
+        assertThat(response.getDailyData()).extracting(RideStatsDayDto::getRideCount).containsExactly(0L, 2L, 1L, 0L);
+        assertThat(response.getTotalRides()).isEqualTo(3L);
+    }
+
+    @Test(description = "Should lock the day's GLOBAL row, then replace its subject rows with fresh totals")
+    public void rebuild_RewritesDay() {
+        LocalDate day = LocalDate.of(2026, 3, 10);
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        RideDailyStats global = RideDailyStats.builder()
+                .statDate(day).scope(RideDailyStats.Scope.GLOBAL).subjectId(RideDailyStats.GLOBAL_SUBJECT)
+                .rideCount(5L).distanceKm(20.0).amount(new BigDecimal("1500.00")).build();
+        when(rideDailyStatsRepository.lockGlobalRow(day)).thenReturn(Optional.of(global));
+        when(rideRepository.sumCompleted(from, to)).thenReturn(new RideStatsTotalsDto(2L, 9.0, new BigDecimal("700.00")));
+        when(rideRepository.sumCompletedByDriver(from, to))
+                .thenReturn(List.of(new RideStatsTotalsDto(3L, 2L, 9.0, new BigDecimal("700.00"))));
+        when(rideRepository.sumCompletedByPassenger(from, to)).thenReturn(List.of(
+                new RideStatsTotalsDto(7L, 1L, 4.0, new BigDecimal("300.00")),
+                new RideStatsTotalsDto(8L, 1L, 5.0, new BigDecimal("400.00"))));
+
+        int written = service.rebuild(day, day);
+
+        assertThat(written).isEqualTo(4);
+        InOrder order = inOrder(rideDailyStatsRepository);
+        order.verify(rideDailyStatsRepository).lockGlobalRow(day);
+        order.verify(rideDailyStatsRepository).deleteSubjectRows(day);
+        order.verify(rideDailyStatsRepository).saveAll(any());
+        assertThat(global.getRideCount()).isEqualTo(2L);
+        assertThat(global.getAmount()).isEqualByComparingTo("700.00");
+        verify(rideDailyStatsRepository, never()).saveAndFlush(any());
+    }
+
+    @Test(description = "Should create a missing GLOBAL row, tolerating another node creating it first")
+    public void rebuild_NoGlobalRow_CreatesAndLocksIt() {
+        LocalDate day = LocalDate.of(2026, 3, 10);
+        RideDailyStats created = RideDailyStats.builder()
+                .statDate(day).scope(RideDailyStats.Scope.GLOBAL).subjectId(RideDailyStats.GLOBAL_SUBJECT)
+                .rideCount(0L).distanceKm(0.0).amount(BigDecimal.ZERO).build();
+        when(rideDailyStatsRepository.lockGlobalRow(day)).thenReturn(Optional.empty(), Optional.of(created));
+        when(rideDailyStatsRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(rideRepository.sumCompleted(any(), any())).thenReturn(new RideStatsTotalsDto(0L, null, null));
+
+        int written = service.rebuild(day, day);
+
+        assertThat(written).isEqualTo(1);
+        assertThat(created.getRideCount()).isZero();
+        verify(rideDailyStatsRepository).deleteSubjectRows(day);
+    }
+
+    @Test(description = "Should backfill all history when the rollup does not reach the first completed ride")
+    public void backfill_RollupStartsLater_RebuildsFromFirstRide() {
+        LocalDate firstDay = LocalDate.now().minusDays(3);
+        when(rideRepository.findFirstCompletedAt()).thenReturn(firstDay.atTime(10, 0));
+        when(rideDailyStatsRepository.findFirstRolledUpDay()).thenReturn(LocalDate.now().minusDays(1));
+        when(rideDailyStatsRepository.lockGlobalRow(any())).thenAnswer(invocation -> Optional.of(RideDailyStats.builder()
+                .statDate(invocation.getArgument(0)).scope(RideDailyStats.Scope.GLOBAL).build()));
+        when(rideRepository.sumCompleted(any(), any())).thenReturn(new RideStatsTotalsDto(0L, null, null));
+
+        service.backfill();
+
+        verify(rideDailyStatsRepository).lockGlobalRow(firstDay);
+        verify(rideDailyStatsRepository).lockGlobalRow(LocalDate.now().minusDays(1));
+        verify(rideDailyStatsRepository, never()).lockGlobalRow(LocalDate.now());
+    }
+
+    @Test(description = "Should not backfill once the rollup covers the first completed ride")
+    public void backfill_AlreadyCovered_DoesNothing() {
+        LocalDate firstDay = LocalDate.now().minusDays(30);
+        when(rideRepository.findFirstCompletedAt()).thenReturn(firstDay.atTime(10, 0));
+        when(rideDailyStatsRepository.findFirstRolledUpDay()).thenReturn(firstDay);
+
+        service.backfill();
+
+        verify(rideDailyStatsRepository, never()).lockGlobalRow(any());
+    }
+
+    @Test(description = "Should catch up on nights missed while no node was running")
+    public void rebuildRecentDays_MissedNights_CatchesUp() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        when(rideDailyStatsRepository.findLastRolledUpDay()).thenReturn(yesterday.minusDays(5));
+        when(rideDailyStatsRepository.lockGlobalRow(any())).thenAnswer(invocation -> Optional.of(RideDailyStats.builder()
+                .statDate(invocation.getArgument(0)).scope(RideDailyStats.Scope.GLOBAL).build()));
+        when(rideRepository.sumCompleted(any(), any())).thenReturn(new RideStatsTotalsDto(0L, null, null));
+
+        service.rebuildRecentDays();
+
+        verify(rideDailyStatsRepository, times(5)).deleteSubjectRows(any());
+        verify(rideDailyStatsRepository).deleteSubjectRows(yesterday.minusDays(4));
+    }
+}
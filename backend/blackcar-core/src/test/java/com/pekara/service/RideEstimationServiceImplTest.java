@@ -1,16 +1,16 @@
 package com.pekara.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pekara.dto.PricingDto;
 import com.pekara.dto.RouteDto;
 import com.pekara.dto.common.LocationPointDto;
+import com.pekara.util.PolylineCodec;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.util.Collections;
@@ -18,10 +18,10 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -36,9 +36,6 @@ public class RideEstimationServiceImplTest {
     @Mock
     private PricingService pricingService;
 
-    @Mock
-    private ObjectMapper objectMapper;
-
     @InjectMocks
     private RideEstimationServiceImpl rideEstimationService;
 
@@ -118,6 +115,29 @@ public class RideEstimationServiceImplTest {
         verify(routingService).calculateRoute(List.of(pickup, stop1, dropoff));
     }
 
+    @Test(description = "Should complete asynchronously with the route from the non-blocking routing call")
+    public void calculateRouteWithStopsAsync_ValidPickupDropoff_CompletesWithRouteData() {
+        RouteDto routeDto = RouteDto.builder()
+                .distanceKm(10.5)
+                .durationMinutes(20)
+                .routePoints(routePoints)
+                .build();
+        when(routingService.calculateRouteAsync(List.of(pickup, dropoff))).thenReturn(Mono.just(routeDto));
+
+        RideEstimationService.RouteData result = rideEstimationService.calculateRouteWithStopsAsync(pickup, dropoff, null).join();
+
+        assertThat(result.getDistanceKm()).isEqualTo(10.5);
+        assertThat(result.getDurationMinutes()).isEqualTo(20);
+    }
+
+    @Test(description = "Should validate locations before starting the async routing call")
+    public void calculateRouteWithStopsAsync_NullDropoff_ThrowsImmediately() {
+        assertThatThrownBy(() -> rideEstimationService.calculateRouteWithStopsAsync(pickup, null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("dropoff is required");
+        verifyNoInteractions(routingService);
+    }
+
     @Test(description = "Should throw when a stop has null address")
     public void calculateRouteWithStops_StopWithNullAddress_Throws() {
         LocationPointDto badStop = LocationPointDto.builder().address(null).latitude(45.26).longitude(19.84).build();
@@ -161,34 +181,23 @@ public class RideEstimationServiceImplTest {
     }
 
     @Test(description = "Should return null when route points is null")
-    public void serializeRouteCoordinates_Null_ReturnsNull() {
-        String result = rideEstimationService.serializeRouteCoordinates(null);
+    public void encodeRoutePolyline_Null_ReturnsNull() {
+        String result = rideEstimationService.encodeRoutePolyline(null);
         assertThat(result).isNull();
     }
 
     @Test(description = "Should return null when route points is empty")
-    public void serializeRouteCoordinates_Empty_ReturnsNull() {
-        String result = rideEstimationService.serializeRouteCoordinates(Collections.emptyList());
+    public void encodeRoutePolyline_Empty_ReturnsNull() {
+        String result = rideEstimationService.encodeRoutePolyline(Collections.emptyList());
         assertThat(result).isNull();
     }
 
-    @Test(description = "Should serialize route points to JSON array")
-    public void serializeRouteCoordinates_ValidPoints_ReturnsJson() throws Exception {
-        when(objectMapper.writeValueAsString(any())).thenReturn("[[45.25,19.84],[45.27,19.85]]");
-
-        String result = rideEstimationService.serializeRouteCoordinates(routePoints);
+    @Test(description = "Should encode route points as a polyline")
+    public void encodeRoutePolyline_ValidPoints_ReturnsPolyline() {
+        String result = rideEstimationService.encodeRoutePolyline(routePoints);
 
-        assertThat(result).isEqualTo("[[45.25,19.84],[45.27,19.85]]");
-        verify(objectMapper).writeValueAsString(any());
-    }
-
-    @Test(description = "Should return null when JSON serialization fails")
-    public void serializeRouteCoordinates_JsonFails_ReturnsNull() throws Exception {
-        when(objectMapper.writeValueAsString(any())).thenThrow(new JsonProcessingException("fail") {});
-
-        String result = rideEstimationService.serializeRouteCoordinates(routePoints);
-
-        assertThat(result).isNull();
+        assertThat(result).isEqualTo(PolylineCodec.encode(routePoints));
+        assertThat(PolylineCodec.toCoordinatesJson(result)).isEqualTo("[[45.25,19.84],[45.27,19.85]]");
     }
 
     @Test(description = "Should throw when location point is null")
@@ -0,0 +1,377 @@
+package com.pekara.service;
+
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.model.ActiveRideContext;
+import com.pekara.util.GeoUtils;
+import com.pekara.util.RouteIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RideEtaEstimator - accuracy, re-routing and throughput on ping traces.
+ *
+ * Traces are generated from a seeded random source: a car driving a city route with a speed
+ * profile of its own, pinging every {@value #PING_SECONDS} seconds with GPS noise.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class RideEtaEstimatorTest {
+
+    private static final int PING_SECONDS = 3;
+    private static final double GPS_NOISE_METERS = 5.0;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+    @Mock
+    private RoutingService routingService;
+
+    private MutableClock clock;
+    private RideEtaEstimator estimator;
+
+    @BeforeMethod
+    public void setUp() {
+        clock = new MutableClock();
+        estimator = new RideEtaEstimator(routingService, new SimpleMeterRegistry(), 2000, 0.2, Duration.ofSeconds(15), clock);
+    }
+
+    @Test(description = "Should track the real remaining time of a slower-than-planned drive without routing calls")
+    public void estimate_OnRouteTrace_AccurateWithoutRouting() {
+        List<LocationPointDto> route = cityRoute(0.0);
+        double routeKm = lengthKm(route);
+        // Planned at 40 km/h; the drive has a red light, a jam and averages well below that.
+        int plannedMinutes = (int) Math.round(routeKm / 40.0 * 60);
+        ActiveRideContext ride = ride(1L, RideStatus.IN_PROGRESS, route, plannedMinutes);
+        List<Ping> trace = drive(route, t -> t < 120 ? 32 : t < 150 ? 0 : t < 420 ? 15 : 30, new Random(42));
+        double totalSeconds = trace.get(trace.size() - 1).secondsFromStart();
+
+        double estimatorError = 0;
+        double plannedError = 0;
+        int counted = 0;
+        for (Ping ping : trace) {
+            RideEtaEstimator.Eta eta = estimator.estimate(ride, ping.latitude(), ping.longitude(), ping.recordedAt());
+            double actual = totalSeconds - ping.secondsFromStart();
+            assertThat(eta).isNotNull();
+            if (actual >= 120) {
+                estimatorError += Math.abs(eta.remainingSeconds() - actual) / actual;
+                plannedError += Math.abs(eta.remainingKm() / 40.0 * 3600 - actual) / actual;
+                counted++;
+            }
+        }
+        estimatorError /= counted;
+        plannedError /= counted;
+        assertThat(estimatorError).isLessThan(0.2);
+        assertThat(estimatorError).isLessThan(plannedError * 0.75);
+        verify(routingService, never()).calculateRoute(any());
+    }
+
+    @Test(description = "Should count down the remaining distance along the route")
+    public void estimate_RemainingDistanceFromCumulativeIndex() {
+        List<LocationPointDto> route = cityRoute(0.0);
+        ActiveRideContext ride = ride(2L, RideStatus.IN_PROGRESS, route, 12);
+        List<Ping> trace = drive(route, t -> 30, new Random(7));
+
+        double previous = Double.MAX_VALUE;
+        for (Ping ping : trace) {
+            RideEtaEstimator.Eta eta = estimator.estimate(ride, ping.latitude(), ping.longitude(), ping.recordedAt());
+            double actualKm = lengthKm(route) - ping.trueAlongKm();
+            assertThat(eta.remainingKm()).isCloseTo(actualKm, within(0.02));
+            assertThat(eta.remainingKm()).isLessThan(previous + 0.02);
+            previous = eta.remainingKm();
+        }
+    }
+
+    @Test(description = "Should keep to the current leg of a route that doubles back on itself")
+    public void estimate_DoubledBackRoute_StaysOnCurrentLeg() {
+        // Out along a boulevard and back on the carriageway 20 m north of it.
+        List<LocationPointDto> route = new ArrayList<>(straight(45.25, 19.800, 45.25, 19.830, 40));
+        route.addAll(straight(45.25018, 19.830, 45.25018, 19.800, 40));
+        ActiveRideContext ride = ride(9L, RideStatus.IN_PROGRESS, route, 10);
+
+        for (Ping ping : drive(route, t -> 30, new Random(9))) {
+            RideEtaEstimator.Eta eta = estimator.estimate(ride, ping.latitude(), ping.longitude(), ping.recordedAt());
+            assertThat(eta.remainingKm()).isCloseTo(lengthKm(route) - ping.trueAlongKm(), within(0.05));
+        }
+    }
+
+    @Test(description = "Should re-route once when the driver leaves the route and then follow the new route")
+    public void estimate_Detour_ReroutesOnce() {
+        List<LocationPointDto> planned = cityRoute(0.0);
+        // The driver takes a parallel street 600 m north and only rejoins at the destination.
+        List<LocationPointDto> driven = detour(planned, 0.6);
+        ActiveRideContext ride = ride(3L, RideStatus.IN_PROGRESS, planned, 12);
+        when(routingService.calculateRoute(any())).thenAnswer(invocation -> remainderOf(driven,
+                invocation.<List<LocationPointDto>>getArgument(0).get(0)));
+
+        for (Ping ping : drive(driven, t -> 30, new Random(3))) {
+            clock.set(ping.recordedAt());
+            assertThat(estimator.estimate(ride, ping.latitude(), ping.longitude(), ping.recordedAt())).isNotNull();
+        }
+
+        verify(routingService, times(1)).calculateRoute(any());
+    }
+
+    @Test(description = "Should plan through the pickup before it and switch to the stored route once the ride starts")
+    public void estimate_BeforePickup_PlansThroughPickupOnce() {
+        List<LocationPointDto> toPickup = straight(45.230, 19.800, 45.250, 19.800, 40);
+        List<LocationPointDto> route = cityRoute(0.0);
+        List<LocationPointDto> full = new ArrayList<>(toPickup);
+        full.addAll(route.subList(1, route.size()));
+        when(routingService.calculateRoute(any())).thenAnswer(invocation -> remainderOf(full,
+                invocation.<List<LocationPointDto>>getArgument(0).get(0)));
+
+        ActiveRideContext accepted = ride(4L, RideStatus.ACCEPTED, route, 12);
+        for (Ping ping : drive(toPickup, t -> 30, new Random(5))) {
+            clock.set(ping.recordedAt());
+            assertThat(estimator.estimate(accepted, ping.latitude(), ping.longitude(), ping.recordedAt())).isNotNull();
+        }
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LocationPointDto>> waypoints = ArgumentCaptor.forClass(List.class);
+        verify(routingService, times(1)).calculateRoute(waypoints.capture());
+        assertThat(waypoints.getValue()).hasSize(3);
+        assertThat(waypoints.getValue().get(1).getLatitude()).isEqualTo(45.25);
+
+        ActiveRideContext started = ride(4L, RideStatus.IN_PROGRESS, route, 12);
+        RideEtaEstimator.Eta eta = estimator.estimate(started, 45.25, 19.80, START.plusMinutes(5));
+        assertThat(eta.remainingKm()).isCloseTo(lengthKm(route), within(0.01));
+        verify(routingService, times(1)).calculateRoute(any());
+    }
+
+    @Test(description = "Should not retry a failed re-route before the interval has passed")
+    public void estimate_RoutingFails_RetriesAfterInterval() {
+        ActiveRideContext accepted = ride(5L, RideStatus.ACCEPTED, cityRoute(0.0), 12);
+        when(routingService.calculateRoute(any())).thenThrow(new IllegalStateException("router down"));
+
+        assertThat(estimator.estimate(accepted, 45.24, 19.80, START)).isNull();
+        clock.advance(Duration.ofSeconds(10));
+        assertThat(estimator.estimate(accepted, 45.24, 19.80, START.plusSeconds(10))).isNull();
+        verify(routingService, times(1)).calculateRoute(any());
+
+        clock.advance(Duration.ofSeconds(10));
+        estimator.estimate(accepted, 45.24, 19.80, START.plusSeconds(20));
+        verify(routingService, times(2)).calculateRoute(any());
+    }
+
+    @Test(description = "Should drop the state of a finished ride")
+    public void forget_RemovesRide() {
+        ActiveRideContext ride = ride(6L, RideStatus.IN_PROGRESS, cityRoute(0.0), 12);
+        estimator.estimate(ride, 45.25, 19.80, START);
+        assertThat(estimator.trackedRides()).isEqualTo(1);
+
+        estimator.forget(6L);
+
+        assertThat(estimator.trackedRides()).isZero();
+    }
+
+    @Test(description = "Should keep the state of many concurrent rides apart and estimate them without routing calls")
+    public void estimate_ManyRides_NoRoutingCalls() {
+        int rides = 1000;
+        List<ActiveRideContext> contexts = new ArrayList<>();
+        List<List<Ping>> traces = new ArrayList<>();
+        for (int i = 0; i < rides; i++) {
+            List<LocationPointDto> route = cityRoute((i % 50) * 0.01);
+            contexts.add(ride(100L + i, RideStatus.IN_PROGRESS, route, 12));
+            traces.add(drive(route, t -> 30, new Random(i)).subList(0, 100));
+        }
+
+        for (int step = 0; step < 100; step++) {
+            for (int i = 0; i < rides; i++) {
+                Ping ping = traces.get(i).get(step);
+                assertThat(estimator.estimate(contexts.get(i), ping.latitude(), ping.longitude(), ping.recordedAt()))
+                        .isNotNull();
+            }
+        }
+
+        assertThat(estimator.trackedRides()).isEqualTo(rides);
+        verify(routingService, never()).calculateRoute(any());
+    }
+
+    private static ActiveRideContext ride(Long id, RideStatus status, List<LocationPointDto> route, int plannedMinutes) {
+        LocationPointDto pickup = route.get(0);
+        LocationPointDto destination = route.get(route.size() - 1);
+        return ActiveRideContext.builder()
+                .rideId(id)
+                .status(status)
+                .driverEmail("driver@test.com")
+                .participantEmails(Set.of("driver@test.com"))
+                .pickupLatitude(pickup.getLatitude())
+                .pickupLongitude(pickup.getLongitude())
+                .destinationLatitude(destination.getLatitude())
+                .destinationLongitude(destination.getLongitude())
+                .destinationAddress("Dropoff")
+                .estimatedDurationMinutes(plannedMinutes)
+                .routeIndex(RouteIndex.of(route))
+                .build();
+    }
+
+    /**
+     * About 6.5 km through a street grid: east, north, east again, with a vertex every ~50 m.
+     */
+    private static List<LocationPointDto> cityRoute(double latitudeOffset) {
+        double lat = 45.25 + latitudeOffset;
+        List<LocationPointDto> route = new ArrayList<>(straight(lat, 19.800, lat, 19.840, 60));
+        route.addAll(straight(lat, 19.840, lat + 0.015, 19.840, 34).subList(1, 35));
+        route.addAll(straight(lat + 0.015, 19.840, lat + 0.015, 19.870, 46).subList(1, 47));
+        return route;
+    }
+
+    /**
+     * Leaves the route at a quarter of its length, drives parallel to it and comes back at the end.
+     */
+    private static List<LocationPointDto> detour(List<LocationPointDto> route, double offsetKm) {
+        int leave = route.size() / 4;
+        LocationPointDto exit = route.get(leave);
+        LocationPointDto end = route.get(route.size() - 1);
+        double north = exit.getLatitude() + offsetKm / 111.32;
+        List<LocationPointDto> driven = new ArrayList<>(route.subList(0, leave + 1));
+        driven.addAll(straight(exit.getLatitude(), exit.getLongitude(), north, exit.getLongitude(), 12).subList(1, 13));
+        driven.addAll(straight(north, exit.getLongitude(), north, end.getLongitude(), 60).subList(1, 61));
+        driven.addAll(straight(north, end.getLongitude(), end.getLatitude(), end.getLongitude(), 12).subList(1, 13));
+        return driven;
+    }
+
+    private static List<LocationPointDto> straight(double fromLat, double fromLon, double toLat, double toLon, int segments) {
+        List<LocationPointDto> points = new ArrayList<>();
+        for (int i = 0; i <= segments; i++) {
+            double share = (double) i / segments;
+            points.add(point(fromLat + (toLat - fromLat) * share, fromLon + (toLon - fromLon) * share));
+        }
+        return points;
+    }
+
+    /**
+     * What a router would return for the rest of the given path from a position on it, at 30 km/h.
+     */
+    private static RouteDto remainderOf(List<LocationPointDto> path, LocationPointDto from) {
+        int nearest = 0;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < path.size(); i++) {
+            double km = GeoUtils.haversineKm(from.getLatitude(), from.getLongitude(),
+                    path.get(i).getLatitude(), path.get(i).getLongitude());
+            if (km < best) {
+                best = km;
+                nearest = i;
+            }
+        }
+        List<LocationPointDto> points = new ArrayList<>();
+        points.add(from);
+        points.addAll(path.subList(nearest, path.size()));
+        double km = lengthKm(points);
+        return RouteDto.builder()
+                .distanceKm(km)
+                .durationMinutes((int) Math.ceil(km / 30.0 * 60))
+                .routePoints(points)
+                .build();
+    }
+
+    /**
+     * Drives the path with the speed (km/h) given for each second since the start and returns a
+     * noisy ping every {@value #PING_SECONDS} seconds, ending with one at the destination.
+     */
+    private static List<Ping> drive(List<LocationPointDto> path, DoubleUnaryOperator kmhAt, Random random) {
+        double totalKm = lengthKm(path);
+        List<Ping> pings = new ArrayList<>();
+        double alongKm = 0;
+        int second = 0;
+        while (true) {
+            if (second % PING_SECONDS == 0 || alongKm >= totalKm) {
+                LocationPointDto position = pointAt(path, Math.min(alongKm, totalKm));
+                double noiseLat = random.nextGaussian() * GPS_NOISE_METERS / 111_320.0;
+                double noiseLon = random.nextGaussian() * GPS_NOISE_METERS
+                        / (111_320.0 * Math.cos(Math.toRadians(position.getLatitude())));
+                pings.add(new Ping(position.getLatitude() + noiseLat, position.getLongitude() + noiseLon,
+                        START.plusSeconds(second), second, Math.min(alongKm, totalKm)));
+            }
+            if (alongKm >= totalKm) {
+                return pings;
+            }
+            alongKm += kmhAt.applyAsDouble(second) / 3600.0;
+            second++;
+        }
+    }
+
+    private static LocationPointDto pointAt(List<LocationPointDto> path, double km) {
+        double walked = 0;
+        for (int i = 1; i < path.size(); i++) {
+            LocationPointDto a = path.get(i - 1);
+            LocationPointDto b = path.get(i);
+            double segment = GeoUtils.haversineKm(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude());
+            if (walked + segment >= km) {
+                double share = segment == 0 ? 0 : (km - walked) / segment;
+                return point(a.getLatitude() + (b.getLatitude() - a.getLatitude()) * share,
+                        a.getLongitude() + (b.getLongitude() - a.getLongitude()) * share);
+            }
+            walked += segment;
+        }
+        return path.get(path.size() - 1);
+    }
+
+    private static double lengthKm(List<LocationPointDto> path) {
+        double km = 0;
+        for (int i = 1; i < path.size(); i++) {
+            km += GeoUtils.haversineKm(path.get(i - 1).getLatitude(), path.get(i - 1).getLongitude(),
+                    path.get(i).getLatitude(), path.get(i).getLongitude());
+        }
+        return km;
+    }
+
+    private static LocationPointDto point(double latitude, double longitude) {
+        return LocationPointDto.builder().latitude(latitude).longitude(longitude).build();
+    }
+
+    private record Ping(double latitude, double longitude, LocalDateTime recordedAt, double secondsFromStart,
+                        double trueAlongKm) {
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = START.toInstant(ZoneOffset.UTC);
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        void set(LocalDateTime time) {
+            now = time.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.pekara.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pekara.dto.RideEventPayload;
+import com.pekara.model.RideEvent;
+import com.pekara.repository.RideEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RideEventRelay - delivery to subscribers, retries and batching.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class RideEventRelayTest {
+
+    @Mock
+    private RideEventRepository rideEventRepository;
+
+    @Mock
+    private RideEventSubscriber notifications;
+
+    @Mock
+    private RideEventSubscriber stats;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RideEventRelay relay;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(notifications.name()).thenReturn("notifications");
+        lenient().when(stats.name()).thenReturn("stats");
+        relay = new RideEventRelay(rideEventRepository, List.of(notifications, stats), objectMapper,
+                transactionManager, meterRegistry, 2, 3, Duration.ofSeconds(10), Duration.ofDays(7));
+    }
+
+    @Test(description = "Should hand each event to every subscriber and mark it published")
+    public void relay_DeliversAndMarksPublished() throws Exception {
+        RideEvent event = event(1L, RideEvent.Type.COMPLETED, 0);
+        when(rideEventRepository.lockPending(any(LocalDateTime.class), eq(3), any(Pageable.class)))
+                .thenReturn(List.of(event));
+
+        int handled = relay.relay();
+
+        assertThat(handled).isEqualTo(1);
+        ArgumentCaptor<RideEventPayload> payload = ArgumentCaptor.forClass(RideEventPayload.class);
+        verify(notifications).onRideEvent(eq(RideEvent.Type.COMPLETED), payload.capture());
+        verify(stats).onRideEvent(eq(RideEvent.Type.COMPLETED), any(RideEventPayload.class));
+        assertThat(payload.getValue().getRideId()).isEqualTo(1L);
+        assertThat(payload.getValue().getPrice()).isEqualByComparingTo("450.00");
+        assertThat(event.getPublishedAt()).isNotNull();
+        assertThat(meterRegistry.counter("ride.events.published").count()).isEqualTo(1.0);
+    }
+
+    @Test(description = "Should leave a failed event unpublished and push its next attempt back")
+    public void relay_SubscriberFails_SchedulesRetry() throws Exception {
+        RideEvent event = event(1L, RideEvent.Type.CANCELLED, 1);
+        when(rideEventRepository.lockPending(any(LocalDateTime.class), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of(event));
+        doThrow(new IllegalStateException("SMTP down")).when(notifications).onRideEvent(any(), any());
+
+        relay.relay();
+
+        assertThat(event.getPublishedAt()).isNull();
+        assertThat(event.getAttempts()).isEqualTo(2);
+        assertThat(event.getLastError()).isEqualTo("notifications: SMTP down");
+        assertThat(event.getAvailableAt()).isAfter(LocalDateTime.now().plusSeconds(15));
+        assertThat(meterRegistry.counter("ride.events.failed").count()).isEqualTo(1.0);
+    }
+
+    @Test(description = "Should run each subscriber in its own transaction and retry only the one that failed")
+    public void relay_OneSubscriberFails_RetriesOnlyThatSubscriber() throws Exception {
+        RideEvent event = event(1L, RideEvent.Type.COMPLETED, 0);
+        when(rideEventRepository.lockPending(any(LocalDateTime.class), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of(event));
+        doThrow(new IllegalStateException("SMTP down")).doNothing().when(notifications).onRideEvent(any(), any());
+
+        relay.relay();
+
+        assertThat(event.getPublishedAt()).isNull();
+        assertThat(event.getDeliveredTo()).isEqualTo("stats");
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, atLeastOnce()).getTransaction(definitions.capture());
+        assertThat(definitions.getAllValues())
+                .filteredOn(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW)
+                .hasSize(2);
+        verify(transactionManager).rollback(any());
+
+        event.setAvailableAt(LocalDateTime.now());
+        relay.relay();
+
+        assertThat(event.getPublishedAt()).isNotNull();
+        assertThat(event.getDeliveredTo()).isEqualTo("stats,notifications");
+        verify(notifications, times(2)).onRideEvent(any(), any());
+        verify(stats).onRideEvent(any(), any());
+    }
+
+    @Test(description = "Should stop picking up an event that used its last attempt")
+    public void relay_LastAttemptFails_LeavesDeadLetter() throws Exception {
+        RideEvent event = event(1L, RideEvent.Type.CANCELLED, 2);
+        when(rideEventRepository.lockPending(any(LocalDateTime.class), eq(3), any(Pageable.class)))
+                .thenReturn(List.of(event));
+        doThrow(new IllegalStateException("SMTP down")).when(stats).onRideEvent(any(), any());
+
+        relay.relay();
+
+        assertThat(event.getAttempts()).isEqualTo(3);
+        assertThat(event.getPublishedAt()).isNull();
+        assertThat(event.getDeliveredTo()).isEqualTo("notifications");
+        assertThat(event.getLastError()).isEqualTo("stats: SMTP down");
+    }
+
+    @Test(description = "Should count an unreadable payload as a failed attempt without calling subscribers")
+    public void relay_BadPayload_SchedulesRetry() throws Exception {
+        RideEvent event = event(1L, RideEvent.Type.STARTED, 0);
+        event.setPayload("{not json");
+        when(rideEventRepository.lockPending(any(LocalDateTime.class), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of(event));
+
+        relay.relay();
+
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getPublishedAt()).isNull();
+        verify(notifications, never()).onRideEvent(any(), any());
+    }
+
+    @Test(description = "Should keep polling while batches come back full")
+    public void relay_FullBatch_PollsAgain() throws Exception {
+        when(rideEventRepository.lockPending(any(LocalDateTime.class), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of(event(1L, RideEvent.Type.STARTED, 0), event(2L, RideEvent.Type.STARTED, 0)))
+                .thenReturn(List.of(event(3L, RideEvent.Type.STARTED, 0)));
+
+        assertThat(relay.relay()).isEqualTo(3);
+    }
+
+    private RideEvent event(Long rideId, RideEvent.Type type, int attempts) throws Exception {
+        RideEventPayload payload = RideEventPayload.builder()
+                .rideId(rideId)
+                .status(type.name())
+                .price(new BigDecimal("450.00"))
+                .completedAt(LocalDateTime.of(2026, 3, 10, 18, 30))
+                .build();
+        return RideEvent.builder()
+                .id(rideId * 10)
+                .rideId(rideId)
+                .type(type)
+                .payload(objectMapper.writeValueAsString(payload))
+                .attempts(attempts)
+                .availableAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,165 @@
+package com.pekara.service;
+
+import com.pekara.config.TestConfig;
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.response.AdminRideHistoryResponse;
+import com.pekara.dto.response.DriverRideHistoryResponse;
+import com.pekara.dto.response.HistoryPage;
+import com.pekara.model.Driver;
+import com.pekara.model.Ride;
+import com.pekara.model.RideStop;
+import com.pekara.model.User;
+import com.pekara.model.UserRole;
+import com.pekara.repository.RideRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query-count tests for RideHistoryReader - a history page costs the same number of SQL
+ * statements whatever its size and however many stops and passengers its rides have.
+ */
+@SpringBootTest(classes = TestConfig.class)
+@ActiveProfiles("test")
+@Transactional
+public class RideHistoryReaderTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    private RideHistoryReader reader;
+    private Statistics statistics;
+    private Driver driver;
+    private List<User> passengers;
+
+    @BeforeMethod
+    public void setUp() {
+        reader = new RideHistoryReader(rideRepository);
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        driver = Driver.builder()
+                .email("history-driver@test.com")
+                .username("history-driver")
+                .password("password")
+                .firstName("Bob")
+                .lastName("Driver")
+                .phoneNumber("+381643333333")
+                .address("Address 3")
+                .role(UserRole.DRIVER)
+                .isActive(true)
+                .totalRides(0)
+                .vehicleType("SEDAN")
+                .licensePlate("NS-123-AB")
+                .build();
+        entityManager.persist(driver);
+
+        passengers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User passenger = User.builder()
+                    .email("history-passenger" + i + "@test.com")
+                    .username("history-passenger" + i)
+                    .password("password")
+                    .firstName("Passenger")
+                    .lastName(String.valueOf(i))
+                    .phoneNumber("+38164000000" + i)
+                    .address("Address " + i)
+                    .role(UserRole.PASSENGER)
+                    .isActive(true)
+                    .totalRides(0)
+                    .build();
+            entityManager.persist(passenger);
+            passengers.add(passenger);
+        }
+    }
+
+    @Test(description = "Should load a full 50 row admin page in a constant number of statements")
+    public void allHistory_FullPage_ConstantStatements() {
+        createRides(60);
+
+        HistoryPage<AdminRideHistoryResponse> page = reader.allHistory(
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), 0, 50, null);
+
+        // Page rows, COUNT, stops and passengers.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(page.getContent()).hasSize(50);
+        assertThat(page.getTotalElements()).isEqualTo(60);
+        assertThat(page.getNextCursor()).isNotNull();
+        AdminRideHistoryResponse first = page.getContent().get(0);
+        assertThat(first.getPassengers()).hasSize(3);
+        assertThat(first.getPickupAddress()).isEqualTo("Stop 0");
+        assertThat(first.getDropoffAddress()).isEqualTo("Stop 3");
+        assertThat(first.getStops()).extracting("address").containsExactly("Stop 1", "Stop 2");
+        assertThat(first.getDriver().getEmail()).isEqualTo("history-driver@test.com");
+    }
+
+    @Test(description = "Should follow a cursor without counting again")
+    public void driverHistory_Cursor_SkipsCount() {
+        createRides(8);
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now().plusDays(1);
+        HistoryPage<DriverRideHistoryResponse> first = reader.driverHistory(driver.getId(), start, end, 0, 5, null);
+        statistics.clear();
+
+        HistoryPage<DriverRideHistoryResponse> second = reader.driverHistory(driver.getId(), start, end, 0, 5, first.getNextCursor());
+
+        // Page rows, stops and passengers.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(second.getPage()).isEqualTo(1);
+        assertThat(second.getTotalElements()).isEqualTo(8);
+        assertThat(second.getContent()).hasSize(3);
+        assertThat(second.getNextCursor()).isNull();
+        assertThat(first.getContent()).extracting(DriverRideHistoryResponse::getId)
+                .doesNotContainAnyElementsOf(second.getContent().stream().map(DriverRideHistoryResponse::getId).toList());
+    }
+
+    private void createRides(int count) {
+        for (int i = 0; i < count; i++) {
+            Set<User> riders = new HashSet<>(passengers);
+            Ride ride = Ride.builder()
+                    .creator(passengers.get(0))
+                    .driver(driver)
+                    .status(RideStatus.COMPLETED)
+                    .vehicleType("SEDAN")
+                    .babyTransport(false)
+                    .petTransport(false)
+                    .estimatedPrice(new BigDecimal("500.00"))
+                    .distanceKm(5.0)
+                    .estimatedDurationMinutes(15)
+                    .passengers(riders)
+                    .build();
+            for (int s = 0; s < 4; s++) {
+                ride.getStops().add(RideStop.builder()
+                        .ride(ride)
+                        .sequenceIndex(s)
+                        .address("Stop " + s)
+                        .latitude(45.25 + s * 0.01)
+                        .longitude(19.84)
+                        .build());
+            }
+            entityManager.persist(ride);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+}
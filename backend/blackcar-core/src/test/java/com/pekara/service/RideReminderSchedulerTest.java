@@ -0,0 +1,156 @@
+package com.pekara.service;
+
+import com.pekara.dto.RideReminderDto;
+import com.pekara.repository.RideRepository;
+import com.pekara.service.RideReminderScheduler.Reminder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RideReminderScheduler - reminder timing, the claim lease and tracking changes.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class RideReminderSchedulerTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private MailService mailService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RideReminderScheduler scheduler;
+
+    @BeforeMethod
+    public void setUp() {
+        scheduler = new RideReminderScheduler(rideRepository, mailService, transactionManager, Duration.ofHours(1));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test(description = "Should remind at T-15 and then every 5 minutes until the ride starts")
+    public void nextReminderAt_FollowsSchedule() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 10, 18, 0);
+
+        assertThat(RideReminderScheduler.nextReminderAt(start, null)).isEqualTo(start.minusMinutes(15));
+        assertThat(RideReminderScheduler.nextReminderAt(start, start.minusMinutes(15))).isEqualTo(start.minusMinutes(10));
+        assertThat(RideReminderScheduler.nextReminderAt(start, start.minusMinutes(5))).isNull();
+    }
+
+    @Test(description = "Should send a due reminder as soon as the ride is tracked and only for claimed rides")
+    public void track_DueReminder_SentWhenClaimed() {
+        LocalDateTime start = LocalDateTime.now().plusMinutes(10);
+        when(rideRepository.claimReminders(eq(Set.of(1L)), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+        when(rideRepository.findClaimedReminders(eq(Set.of(1L)), any(LocalDateTime.class)))
+                .thenReturn(List.of(new RideReminderDto(1L, "creator@test.com", start, null)));
+
+        scheduler.start();
+        scheduler.track(1L, start, null);
+
+        verify(mailService, timeout(5000)).sendRideReminder("creator@test.com", 1L, start);
+    }
+
+    @Test(description = "Should not send anything when another instance holds the claim")
+    public void fire_ClaimedElsewhere_SendsNothing() {
+        LocalDateTime start = LocalDateTime.now().plusMinutes(10);
+        when(rideRepository.claimReminders(anyCollection(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(0);
+        scheduler.track(1L, start, null);
+
+        scheduler.fire(List.of(new Reminder(1L, start, start.minusMinutes(15))));
+
+        verify(mailService, never()).sendRideReminder(any(), any(), any());
+        verify(rideRepository, never()).findClaimedReminders(anyCollection(), any());
+        assertThat(scheduler.pendingReminders()).isEqualTo(2);
+    }
+
+    @Test(description = "Should retry the batch after a delay when the claim fails")
+    public void fire_ClaimFails_RetriedLater() {
+        LocalDateTime start = LocalDateTime.now().plusMinutes(10);
+        LocalDateTime farOff = LocalDateTime.now().plusSeconds(10);
+        when(rideRepository.claimReminders(anyCollection(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenThrow(new IllegalStateException("database unavailable"));
+        scheduler.track(1L, start, null);
+        scheduler.track(2L, farOff, null);
+
+        scheduler.fire(List.of(new Reminder(1L, start, start.minusMinutes(15)),
+                new Reminder(2L, farOff, farOff.minusMinutes(15))));
+
+        verify(mailService, never()).sendRideReminder(any(), any(), any());
+        // Ride 1 keeps its first reminder and a retry; ride 2 starts before the retry and is dropped.
+        assertThat(scheduler.pendingReminders()).isEqualTo(3);
+        scheduler.fire(List.of(new Reminder(2L, farOff, farOff.minusMinutes(15))));
+        verify(rideRepository).claimReminders(anyCollection(), any(), any());
+    }
+
+    @Test(description = "Should release the lease and retry when the reminder cannot be queued")
+    public void fire_SendFails_ReleasesLease() {
+        LocalDateTime start = LocalDateTime.now().plusMinutes(10);
+        when(rideRepository.claimReminders(eq(Set.of(1L)), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+        when(rideRepository.findClaimedReminders(eq(Set.of(1L)), any(LocalDateTime.class)))
+                .thenReturn(List.of(new RideReminderDto(1L, "creator@test.com", start, null)));
+        doThrow(new IllegalStateException("template error")).when(mailService).sendRideReminder(any(), any(), any());
+        scheduler.track(1L, start, null);
+
+        scheduler.fire(List.of(new Reminder(1L, start, start.minusMinutes(15))));
+
+        ArgumentCaptor<LocalDateTime> sentAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> releasedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(rideRepository).releaseReminders(eq(Set.of(1L)), sentAt.capture(), releasedAt.capture());
+        assertThat(releasedAt.getValue()).isEqualTo(sentAt.getValue().minus(RideReminderScheduler.REMINDER_INTERVAL));
+        assertThat(scheduler.pendingReminders()).isEqualTo(2);
+    }
+
+    @Test(description = "Should skip reminders of rides that were cancelled or rescheduled")
+    public void fire_StaleReminders_Skipped() {
+        LocalDateTime start = LocalDateTime.now().plusMinutes(30);
+        scheduler.track(1L, start, null);
+        scheduler.track(2L, start, null);
+        scheduler.untrack(1L);
+        scheduler.track(2L, start.plusMinutes(10), null);
+
+        scheduler.fire(List.of(new Reminder(1L, start, start.minusMinutes(15)),
+                new Reminder(2L, start, start.minusMinutes(15))));
+
+        verify(rideRepository, never()).claimReminders(anyCollection(), any(), any());
+    }
+
+    @Test(description = "Should load upcoming rides from the database and drop rides no longer scheduled")
+    public void resync_TracksUpcomingRides() {
+        LocalDateTime start = LocalDateTime.now().plusMinutes(40);
+        scheduler.track(9L, LocalDateTime.now().plusMinutes(20), null);
+        when(rideRepository.findReminderRows(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(new RideReminderDto(1L, "creator@test.com", start, null)));
+
+        int loaded = scheduler.resync();
+
+        assertThat(loaded).isEqualTo(1);
+        scheduler.fire(List.of(new Reminder(9L, start, start.minusMinutes(15))));
+        verify(rideRepository, never()).claimReminders(anyCollection(), any(), any());
+    }
+}
@@ -9,20 +9,22 @@ import com.pekara.exception.InvalidScheduleTimeException;
 import com.pekara.exception.NoDriversAvailableException;
 import com.pekara.exception.UserBlockedException;
 import com.pekara.model.Driver;
-import com.pekara.model.DriverState;
+import com.pekara.dto.RideEventPayload;
+import com.pekara.dto.UserSummaryDto;
 import com.pekara.model.Ride;
+import com.pekara.model.RideEvent;
 import com.pekara.model.User;
 import com.pekara.model.UserRole;
-import com.pekara.repository.DriverStateRepository;
+import com.pekara.repository.DriverRepository;
 import com.pekara.repository.InconsistencyReportRepository;
 import com.pekara.repository.RideRatingRepository;
 import com.pekara.repository.RideRepository;
 import com.pekara.repository.UserRepository;
-import jakarta.persistence.EntityManager;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -38,6 +40,7 @@ import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -61,10 +64,10 @@ public class RideServiceImplOrderTest {
     private InconsistencyReportRepository inconsistencyReportRepository;
 
     @Mock
-    private DriverStateRepository driverStateRepository;
+    private DriverRepository driverRepository;
 
     @Mock
-    private EntityManager entityManager;
+    private PlatformTransactionManager transactionManager;
 
     @Mock
     private RideEstimationService rideEstimationService;
@@ -84,12 +87,17 @@ public class RideServiceImplOrderTest {
     @Mock
     private RoutingService routingService;
 
+    @Mock
+    private RideEventOutbox rideEventOutbox;
+
+    @Mock
+    private UserLookupService userLookupService;
+
     @InjectMocks
     private RideServiceImpl rideService;
 
     private User creator;
     private Driver driver;
-    private DriverState driverState;
     private OrderRideRequest request;
     private static final String CREATOR_EMAIL = "creator@test.com";
 
@@ -109,12 +117,6 @@ public class RideServiceImplOrderTest {
         driver.setEmail("driver@test.com");
         driver.setVehicleType("SEDAN");
 
-        driverState = new DriverState();
-        driverState.setId(driver.getId());
-        driverState.setDriver(driver);
-        driverState.setOnline(true);
-        driverState.setBusy(false);
-
         LocationPointDto pickup = LocationPointDto.builder().address("A").latitude(45.25).longitude(19.84).build();
         LocationPointDto dropoff = LocationPointDto.builder().address("B").latitude(45.27).longitude(19.85).build();
         request = OrderRideRequest.builder()
@@ -125,6 +127,9 @@ public class RideServiceImplOrderTest {
                 .petTransport(false)
                 .scheduledAt(null)
                 .build();
+
+        lenient().when(userLookupService.findByEmail(CREATOR_EMAIL))
+                .thenAnswer(inv -> Optional.of(UserSummaryDto.of(creator)));
     }
 
     @Test(description = "Should return OrderRideResponse and save ride when order succeeds")
@@ -136,9 +141,11 @@ public class RideServiceImplOrderTest {
                 .thenReturn(new RideEstimationService.RouteData(10.0, 20, List.of()));
         when(rideEstimationService.calculatePrice(eq("SEDAN"), eq(10.0))).thenReturn(new BigDecimal("500.00"));
         when(rideEstimationService.roundKm(10.0)).thenReturn(10.0);
-        when(rideEstimationService.serializeRouteCoordinates(any())).thenReturn("[]");
+        when(rideEstimationService.encodeRoutePolyline(any())).thenReturn("[]");
         when(driverMatchingService.selectDriverIdForRide(any(), any())).thenReturn(2L);
-        when(driverStateRepository.findByDriverIdForUpdate(2L)).thenReturn(Optional.of(driverState));
+        when(driverRepository.findById(2L)).thenReturn(Optional.of(driver));
+        when(driverStateManagementService.reserveForRide(eq(2L), eq(20), eq(45.27), eq(19.85), any(LocalDateTime.class)))
+                .thenReturn(true);
 
         Ride savedRide = Ride.builder().id(100L).status(RideStatus.ACCEPTED).estimatedPrice(new BigDecimal("500.00")).build();
         when(rideRepository.save(any(Ride.class))).thenAnswer(inv -> {
@@ -163,12 +170,17 @@ public class RideServiceImplOrderTest {
         assertThat(captured.getStatus()).isEqualTo(RideStatus.ACCEPTED);
         assertThat(captured.getStops()).hasSize(2);
 
-        verify(driverStateManagementService).markDriverBusy(eq(2L), eq(20), eq(45.27), eq(19.85));
+        verify(driverStateManagementService).reserveForRide(eq(2L), eq(20), eq(45.27), eq(19.85), any(LocalDateTime.class));
         verify(rideWorkLogService).createWorkLogForRide(eq(100L), eq(2L), any(LocalDateTime.class));
-        verify(rideNotificationService).sendRideOrderNotifications(eq("driver@test.com"), eq(CREATOR_EMAIL), eq(100L), eq("ACCEPTED"), any(), any());
+        ArgumentCaptor<RideEventPayload> event = ArgumentCaptor.forClass(RideEventPayload.class);
+        verify(rideEventOutbox).record(eq(RideEvent.Type.ORDERED), event.capture());
+        assertThat(event.getValue().getRideId()).isEqualTo(100L);
+        assertThat(event.getValue().getDriverEmail()).isEqualTo("driver@test.com");
+        assertThat(event.getValue().getCreatorEmail()).isEqualTo(CREATOR_EMAIL);
+        assertThat(event.getValue().getStatus()).isEqualTo("ACCEPTED");
     }
 
-    @Test(description = "Should set SCHEDULED and call setNextScheduledRide when scheduledAt is set")
+    @Test(description = "Should set SCHEDULED and book the driver for the scheduled time when scheduledAt is set")
     public void orderRide_Scheduled_SetsStatusAndCallsSetNextScheduledRide() {
         LocalDateTime scheduledAt = LocalDateTime.now().plusHours(2);
         request.setScheduledAt(scheduledAt);
@@ -179,9 +191,10 @@ public class RideServiceImplOrderTest {
                 .thenReturn(new RideEstimationService.RouteData(10.0, 20, List.of()));
         when(rideEstimationService.calculatePrice(any(), anyDouble())).thenReturn(new BigDecimal("500.00"));
         when(rideEstimationService.roundKm(anyDouble())).thenReturn(10.0);
-        when(rideEstimationService.serializeRouteCoordinates(any())).thenReturn("[]");
+        when(rideEstimationService.encodeRoutePolyline(any())).thenReturn("[]");
         when(driverMatchingService.selectDriverIdForRide(any(), any())).thenReturn(2L);
-        when(driverStateRepository.findByDriverIdForUpdate(2L)).thenReturn(Optional.of(driverState));
+        when(driverRepository.findById(2L)).thenReturn(Optional.of(driver));
+        when(driverStateManagementService.reserveForScheduledRide(2L, scheduledAt)).thenReturn(true);
         when(rideRepository.save(any(Ride.class))).thenAnswer(inv -> {
             Ride r = inv.getArgument(0);
             r.setId(101L);
@@ -192,7 +205,7 @@ public class RideServiceImplOrderTest {
 
         assertThat(response.getStatus()).isEqualTo(RideStatus.SCHEDULED.name());
         assertThat(response.getScheduledAt()).isEqualTo(scheduledAt);
-        verify(driverStateManagementService).setNextScheduledRide(2L, scheduledAt);
+        verify(driverStateManagementService, never()).reserveForRide(anyLong(), anyInt(), anyDouble(), anyDouble(), any());
         verify(rideWorkLogService, never()).createWorkLogForRide(anyLong(), anyLong(), any());
     }
 
@@ -200,7 +213,6 @@ public class RideServiceImplOrderTest {
     public void orderRide_CreatorBlocked_ThrowsUserBlockedException() {
         creator.setBlocked(true);
         creator.setBlockedNote("Abuse");
-        when(userRepository.findByEmail(CREATOR_EMAIL)).thenReturn(Optional.of(creator));
 
         assertThatThrownBy(() -> rideService.orderRide(CREATOR_EMAIL, request))
                 .isInstanceOf(UserBlockedException.class)
@@ -208,10 +220,28 @@ public class RideServiceImplOrderTest {
         verify(rideRepository, never()).save(any());
     }
 
+    @Test(description = "Should re-check the creator row and reject when the cached summary is stale")
+    public void orderRide_BlockedAfterSummaryCached_ThrowsUserBlockedException() {
+        when(userLookupService.findByEmail(CREATOR_EMAIL)).thenReturn(Optional.of(UserSummaryDto.of(creator)));
+        creator.setBlocked(true);
+        when(userRepository.findByEmail(CREATOR_EMAIL)).thenReturn(Optional.of(creator));
+        when(rideRepository.findPassengerActiveRides(anyLong(), any())).thenReturn(List.of());
+        when(rideEstimationService.calculateRouteWithStops(any(), any(), any()))
+                .thenReturn(new RideEstimationService.RouteData(10.0, 20, List.of()));
+        when(rideEstimationService.calculatePrice(any(), anyDouble())).thenReturn(new BigDecimal("500.00"));
+        when(rideEstimationService.encodeRoutePolyline(any())).thenReturn("[]");
+        when(driverMatchingService.selectDriverIdForRide(any(), any())).thenReturn(2L);
+
+        assertThatThrownBy(() -> rideService.orderRide(CREATOR_EMAIL, request))
+                .isInstanceOf(UserBlockedException.class)
+                .hasMessageContaining("Contact support");
+        verify(driverStateManagementService, never()).reserveForRide(anyLong(), anyInt(), anyDouble(), anyDouble(), any());
+        verify(rideRepository, never()).save(any());
+    }
+
     @Test(description = "Should throw ActiveRideConflictException when creator has active ride")
     public void orderRide_ActiveRideExists_ThrowsActiveRideConflictException() {
         Ride activeRide = Ride.builder().id(50L).status(RideStatus.ACCEPTED).build();
-        when(userRepository.findByEmail(CREATOR_EMAIL)).thenReturn(Optional.of(creator));
         when(rideRepository.findPassengerActiveRides(creator.getId(), List.of(RideStatus.ACCEPTED, RideStatus.SCHEDULED, RideStatus.IN_PROGRESS)))
                 .thenReturn(List.of(activeRide));
 
@@ -224,7 +254,6 @@ public class RideServiceImplOrderTest {
     @Test(description = "Should throw when scheduledAt is in the past")
     public void orderRide_ScheduledInPast_ThrowsInvalidScheduleTimeException() {
         request.setScheduledAt(LocalDateTime.now().minusMinutes(10));
-        when(userRepository.findByEmail(CREATOR_EMAIL)).thenReturn(Optional.of(creator));
         when(rideRepository.findPassengerActiveRides(anyLong(), any())).thenReturn(List.of());
 
         assertThatThrownBy(() -> rideService.orderRide(CREATOR_EMAIL, request))
@@ -235,7 +264,6 @@ public class RideServiceImplOrderTest {
     @Test(description = "Should throw when scheduledAt is more than 5 hours ahead")
     public void orderRide_ScheduledMoreThan5h_ThrowsInvalidScheduleTimeException() {
         request.setScheduledAt(LocalDateTime.now().plusHours(6));
-        when(userRepository.findByEmail(CREATOR_EMAIL)).thenReturn(Optional.of(creator));
         when(rideRepository.findPassengerActiveRides(anyLong(), any())).thenReturn(List.of());
 
         assertThatThrownBy(() -> rideService.orderRide(CREATOR_EMAIL, request))
@@ -245,12 +273,11 @@ public class RideServiceImplOrderTest {
 
     @Test(description = "Should throw and send rejection when no driver available")
     public void orderRide_NoDriver_ThrowsAndSendsRejection() {
-        when(userRepository.findByEmail(CREATOR_EMAIL)).thenReturn(Optional.of(creator));
         when(rideRepository.findPassengerActiveRides(anyLong(), any())).thenReturn(List.of());
         when(rideEstimationService.calculateRouteWithStops(any(), any(), any()))
                 .thenReturn(new RideEstimationService.RouteData(10.0, 20, List.of()));
         when(rideEstimationService.calculatePrice(any(), anyDouble())).thenReturn(new BigDecimal("500.00"));
-        when(rideEstimationService.serializeRouteCoordinates(any())).thenReturn("[]");
+        when(rideEstimationService.encodeRoutePolyline(any())).thenReturn("[]");
         when(driverMatchingService.selectDriverIdForRide(any(), any())).thenReturn(null);
 
         assertThatThrownBy(() -> rideService.orderRide(CREATOR_EMAIL, request))
@@ -260,19 +287,25 @@ public class RideServiceImplOrderTest {
         verify(rideRepository, never()).save(any());
     }
 
-    @Test(description = "Should throw when driver state not found after selection")
-    public void orderRide_DriverStateNotFoundAfterSelection_ThrowsNoDriversAvailable() {
+    @Test(description = "Should reject without writing anything when another order reserved the driver first")
+    public void orderRide_ReservationLost_ThrowsAndWritesNothing() {
         when(userRepository.findByEmail(CREATOR_EMAIL)).thenReturn(Optional.of(creator));
         when(rideRepository.findPassengerActiveRides(anyLong(), any())).thenReturn(List.of());
         when(rideEstimationService.calculateRouteWithStops(any(), any(), any()))
                 .thenReturn(new RideEstimationService.RouteData(10.0, 20, List.of()));
         when(rideEstimationService.calculatePrice(any(), anyDouble())).thenReturn(new BigDecimal("500.00"));
         when(driverMatchingService.selectDriverIdForRide(any(), any())).thenReturn(2L);
-        when(driverStateRepository.findByDriverIdForUpdate(2L)).thenReturn(Optional.empty());
+        when(driverRepository.findById(2L)).thenReturn(Optional.of(driver));
+        when(driverStateManagementService.reserveForRide(eq(2L), anyInt(), anyDouble(), anyDouble(), any()))
+                .thenReturn(false);
 
         assertThatThrownBy(() -> rideService.orderRide(CREATOR_EMAIL, request))
                 .isInstanceOf(NoDriversAvailableException.class)
                 .hasMessageContaining("Driver became unavailable");
+        verify(rideNotificationService).sendRejectionNotification(CREATOR_EMAIL, "Driver became unavailable");
+        verify(rideRepository, never()).save(any());
+        verify(rideWorkLogService, never()).createWorkLogForRide(anyLong(), anyLong(), any());
+        verify(rideEventOutbox, never()).record(any(), any());
     }
 
     @Test(description = "Should add additional passengers from passengerEmails")
@@ -287,9 +320,10 @@ public class RideServiceImplOrderTest {
                 .thenReturn(new RideEstimationService.RouteData(10.0, 20, List.of()));
         when(rideEstimationService.calculatePrice(any(), anyDouble())).thenReturn(new BigDecimal("500.00"));
         when(rideEstimationService.roundKm(anyDouble())).thenReturn(10.0);
-        when(rideEstimationService.serializeRouteCoordinates(any())).thenReturn("[]");
+        when(rideEstimationService.encodeRoutePolyline(any())).thenReturn("[]");
         when(driverMatchingService.selectDriverIdForRide(any(), any())).thenReturn(2L);
-        when(driverStateRepository.findByDriverIdForUpdate(2L)).thenReturn(Optional.of(driverState));
+        when(driverRepository.findById(2L)).thenReturn(Optional.of(driver));
+        when(driverStateManagementService.reserveForRide(eq(2L), anyInt(), anyDouble(), anyDouble(), any())).thenReturn(true);
         when(rideRepository.save(any(Ride.class))).thenAnswer(inv -> {
             Ride r = inv.getArgument(0);
             r.setId(102L);
@@ -314,9 +348,10 @@ public class RideServiceImplOrderTest {
                 .thenReturn(new RideEstimationService.RouteData(12.0, 25, List.of()));
         when(rideEstimationService.calculatePrice(any(), anyDouble())).thenReturn(new BigDecimal("600.00"));
         when(rideEstimationService.roundKm(anyDouble())).thenReturn(12.0);
-        when(rideEstimationService.serializeRouteCoordinates(any())).thenReturn("[]");
+        when(rideEstimationService.encodeRoutePolyline(any())).thenReturn("[]");
         when(driverMatchingService.selectDriverIdForRide(any(), any())).thenReturn(2L);
-        when(driverStateRepository.findByDriverIdForUpdate(2L)).thenReturn(Optional.of(driverState));
+        when(driverRepository.findById(2L)).thenReturn(Optional.of(driver));
+        when(driverStateManagementService.reserveForRide(eq(2L), anyInt(), anyDouble(), anyDouble(), any())).thenReturn(true);
         when(rideRepository.save(any(Ride.class))).thenAnswer(inv -> {
             Ride r = inv.getArgument(0);
             r.setId(103L);
@@ -3,7 +3,9 @@ package com.pekara.service;
 import com.pekara.constant.RideStatus;
 import com.pekara.dto.common.LocationPointDto;
 import com.pekara.model.Driver;
+import com.pekara.dto.RideEventPayload;
 import com.pekara.model.Ride;
+import com.pekara.model.RideEvent;
 import com.pekara.model.RideStop;
 import com.pekara.model.User;
 import com.pekara.model.UserRole;
@@ -59,6 +61,12 @@ public class RideServiceImplTest {
     @Mock
     private RideNotificationService rideNotificationService;
 
+    @Mock
+    private RideDailyStatsService rideDailyStatsService;
+
+    @Mock
+    private RideEventOutbox rideEventOutbox;
+
     @InjectMocks
     private RideServiceImpl rideService;
 
@@ -153,6 +161,10 @@ public class RideServiceImplTest {
         Ride savedRide = rideCaptor.getValue();
         assertThat(savedRide.getStatus()).isEqualTo(RideStatus.STOP_REQUESTED);
         verify(rideRepository).findById(1L);
+
+        ArgumentCaptor<RideEventPayload> event = ArgumentCaptor.forClass(RideEventPayload.class);
+        verify(rideEventOutbox).record(eq(RideEvent.Type.STOP_REQUESTED), event.capture());
+        assertThat(event.getValue().getRideId()).isEqualTo(1L);
     }
 
     @Test(description = "Should throw exception when ride not found")
@@ -242,6 +254,11 @@ public class RideServiceImplTest {
 
         verify(driverStateManagementService).releaseDriverAfterRide(3L);
         verify(rideWorkLogService).completeWorkLog(eq(1L), any(LocalDateTime.class));
+
+        ArgumentCaptor<RideEventPayload> event = ArgumentCaptor.forClass(RideEventPayload.class);
+        verify(rideEventOutbox).record(eq(RideEvent.Type.STOPPED_EARLY), event.capture());
+        assertThat(event.getValue().getPrice()).isEqualByComparingTo("420.00");
+        assertThat(event.getValue().getCompletedAt()).isEqualTo(savedRide.getCompletedAt());
     }
 
     @Test(description = "Should throw exception when ride not found")
@@ -276,7 +293,13 @@ public class RideServiceImplTest {
 
         verify(driverStateManagementService).releaseDriverAfterRide(3L);
         verify(rideWorkLogService).completeWorkLog(eq(1L), any(LocalDateTime.class));
-        verify(rideNotificationService).sendRideCompletionNotifications(eq(1L), anyList(), any(BigDecimal.class));
+        verify(rideNotificationService, never()).sendRideCompletionNotifications(anyLong(), anyList(), any());
+
+        ArgumentCaptor<RideEventPayload> event = ArgumentCaptor.forClass(RideEventPayload.class);
+        verify(rideEventOutbox).record(eq(RideEvent.Type.COMPLETED), event.capture());
+        assertThat(event.getValue().getRideId()).isEqualTo(1L);
+        assertThat(event.getValue().getDriverId()).isEqualTo(3L);
+        assertThat(event.getValue().getStatus()).isEqualTo("COMPLETED");
     }
 
     @Test(description = "Should throw exception when ride not found in completeRide")
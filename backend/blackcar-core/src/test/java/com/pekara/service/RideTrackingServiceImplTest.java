@@ -0,0 +1,204 @@
+package com.pekara.service;
+
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.UserSummaryDto;
+import com.pekara.dto.request.RideLocationUpdateRequest;
+import com.pekara.dto.response.RideTrackingResponse;
+import com.pekara.model.ActiveRideContext;
+import com.pekara.model.RideLocationCacheEntry;
+import com.pekara.model.UserRole;
+import com.pekara.repository.RideRepository;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RideTrackingServiceImpl - location updates and tracking reads served from the
+ * cached ride context.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class RideTrackingServiceImplTest {
+
+    private static final Long RIDE_ID = 7L;
+    private static final String DRIVER = "driver@test.com";
+    private static final String PASSENGER = "passenger@test.com";
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private UserLookupService userLookupService;
+
+    @Mock
+    private RideEtaEstimator rideEtaEstimator;
+
+    @Mock
+    private RedisTemplate<String, RideLocationCacheEntry> rideLocationRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, RideLocationCacheEntry> valueOperations;
+
+    @Mock
+    private ActiveRideContextCache activeRideContextCache;
+
+    @Mock
+    private RideTrackingAccessCache rideTrackingAccessCache;
+
+    @InjectMocks
+    private RideTrackingServiceImpl rideTrackingService;
+
+    @BeforeMethod
+    public void setUp() {
+        lenient().when(rideLocationRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test(description = "Should answer a ping from the context and the estimator with a single Redis write")
+    public void updateLocation_StoresEnrichedSnapshot_NoDatabase() {
+        ActiveRideContext ride = context(RideStatus.IN_PROGRESS);
+        when(activeRideContextCache.get(RIDE_ID)).thenReturn(Optional.of(ride));
+        when(rideEtaEstimator.estimate(eq(ride), eq(45.25), eq(19.85), any()))
+                .thenReturn(new RideEtaEstimator.Eta(3.9456, 600));
+
+        RideTrackingResponse response = rideTrackingService.updateLocation(RIDE_ID, DRIVER, ping(45.25, 19.85));
+
+        ArgumentCaptor<RideLocationCacheEntry> stored = ArgumentCaptor.forClass(RideLocationCacheEntry.class);
+        verify(valueOperations).set(eq("ride:7:location"), stored.capture(), any(Duration.class));
+        assertThat(stored.getValue().getEtaSeconds()).isEqualTo(600);
+        assertThat(stored.getValue().getDriverLicensePlate()).isEqualTo("NS-123-AB");
+
+        assertThat(response.getRideStatus()).isEqualTo(RideStatus.IN_PROGRESS);
+        assertThat(response.getEtaSeconds()).isEqualTo(600);
+        assertThat(response.getDistanceToDestinationKm()).isEqualTo(3.946);
+        assertThat(response.getLastLocation().getLatitude()).isEqualTo(45.25);
+        assertThat(response.getNextStopAddress()).isEqualTo("Dropoff");
+        verifyNoInteractions(rideRepository, userLookupService);
+    }
+
+    @Test(description = "Should store the location without an ETA when none can be estimated")
+    public void updateLocation_NoEstimate_StoresLocationOnly() {
+        when(activeRideContextCache.get(RIDE_ID)).thenReturn(Optional.of(context(RideStatus.ACCEPTED)));
+
+        RideTrackingResponse response = rideTrackingService.updateLocation(RIDE_ID, DRIVER, ping(45.24, 19.80));
+
+        assertThat(response.getEtaSeconds()).isNull();
+        assertThat(response.getDistanceToDestinationKm()).isNull();
+        assertThat(response.getLastLocation().getLongitude()).isEqualTo(19.80);
+    }
+
+    @Test(description = "Should reject a ping from anyone but the assigned driver")
+    public void updateLocation_NotDriver_ThrowsException() {
+        when(activeRideContextCache.get(RIDE_ID)).thenReturn(Optional.of(context(RideStatus.IN_PROGRESS)));
+
+        assertThatThrownBy(() -> rideTrackingService.updateLocation(RIDE_ID, PASSENGER, ping(45.25, 19.85)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("You are not the assigned driver for this ride");
+        verifyNoInteractions(valueOperations);
+    }
+
+    @Test(description = "Should tell a finished ride from a missing one when there is no context")
+    public void updateLocation_NoContext_ChecksRideExists() {
+        when(activeRideContextCache.get(RIDE_ID)).thenReturn(Optional.empty());
+        when(rideRepository.existsById(RIDE_ID)).thenReturn(true);
+        when(activeRideContextCache.get(8L)).thenReturn(Optional.empty());
+        when(rideRepository.existsById(8L)).thenReturn(false);
+
+        assertThatThrownBy(() -> rideTrackingService.updateLocation(RIDE_ID, DRIVER, ping(45.25, 19.85)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Ride is not active for tracking");
+        assertThatThrownBy(() -> rideTrackingService.updateLocation(8L, DRIVER, ping(45.25, 19.85)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Ride not found");
+    }
+
+    @Test(description = "Should serve a participant's tracking read without looking up the user")
+    public void getTracking_Participant_NoUserLookup() {
+        when(activeRideContextCache.get(RIDE_ID)).thenReturn(Optional.of(context(RideStatus.IN_PROGRESS)));
+        when(valueOperations.get("ride:7:location")).thenReturn(RideLocationCacheEntry.builder()
+                .rideId(RIDE_ID).rideStatus(RideStatus.ACCEPTED).latitude(45.25).longitude(19.85).etaSeconds(300).build());
+
+        RideTrackingResponse response = rideTrackingService.getTracking(RIDE_ID, PASSENGER);
+
+        assertThat(response.getRideStatus()).isEqualTo(RideStatus.IN_PROGRESS);
+        assertThat(response.getEtaSeconds()).isEqualTo(300);
+        verifyNoInteractions(rideRepository, userLookupService);
+    }
+
+    @Test(description = "Should let an admin read tracking and reject other outsiders")
+    public void getTracking_NonParticipant_OnlyAdmin() {
+        when(activeRideContextCache.get(RIDE_ID)).thenReturn(Optional.of(context(RideStatus.IN_PROGRESS)));
+        when(userLookupService.findByEmail("admin@test.com"))
+                .thenReturn(Optional.of(UserSummaryDto.builder().email("admin@test.com").role(UserRole.ADMIN).build()));
+        when(userLookupService.findByEmail("other@test.com"))
+                .thenReturn(Optional.of(UserSummaryDto.builder().email("other@test.com").role(UserRole.PASSENGER).build()));
+
+        RideTrackingResponse response = rideTrackingService.getTracking(RIDE_ID, "admin@test.com");
+
+        assertThat(response.getLastLocation()).isNull();
+        assertThat(response.getNextStopAddress()).isEqualTo("Dropoff");
+        assertThatThrownBy(() -> rideTrackingService.getTracking(RIDE_ID, "other@test.com"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("You are not authorized to view tracking for this ride");
+    }
+
+    @Test(description = "Should answer a participant's access check from the ACL without Redis or a user lookup")
+    public void canTrack_Participant_FromAcl() {
+        when(rideTrackingAccessCache.viewers(RIDE_ID)).thenReturn(Set.of(DRIVER, PASSENGER));
+
+        assertThat(rideTrackingService.canTrack(RIDE_ID, PASSENGER)).isTrue();
+        verifyNoInteractions(rideLocationRedisTemplate, userLookupService, rideRepository, activeRideContextCache);
+    }
+
+    @Test(description = "Should allow only admins to track a ride they are not part of, or one that has ended")
+    public void canTrack_NotParticipant_OnlyAdmin() {
+        when(rideTrackingAccessCache.viewers(RIDE_ID)).thenReturn(Set.of());
+        when(userLookupService.findByEmail("admin@test.com"))
+                .thenReturn(Optional.of(UserSummaryDto.builder().email("admin@test.com").role(UserRole.ADMIN).build()));
+        when(userLookupService.findByEmail(PASSENGER))
+                .thenReturn(Optional.of(UserSummaryDto.builder().email(PASSENGER).role(UserRole.PASSENGER).build()));
+
+        assertThat(rideTrackingService.canTrack(RIDE_ID, "admin@test.com")).isTrue();
+        assertThat(rideTrackingService.canTrack(RIDE_ID, PASSENGER)).isFalse();
+    }
+
+    private static ActiveRideContext context(RideStatus status) {
+        return ActiveRideContext.builder()
+                .rideId(RIDE_ID)
+                .status(status)
+                .driverId(3L)
+                .driverEmail(DRIVER)
+                .driverLicensePlate("NS-123-AB")
+                .vehicleType("SEDAN")
+                .participantEmails(Set.of(DRIVER, PASSENGER))
+                .destinationLatitude(45.25)
+                .destinationLongitude(19.90)
+                .destinationAddress("Dropoff")
+                .estimatedDurationMinutes(20)
+                .build();
+    }
+
+    private static RideLocationUpdateRequest ping(double latitude, double longitude) {
+        RideLocationUpdateRequest request = new RideLocationUpdateRequest();
+        request.setLatitude(latitude);
+        request.setLongitude(longitude);
+        return request;
+    }
+}
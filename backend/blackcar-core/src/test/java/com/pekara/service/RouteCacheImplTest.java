@@ -0,0 +1,178 @@
+package com.pekara.service;
+
+import com.pekara.dto.RouteDto;
+import com.pekara.dto.common.LocationPointDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RouteCacheImpl - quantized keys, LRU/TTL eviction and the Redis tier.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class RouteCacheImplTest {
+
+    @Mock
+    private RedisTemplate<String, RouteDto> routeRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, RouteDto> valueOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock();
+    }
+
+    @Test(description = "Should hit for waypoints that round to the same key and count hits and misses")
+    public void get_QuantizedWaypoints_HitsCachedRoute() {
+        RouteCacheImpl cache = localCache(10, Duration.ofMinutes(10));
+        cache.put(List.of(point(45.25001, 19.84001), point(45.26, 19.85)), route(3.2));
+
+        Optional<RouteDto> hit = cache.get(List.of(point(45.25003, 19.83998), point(45.26, 19.85)));
+        Optional<RouteDto> miss = cache.get(List.of(point(45.2512, 19.84), point(45.26, 19.85)));
+
+        assertThat(hit).map(RouteDto::getDistanceKm).contains(3.2);
+        assertThat(miss).isEmpty();
+        assertThat(requests("local", "hit")).isEqualTo(1.0);
+        assertThat(requests("local", "miss")).isEqualTo(1.0);
+        verifyNoInteractions(routeRedisTemplate);
+    }
+
+    @Test(description = "Should expire entries after the TTL")
+    public void get_ExpiredEntry_Misses() {
+        RouteCacheImpl cache = localCache(10, Duration.ofMinutes(10));
+        List<LocationPointDto> waypoints = List.of(point(45.25, 19.84), point(45.26, 19.85));
+        cache.put(waypoints, route(1.0));
+
+        clock.advance(Duration.ofMinutes(11));
+
+        assertThat(cache.get(waypoints)).isEmpty();
+        assertThat(cache.localSize()).isZero();
+    }
+
+    @Test(description = "Should evict the least recently used route when full")
+    public void put_OverCapacity_EvictsLeastRecentlyUsed() {
+        RouteCacheImpl cache = localCache(2, Duration.ofMinutes(10));
+        List<LocationPointDto> first = List.of(point(45.25, 19.84), point(45.26, 19.85));
+        List<LocationPointDto> second = List.of(point(45.27, 19.84), point(45.26, 19.85));
+        List<LocationPointDto> third = List.of(point(45.28, 19.84), point(45.26, 19.85));
+
+        cache.put(first, route(1.0));
+        cache.put(second, route(2.0));
+        cache.get(first);
+        cache.put(third, route(3.0));
+
+        assertThat(cache.get(first)).isPresent();
+        assertThat(cache.get(second)).isEmpty();
+        assertThat(cache.get(third)).isPresent();
+        assertThat(meterRegistry.get("routing.cache.evictions").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test(description = "Should not let callers modify the cached route")
+    public void get_ReturnsCopy() {
+        RouteCacheImpl cache = localCache(10, Duration.ofMinutes(10));
+        List<LocationPointDto> waypoints = List.of(point(45.25, 19.84), point(45.26, 19.85));
+        cache.put(waypoints, route(1.0));
+
+        cache.get(waypoints).orElseThrow().setDistanceKm(99.0);
+
+        assertThat(cache.get(waypoints)).map(RouteDto::getDistanceKm).contains(1.0);
+    }
+
+    @Test(description = "Should fall back to Redis on a local miss and keep the result locally")
+    public void get_LocalMiss_ReadsRedisTier() {
+        when(routeRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("route:452500,198400;452600,198500")).thenReturn(route(4.5));
+        RouteCacheImpl cache = new RouteCacheImpl(routeRedisTemplate, meterRegistry, clock, 10, Duration.ofMinutes(10), 4, true);
+        List<LocationPointDto> waypoints = List.of(point(45.25, 19.84), point(45.26, 19.85));
+
+        assertThat(cache.get(waypoints)).map(RouteDto::getDistanceKm).contains(4.5);
+        assertThat(cache.get(waypoints)).map(RouteDto::getDistanceKm).contains(4.5);
+
+        assertThat(requests("redis", "hit")).isEqualTo(1.0);
+        assertThat(requests("local", "hit")).isEqualTo(1.0);
+    }
+
+    @Test(description = "Should write through to Redis and survive Redis failures")
+    public void put_RedisEnabled_WritesThroughAndIgnoresErrors() {
+        when(routeRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenThrow(new IllegalStateException("Redis down"));
+        RouteCacheImpl cache = new RouteCacheImpl(routeRedisTemplate, meterRegistry, clock, 10, Duration.ofMinutes(10), 4, true);
+        List<LocationPointDto> waypoints = List.of(point(45.25, 19.84), point(45.26, 19.85));
+
+        assertThat(cache.get(waypoints)).isEmpty();
+        cache.put(waypoints, route(2.0));
+
+        verify(valueOperations).set(eq("route:452500,198400;452600,198500"), any(RouteDto.class), eq(Duration.ofMinutes(10)));
+        assertThat(requests("redis", "miss")).isEqualTo(1.0);
+    }
+
+    private RouteCacheImpl localCache(int maxEntries, Duration ttl) {
+        return new RouteCacheImpl(routeRedisTemplate, meterRegistry, clock, maxEntries, ttl, 4, false);
+    }
+
+    private double requests(String tier, String result) {
+        return meterRegistry.get("routing.cache.requests").tag("tier", tier).tag("result", result).counter().count();
+    }
+
+    private static LocationPointDto point(double lat, double lon) {
+        return LocationPointDto.builder().latitude(lat).longitude(lon).build();
+    }
+
+    private static RouteDto route(double distanceKm) {
+        return RouteDto.builder()
+                .distanceKm(distanceKm)
+                .durationMinutes(5)
+                .routePoints(List.of(point(45.25, 19.84), point(45.26, 19.85)))
+                .build();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
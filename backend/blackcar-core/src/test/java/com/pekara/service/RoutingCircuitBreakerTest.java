@@ -0,0 +1,106 @@
+package com.pekara.service;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for RoutingCircuitBreaker - open after consecutive failures, single probe when half open.
+ */
+public class RoutingCircuitBreakerTest {
+
+    private MutableClock clock;
+    private RoutingCircuitBreaker circuitBreaker;
+
+    @BeforeMethod
+    public void setUp() {
+        clock = new MutableClock();
+        circuitBreaker = new RoutingCircuitBreaker(3, Duration.ofSeconds(30), clock);
+    }
+
+    @Test(description = "Should open after the failure threshold and reject calls")
+    public void recordFailure_ThresholdReached_Opens() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+
+        circuitBreaker.recordFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(RoutingCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test(description = "Should reset the failure count on success")
+    public void recordSuccess_ResetsFailures() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(RoutingCircuitBreaker.State.CLOSED);
+    }
+
+    @Test(description = "Should let a single probe through after the open duration and close on success")
+    public void tryAcquire_AfterOpenDuration_AllowsSingleProbe() {
+        open();
+        clock.advance(Duration.ofSeconds(31));
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(RoutingCircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.recordSuccess();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(RoutingCircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test(description = "Should re-open when the probe fails")
+    public void recordFailure_HalfOpen_Reopens() {
+        open();
+        clock.advance(Duration.ofSeconds(31));
+        circuitBreaker.tryAcquire();
+
+        circuitBreaker.recordFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(RoutingCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
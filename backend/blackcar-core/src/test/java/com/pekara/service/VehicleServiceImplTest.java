@@ -0,0 +1,151 @@
+package com.pekara.service;
+
+import com.pekara.dto.request.ActiveVehiclesQuery;
+import com.pekara.dto.response.ActiveVehicleMapResponse;
+import com.pekara.dto.response.ActiveVehicleResponse;
+import com.pekara.model.Driver;
+import com.pekara.model.DriverLocationSnapshot;
+import com.pekara.model.DriverState;
+import com.pekara.repository.DriverStateRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for VehicleServiceImpl - active vehicles snapshot, viewport filtering and clustering.
+ */
+@Listeners(MockitoTestNGListener.class)
+public class VehicleServiceImplTest {
+
+    @Mock
+    private DriverStateRepository driverStateRepository;
+
+    @Mock
+    private DriverLocationIndex driverLocationIndex;
+
+    private VehicleServiceImpl vehicleService;
+
+    @BeforeMethod
+    public void setUp() {
+        vehicleService = new VehicleServiceImpl(driverStateRepository, driverLocationIndex, new ObjectMapper(), 14);
+        lenient().when(driverLocationIndex.getAll(anyCollection())).thenReturn(Map.of());
+    }
+
+    @Test(description = "Should build the snapshot from online, active drivers with a known position")
+    public void refreshSnapshot_SkipsInactiveAndUnlocated() {
+        DriverState blocked = state(2L, 45.26, 19.84, false);
+        blocked.getDriver().setBlocked(true);
+        when(driverStateRepository.findAllOnlineDriversWithDriver()).thenReturn(List.of(
+                state(1L, 45.25, 19.84, true), blocked, state(3L, null, null, false)));
+
+        vehicleService.refreshSnapshot();
+
+        ActiveVehicleMapResponse response = vehicleService.getActiveVehicles(query(null, null));
+        assertThat(response.getVehicles()).extracting(ActiveVehicleResponse::getVehicleId).containsExactly(1L);
+        assertThat(response.getVehicles().get(0).getBusy()).isTrue();
+        assertThat(response.getVehicles().get(0).getLicensePlate()).isEqualTo("NS-1");
+        assertThat(response.getVersion()).isEqualTo(vehicleService.snapshotVersion()).hasSize(16);
+    }
+
+    @Test(description = "Should prefer live index positions and change the version only with the content")
+    public void refreshSnapshot_VersionChangesOnlyWithContent() {
+        when(driverStateRepository.findAllOnlineDriversWithDriver()).thenReturn(List.of(state(1L, 45.25, 19.84, false)));
+        vehicleService.refreshSnapshot();
+        String first = vehicleService.snapshotVersion();
+        vehicleService.refreshSnapshot();
+        assertThat(vehicleService.snapshotVersion()).isEqualTo(first);
+
+        when(driverLocationIndex.getAll(List.of(1L))).thenReturn(Map.of(1L, DriverLocationSnapshot.builder()
+                .driverId(1L).latitude(45.30).longitude(19.90).build()));
+        vehicleService.refreshSnapshot();
+
+        assertThat(vehicleService.snapshotVersion()).isNotEqualTo(first);
+        assertThat(vehicleService.getActiveVehicles(query(null, null)).getVehicles().get(0).getLatitude()).isEqualTo(45.30);
+    }
+
+    @Test(description = "Should give the same version on every node for the same vehicles")
+    public void snapshotVersion_SameContent_SameOnEveryNode() {
+        when(driverStateRepository.findAllOnlineDriversWithDriver()).thenReturn(List.of(
+                state(2L, 45.26, 19.85, true), state(1L, 45.25, 19.84, false)));
+        VehicleServiceImpl otherNode = new VehicleServiceImpl(driverStateRepository, driverLocationIndex,
+                new ObjectMapper(), 14);
+
+        vehicleService.refreshSnapshot();
+        // A node that has been running longer and seen other content in between.
+        when(driverLocationIndex.getAll(List.of(2L, 1L))).thenReturn(Map.of(1L, DriverLocationSnapshot.builder()
+                .driverId(1L).latitude(45.30).longitude(19.90).build()));
+        otherNode.refreshSnapshot();
+        when(driverLocationIndex.getAll(List.of(2L, 1L))).thenReturn(Map.of());
+        otherNode.refreshSnapshot();
+
+        assertThat(otherNode.snapshotVersion()).isEqualTo(vehicleService.snapshotVersion());
+    }
+
+    @Test(description = "Should return only vehicles inside the bounding box")
+    public void getActiveVehicles_BoundingBox_Filters() {
+        when(driverStateRepository.findAllOnlineDriversWithDriver()).thenReturn(List.of(
+                state(1L, 45.25, 19.84, false), state(2L, 45.26, 19.95, false),
+                state(3L, 45.40, 19.85, false), state(4L, 45.20, 19.80, false)));
+        vehicleService.refreshSnapshot();
+
+        ActiveVehiclesQuery viewport = ActiveVehiclesQuery.builder()
+                .minLatitude(45.20).maxLatitude(45.30).minLongitude(19.80).maxLongitude(19.90)
+                .page(0).size(50).build();
+
+        assertThat(vehicleService.getActiveVehicles(viewport).getVehicles())
+                .extracting(ActiveVehicleResponse::getVehicleId).containsExactly(4L, 1L);
+    }
+
+    @Test(description = "Should cluster nearby vehicles at low zoom and keep isolated ones")
+    public void getActiveVehicles_LowZoom_Clusters() {
+        when(driverStateRepository.findAllOnlineDriversWithDriver()).thenReturn(List.of(
+                state(1L, 45.2510, 19.8410, true), state(2L, 45.2520, 19.8420, false),
+                state(3L, 45.2530, 19.8430, false), state(4L, 44.80, 20.46, false)));
+        vehicleService.refreshSnapshot();
+
+        ActiveVehicleMapResponse clustered = vehicleService.getActiveVehicles(query(10, 50));
+        assertThat(clustered.getVehicles()).extracting(ActiveVehicleResponse::getVehicleId).containsExactly(4L);
+        assertThat(clustered.getClusters()).hasSize(1);
+        assertThat(clustered.getClusters().get(0).getCount()).isEqualTo(3);
+        assertThat(clustered.getClusters().get(0).getBusyCount()).isEqualTo(1);
+
+        ActiveVehicleMapResponse detailed = vehicleService.getActiveVehicles(query(16, 2));
+        assertThat(detailed.getClusters()).isEmpty();
+        assertThat(detailed.getVehicles()).hasSize(2);
+        assertThat(detailed.getTotalVehicles()).isEqualTo(4);
+    }
+
+    private static ActiveVehiclesQuery query(Integer zoom, Integer size) {
+        return ActiveVehiclesQuery.builder().zoom(zoom).page(0).size(size != null ? size : 50).build();
+    }
+
+    private static DriverState state(Long id, Double lat, Double lon, boolean busy) {
+        Driver driver = new Driver();
+        driver.setId(id);
+        driver.setVehicleType("STANDARD");
+        driver.setLicensePlate("NS-" + id);
+        driver.setFirstName("Driver");
+        driver.setLastName("No" + id);
+        driver.setIsActive(true);
+        driver.setBlocked(false);
+        DriverState state = new DriverState();
+        state.setId(id);
+        state.setDriver(driver);
+        state.setOnline(true);
+        state.setBusy(busy);
+        state.setLatitude(lat);
+        state.setLongitude(lon);
+        return state;
+    }
+}
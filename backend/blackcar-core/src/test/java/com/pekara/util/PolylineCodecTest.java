@@ -0,0 +1,98 @@
+package com.pekara.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pekara.dto.common.LocationPointDto;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for PolylineCodec - encoded route geometry and conversion of legacy JSON.
+ */
+public class PolylineCodecTest {
+
+    @Test(description = "Should match the reference polyline encoding")
+    public void encode_ReferenceExample() {
+        List<LocationPointDto> points = List.of(point(38.5, -120.2), point(40.7, -120.95), point(43.252, -126.453));
+
+        assertThat(PolylineCodec.encode(points)).isEqualTo("_p~iF~ps|U_ulLnnqC_mqNvxq`@");
+    }
+
+    @Test(description = "Should stream decoded points back with 1e-5 precision")
+    public void decoder_RoundTrip() {
+        List<LocationPointDto> points = route(500);
+
+        PolylineCodec.Decoder decoder = PolylineCodec.decoder(PolylineCodec.encode(points));
+        int count = 0;
+        while (decoder.next()) {
+            assertThat(decoder.latitude()).isCloseTo(points.get(count).getLatitude(), within(0.5e-5));
+            assertThat(decoder.longitude()).isCloseTo(points.get(count).getLongitude(), within(0.5e-5));
+            count++;
+        }
+        assertThat(count).isEqualTo(points.size());
+    }
+
+    @Test(description = "Should convert legacy JSON to a polyline and back")
+    public void fromCoordinatesJson_LegacyRoute_RoundTrips() {
+        String legacy = "[[45.2551,19.8451],[45.2671,19.8335],[45.26,-19.8]]";
+
+        String encoded = PolylineCodec.fromCoordinatesJson(legacy);
+
+        assertThat(PolylineCodec.toCoordinatesJson(encoded)).isEqualTo(legacy);
+        assertThat(PolylineCodec.fromCoordinatesJson("[]")).isEmpty();
+        assertThat(PolylineCodec.toCoordinatesJson("")).isEqualTo("[]");
+    }
+
+    @Test(description = "Should prefer the polyline and fall back to legacy JSON")
+    public void encodedRoute_And_CoordinatesJson_HandleBothColumns() {
+        String encoded = PolylineCodec.encode(List.of(point(45.25, 19.84), point(45.27, 19.85)));
+
+        assertThat(PolylineCodec.encodedRoute(encoded, "[[1,2]]")).isEqualTo(encoded);
+        assertThat(PolylineCodec.encodedRoute(null, "[[45.25,19.84],[45.27,19.85]]")).isEqualTo(encoded);
+        assertThat(PolylineCodec.encodedRoute(null, "[[45.25]]")).isNull();
+        assertThat(PolylineCodec.coordinatesJson(encoded, null)).isEqualTo("[[45.25,19.84],[45.27,19.85]]");
+        assertThat(PolylineCodec.coordinatesJson(null, "[[1.0,2.0]]")).isEqualTo("[[1.0,2.0]]");
+    }
+
+    @Test(description = "Should reject truncated input")
+    public void decoder_Truncated_Throws() {
+        PolylineCodec.Decoder decoder = PolylineCodec.decoder("_p~iF");
+
+        assertThatThrownBy(decoder::next).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test(description = "Should store a full-geometry route in a fraction of the JSON size")
+    public void encode_IsMuchSmallerThanJson() throws Exception {
+        List<LocationPointDto> points = route(3000);
+        List<double[]> coordinates = points.stream()
+                .map(p -> new double[] {p.getLatitude(), p.getLongitude()})
+                .toList();
+        String json = new ObjectMapper().writeValueAsString(coordinates);
+
+        String encoded = PolylineCodec.encode(points);
+
+        assertThat(encoded.length() * 4).isLessThan(json.length());
+    }
+
+    private static List<LocationPointDto> route(int size) {
+        // A winding city route with a vertex every ~10-20 m, like OSRM full geometry.
+        List<LocationPointDto> points = new ArrayList<>(size);
+        double lat = 45.2551;
+        double lon = 19.8451;
+        for (int i = 0; i < size; i++) {
+            lat += 0.00012 * Math.sin(i / 40.0);
+            lon += 0.00015 * Math.cos(i / 55.0);
+            points.add(point(Math.round(lat * 1e6) / 1e6, Math.round(lon * 1e6) / 1e6));
+        }
+        return points;
+    }
+
+    private static LocationPointDto point(double lat, double lon) {
+        return LocationPointDto.builder().latitude(lat).longitude(lon).build();
+    }
+}
@@ -0,0 +1,143 @@
+package com.pekara.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for ReferenceCache - read-through loading, expiry, LRU eviction and invalidation.
+ */
+public class ReferenceCacheTest {
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+    private Function<String, Optional<String>> loader;
+    private ReferenceCache<String, String> cache;
+
+    @BeforeMethod
+    public void setUp() {
+        clock = new MutableClock();
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+        loader = key -> {
+            loads.incrementAndGet();
+            return key.startsWith("missing") ? Optional.empty() : Optional.of(key.toUpperCase());
+        };
+        cache = new ReferenceCache<>("test", 2, Duration.ofMinutes(5), meterRegistry, clock);
+    }
+
+    @Test(description = "Should load once and serve later reads from the cache")
+    public void get_LoadsOnceThenHits() {
+        assertThat(cache.get("a", loader)).contains("A");
+        assertThat(cache.get("a", loader)).contains("A");
+        assertThat(cache.get("a", loader)).contains("A");
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.hitRatio()).isEqualTo(2.0 / 3);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "test").tag("result", "hit").functionCounter().count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.get("cache.hit.ratio").tag("cache", "test").gauge().value()).isEqualTo(2.0 / 3);
+    }
+
+    @Test(description = "Should not cache a missing value")
+    public void get_MissingValue_NotCached() {
+        assertThat(cache.get("missing", loader)).isEmpty();
+        assertThat(cache.get("missing", loader)).isEmpty();
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test(description = "Should reload an entry once its TTL has passed")
+    public void get_Expired_Reloads() {
+        cache.get("a", loader);
+        clock.advance(Duration.ofMinutes(4));
+        cache.get("a", loader);
+        assertThat(loads.get()).isEqualTo(1);
+
+        clock.advance(Duration.ofMinutes(2));
+        cache.get("a", loader);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test(description = "Should evict the least recently used entry when full")
+    public void get_Full_EvictsLeastRecentlyUsed() {
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader);
+        cache.get("c", loader);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "test").counter().count()).isEqualTo(1.0);
+
+        loads.set(0);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test(description = "Should reload after the key or the whole cache is invalidated")
+    public void invalidate_ForcesReload() {
+        cache.get("a", loader);
+        cache.get("b", loader);
+
+        cache.invalidate("a");
+        cache.get("a", loader);
+        cache.get("b", loader);
+        assertThat(loads.get()).isEqualTo(3);
+
+        cache.invalidateAll();
+        assertThat(cache.size()).isZero();
+        cache.get("b", loader);
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test(description = "Should not store a value loaded while the key was invalidated")
+    public void get_InvalidatedDuringLoad_DoesNotStoreStaleValue() {
+        Optional<String> stale = cache.get("a", key -> {
+            cache.invalidate(key);
+            return Optional.of("OLD");
+        });
+
+        assertThat(stale).contains("OLD");
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get("a", loader)).contains("A");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
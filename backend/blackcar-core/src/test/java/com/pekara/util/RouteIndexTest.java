@@ -0,0 +1,145 @@
+package com.pekara.util;
+
+import com.pekara.dto.common.LocationPointDto;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for RouteIndex - cumulative distances and projection of points onto a route.
+ */
+public class RouteIndexTest {
+
+    @Test(description = "Should accumulate segment lengths into the total distance")
+    public void totalKm_SumsSegments() {
+        List<LocationPointDto> points = List.of(point(45.25, 19.80), point(45.26, 19.80), point(45.26, 19.82));
+
+        RouteIndex index = RouteIndex.of(points);
+
+        double expected = GeoUtils.haversineKm(45.25, 19.80, 45.26, 19.80) + GeoUtils.haversineKm(45.26, 19.80, 45.26, 19.82);
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.totalKm()).isCloseTo(expected, within(1e-9));
+    }
+
+    @Test(description = "Should snap to the middle of a long segment rather than to a vertex")
+    public void project_SnapsOntoSegment() {
+        RouteIndex index = RouteIndex.of(List.of(point(45.25, 19.80), point(45.25, 19.90)));
+
+        RouteIndex.Projection projection = index.project(45.2505, 19.85);
+
+        assertThat(projection.segment()).isZero();
+        assertThat(projection.distanceAlongKm()).isCloseTo(index.totalKm() / 2, within(0.01));
+        assertThat(projection.offRouteKm()).isCloseTo(0.0557, within(0.001));
+        assertThat(index.remainingKm(projection)).isCloseTo(index.totalKm() / 2, within(0.01));
+    }
+
+    @Test(description = "Should find the same closest segment as a full scan on a long route")
+    public void project_LongRoute_MatchesBruteForce() {
+        List<LocationPointDto> points = zigzag(1000);
+        String encoded = PolylineCodec.encode(points);
+        RouteIndex index = RouteIndex.fromPolyline(encoded);
+        List<LocationPointDto> decoded = decode(encoded);
+
+        for (int i = 0; i < points.size() - 1; i += 37) {
+            LocationPointDto a = points.get(i);
+            LocationPointDto b = points.get(i + 1);
+            double lat = (a.getLatitude() + b.getLatitude()) / 2 + 0.0003;
+            double lon = (a.getLongitude() + b.getLongitude()) / 2;
+
+            RouteIndex.Projection projection = index.project(lat, lon);
+
+            assertThat(projection.offRouteKm()).isLessThan(bruteForceOffRouteKm(decoded, lat, lon) + 1e-9);
+            assertThat(projection.distanceAlongKm()).isBetween(0.0, index.totalKm());
+        }
+    }
+
+    @Test(description = "Should snap onto the leg within the window when the route doubles back")
+    public void project_DoubledBackRoute_StaysWithinWindow() {
+        // Out along a street and back on the lane next to it, about 11 m apart.
+        RouteIndex index = RouteIndex.of(List.of(point(45.25, 19.80), point(45.25, 19.82), point(45.2501, 19.80)));
+        double half = index.totalKm() / 2;
+
+        RouteIndex.Projection anywhere = index.project(45.25006, 19.81);
+        RouteIndex.Projection outbound = index.project(45.25006, 19.81, 0.0, half);
+        RouteIndex.Projection inbound = index.project(45.25006, 19.81, half, index.totalKm());
+
+        assertThat(anywhere.segment()).isEqualTo(1);
+        assertThat(outbound.segment()).isZero();
+        assertThat(outbound.distanceAlongKm()).isCloseTo(half / 2, within(0.01));
+        assertThat(inbound.segment()).isEqualTo(1);
+        assertThat(inbound.distanceAlongKm()).isCloseTo(half * 1.5, within(0.01));
+    }
+
+    @Test(description = "Should match a full scan restricted to the window on a long route")
+    public void project_LongRouteWindow_MatchesBruteForce() {
+        List<LocationPointDto> points = zigzag(1000);
+        RouteIndex index = RouteIndex.of(points);
+        // Rows of the zigzag are 0.002 degrees apart, so the full search may pick a neighbouring row.
+        int from = 230;
+        int to = 270;
+        double fromKm = index.project(points.get(from).getLatitude(), points.get(from).getLongitude()).distanceAlongKm();
+        double toKm = index.project(points.get(to).getLatitude(), points.get(to).getLongitude()).distanceAlongKm();
+
+        RouteIndex.Projection projection = index.project(45.2051, 19.81, fromKm, toKm);
+
+        assertThat(projection.segment()).isBetween(from, to - 1);
+        assertThat(projection.offRouteKm()).isCloseTo(bruteForceOffRouteKm(points.subList(from, to + 1), 45.2051, 19.81), within(1e-9));
+    }
+
+    @Test(description = "Should clamp points beyond the ends of the route")
+    public void project_BeyondEnds_ClampsToEndpoints() {
+        RouteIndex index = RouteIndex.of(List.of(point(45.25, 19.80), point(45.25, 19.81), point(45.25, 19.82)));
+
+        assertThat(index.project(45.25, 19.70).distanceAlongKm()).isZero();
+        RouteIndex.Projection end = index.project(45.25, 19.95);
+        assertThat(end.distanceAlongKm()).isCloseTo(index.totalKm(), within(1e-9));
+        assertThat(index.remainingKm(end)).isZero();
+    }
+
+    @Test(description = "Should handle empty and single point routes")
+    public void project_DegenerateRoutes() {
+        assertThat(RouteIndex.fromPolyline("").project(45.0, 19.0)).isNull();
+        assertThat(RouteIndex.fromPolyline(null).totalKm()).isZero();
+
+        RouteIndex single = RouteIndex.of(List.of(point(45.25, 19.80)));
+        RouteIndex.Projection projection = single.project(45.26, 19.80);
+        assertThat(projection.distanceAlongKm()).isZero();
+        assertThat(projection.offRouteKm()).isCloseTo(1.113, within(0.001));
+    }
+
+    private static double bruteForceOffRouteKm(List<LocationPointDto> points, double lat, double lon) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < points.size() - 1; i++) {
+            RouteIndex segment = RouteIndex.of(List.of(points.get(i), points.get(i + 1)));
+            best = Math.min(best, segment.project(lat, lon).offRouteKm());
+        }
+        return best;
+    }
+
+    private static List<LocationPointDto> decode(String encoded) {
+        List<LocationPointDto> points = new ArrayList<>();
+        PolylineCodec.Decoder decoder = PolylineCodec.decoder(encoded);
+        while (decoder.next()) {
+            points.add(point(decoder.latitude(), decoder.longitude()));
+        }
+        return points;
+    }
+
+    private static List<LocationPointDto> zigzag(int size) {
+        List<LocationPointDto> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double lat = 45.20 + (i / 50) * 0.002;
+            double lon = 19.80 + ((i / 50) % 2 == 0 ? i % 50 : 49 - i % 50) * 0.001;
+            points.add(point(lat, lon));
+        }
+        return points;
+    }
+
+    private static LocationPointDto point(double lat, double lon) {
+        return LocationPointDto.builder().latitude(lat).longitude(lon).build();
+    }
+}
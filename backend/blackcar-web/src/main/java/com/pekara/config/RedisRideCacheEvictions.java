@@ -0,0 +1,82 @@
+package com.pekara.config;
+
+import com.pekara.service.ActiveRideContextCache;
+import com.pekara.service.RideCacheEvictions;
+import com.pekara.service.RideTrackingAccessCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Ride cache evictions shared between instances over the Redis pub/sub used by
+ * {@link StompClusterRelay}. A ride is evicted here and its id published on {@link #CHANNEL}; the
+ * other instances evict it when the message arrives, and an instance skips its own messages so a
+ * context it has just reloaded is not dropped again. A failed publish only leaves the other
+ * instances with the stale entry until its TTL runs out.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.websocket.cluster.enabled", havingValue = "true")
+public class RedisRideCacheEvictions implements RideCacheEvictions {
+
+    static final String CHANNEL = "cache:ride-evictions";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ActiveRideContextCache activeRideContextCache;
+    private final RideTrackingAccessCache rideTrackingAccessCache;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MessageListener listener = (message, pattern) ->
+            receive(new String(message.getBody(), StandardCharsets.UTF_8));
+
+    public RedisRideCacheEvictions(ActiveRideContextCache activeRideContextCache,
+                                   RideTrackingAccessCache rideTrackingAccessCache,
+                                   StringRedisTemplate redisTemplate,
+                                   @Qualifier("stompRelayListenerContainer") RedisMessageListenerContainer listenerContainer) {
+        this.activeRideContextCache = activeRideContextCache;
+        this.rideTrackingAccessCache = rideTrackingAccessCache;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener(listener, new ChannelTopic(CHANNEL));
+    }
+
+    @Override
+    public void evict(Long rideId) {
+        evictLocally(rideId);
+        try {
+            redisTemplate.convertAndSend(CHANNEL, nodeId + ":" + rideId);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to publish eviction of ride {}: {}", rideId, ex.getMessage());
+        }
+    }
+
+    private void receive(String body) {
+        int separator = body.lastIndexOf(':');
+        if (separator < 0 || nodeId.equals(body.substring(0, separator))) {
+            return;
+        }
+        try {
+            evictLocally(Long.valueOf(body.substring(separator + 1)));
+        } catch (NumberFormatException ex) {
+            log.warn("Dropping unreadable ride eviction '{}'", body);
+        }
+    }
+
+    private void evictLocally(Long rideId) {
+        activeRideContextCache.evict(rideId);
+        rideTrackingAccessCache.evict(rideId);
+    }
+}
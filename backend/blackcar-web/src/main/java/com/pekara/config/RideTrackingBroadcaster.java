@@ -0,0 +1,348 @@
+package com.pekara.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pekara.dto.common.RideLocationDto;
+import com.pekara.dto.response.RideTrackingResponse;
+import com.pekara.dto.response.WebRideTrackingResponse;
+import com.pekara.mapper.RideMapper;
+import com.pekara.service.RideTrackingService;
+import com.pekara.util.GeoUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Broadcast stage of the ride tracking topics {@code /topic/rides/{id}/tracking}.
+ *
+ * Pings of a ride are coalesced: at most one frame goes out per window, carrying the latest ping,
+ * and a ping is dropped when the car moved less than the minimum distance, did not turn by the
+ * minimum heading change over at least half that distance, and the ETA in minutes is unchanged
+ * since the last frame. Frames are JSON
+ * objects with a {@code frame} field:
+ * <ul>
+ *   <li>{@code FULL} - every field of {@link WebRideTrackingResponse}, sent for the first ping of
+ *   a ride, when the ride status changes, once per keyframe interval and to each new subscriber
+ *   (to that subscription only);</li>
+ *   <li>{@code DELTA} - the ride id and only the fields whose value changed since the previous
+ *   frame, a field that became empty as {@code null}. Clients merge it into the last full frame.</li>
+ * </ul>
+ * The state is per instance; with pings of one ride reaching several instances, the keyframe
+ * interval bounds how long a client can miss a change.
+ *
+ * Metrics: {@code tracking.broadcast.pings}, {@code tracking.broadcast.coalesced} and
+ * {@code tracking.broadcast.suppressed} counters, {@code tracking.broadcast.frames} and
+ * {@code tracking.broadcast.bytes} by frame type, and {@code tracking.broadcast.baseline.bytes},
+ * what a full frame per ping would have cost. Every subscriber of a ride receives every frame, so
+ * the rate of the topic bytes over the baseline is the saving per subscriber.
+ */
+@Slf4j
+@Component
+public class RideTrackingBroadcaster {
+
+    static final String FRAME = "frame";
+    static final String FULL = "FULL";
+    static final String DELTA = "DELTA";
+
+    private static final String TOPIC_PREFIX = "/topic/rides/";
+    private static final String TOPIC_SUFFIX = "/tracking";
+    private static final long IDLE_MILLIS = Duration.ofMinutes(10).toMillis();
+    private static final TypeReference<Map<String, Object>> FIELDS = new TypeReference<>() {
+    };
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MessageChannel clientOutboundChannel;
+    private final RideTrackingService rideTrackingService;
+    private final RideMapper rideMapper;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final long windowMillis;
+    private final long keyframeMillis;
+    private final double minDistanceKm;
+    private final double minHeadingDegrees;
+
+    private final Map<Long, RideChannel> channels = new ConcurrentHashMap<>();
+
+    private final Counter pings;
+    private final Counter coalesced;
+    private final Counter suppressed;
+    private final Counter baselineBytes;
+    private final Map<String, Counter> frames = new LinkedHashMap<>();
+    private final Map<String, Counter> bytes = new LinkedHashMap<>();
+
+    @Autowired
+    public RideTrackingBroadcaster(SimpMessagingTemplate messagingTemplate,
+                                   @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                   RideTrackingService rideTrackingService,
+                                   RideMapper rideMapper,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.tracking.broadcast.window:PT2S}") Duration window,
+                                   @Value("${app.tracking.broadcast.keyframe-interval:PT30S}") Duration keyframeInterval,
+                                   @Value("${app.tracking.broadcast.min-distance-m:15}") double minDistanceMeters,
+                                   @Value("${app.tracking.broadcast.min-heading-degrees:20}") double minHeadingDegrees) {
+        this(messagingTemplate, clientOutboundChannel, rideTrackingService, rideMapper, objectMapper, meterRegistry,
+                window, keyframeInterval, minDistanceMeters, minHeadingDegrees, Clock.systemUTC());
+    }
+
+    RideTrackingBroadcaster(SimpMessagingTemplate messagingTemplate,
+                            MessageChannel clientOutboundChannel,
+                            RideTrackingService rideTrackingService,
+                            RideMapper rideMapper,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            Duration window,
+                            Duration keyframeInterval,
+                            double minDistanceMeters,
+                            double minHeadingDegrees,
+                            Clock clock) {
+        this.messagingTemplate = messagingTemplate;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.rideTrackingService = rideTrackingService;
+        this.rideMapper = rideMapper;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.windowMillis = window.toMillis();
+        this.keyframeMillis = keyframeInterval.toMillis();
+        this.minDistanceKm = minDistanceMeters / 1000.0;
+        this.minHeadingDegrees = minHeadingDegrees;
+        this.pings = meterRegistry.counter("tracking.broadcast.pings");
+        this.coalesced = meterRegistry.counter("tracking.broadcast.coalesced");
+        this.suppressed = meterRegistry.counter("tracking.broadcast.suppressed");
+        this.baselineBytes = Counter.builder("tracking.broadcast.baseline.bytes").baseUnit("bytes").register(meterRegistry);
+        for (String type : new String[] {"full", "delta", "snapshot"}) {
+            frames.put(type, Counter.builder("tracking.broadcast.frames").tag("type", type).register(meterRegistry));
+            bytes.put(type, Counter.builder("tracking.broadcast.bytes").tag("type", type).baseUnit("bytes")
+                    .register(meterRegistry));
+        }
+        meterRegistry.gaugeMapSize("tracking.broadcast.rides", List.of(), channels);
+    }
+
+    /**
+     * Takes the tracking snapshot of a location ping; it goes out now, with a later ping, or not at
+     * all.
+     */
+    public void publish(RideTrackingResponse tracking) {
+        Long rideId = tracking.getRideId();
+        Map<String, Object> fields = fields(rideMapper.toWebRideTrackingResponse(tracking));
+        RideLocationDto location = tracking.getLastLocation();
+        Double heading = location != null ? location.getHeading() : null;
+        long now = clock.millis();
+        pings.increment();
+        baselineBytes.increment(serialize(fields).length);
+
+        RideChannel channel = channels.computeIfAbsent(rideId, id -> new RideChannel());
+        synchronized (channel) {
+            channel.lastPingAt = now;
+            if (channel.sent == null || !Objects.equals(channel.sent.get("rideStatus"), fields.get("rideStatus"))) {
+                channel.pending = null;
+                sendFull(rideId, channel, fields, heading, now);
+            } else if (now - channel.sentAt >= windowMillis) {
+                channel.pending = null;
+                offer(rideId, channel, fields, heading, now);
+            } else {
+                if (channel.pending != null) {
+                    coalesced.increment();
+                }
+                channel.pending = fields;
+                channel.pendingHeading = heading;
+            }
+        }
+    }
+
+    /**
+     * Sends the final state of a ride that has ended as a full frame and forgets the ride.
+     */
+    public void complete(WebRideTrackingResponse payload) {
+        RideChannel channel = channels.remove(payload.getRideId());
+        if (channel != null) {
+            synchronized (channel) {
+                channel.pending = null;
+            }
+        }
+        send(payload.getRideId(), "full", frame(FULL, fields(payload)));
+    }
+
+    /**
+     * Sends out pings held back by the window and forgets rides that stopped pinging.
+     */
+    @Scheduled(fixedDelayString = "${app.tracking.broadcast.flush-interval:PT0.25S}")
+    public void flush() {
+        long now = clock.millis();
+        channels.forEach((rideId, channel) -> {
+            synchronized (channel) {
+                if (channel.pending != null && now - channel.sentAt >= windowMillis) {
+                    Map<String, Object> fields = channel.pending;
+                    channel.pending = null;
+                    offer(rideId, channel, fields, channel.pendingHeading, now);
+                } else if (channel.pending == null && now - channel.lastPingAt >= IDLE_MILLIS) {
+                    channels.remove(rideId, channel);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends a new subscriber of a tracking topic the ride's current state, to that subscription
+     * only, so it has a full frame to apply the following deltas to.
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor subscription = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Long rideId = rideId(subscription.getDestination());
+        if (rideId == null || event.getUser() == null || subscription.getSessionId() == null) {
+            return;
+        }
+        try {
+            RideTrackingResponse tracking = rideTrackingService.getTracking(rideId, event.getUser().getName());
+            byte[] payload = serialize(frame(FULL, fields(rideMapper.toWebRideTrackingResponse(tracking))));
+
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(subscription.getSessionId());
+            headers.setSubscriptionId(subscription.getSubscriptionId());
+            headers.setDestination(subscription.getDestination());
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            headers.setLeaveMutable(true);
+            clientOutboundChannel.send(MessageBuilder.createMessage(payload, headers.getMessageHeaders()));
+            frames.get("snapshot").increment();
+            bytes.get("snapshot").increment(payload.length);
+        } catch (Exception ex) {
+            log.debug("No tracking snapshot for {}: {}", subscription.getDestination(), ex.getMessage());
+        }
+    }
+
+    private void offer(Long rideId, RideChannel channel, Map<String, Object> fields, Double heading, long now) {
+        if (now - channel.keyframeAt >= keyframeMillis) {
+            sendFull(rideId, channel, fields, heading, now);
+        } else if (changedEnough(channel, fields, heading)) {
+            Map<String, Object> delta = frame(DELTA, Map.of());
+            delta.put("rideId", rideId);
+            fields.forEach((name, value) -> {
+                if (!Objects.equals(channel.sent.get(name), value)) {
+                    delta.put(name, value);
+                }
+            });
+            send(rideId, "delta", delta);
+            channel.sent(fields, heading, now);
+        } else {
+            suppressed.increment();
+        }
+    }
+
+    private void sendFull(Long rideId, RideChannel channel, Map<String, Object> fields, Double heading, long now) {
+        send(rideId, "full", frame(FULL, fields));
+        channel.sent(fields, heading, now);
+        channel.keyframeAt = now;
+    }
+
+    private boolean changedEnough(RideChannel channel, Map<String, Object> fields, Double heading) {
+        if (!Objects.equals(channel.sent.get("estimatedTimeToDestinationMinutes"), fields.get("estimatedTimeToDestinationMinutes"))) {
+            return true;
+        }
+        Double lat = number(fields.get("vehicleLatitude"));
+        Double lon = number(fields.get("vehicleLongitude"));
+        Double sentLat = number(channel.sent.get("vehicleLatitude"));
+        Double sentLon = number(channel.sent.get("vehicleLongitude"));
+        if (lat == null || lon == null || sentLat == null || sentLon == null) {
+            return !Objects.equals(lat, sentLat) || !Objects.equals(lon, sentLon);
+        }
+        double movedKm = GeoUtils.haversineKm(sentLat, sentLon, lat, lon);
+        if (movedKm >= minDistanceKm) {
+            return true;
+        }
+        // The heading of a car standing still is noise, so a turn only counts once it has moved a bit.
+        if (heading == null || channel.sentHeading == null || movedKm < minDistanceKm / 2) {
+            return false;
+        }
+        double turn = Math.abs(heading - channel.sentHeading) % 360;
+        return Math.min(turn, 360 - turn) >= minHeadingDegrees;
+    }
+
+    private void send(Long rideId, String type, Map<String, Object> frame) {
+        byte[] payload = serialize(frame);
+        try {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            headers.setLeaveMutable(true);
+            messagingTemplate.send(TOPIC_PREFIX + rideId + TOPIC_SUFFIX, MessageBuilder.createMessage(payload, headers.getMessageHeaders()));
+            frames.get(type).increment();
+            bytes.get(type).increment(payload.length);
+        } catch (Exception ex) {
+            log.warn("Failed to send WebSocket tracking update for ride {}: {}", rideId, ex.getMessage());
+        }
+    }
+
+    private Map<String, Object> fields(WebRideTrackingResponse payload) {
+        return objectMapper.convertValue(payload, FIELDS);
+    }
+
+    private static Map<String, Object> frame(String type, Map<String, Object> fields) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put(FRAME, type);
+        frame.putAll(fields);
+        return frame;
+    }
+
+    private byte[] serialize(Map<String, Object> frame) {
+        try {
+            return objectMapper.writeValueAsBytes(frame);
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to serialize tracking frame", ex);
+        }
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    static Long rideId(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX) || !destination.endsWith(TOPIC_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(destination.substring(TOPIC_PREFIX.length(), destination.length() - TOPIC_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * What the subscribers of a ride last received, and the latest ping held back by the window.
+     */
+    private static final class RideChannel {
+        private Map<String, Object> sent;
+        private Double sentHeading;
+        private long sentAt;
+        private long keyframeAt;
+        private Map<String, Object> pending;
+        private Double pendingHeading;
+        private long lastPingAt;
+
+        private void sent(Map<String, Object> fields, Double heading, long now) {
+            this.sent = fields;
+            this.sentHeading = heading;
+            this.sentAt = now;
+        }
+    }
+}
@@ -51,7 +51,7 @@ public class SecurityConfig {
                         // Ride estimation - public
                         .requestMatchers("/api/v1/rides/estimate").permitAll()
                         // Available vehichles - public
-                        .requestMatchers("/api/v1/vehicles").permitAll()
+                        .requestMatchers("/api/v1/vehicles/active").permitAll()
                         // Online drivers - public
                         .requestMatchers("/api/v1/drivers/online", "/api/v1/drivers/online-with-vehicles").permitAll()
                         // WebSocket handshake
@@ -84,7 +84,7 @@ public class SecurityConfig {
 
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Next-Cursor"));
         configuration.setMaxAge(3600L);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
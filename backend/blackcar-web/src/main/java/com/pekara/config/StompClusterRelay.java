@@ -0,0 +1,223 @@
+package com.pekara.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Relays STOMP topic messages between instances over Redis pub/sub, so a message sent on one
+ * instance reaches clients connected to any other. Each instance keeps its simple broker for local
+ * delivery.
+ *
+ * Messages sent to the broker channel for a relayed destination are delivered locally as before
+ * and published to the Redis channel {@code stomp:<destination>}. Each instance subscribes to the
+ * channel of a destination only while at least one of its own clients is subscribed to it, counted
+ * from the session subscribe, unsubscribe and disconnect events. Messages coming back from Redis
+ * are marked so they are not published again, and an instance skips its own. Only exact
+ * destinations are relayed, not patterns.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.websocket.cluster.enabled", havingValue = "true")
+public class StompClusterRelay implements ChannelInterceptor {
+
+    static final String CHANNEL_PREFIX = "stomp:";
+    private static final String RELAYED_HEADER = "relayed";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AbstractSubscribableChannel brokerChannel;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final List<String> prefixes;
+    private final MessageListener listener = (message, pattern) -> receive(message.getBody());
+
+    /** Destination of each subscription, by session and subscription id. */
+    private final Map<String, Map<String, String>> sessions = new HashMap<>();
+    private final Map<String, Integer> subscribers = new HashMap<>();
+
+    private final Counter published;
+    private final Counter received;
+    private final Counter publishFailures;
+
+    public StompClusterRelay(@Qualifier("brokerChannel") AbstractSubscribableChannel brokerChannel,
+                             StringRedisTemplate redisTemplate,
+                             @Qualifier("stompRelayListenerContainer") RedisMessageListenerContainer listenerContainer,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.websocket.cluster.prefixes:/topic/rides/,/topic/notifications/,/topic/chat/}")
+                             List<String> prefixes) {
+        this.brokerChannel = brokerChannel;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.prefixes = List.copyOf(prefixes);
+        this.published = Counter.builder("websocket.relay.messages").tag("direction", "out").register(meterRegistry);
+        this.received = Counter.builder("websocket.relay.messages").tag("direction", "in").register(meterRegistry);
+        this.publishFailures = Counter.builder("websocket.relay.failures").register(meterRegistry);
+        meterRegistry.gauge("websocket.relay.channels", this, StompClusterRelay::subscribedChannels);
+    }
+
+    @PostConstruct
+    public void start() {
+        brokerChannel.addInterceptor(this);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE || !isRelayed(destination)
+                || headers.containsKey(RELAYED_HEADER)) {
+            return message;
+        }
+        try {
+            Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+            Envelope envelope = new Envelope(nodeId, destination,
+                    contentType != null ? contentType.toString() : null, payloadText(message.getPayload()));
+            redisTemplate.convertAndSend(CHANNEL_PREFIX + destination, objectMapper.writeValueAsString(envelope));
+            published.increment();
+        } catch (Exception ex) {
+            // Local clients still get the message; only other instances miss it.
+            publishFailures.increment();
+            log.warn("Failed to relay message for {}: {}", destination, ex.getMessage());
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (!isRelayed(destination) || accessor.getSessionId() == null) {
+            return;
+        }
+        synchronized (subscribers) {
+            String previous = sessions.computeIfAbsent(accessor.getSessionId(), id -> new HashMap<>())
+                    .put(String.valueOf(accessor.getSubscriptionId()), destination);
+            if (previous != null) {
+                release(previous);
+            }
+            if (subscribers.merge(destination, 1, Integer::sum) == 1) {
+                listenerContainer.addMessageListener(listener, new ChannelTopic(CHANNEL_PREFIX + destination));
+            }
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        synchronized (subscribers) {
+            Map<String, String> subscriptions = sessions.get(accessor.getSessionId());
+            String destination = subscriptions != null
+                    ? subscriptions.remove(String.valueOf(accessor.getSubscriptionId()))
+                    : null;
+            if (destination != null) {
+                release(destination);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        synchronized (subscribers) {
+            Map<String, String> subscriptions = sessions.remove(sessionId);
+            if (subscriptions != null) {
+                subscriptions.values().forEach(this::release);
+            }
+        }
+    }
+
+    int subscribedChannels() {
+        synchronized (subscribers) {
+            return subscribers.size();
+        }
+    }
+
+    private void release(String destination) {
+        Integer remaining = subscribers.computeIfPresent(destination, (key, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            listenerContainer.removeMessageListener(listener, new ChannelTopic(CHANNEL_PREFIX + destination));
+        }
+    }
+
+    private void receive(byte[] body) {
+        Envelope envelope;
+        try {
+            envelope = objectMapper.readValue(body, Envelope.class);
+        } catch (Exception ex) {
+            log.warn("Dropping unreadable relayed message: {}", ex.getMessage());
+            return;
+        }
+        if (nodeId.equals(envelope.origin()) || !isRelayed(envelope.destination())) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+        }
+        accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+        byte[] payload = envelope.payload() != null ? envelope.payload().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        brokerChannel.send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+        received.increment();
+    }
+
+    private boolean isRelayed(String destination) {
+        if (destination == null || destination.contains("*") || destination.contains("{")) {
+            return false;
+        }
+        for (String prefix : prefixes) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Payload as text; the broker channel carries the JSON produced by the message converter.
+     */
+    private static String payloadText(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (payload instanceof String text) {
+            return text;
+        }
+        throw new IllegalArgumentException("Unsupported payload type " + payload.getClass().getName());
+    }
+
+    record Envelope(String origin, String destination, String contentType, String payload) {
+    }
+}
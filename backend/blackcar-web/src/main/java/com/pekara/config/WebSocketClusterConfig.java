@@ -0,0 +1,32 @@
+package com.pekara.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Redis subscriptions for {@link StompClusterRelay} and {@link RedisRideCacheEvictions}, enabled with
+ * {@code app.websocket.cluster.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.websocket.cluster.enabled", havingValue = "true")
+public class WebSocketClusterConfig {
+
+    @Bean
+    public RedisMessageListenerContainer stompRelayListenerContainer(RedisConnectionFactory connectionFactory) {
+        // One thread, so messages for a destination reach the broker in the order they were published.
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("stomp-relay-");
+        executor.initialize();
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(executor);
+        return container;
+    }
+}
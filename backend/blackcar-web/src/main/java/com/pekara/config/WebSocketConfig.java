@@ -24,6 +24,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
+        // Delivers to this instance's clients; StompClusterRelay relays topics between instances.
         config.enableSimpleBroker("/topic");
         config.setApplicationDestinationPrefixes("/app");
     }
@@ -15,6 +15,7 @@ import com.pekara.repository.DriverRepository;
 import com.pekara.repository.UserRepository;
 import com.pekara.service.AdminService;
 import com.pekara.service.PricingService;
+import com.pekara.service.UserLookupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -24,6 +25,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -39,6 +41,7 @@ public class AdminController {
     private final UserRepository userRepository;
     private final DriverRepository driverRepository;
     private final PricingService pricingService;
+    private final UserLookupService userLookupService;
 
     @Operation(summary = "Get all pricing", description = "Get list of pricing for all vehicle types")
     @GetMapping("/pricing")
@@ -125,6 +128,7 @@ public class AdminController {
         user.setBlocked(request.getBlocked());
         user.setBlockedNote(Boolean.TRUE.equals(request.getBlocked()) ? request.getBlockedNote() : null);
         userRepository.save(user);
+        userLookupService.evict(user.getEmail());
 
         String message = Boolean.TRUE.equals(request.getBlocked())
                 ? "User has been blocked."
@@ -132,6 +136,16 @@ public class AdminController {
         return ResponseEntity.ok(new WebMessageResponse(message));
     }
 
+    @Operation(summary = "Rebuild ride stats", description = "Recompute the pre-aggregated daily ride statistics for a date range")
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<WebMessageResponse> rebuildRideStats(
+            @RequestParam String from,
+            @RequestParam String to) {
+        log.debug("Admin requested ride stats rebuild from {} to {}", from, to);
+        int rows = adminService.rebuildRideStats(LocalDate.parse(from), LocalDate.parse(to));
+        return ResponseEntity.ok(new WebMessageResponse("Rebuilt " + rows + " daily stats rows."));
+    }
+
     private WebUserListItemResponse toUserListItem(Driver driver) {
         return new WebUserListItemResponse(
                 driver.getId().toString(),
@@ -1,5 +1,6 @@
 package com.pekara.controller;
 
+import com.pekara.dto.DriverProfileDto;
 import com.pekara.dto.request.WebChangePasswordRequest;
 import com.pekara.dto.request.WebCreateFavoriteRouteRequest;
 import com.pekara.dto.request.WebUpdateProfileRequest;
@@ -13,6 +14,7 @@ import com.pekara.model.User;
 import com.pekara.repository.DriverRepository;
 import com.pekara.repository.UserRepository;
 import com.pekara.service.FavoriteRouteService;
+import com.pekara.service.UserLookupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -38,6 +40,7 @@ public class ProfileController {
     private final PasswordEncoder passwordEncoder;
     private final FavoriteRouteService favoriteRouteService;
     private final FavoriteRouteMapper favoriteRouteMapper;
+    private final UserLookupService userLookupService;
 
     @Operation(summary = "Get driver profile", description = "Get the currently authenticated driver's profile information")
     @PreAuthorize("hasRole('DRIVER')")
@@ -45,7 +48,7 @@ public class ProfileController {
     public ResponseEntity<WebDriverProfileResponse> getDriverProfile(@AuthenticationPrincipal String email) {
         log.debug("Driver profile requested for: {}", email);
 
-        Driver driver = driverRepository.findByEmail(email)
+        DriverProfileDto driver = userLookupService.findDriverProfile(email)
                 .orElseThrow(() -> new RuntimeException("Driver not found: " + email));
 
         WebDriverProfileResponse response = new WebDriverProfileResponse(
@@ -156,6 +159,7 @@ public class ProfileController {
         }
 
         driverRepository.save(driver);
+        userLookupService.evict(email);
 
         return ResponseEntity.ok(new WebMessageResponse("Profile updated successfully"));
     }
@@ -180,6 +184,7 @@ public class ProfileController {
         }
 
         userRepository.save(user);
+        userLookupService.evict(email);
 
         return ResponseEntity.ok(new WebMessageResponse("Profile updated successfully"));
     }
@@ -204,6 +209,7 @@ public class ProfileController {
         }
 
         userRepository.save(user);
+        userLookupService.evict(email);
 
         return ResponseEntity.ok(new WebMessageResponse("Profile updated successfully"));
     }
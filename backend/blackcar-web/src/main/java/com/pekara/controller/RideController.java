@@ -1,5 +1,6 @@
 package com.pekara.controller;
 
+import com.pekara.config.RideTrackingBroadcaster;
 import com.pekara.dto.request.WebCancelRideRequest;
 import com.pekara.dto.request.WebEstimateRideRequest;
 import com.pekara.dto.request.WebInconsistencyReportRequest;
@@ -8,6 +9,7 @@ import com.pekara.dto.request.WebRideHistoryFilterRequest;
 import com.pekara.dto.request.WebRideLocationUpdateRequest;
 import com.pekara.dto.request.WebRideRatingRequest;
 import com.pekara.dto.request.WebStopRideEarlyRequest;
+import com.pekara.dto.response.HistoryPage;
 import com.pekara.dto.response.WebActiveRideResponse;
 import com.pekara.dto.response.WebAdminRideDetailResponse;
 import com.pekara.dto.response.WebAdminRideHistoryResponse;
@@ -30,7 +32,6 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -40,8 +41,9 @@ import org.springframework.web.bind.annotation.*;
 import com.pekara.constant.RideStatsScope;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @Slf4j
 @RestController
@@ -50,28 +52,28 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RideController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final RideService rideService;
     private final RideTrackingService rideTrackingService;
     private final AdminService adminService;
     private final RideMapper rideMapper;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final RideTrackingBroadcaster rideTrackingBroadcaster;
 
     @Operation(summary = "Estimate ride", description = "Calculate ride estimation (price, duration, distance) - Public endpoint")
     @PostMapping("/estimate")
-    public ResponseEntity<WebRideEstimateResponse> estimateRide(@Valid @RequestBody WebEstimateRideRequest request) {
+    public CompletableFuture<ResponseEntity<WebRideEstimateResponse>> estimateRide(@Valid @RequestBody WebEstimateRideRequest request) {
         log.debug("Ride estimation requested");
 
-        var serviceResponse = rideService.estimateRide(rideMapper.toServiceEstimateRideRequest(request));
-        WebRideEstimateResponse response = new WebRideEstimateResponse(
-            serviceResponse.getEstimatedPrice(),
-            serviceResponse.getEstimatedDurationMinutes(),
-            serviceResponse.getDistanceKm(),
-            serviceResponse.getVehicleType(),
-            serviceResponse.getRoutePoints() == null ? null :
-                serviceResponse.getRoutePoints().stream().map(rideMapper::toWebLocation).toList()
-        );
-
-        return ResponseEntity.ok(response);
+        return rideService.estimateRideAsync(rideMapper.toServiceEstimateRideRequest(request))
+                .thenApply(serviceResponse -> ResponseEntity.ok(new WebRideEstimateResponse(
+                        serviceResponse.getEstimatedPrice(),
+                        serviceResponse.getEstimatedDurationMinutes(),
+                        serviceResponse.getDistanceKm(),
+                        serviceResponse.getVehicleType(),
+                        serviceResponse.getRoutePoints() == null ? null :
+                                serviceResponse.getRoutePoints().stream().map(rideMapper::toWebLocation).toList()
+                )));
     }
 
 
@@ -220,17 +222,13 @@ public class RideController {
     }
 
     private void sendCompletionWebSocketUpdate(Long rideId) {
-        try {
-            WebRideTrackingResponse payload = WebRideTrackingResponse.builder()
-                    .rideId(rideId)
-                    .status("COMPLETED")
-                    .rideStatus("COMPLETED")
-                    .build();
-            messagingTemplate.convertAndSend("/topic/rides/" + rideId + "/tracking", payload);
-            log.debug("Sent COMPLETED status via WebSocket for ride {}", rideId);
-        } catch (Exception e) {
-            log.warn("Failed to send WebSocket completion update for ride {}: {}", rideId, e.getMessage());
-        }
+        WebRideTrackingResponse payload = WebRideTrackingResponse.builder()
+                .rideId(rideId)
+                .status("COMPLETED")
+                .rideStatus("COMPLETED")
+                .build();
+        rideTrackingBroadcaster.complete(payload);
+        log.debug("Sent COMPLETED status via WebSocket for ride {}", rideId);
     }
     //fallback
     @Operation(summary = "Track ride", description = "Get real-time tracking information for an active ride - Protected endpoint")
@@ -255,14 +253,8 @@ public class RideController {
             @AuthenticationPrincipal String currentUserEmail) {
 
         log.debug("Ride {} location update by driver {}", rideId, currentUserEmail);
-        rideTrackingService.updateLocation(rideId, currentUserEmail, rideMapper.toServiceRideLocationUpdateRequest(request));
-        var tracking = rideTrackingService.getTracking(rideId, currentUserEmail);
-        WebRideTrackingResponse payload = rideMapper.toWebRideTrackingResponse(tracking);
-        try {
-            messagingTemplate.convertAndSend("/topic/rides/" + rideId + "/tracking", payload);
-        } catch (Exception e) {
-            log.warn("Failed to send WebSocket location update for ride {}: {}", rideId, e.getMessage());
-        }
+        var tracking = rideTrackingService.updateLocation(rideId, currentUserEmail, rideMapper.toServiceRideLocationUpdateRequest(request));
+        rideTrackingBroadcaster.publish(tracking);
         return ResponseEntity.ok(new WebMessageResponse("Location updated."));
     }
 
@@ -336,6 +328,7 @@ public class RideController {
             @RequestParam String endDate,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
             @AuthenticationPrincipal String currentUserEmail) {
 
         log.debug("Driver ride history requested with filters: startDate={}, endDate={} (page: {}, size: {})", startDate, endDate, page, size);
@@ -343,23 +336,13 @@ public class RideController {
         var serviceResponse = rideService.getDriverRideHistory(
                 currentUserEmail,
                 LocalDateTime.parse(startDate + "T00:00:00"),
-                LocalDateTime.parse(endDate + "T23:59:59"));
-
-        List<WebDriverRideHistoryResponse> history = serviceResponse.stream()
-                .map(rideMapper::toWebDriverRideHistoryResponse)
-                .toList();
-
-        int start = page * size;
-        int end = Math.min(start + size, history.size());
-        List<WebDriverRideHistoryResponse> paginatedHistory = start < history.size()
-                ? history.subList(start, end)
-                : new ArrayList<>();
-
-        WebPaginatedResponse<WebDriverRideHistoryResponse> response = new WebPaginatedResponse<>(
-                paginatedHistory, page, size, (long) history.size());
+                LocalDateTime.parse(endDate + "T23:59:59"),
+                page,
+                size,
+                cursor);
 
-        log.debug("Retrieved {} rides for driver", history.size());
-        return ResponseEntity.ok(response);
+        log.debug("Retrieved {} of {} rides for driver", serviceResponse.getContent().size(), serviceResponse.getTotalElements());
+        return toPageResponse(serviceResponse, rideMapper::toWebDriverRideHistoryResponse);
     }
 
     @Operation(summary = "Get driver ride stats", description = "View driver's ride statistics (rides per day, distance, earnings) for date range - Protected endpoint (Drivers only)")
@@ -426,6 +409,7 @@ public class RideController {
             @Valid @RequestBody WebRideHistoryFilterRequest filterRequest,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
             @AuthenticationPrincipal String currentUserEmail) {
 
         log.debug("Passenger ride history requested for {} with filters: {} (page: {}, size: {})", currentUserEmail, filterRequest, page, size);
@@ -436,23 +420,13 @@ public class RideController {
         var serviceResponse = rideService.getPassengerRideHistory(
                 currentUserEmail,
                 startDateTime,
-                endDateTime);
-
-        List<WebPassengerRideHistoryResponse> history = serviceResponse.stream()
-                .map(rideMapper::toWebPassengerRideHistoryResponse)
-                .toList();
-
-        int start = page * size;
-        int end = Math.min(start + size, history.size());
-        List<WebPassengerRideHistoryResponse> paginatedHistory = start < history.size()
-                ? history.subList(start, end)
-                : new ArrayList<>();
+                endDateTime,
+                page,
+                size,
+                cursor);
 
-        WebPaginatedResponse<WebPassengerRideHistoryResponse> response = new WebPaginatedResponse<>(
-                paginatedHistory, page, size, (long) history.size());
-
-        log.debug("Retrieved {} rides for passenger {}", history.size(), currentUserEmail);
-        return ResponseEntity.ok(response);
+        log.debug("Retrieved {} of {} rides for passenger {}", serviceResponse.getContent().size(), serviceResponse.getTotalElements(), currentUserEmail);
+        return toPageResponse(serviceResponse, rideMapper::toWebPassengerRideHistoryResponse);
     }
 
     @Operation(summary = "Get all rides history (Admin)", description = "View complete ride history for all drivers and passengers with filtering - Protected endpoint (Admins only)")
@@ -461,7 +435,8 @@ public class RideController {
     public ResponseEntity<WebPaginatedResponse<WebAdminRideHistoryResponse>> getAllRidesHistory(
             @Valid @RequestBody WebRideHistoryFilterRequest filterRequest,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
 
         log.debug("Admin all rides history requested with filters: {} (page: {}, size: {})", filterRequest, page, size);
 
@@ -472,24 +447,10 @@ public class RideController {
                 ? filterRequest.getEndDate()
                 : LocalDateTime.now();
 
-        var serviceResponse = adminService.getAllRidesHistory(startDateTime, endDateTime);
-
-        List<WebAdminRideHistoryResponse> history = serviceResponse.stream()
-                .map(rideMapper::toWebAdminRideHistoryResponse)
-                .toList();
-
-        // Apply pagination
-        int start = page * size;
-        int end = Math.min(start + size, history.size());
-        List<WebAdminRideHistoryResponse> paginatedHistory = start < history.size()
-                ? history.subList(start, end)
-                : new ArrayList<>();
-
-        WebPaginatedResponse<WebAdminRideHistoryResponse> response = new WebPaginatedResponse<>(
-                paginatedHistory, page, size, (long) history.size());
+        var serviceResponse = adminService.getAllRidesHistory(startDateTime, endDateTime, page, size, cursor);
 
-        log.debug("Retrieved {} total rides for admin", history.size());
-        return ResponseEntity.ok(response);
+        log.debug("Retrieved {} of {} total rides for admin", serviceResponse.getContent().size(), serviceResponse.getTotalElements());
+        return toPageResponse(serviceResponse, rideMapper::toWebAdminRideHistoryResponse);
     }
 
     @Operation(summary = "Get all active rides (Admin)", description = "View all currently active rides - Protected endpoint (Admins only)")
@@ -575,5 +536,20 @@ public class RideController {
         return ResponseEntity.ok(response);
     }
 
-
+    /**
+     * Wraps a history page in the usual paginated body. The cursor for the next page goes into the
+     * {@code X-Next-Cursor} header; passing it back as {@code cursor} fetches that page with an
+     * index seek instead of an offset.
+     */
+    private <T, W> ResponseEntity<WebPaginatedResponse<W>> toPageResponse(HistoryPage<T> page, Function<T, W> mapper) {
+        List<W> content = page.getContent().stream().map(mapper).toList();
+        WebPaginatedResponse<W> body = new WebPaginatedResponse<>(
+                content, page.getPage(), page.getSize(), page.getTotalElements());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(body);
+    }
 }
@@ -1,63 +1,72 @@
 package com.pekara.controller;
 
-import com.pekara.dto.response.WebActiveVehicleResponse;
-import com.pekara.dto.response.WebPaginatedResponse;
+import com.pekara.dto.request.ActiveVehiclesQuery;
+import com.pekara.dto.response.ActiveVehicleMapResponse;
+import com.pekara.dto.response.WebActiveVehicleMapResponse;
+import com.pekara.mapper.VehicleMapper;
+import com.pekara.service.VehicleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.util.Objects;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/vehicles")
+@RequiredArgsConstructor
 @Tag(name = "Vehicles", description = "Vehicle management endpoints")
 public class VehicleController {
 
-    @Operation(summary = "Get active vehicles", description = "Get all currently active vehicles with their positions on the map - Public endpoint")
+    private final VehicleService vehicleService;
+    private final VehicleMapper vehicleMapper;
+
+    @Operation(summary = "Get active vehicles", description = "Get currently active vehicles with their positions on the map, optionally limited to a bounding box and clustered by zoom level - Public endpoint")
     @GetMapping("/active")
-    public ResponseEntity<WebPaginatedResponse<WebActiveVehicleResponse>> getActiveVehicles(
+    public ResponseEntity<WebActiveVehicleMapResponse> getActiveVehicles(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size) {
-
-        log.debug("Active vehicles requested (page: {}, size: {})", page, size);
-
-        // TODO: Implement active vehicles retrieval via VehicleService
-        // - Fetch all vehicles that are currently active (driver logged in and available)
-        // - Apply pagination (page, size)
-        // - Include current location (latitude, longitude)
-        // - Include status: FREE (available) or BUSY (in ride)
-        // - Return paginated list of active vehicles
-
-        List<WebActiveVehicleResponse> vehicles = List.of(
-                new WebActiveVehicleResponse(
-                        1L,
-                        "STANDARD",
-                        "NS-123-AB",
-                        45.2671,
-                        19.8335,
-                        false,
-                        "FREE",
-                        new WebActiveVehicleResponse.DriverBasicInfo(1L, "John", "Doe")
-                ),
-                new WebActiveVehicleResponse(
-                        2L,
-                        "VAN",
-                        "NS-456-CD",
-                        45.2550,
-                        19.8450,
-                        true,
-                        "BUSY",
-                        new WebActiveVehicleResponse.DriverBasicInfo(2L, "Jane", "Smith")
-                )
-        );
-
-        WebPaginatedResponse<WebActiveVehicleResponse> response = new WebPaginatedResponse<>(vehicles, page, size, 2L);
-        return ResponseEntity.ok(response);
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double minLng,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double maxLng,
+            @RequestParam(required = false) Integer zoom,
+            WebRequest webRequest) {
+
+        log.debug("Active vehicles requested (page: {}, size: {}, zoom: {})", page, size, zoom);
+
+        // The response is a function of the snapshot content and the query, so a matching
+        // If-None-Match is answered with 304 before anything is filtered or serialized.
+        int queryHash = Objects.hash(page, size, minLat, minLng, maxLat, maxLng, zoom);
+        if (webRequest.checkNotModified(etag(vehicleService.snapshotVersion(), queryHash))) {
+            return null;
+        }
+
+        ActiveVehicleMapResponse response = vehicleService.getActiveVehicles(ActiveVehiclesQuery.builder()
+                .minLatitude(minLat)
+                .minLongitude(minLng)
+                .maxLatitude(maxLat)
+                .maxLongitude(maxLng)
+                .zoom(zoom)
+                .page(page)
+                .size(size)
+                .build());
+
+        return ResponseEntity.ok()
+                .eTag(etag(response.getVersion(), queryHash))
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .body(vehicleMapper.toWebResponse(response));
+    }
+
+    private static String etag(String version, int queryHash) {
+        return "\"" + version + "-" + Integer.toHexString(queryHash) + "\"";
     }
 }
@@ -0,0 +1,24 @@
+package com.pekara.dto.response;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Paginated vehicles as before, plus the clusters that replace dense groups at low zoom levels.
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class WebActiveVehicleMapResponse extends WebPaginatedResponse<WebActiveVehicleResponse> {
+
+    private List<WebVehicleClusterResponse> clusters;
+
+    public WebActiveVehicleMapResponse(List<WebActiveVehicleResponse> content, int page, int size, long totalElements,
+                                       List<WebVehicleClusterResponse> clusters) {
+        super(content, page, size, totalElements);
+        this.clusters = clusters;
+    }
+}
@@ -0,0 +1,16 @@
+package com.pekara.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebVehicleClusterResponse {
+
+    private Double latitude;
+    private Double longitude;
+    private Integer count;
+    private Integer busyCount;
+}
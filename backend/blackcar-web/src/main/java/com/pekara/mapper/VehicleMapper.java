@@ -0,0 +1,43 @@
+package com.pekara.mapper;
+
+import com.pekara.dto.response.ActiveVehicleMapResponse;
+import com.pekara.dto.response.ActiveVehicleResponse;
+import com.pekara.dto.response.VehicleClusterResponse;
+import com.pekara.dto.response.WebActiveVehicleMapResponse;
+import com.pekara.dto.response.WebActiveVehicleResponse;
+import com.pekara.dto.response.WebVehicleClusterResponse;
+import org.springframework.stereotype.Component;
+
+@Component
+public class VehicleMapper {
+
+    public WebActiveVehicleMapResponse toWebResponse(ActiveVehicleMapResponse response) {
+        return new WebActiveVehicleMapResponse(
+                response.getVehicles().stream().map(this::toWebVehicle).toList(),
+                response.getPage(),
+                response.getSize(),
+                response.getTotalVehicles(),
+                response.getClusters().stream().map(this::toWebCluster).toList()
+        );
+    }
+
+    private WebActiveVehicleResponse toWebVehicle(ActiveVehicleResponse vehicle) {
+        boolean busy = Boolean.TRUE.equals(vehicle.getBusy());
+        return new WebActiveVehicleResponse(
+                vehicle.getVehicleId(),
+                vehicle.getVehicleType(),
+                vehicle.getLicensePlate(),
+                vehicle.getLatitude(),
+                vehicle.getLongitude(),
+                busy,
+                busy ? "BUSY" : "FREE",
+                new WebActiveVehicleResponse.DriverBasicInfo(
+                        vehicle.getDriverId(), vehicle.getDriverFirstName(), vehicle.getDriverLastName())
+        );
+    }
+
+    private WebVehicleClusterResponse toWebCluster(VehicleClusterResponse cluster) {
+        return new WebVehicleClusterResponse(
+                cluster.getLatitude(), cluster.getLongitude(), cluster.getCount(), cluster.getBusyCount());
+    }
+}
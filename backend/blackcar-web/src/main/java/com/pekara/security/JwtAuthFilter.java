@@ -51,19 +51,18 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             }
         }
 
-        // Validate and authenticate
-        if (token != null && jwtService.isTokenValid(token)) {
-            String email = jwtService.getEmailFromToken(token);
-            String role = jwtService.getRoleFromToken(token);
+        // Validate and authenticate; the token is verified once and the result cached by JwtService
+        if (token != null) {
+            jwtService.authenticate(token).ifPresent(principal -> {
+                List<SimpleGrantedAuthority> authorities = List.of(
+                        new SimpleGrantedAuthority("ROLE_" + principal.role())
+                );
 
-            List<SimpleGrantedAuthority> authorities = List.of(
-                    new SimpleGrantedAuthority("ROLE_" + role)
-            );
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(principal.email(), null, authorities);
 
-            UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(email, null, authorities);
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            });
         }
 
         filterChain.doFilter(request, response);
@@ -2,31 +2,95 @@ package com.pekara.security;
 
 import com.pekara.service.JwtService;
 import com.pekara.service.RideTrackingService;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 
+import java.security.Principal;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+/**
+ * Authenticates STOMP sessions and guards topic subscriptions.
+ *
+ * A session is authenticated once, from the handshake when the request carried the JWT cookie and
+ * otherwise from the bearer token of the CONNECT frame. Subscriptions to a ride's tracking topic
+ * are checked on a small pool of their own rather than on the inbound channel thread: the frame is
+ * held back, and sent on to the broker once {@link RideTrackingService#canTrack} allows it, or
+ * answered with an ERROR frame if it does not. Admins are let through from their token's role.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class StompAuthChannelInterceptor implements ChannelInterceptor {
 
+    static final String AUTHORIZED_HEADER = "trackingAuthorized";
+    private static final String TRACKING_DENIED = "Not authorized for ride tracking";
+
     private final JwtService jwtService;
     private final RideTrackingService rideTrackingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<MessageChannel> clientOutboundChannel;
+    private final Executor authorizationExecutor;
+
+    /** Tracking subscriptions waiting for their check, by session. */
+    private final Map<String, Set<String>> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StompAuthChannelInterceptor(JwtService jwtService,
+                                       RideTrackingService rideTrackingService,
+                                       ApplicationEventPublisher eventPublisher,
+                                       @Qualifier("clientOutboundChannel") ObjectProvider<MessageChannel> clientOutboundChannel,
+                                       @Value("${app.websocket.subscription-auth.threads:2}") int threads,
+                                       @Value("${app.websocket.subscription-auth.queue-capacity:1000}") int queueCapacity) {
+        this(jwtService, rideTrackingService, eventPublisher, clientOutboundChannel, executor(threads, queueCapacity));
+    }
+
+    StompAuthChannelInterceptor(JwtService jwtService,
+                                RideTrackingService rideTrackingService,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectProvider<MessageChannel> clientOutboundChannel,
+                                Executor authorizationExecutor) {
+        this.jwtService = jwtService;
+        this.rideTrackingService = rideTrackingService;
+        this.eventPublisher = eventPublisher;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.authorizationExecutor = authorizationExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (authorizationExecutor instanceof ThreadPoolTaskExecutor executor) {
+            executor.shutdown();
+        }
+    }
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (message.getHeaders().containsKey(AUTHORIZED_HEADER)) {
+            return message;
+        }
         StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
         if (accessor == null) {
             return message;
@@ -35,12 +99,21 @@ public class StompAuthChannelInterceptor implements ChannelInterceptor {
         if (SimpMessageType.CONNECT.equals(accessor.getMessageType()) || StompCommand.CONNECT.equals(accessor.getCommand())) {
             authenticate(accessor);
         } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
-            authorizeSubscription(accessor);
+            return authorizeSubscription(message, channel, accessor);
+        } else if (StompCommand.UNSUBSCRIBE.equals(accessor.getCommand())) {
+            cancelPending(accessor.getSessionId(), accessor.getSubscriptionId());
+        } else if (SimpMessageType.DISCONNECT.equals(accessor.getMessageType())) {
+            pending.remove(String.valueOf(accessor.getSessionId()));
         }
         return message;
     }
 
     private void authenticate(StompHeaderAccessor accessor) {
+        if (accessor.getUser() != null) {
+            // Already authenticated from the handshake; no need to verify the token again.
+            return;
+        }
+
         List<String> authHeaders = accessor.getNativeHeader("Authorization");
         if (authHeaders == null || authHeaders.isEmpty()) {
             return;
@@ -53,52 +126,133 @@ public class StompAuthChannelInterceptor implements ChannelInterceptor {
 
         String token = raw.substring(7);
         try {
-            if (jwtService.isTokenValid(token)) {
-                String email = jwtService.getEmailFromToken(token);
-                String role = jwtService.getRoleFromToken(token);
-                var auth = new UsernamePasswordAuthenticationToken(
-                        email,
-                        null,
-                        List.of(new SimpleGrantedAuthority("ROLE_" + role))
-                );
-                accessor.setUser(auth);
-            }
+            jwtService.authenticate(token).ifPresent(principal -> accessor.setUser(new UsernamePasswordAuthenticationToken(
+                    principal.email(),
+                    null,
+                    List.of(new SimpleGrantedAuthority("ROLE_" + principal.role()))
+            )));
         } catch (Exception ex) {
             log.warn("STOMP auth failed: {}", ex.getMessage());
         }
     }
 
-    private void authorizeSubscription(StompHeaderAccessor accessor) {
+    private Message<?> authorizeSubscription(Message<?> message, MessageChannel channel, StompHeaderAccessor accessor) {
         String destination = accessor.getDestination();
-        if (destination == null || accessor.getUser() == null) {
-            return;
+        Principal user = accessor.getUser();
+        if (destination == null || user == null) {
+            return message;
         }
 
         // Only guard ride tracking topics
         if (destination.startsWith("/topic/rides/") && destination.endsWith("/tracking")) {
             String[] parts = destination.split("/");
             if (parts.length < 4) {
-                return;
+                return message;
             }
+            Long rideId;
             try {
-                Long rideId = Long.parseLong(parts[3]);
-                String email = accessor.getUser().getName();
-                // Will throw if unauthorized or ride not active
-                rideTrackingService.getTracking(rideId, email);
-            } catch (Exception ex) {
+                rideId = Long.parseLong(parts[3]);
+            } catch (NumberFormatException ex) {
                 log.warn("Blocking subscription to {}: {}", destination, ex.getMessage());
-                throw new IllegalArgumentException("Not authorized for ride tracking");
+                throw new IllegalArgumentException(TRACKING_DENIED);
+            }
+            if (isAdmin(user)) {
+                return message;
             }
+            deferTrackingSubscription(message, channel, accessor, rideId, user);
+            return null;
         }
 
         // Add guard for user notifications
         if (destination.startsWith("/topic/notifications/")) {
             String topicEmail = destination.substring("/topic/notifications/".length());
-            String currentUserEmail = accessor.getUser().getName();
+            String currentUserEmail = user.getName();
             if (!topicEmail.equals(currentUserEmail)) {
                 log.warn("Blocking notification subscription: user {} tried to access {}", currentUserEmail, topicEmail);
                 throw new IllegalArgumentException("Unauthorized notification subscription");
             }
         }
+        return message;
+    }
+
+    /**
+     * Checks the subscription on the authorization pool and, if allowed, sends it on to the broker
+     * and publishes the subscribe event the protocol handler skipped for the held-back frame. A
+     * subscription the client dropped or whose session ended in the meantime is not sent.
+     */
+    private void deferTrackingSubscription(Message<?> message, MessageChannel channel, StompHeaderAccessor accessor,
+                                           Long rideId, Principal user) {
+        String sessionId = String.valueOf(accessor.getSessionId());
+        String subscriptionId = String.valueOf(accessor.getSubscriptionId());
+        String destination = accessor.getDestination();
+        pending.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(subscriptionId);
+
+        try {
+            authorizationExecutor.execute(() -> {
+                boolean allowed;
+                try {
+                    allowed = rideTrackingService.canTrack(rideId, user.getName());
+                } catch (Exception ex) {
+                    log.warn("Tracking access check for {} failed: {}", destination, ex.getMessage());
+                    allowed = false;
+                }
+                if (!takePending(sessionId, subscriptionId)) {
+                    return;
+                }
+                if (!allowed) {
+                    log.warn("Blocking subscription to {} for {}", destination, user.getName());
+                    sendError(sessionId, TRACKING_DENIED);
+                    return;
+                }
+                Message<?> authorized = MessageBuilder.fromMessage(message).setHeader(AUTHORIZED_HEADER, Boolean.TRUE).build();
+                if (channel.send(authorized) && authorized.getPayload() instanceof byte[]) {
+                    @SuppressWarnings("unchecked")
+                    Message<byte[]> frame = (Message<byte[]>) authorized;
+                    eventPublisher.publishEvent(new SessionSubscribeEvent(this, frame, user));
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            takePending(sessionId, subscriptionId);
+            log.warn("Tracking subscription checks are backed up, rejecting {}", destination);
+            throw new IllegalStateException("Server busy, retry the subscription");
+        }
+    }
+
+    private void cancelPending(String sessionId, String subscriptionId) {
+        if (sessionId != null) {
+            takePending(sessionId, String.valueOf(subscriptionId));
+        }
+    }
+
+    /**
+     * Removes the pending subscription, returning whether it was still there. The session's entry
+     * itself goes on disconnect.
+     */
+    private boolean takePending(String sessionId, String subscriptionId) {
+        Set<String> subscriptions = pending.get(sessionId);
+        return subscriptions != null && subscriptions.remove(subscriptionId);
+    }
+
+    private void sendError(String sessionId, String text) {
+        StompHeaderAccessor error = StompHeaderAccessor.create(StompCommand.ERROR);
+        error.setSessionId(sessionId);
+        error.setMessage(text);
+        error.setLeaveMutable(true);
+        clientOutboundChannel.getObject().send(MessageBuilder.createMessage(new byte[0], error.getMessageHeaders()));
+    }
+
+    private static boolean isAdmin(Principal user) {
+        return user instanceof Authentication authentication && authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
+    private static ThreadPoolTaskExecutor executor(int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(threads, 1));
+        executor.setMaxPoolSize(Math.max(threads, 1));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("stomp-auth-");
+        executor.initialize();
+        return executor;
     }
 }
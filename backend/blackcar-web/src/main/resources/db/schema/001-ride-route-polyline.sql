@@ -0,0 +1,6 @@
+-- Encoded polyline route geometry (RouteGeometryMigration fills it from route_coordinates).
+-- route_coordinates is kept: readers fall back to it, and it is the source of truth until the
+-- conversion has been checked. Drop it by hand once every ride has a route_polyline:
+--   SELECT COUNT(*) FROM rides WHERE route_coordinates IS NOT NULL AND route_polyline IS NULL;
+--   ALTER TABLE rides DROP COLUMN route_coordinates;
+ALTER TABLE rides ADD COLUMN IF NOT EXISTS route_polyline text;
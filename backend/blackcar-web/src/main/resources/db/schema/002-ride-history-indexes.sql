@@ -0,0 +1,3 @@
+-- Keyset pagination of ride history, globally and per driver.
+CREATE INDEX IF NOT EXISTS idx_rides_created_at_id ON rides (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_rides_driver_created_at_id ON rides (driver_user_id, created_at, id);
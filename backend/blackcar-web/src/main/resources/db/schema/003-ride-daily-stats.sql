@@ -0,0 +1,12 @@
+-- Completed rides rolled up per day and scope (RideDailyStats).
+CREATE TABLE IF NOT EXISTS ride_daily_stats (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    stat_date date NOT NULL,
+    scope varchar(20) NOT NULL,
+    subject_id bigint NOT NULL,
+    ride_count bigint NOT NULL,
+    distance_km float(53) NOT NULL,
+    amount numeric(14, 2) NOT NULL,
+    CONSTRAINT uk_ride_daily_stats_day_scope_subject UNIQUE (stat_date, scope, subject_id)
+);
+CREATE INDEX IF NOT EXISTS idx_ride_daily_stats_scope_subject_day ON ride_daily_stats (scope, subject_id, stat_date);
@@ -0,0 +1,13 @@
+-- Outbox of ride lifecycle events (RideEvent).
+CREATE TABLE IF NOT EXISTS ride_events (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    ride_id bigint NOT NULL,
+    type varchar(20) NOT NULL,
+    payload text NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    available_at timestamp(6) NOT NULL,
+    published_at timestamp(6),
+    attempts integer NOT NULL,
+    last_error varchar(500)
+);
+CREATE INDEX IF NOT EXISTS idx_ride_events_pending ON ride_events (published_at, available_at, id);
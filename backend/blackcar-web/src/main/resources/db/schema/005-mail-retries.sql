@@ -0,0 +1,12 @@
+-- Emails waiting for another delivery attempt (MailRetry).
+CREATE TABLE IF NOT EXISTS mail_retries (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    recipient varchar(255) NOT NULL,
+    subject varchar(255) NOT NULL,
+    body text NOT NULL,
+    attempts integer NOT NULL,
+    next_attempt_at timestamp(6) NOT NULL,
+    last_error varchar(500),
+    created_at timestamp(6) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_mail_retries_due ON mail_retries (next_attempt_at, id);
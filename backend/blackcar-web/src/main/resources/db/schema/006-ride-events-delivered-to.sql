@@ -0,0 +1,2 @@
+-- Subscribers that already handled a ride event, skipped when the relay retries it.
+ALTER TABLE ride_events ADD COLUMN IF NOT EXISTS delivered_to varchar(500);
@@ -0,0 +1,84 @@
+package com.pekara.config;
+
+import com.pekara.service.ActiveRideContextCache;
+import com.pekara.service.RideTrackingAccessCache;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for RedisRideCacheEvictions - evicting on every instance and ignoring its own messages.
+ */
+public class RedisRideCacheEvictionsTest {
+
+    @Test(description = "Should evict locally, publish the ride and evict it on the instances that receive it")
+    public void evict_ReachesOtherInstances() {
+        Node a = new Node();
+        Node b = new Node();
+
+        a.evictions.evict(7L);
+
+        verify(a.contexts).evict(7L);
+        verify(a.access).evict(7L);
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(a.redisTemplate).convertAndSend(eq(RedisRideCacheEvictions.CHANNEL), body.capture());
+
+        b.deliver(body.getValue());
+        a.deliver(body.getValue());
+
+        verify(b.contexts).evict(7L);
+        verify(b.access).evict(7L);
+        verify(a.contexts, times(1)).evict(7L);
+    }
+
+    @Test(description = "Should still evict locally when Redis is unavailable and ignore unreadable messages")
+    public void evict_RedisDown_EvictsLocally() {
+        Node a = new Node();
+        doThrow(new IllegalStateException("connection refused"))
+                .when(a.redisTemplate).convertAndSend(anyString(), anyString());
+
+        a.evictions.evict(7L);
+        a.deliver("other-node:not-a-ride");
+
+        verify(a.contexts).evict(7L);
+        verify(a.contexts, times(1)).evict(any());
+        verify(a.access, times(1)).evict(any());
+    }
+
+    private static final class Node {
+
+        private final ActiveRideContextCache contexts = mock(ActiveRideContextCache.class);
+        private final RideTrackingAccessCache access = mock(RideTrackingAccessCache.class);
+        private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        private final RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        private final RedisRideCacheEvictions evictions =
+                new RedisRideCacheEvictions(contexts, access, redisTemplate, container);
+        private final MessageListener listener;
+
+        private Node() {
+            evictions.start();
+            ArgumentCaptor<MessageListener> captor = ArgumentCaptor.forClass(MessageListener.class);
+            verify(container).addMessageListener(captor.capture(), eq(new ChannelTopic(RedisRideCacheEvictions.CHANNEL)));
+            listener = captor.getValue();
+        }
+
+        void deliver(String body) {
+            listener.onMessage(new DefaultMessage(RedisRideCacheEvictions.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                    body.getBytes(StandardCharsets.UTF_8)), null);
+        }
+    }
+}
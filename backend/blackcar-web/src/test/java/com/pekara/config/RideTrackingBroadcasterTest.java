@@ -0,0 +1,287 @@
+package com.pekara.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.common.RideLocationDto;
+import com.pekara.dto.response.RideTrackingResponse;
+import com.pekara.dto.response.WebRideTrackingResponse;
+import com.pekara.mapper.RideMapper;
+import com.pekara.service.RideTrackingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RideTrackingBroadcaster - coalescing, suppression and delta frames on a simulated
+ * clock, and the bytes a subscriber receives for a ride compared with a full frame per ping.
+ */
+public class RideTrackingBroadcasterTest {
+
+    private static final Long RIDE_ID = 7L;
+    private static final String TOPIC = "/topic/rides/7/tracking";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 10, 8, 0);
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private MutableClock clock;
+    private SimpMessagingTemplate messagingTemplate;
+    private MessageChannel clientOutboundChannel;
+    private RideTrackingService rideTrackingService;
+    private SimpleMeterRegistry meterRegistry;
+    private List<Map<String, Object>> frames;
+    private RideTrackingBroadcaster broadcaster;
+
+    @BeforeMethod
+    public void setUp() {
+        clock = new MutableClock();
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        clientOutboundChannel = mock(MessageChannel.class);
+        rideTrackingService = mock(RideTrackingService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        frames = new ArrayList<>();
+        doAnswer(invocation -> {
+            Message<?> message = invocation.getArgument(1);
+            frames.add(read((byte[]) message.getPayload()));
+            return null;
+        }).when(messagingTemplate).send(eq(TOPIC), any());
+        broadcaster = new RideTrackingBroadcaster(messagingTemplate, clientOutboundChannel, rideTrackingService,
+                new RideMapper(), objectMapper, meterRegistry,
+                Duration.ofSeconds(2), Duration.ofSeconds(30), 15, 20, clock);
+    }
+
+    @Test(description = "Should send the first ping in full and later ones as deltas of the changed fields")
+    public void publish_FirstFullThenDelta() {
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8500, 90.0, 600));
+        clock.advance(Duration.ofSeconds(2));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8510, 90.0, 590));
+
+        assertThat(frames).hasSize(2);
+        assertThat(frames.get(0)).containsEntry("frame", "FULL")
+                .containsEntry("nextStopName", "Dropoff")
+                .containsKey("vehicle");
+        assertThat(frames.get(1)).containsEntry("frame", "DELTA")
+                .containsEntry("rideId", 7)
+                .containsEntry("vehicleLongitude", 19.851)
+                .containsKey("recordedAt")
+                .doesNotContainKeys("vehicleLatitude", "nextStopName", "vehicle", "rideStatus");
+    }
+
+    @Test(description = "Should hold pings back within the window and send only the latest once it has passed")
+    public void publish_WithinWindow_CoalescedUntilFlush() {
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8500, 90.0, 600));
+        clock.advance(Duration.ofMillis(500));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8505, 90.0, 600));
+        clock.advance(Duration.ofMillis(500));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8510, 90.0, 600));
+        broadcaster.flush();
+        assertThat(frames).hasSize(1);
+
+        clock.advance(Duration.ofSeconds(1));
+        broadcaster.flush();
+
+        assertThat(frames).hasSize(2);
+        assertThat(frames.get(1)).containsEntry("vehicleLongitude", 19.851);
+        assertThat(meterRegistry.counter("tracking.broadcast.coalesced").count()).isEqualTo(1.0);
+    }
+
+    @Test(description = "Should drop small moves and turns on the spot until the car moved or turned enough, or the ETA changed")
+    public void publish_BelowThresholds_Suppressed() {
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8500, 90.0, 600));
+        clock.advance(Duration.ofSeconds(2));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.25005, 19.8500, 95.0, 600));
+        clock.advance(Duration.ofSeconds(2));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.25005, 19.8500, 200.0, 600));
+        clock.advance(Duration.ofSeconds(2));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2501, 19.8500, 130.0, 600));
+        clock.advance(Duration.ofSeconds(2));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2501, 19.8500, 130.0, 540));
+
+        assertThat(frames).extracting(frame -> frame.get("frame")).containsExactly("FULL", "DELTA", "DELTA");
+        assertThat(frames.get(1)).containsEntry("vehicleLatitude", 45.2501)
+                .doesNotContainKey("estimatedTimeToDestinationMinutes");
+        assertThat(frames.get(2)).containsEntry("estimatedTimeToDestinationMinutes", 9);
+        assertThat(meterRegistry.counter("tracking.broadcast.suppressed").count()).isEqualTo(2.0);
+    }
+
+    @Test(description = "Should send a status change in full at once and a full keyframe after the interval")
+    public void publish_StatusChangeAndKeyframe_Full() {
+        broadcaster.publish(ping(RideStatus.ACCEPTED, 45.2500, 19.8500, 90.0, 600));
+        clock.advance(Duration.ofMillis(300));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8500, 90.0, 600));
+        clock.advance(Duration.ofSeconds(31));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8500, 90.0, 600));
+
+        assertThat(frames).extracting(frame -> frame.get("frame")).containsExactly("FULL", "FULL", "FULL");
+        assertThat(frames.get(1)).containsEntry("rideStatus", "IN_PROGRESS");
+    }
+
+    @Test(description = "Should send the final state of an ended ride in full and drop its held-back pings")
+    public void complete_SendsFullAndForgetsRide() {
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8500, 90.0, 600));
+        clock.advance(Duration.ofMillis(500));
+        broadcaster.publish(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8600, 90.0, 500));
+
+        broadcaster.complete(WebRideTrackingResponse.builder().rideId(RIDE_ID).status("COMPLETED").rideStatus("COMPLETED").build());
+        clock.advance(Duration.ofSeconds(5));
+        broadcaster.flush();
+
+        assertThat(frames).hasSize(2);
+        assertThat(frames.get(1)).containsEntry("frame", "FULL").containsEntry("rideStatus", "COMPLETED");
+        assertThat(frames.get(1).get("vehicleLatitude")).isNull();
+    }
+
+    @Test(description = "Should send a new subscriber the ride's state in full, to its subscription only")
+    public void onSubscribe_SendsSnapshotToSubscription() throws Exception {
+        when(rideTrackingService.getTracking(RIDE_ID, "passenger@test.com"))
+                .thenReturn(ping(RideStatus.IN_PROGRESS, 45.2500, 19.8500, 90.0, 600));
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId("s1");
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(TOPIC);
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken("passenger@test.com", null, List.of());
+
+        broadcaster.onSubscribe(new SessionSubscribeEvent(this,
+                MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()), user));
+
+        ArgumentCaptor<Message<?>> snapshot = ArgumentCaptor.forClass(Message.class);
+        verify(clientOutboundChannel).send(snapshot.capture());
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(snapshot.getValue());
+        assertThat(headers.getSessionId()).isEqualTo("s1");
+        assertThat(headers.getSubscriptionId()).isEqualTo("sub-0");
+        assertThat(headers.getDestination()).isEqualTo(TOPIC);
+        assertThat(read((byte[]) snapshot.getValue().getPayload())).containsEntry("frame", "FULL")
+                .containsEntry("vehicleLatitude", 45.25);
+        assertThat(frames).isEmpty();
+    }
+
+    /**
+     * A ten minute ride with a ping every second: driving at city speeds with turns, three stops at
+     * lights where the GPS fix wanders by a few metres, and seeded jitter on every fix.
+     */
+    @Test(description = "Should cut the bytes a subscriber receives per second well below a full frame per ping")
+    public void publish_RecordedRide_ReducesBytesPerSubscriber() {
+        Random random = new Random(42);
+        double lat = 45.2400;
+        double lon = 19.8000;
+        double heading = 90.0;
+        double remainingKm = 6.0;
+        int seconds = 600;
+
+        for (int t = 0; t < seconds; t++) {
+            boolean stopped = (t >= 120 && t < 165) || (t >= 300 && t < 340) || (t >= 470 && t < 500);
+            if (t == 200 || t == 380) {
+                heading = (heading + 90) % 360;
+            }
+            double speedMps = stopped ? 0 : 9 + random.nextDouble() * 4;
+            double stepKm = speedMps / 1000.0;
+            lat += stepKm * Math.cos(Math.toRadians(heading)) / KM_PER_DEGREE;
+            lon += stepKm * Math.sin(Math.toRadians(heading)) / (KM_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+            remainingKm = Math.max(0, remainingKm - stepKm);
+
+            double jitterKm = 0.003;
+            double fixLat = lat + random.nextGaussian() * jitterKm / KM_PER_DEGREE;
+            double fixLon = lon + random.nextGaussian() * jitterKm / KM_PER_DEGREE;
+            double fixHeading = stopped ? random.nextDouble() * 360 : heading + random.nextGaussian() * 3;
+            int etaSeconds = (int) Math.round(remainingKm / 0.011);
+
+            RideTrackingResponse tracking = ping(RideStatus.IN_PROGRESS, fixLat, fixLon, fixHeading, etaSeconds);
+            tracking.setDistanceToDestinationKm(Math.round(remainingKm * 1000) / 1000.0);
+            broadcaster.publish(tracking);
+            for (int quarter = 0; quarter < 4; quarter++) {
+                clock.advance(Duration.ofMillis(250));
+                broadcaster.flush();
+            }
+        }
+
+        double baseline = meterRegistry.counter("tracking.broadcast.baseline.bytes").count();
+        double sent = meterRegistry.counter("tracking.broadcast.bytes", "type", "full").count()
+                + meterRegistry.counter("tracking.broadcast.bytes", "type", "delta").count();
+        assertThat(frames.size()).isLessThan(seconds / 2);
+        assertThat(sent).isLessThan(baseline * 0.4);
+    }
+
+    private static RideTrackingResponse ping(RideStatus status, double latitude, double longitude, double heading,
+                                             int etaSeconds) {
+        LocalDateTime now = LocalDateTime.now();
+        return RideTrackingResponse.builder()
+                .rideId(RIDE_ID)
+                .rideStatus(status)
+                .lastLocation(RideLocationDto.builder()
+                        .latitude(latitude)
+                        .longitude(longitude)
+                        .heading(heading)
+                        .speed(10.0)
+                        .recordedAt(now)
+                        .build())
+                .etaSeconds(etaSeconds)
+                .distanceToDestinationKm(5.0)
+                .updatedAt(now)
+                .driverId(3L)
+                .driverLicensePlate("NS-123-AB")
+                .vehicleType("SEDAN")
+                .nextStopAddress("Dropoff")
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> read(byte[] payload) throws IOException {
+        return objectMapper.readValue(payload, Map.class);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = START.toInstant(ZoneOffset.UTC);
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
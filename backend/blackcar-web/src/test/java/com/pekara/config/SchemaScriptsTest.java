@@ -0,0 +1,62 @@
+package com.pekara.config;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the schema scripts run by the prod profile: they apply to a database that predates them
+ * and can run again on every start.
+ */
+public class SchemaScriptsTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ResourceDatabasePopulator populator;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        // The part of the original rides table the scripts touch.
+        jdbc.execute("CREATE TABLE rides (id bigint PRIMARY KEY, driver_user_id bigint, created_at timestamp(6), "
+                + "route_coordinates text)");
+
+        String locations = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application-prod.properties"))
+                .getProperty("spring.sql.init.schema-locations");
+        populator = new ResourceDatabasePopulator();
+        Arrays.stream(locations.split(","))
+                .map(String::trim)
+                .map(location -> new ClassPathResource(location.substring("classpath:".length())))
+                .forEach(populator::addScript);
+    }
+
+    @Test(description = "Should create the new tables and columns, and be safe to run again")
+    public void schemaScripts_RunTwice_CreateEverything() {
+        populator.execute(dataSource);
+        populator.execute(dataSource);
+
+        assertThat(columns("rides")).contains("route_coordinates", "route_polyline");
+        assertThat(columns("ride_daily_stats")).contains("stat_date", "scope", "subject_id", "ride_count", "distance_km", "amount");
+        assertThat(columns("ride_events")).contains("ride_id", "type", "payload", "available_at", "published_at", "attempts",
+                "delivered_to");
+        assertThat(columns("mail_retries")).contains("recipient", "body", "attempts", "next_attempt_at", "last_error");
+    }
+
+    private List<String> columns(String table) {
+        return jdbc.queryForList("SELECT LOWER(column_name) FROM information_schema.columns WHERE LOWER(table_name) = ?",
+                String.class, table);
+    }
+}
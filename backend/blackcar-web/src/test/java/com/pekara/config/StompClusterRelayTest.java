@@ -0,0 +1,334 @@
+package com.pekara.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StompClusterRelay - several broker nodes in one JVM sharing an in-memory stand-in
+ * for Redis pub/sub that delivers on one thread per node, as the listener container does.
+ */
+public class StompClusterRelayTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PubSub pubSub;
+    private List<Node> nodes;
+
+    @BeforeMethod
+    public void setUp() {
+        pubSub = new PubSub();
+        nodes = new ArrayList<>();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        nodes.forEach(Node::stop);
+        pubSub.shutdown();
+    }
+
+    @Test(description = "Should deliver a message sent on one node to subscribers on every node exactly once")
+    public void send_ReachesSubscribersOnAllNodesOnce() throws Exception {
+        Node a = node();
+        Node b = node();
+        Node c = node();
+        a.subscribe("a1", "sub-0", "/topic/rides/1/tracking");
+        c.subscribe("c1", "sub-0", "/topic/rides/1/tracking");
+
+        b.send("/topic/rides/1/tracking", Map.of("seq", 1));
+        a.send("/topic/rides/1/tracking", Map.of("seq", 2));
+
+        await(() -> a.delivered.get() == 2 && c.delivered.get() == 2);
+        Thread.sleep(100);
+        // Node a delivers its own message locally while b's arrives over Redis, so their order varies.
+        assertThat(a.deliveredTo("a1")).containsExactlyInAnyOrder(1, 2);
+        assertThat(c.deliveredTo("c1")).containsExactly(1, 2);
+        assertThat(b.delivered.get()).isZero();
+    }
+
+    @Test(description = "Should not relay destinations outside the configured prefixes")
+    public void send_OtherDestination_StaysLocal() throws Exception {
+        Node a = node();
+        Node b = node();
+        a.subscribe("a1", "sub-0", "/topic/other");
+        b.subscribe("b1", "sub-0", "/topic/other");
+
+        a.send("/topic/other", Map.of("seq", 1));
+
+        Thread.sleep(100);
+        assertThat(a.deliveredTo("a1")).containsExactly(1);
+        assertThat(b.delivered.get()).isZero();
+        verify(a.redis, times(0)).convertAndSend(anyString(), any());
+    }
+
+    @Test(description = "Should hold one Redis subscription per destination while any local client listens")
+    public void subscriptions_AreReferenceCounted() {
+        Node a = node();
+        a.subscribe("s1", "sub-0", "/topic/chat/7");
+        a.subscribe("s2", "sub-0", "/topic/chat/7");
+        a.subscribe("s2", "sub-1", "/topic/notifications/x@test.com");
+        verify(a.container, times(1)).addMessageListener(any(MessageListener.class),
+                eq(new ChannelTopic("stomp:/topic/chat/7")));
+        assertThat(pubSub.channels()).containsExactlyInAnyOrder("stomp:/topic/chat/7", "stomp:/topic/notifications/x@test.com");
+
+        a.unsubscribe("s1", "sub-0");
+        assertThat(pubSub.channels()).contains("stomp:/topic/chat/7");
+
+        a.disconnect("s2");
+        assertThat(pubSub.channels()).isEmpty();
+        assertThat(a.relay.subscribedChannels()).isZero();
+    }
+
+    @Test(description = "Should fan out ride tracking across four nodes with every message delivered once")
+    public void fanOut_FourNodes_EveryMessageDeliveredOnce() throws Exception {
+        int nodeCount = 4;
+        int rides = 100;
+        int sessionsPerNode = 50;
+        int messages = 20_000;
+        for (int i = 0; i < nodeCount; i++) {
+            node();
+        }
+
+        // Each session follows one ride, so a ride's watchers are spread over some of the nodes.
+        Random random = new Random(11);
+        List<Map<String, Integer>> rideBySession = new ArrayList<>();
+        List<Set<Integer>> ridesByNode = new ArrayList<>();
+        for (Node node : nodes) {
+            Map<String, Integer> followed = new HashMap<>();
+            for (int s = 0; s < sessionsPerNode; s++) {
+                int ride = random.nextInt(rides);
+                node.subscribe("session-" + s, "sub-0", tracking(ride));
+                followed.put("session-" + s, ride);
+            }
+            rideBySession.add(followed);
+            ridesByNode.add(new HashSet<>(followed.values()));
+        }
+
+        Map<Integer, List<Integer>> sentByRide = new HashMap<>();
+        int expected = 0;
+        for (int i = 0; i < messages; i++) {
+            int ride = random.nextInt(rides);
+            sentByRide.computeIfAbsent(ride, key -> new ArrayList<>()).add(i);
+            for (Map<String, Integer> followed : rideBySession) {
+                expected += (int) followed.values().stream().filter(watched -> watched == ride).count();
+            }
+            nodes.get(random.nextInt(nodeCount)).send(tracking(ride), Map.of("seq", i));
+        }
+        int total = expected;
+        await(() -> nodes.stream().mapToInt(node -> node.delivered.get()).sum() >= total);
+
+        Thread.sleep(100);
+        assertThat(nodes.stream().mapToInt(node -> node.delivered.get()).sum()).isEqualTo(total);
+        for (int i = 0; i < nodeCount; i++) {
+            for (Map.Entry<String, Integer> session : rideBySession.get(i).entrySet()) {
+                assertThat(nodes.get(i).deliveredTo(session.getKey()))
+                        .containsExactlyInAnyOrderElementsOf(sentByRide.getOrDefault(session.getValue(), List.of()));
+            }
+            assertThat(nodes.get(i).relay.subscribedChannels()).isEqualTo(ridesByNode.get(i).size());
+        }
+    }
+
+    private Node node() {
+        Node node = new Node();
+        nodes.add(node);
+        return node;
+    }
+
+    private static String tracking(int ride) {
+        return "/topic/rides/" + ride + "/tracking";
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting for deliveries");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * One instance: the channels and simple broker Spring sets up, the relay, and mocked Redis
+     * clients wired to the shared pub/sub.
+     */
+    private final class Node {
+
+        final ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        final ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        final SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(
+                clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        final SimpMessagingTemplate template = new SimpMessagingTemplate(brokerChannel);
+        final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        final RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        final ExecutorService listenerThread = Executors.newSingleThreadExecutor();
+        final StompClusterRelay relay;
+
+        final AtomicInteger delivered = new AtomicInteger();
+        final Map<String, List<Integer>> bySession = new ConcurrentHashMap<>();
+        final Set<String> connected = new HashSet<>();
+
+        Node() {
+            when(redis.convertAndSend(anyString(), any())).thenAnswer(invocation -> {
+                pubSub.publish(invocation.getArgument(0), invocation.getArgument(1));
+                return 1L;
+            });
+            doAnswer(invocation -> {
+                pubSub.subscribe(((ChannelTopic) invocation.getArgument(1)).getTopic(), invocation.getArgument(0), listenerThread);
+                return null;
+            }).when(container).addMessageListener(any(MessageListener.class), any(ChannelTopic.class));
+            doAnswer(invocation -> {
+                pubSub.unsubscribe(((ChannelTopic) invocation.getArgument(1)).getTopic(), invocation.getArgument(0));
+                return null;
+            }).when(container).removeMessageListener(any(MessageListener.class), any(ChannelTopic.class));
+
+            template.setMessageConverter(new MappingJackson2MessageConverter());
+            clientOutbound.subscribe(message -> {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+                    return;
+                }
+                int seq = readSeq((byte[]) message.getPayload());
+                String session = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+                bySession.computeIfAbsent(session, key -> new CopyOnWriteArrayList<>()).add(seq);
+                delivered.incrementAndGet();
+            });
+            broker.start();
+            relay = new StompClusterRelay(brokerChannel, redis, container, objectMapper, new SimpleMeterRegistry(),
+                    List.of("/topic/rides/", "/topic/notifications/", "/topic/chat/"));
+            relay.start();
+        }
+
+        void subscribe(String session, String subscriptionId, String destination) {
+            if (connected.add(session)) {
+                // The simple broker only delivers to sessions it saw connect.
+                SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+                connect.setSessionId(session);
+                connect.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[]{0, 0});
+                clientInbound.send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+            }
+            Message<byte[]> message = clientMessage(SimpMessageType.SUBSCRIBE, session, subscriptionId, destination);
+            clientInbound.send(message);
+            relay.onSubscribe(new SessionSubscribeEvent(this, message));
+        }
+
+        void unsubscribe(String session, String subscriptionId) {
+            Message<byte[]> message = clientMessage(SimpMessageType.UNSUBSCRIBE, session, subscriptionId, null);
+            clientInbound.send(message);
+            relay.onUnsubscribe(new SessionUnsubscribeEvent(this, message));
+        }
+
+        void disconnect(String session) {
+            Message<byte[]> message = clientMessage(SimpMessageType.DISCONNECT, session, null, null);
+            clientInbound.send(message);
+            relay.onDisconnect(new SessionDisconnectEvent(this, message, session, CloseStatus.NORMAL));
+        }
+
+        void send(String destination, Object payload) {
+            template.convertAndSend(destination, payload);
+        }
+
+        List<Integer> deliveredTo(String session) {
+            return bySession.getOrDefault(session, List.of());
+        }
+
+        void stop() {
+            broker.stop();
+            listenerThread.shutdownNow();
+        }
+
+        private Message<byte[]> clientMessage(SimpMessageType type, String session, String subscriptionId, String destination) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+            accessor.setSessionId(session);
+            accessor.setSubscriptionId(subscriptionId);
+            accessor.setDestination(destination);
+            return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+
+        private int readSeq(byte[] payload) {
+            try {
+                return objectMapper.readTree(payload).get("seq").asInt();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Channel subscriptions shared by all nodes; a publish is handed to each subscribed listener on
+     * its node's listener thread.
+     */
+    private static final class PubSub {
+
+        private final Map<String, Map<MessageListener, ExecutorService>> subscriptions = new ConcurrentHashMap<>();
+
+        void subscribe(String channel, MessageListener listener, ExecutorService thread) {
+            subscriptions.computeIfAbsent(channel, key -> new ConcurrentHashMap<>()).put(listener, thread);
+        }
+
+        void unsubscribe(String channel, MessageListener listener) {
+            subscriptions.computeIfPresent(channel, (key, listeners) -> {
+                listeners.remove(listener);
+                return listeners.isEmpty() ? null : listeners;
+            });
+        }
+
+        void publish(String channel, Object body) {
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            subscriptions.getOrDefault(channel, Map.of()).forEach((listener, thread) -> thread.execute(() ->
+                    listener.onMessage(new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8), bytes), null)));
+        }
+
+        Set<String> channels() {
+            return subscriptions.keySet();
+        }
+
+        void shutdown() {
+            subscriptions.clear();
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.pekara.model.UserRole;
 import com.pekara.repository.RideRepository;
 import com.pekara.repository.UserRepository;
 import com.pekara.service.JwtService;
+import com.pekara.service.UserLookupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -29,6 +30,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -63,6 +65,9 @@ public class RideControllerIntegrationTest extends AbstractTestNGSpringContextTe
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserLookupService userLookupService;
+
     private User passenger;
     private Driver driver;
     private Ride ride;
@@ -74,6 +79,8 @@ public class RideControllerIntegrationTest extends AbstractTestNGSpringContextTe
     public void setUp() {
         rideRepository.deleteAll();
         userRepository.deleteAll();
+        // Users are recreated with new ids for every test, so drop what the lookup cache holds for them.
+        Stream.of("passenger@test.com", "driver@test.com", "admin@test.com", "other@test.com", "other-driver@test.com").forEach(userLookupService::evict);
 
         passenger = User.builder()
                 .email("passenger@test.com")
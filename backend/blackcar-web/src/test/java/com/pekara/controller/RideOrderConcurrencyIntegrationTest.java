@@ -0,0 +1,233 @@
+package com.pekara.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pekara.constant.RideStatus;
+import com.pekara.dto.common.LocationPointDto;
+import com.pekara.dto.common.WebLocationPoint;
+import com.pekara.dto.request.WebOrderRideRequest;
+import com.pekara.model.Driver;
+import com.pekara.model.DriverState;
+import com.pekara.model.Ride;
+import com.pekara.model.User;
+import com.pekara.model.UserRole;
+import com.pekara.repository.DriverStateRepository;
+import com.pekara.repository.DriverWorkLogRepository;
+import com.pekara.repository.RideEventRepository;
+import com.pekara.repository.RideRepository;
+import com.pekara.repository.UserRepository;
+import com.pekara.service.DriverLocationIndex;
+import com.pekara.service.JwtService;
+import com.pekara.service.RideEstimationService;
+import com.pekara.service.UserLookupService;
+import jakarta.servlet.http.Cookie;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Load test for POST /api/v1/rides/order - many passengers ordering at once against a few drivers.
+ * Not transactional: every order commits on its own, as it does in production.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class RideOrderConcurrencyIntegrationTest extends AbstractTestNGSpringContextTests {
+
+    private static final int DRIVERS = 8;
+    private static final int PASSENGERS = 48;
+    private static final int THREADS = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideEventRepository rideEventRepository;
+
+    @Autowired
+    private DriverWorkLogRepository driverWorkLogRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DriverStateRepository driverStateRepository;
+
+    @Autowired
+    private DriverLocationIndex driverLocationIndex;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserLookupService userLookupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private RideEstimationService rideEstimationService;
+
+    private final List<String> passengerTokens = new ArrayList<>();
+    private String requestBody;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        cleanUp();
+
+        // The state shares its id with the driver, so both are saved in one transaction.
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < DRIVERS; i++) {
+                Driver driver = userRepository.save(Driver.builder()
+                        .email("load-driver" + i + "@test.com")
+                        .username("load-driver" + i)
+                        .password("password")
+                        .firstName("Driver")
+                        .lastName("No" + i)
+                        .phoneNumber("+38164000" + i)
+                        .address("Driver Address")
+                        .role(UserRole.DRIVER)
+                        .isActive(true)
+                        .totalRides(0)
+                        .vehicleType("SEDAN")
+                        .licensePlate("NS-" + i + "-LD")
+                        .build());
+                driverStateRepository.save(DriverState.builder()
+                        .id(driver.getId())
+                        .driver(driver)
+                        .online(true)
+                        .busy(false)
+                        .latitude(45.25 + i * 0.001)
+                        .longitude(19.84)
+                        .updatedAt(LocalDateTime.now())
+                        .build());
+            }
+        });
+        // States saved straight through the repository do not publish index updates.
+        driverLocationIndex.rebuild(driverStateRepository.findAllOnlineDriversWithDriver());
+
+        passengerTokens.clear();
+        for (int i = 0; i < PASSENGERS; i++) {
+            User passenger = userRepository.save(User.builder()
+                    .email("load-passenger" + i + "@test.com")
+                    .username("load-passenger" + i)
+                    .password("password")
+                    .firstName("Passenger")
+                    .lastName("No" + i)
+                    .phoneNumber("+38165000" + i)
+                    .address("Passenger Address")
+                    .role(UserRole.PASSENGER)
+                    .isActive(true)
+                    .totalRides(0)
+                    .build());
+            passengerTokens.add(jwtService.generateToken(passenger.getEmail(), passenger.getRole().toString()));
+        }
+
+        WebOrderRideRequest request = new WebOrderRideRequest();
+        request.setPickup(WebLocationPoint.builder().address("Pickup").latitude(45.25).longitude(19.84).build());
+        request.setDropoff(WebLocationPoint.builder().address("Dropoff").latitude(45.27).longitude(19.85).build());
+        request.setVehicleType("SEDAN");
+        request.setBabyTransport(false);
+        request.setPetTransport(false);
+        requestBody = objectMapper.writeValueAsString(request);
+
+        when(rideEstimationService.calculateRouteWithStops(any(), any(), any()))
+                .thenReturn(new RideEstimationService.RouteData(10.0, 20,
+                        List.of(LocationPointDto.builder().address("A").latitude(45.25).longitude(19.84).build(),
+                                LocationPointDto.builder().address("B").latitude(45.27).longitude(19.85).build())));
+        when(rideEstimationService.calculatePrice(any(), anyDouble())).thenReturn(new BigDecimal("500.00"));
+        when(rideEstimationService.roundKm(anyDouble())).thenAnswer(inv -> inv.getArgument(0));
+        when(rideEstimationService.encodeRoutePolyline(any())).thenReturn("_p~iF~ps|U_ulLnnqC");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        cleanUp();
+    }
+
+    @Test(description = "Should never assign one driver to two rides when many orders race for few drivers")
+    public void orderRide_ConcurrentOrders_NoDoubleAssignment() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (String token : passengerTokens) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/v1/rides/order")
+                                    .cookie(new Cookie("jwt", token))
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(requestBody))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> result : results) {
+                statuses.add(result.get());
+            }
+
+            Map<Integer, Long> byStatus = statuses.stream()
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            assertThat(byStatus.keySet()).isSubsetOf(201, 409);
+            List<Ride> rides = rideRepository.findAll();
+            assertThat(rides).hasSize(byStatus.getOrDefault(201, 0L).intValue()).hasSizeLessThanOrEqualTo(DRIVERS);
+            assertThat(rides).isNotEmpty().allMatch(ride -> ride.getStatus() == RideStatus.ACCEPTED);
+
+            Map<Long, Long> ridesPerDriver = rides.stream()
+                    .collect(Collectors.groupingBy(ride -> ride.getDriver().getId(), Collectors.counting()));
+            assertThat(ridesPerDriver.values()).allMatch(count -> count == 1L);
+            Map<Long, DriverState> states = driverStateRepository.findAll().stream()
+                    .collect(Collectors.toMap(DriverState::getId, Function.identity()));
+            assertThat(ridesPerDriver.keySet()).allMatch(driverId -> states.get(driverId).getBusy());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void cleanUp() {
+        rideEventRepository.deleteAll();
+        driverWorkLogRepository.deleteAll();
+        rideRepository.deleteAll();
+        driverStateRepository.deleteAll();
+        userRepository.findAll().stream()
+                .map(User::getEmail)
+                .filter(email -> email.startsWith("load-"))
+                .forEach(userLookupService::evict);
+        userRepository.deleteAll();
+    }
+}
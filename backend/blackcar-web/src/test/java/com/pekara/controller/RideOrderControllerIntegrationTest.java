@@ -13,7 +13,9 @@ import com.pekara.model.UserRole;
 import com.pekara.repository.DriverStateRepository;
 import com.pekara.repository.RideRepository;
 import com.pekara.repository.UserRepository;
+import com.pekara.service.DriverLocationIndex;
 import com.pekara.service.JwtService;
+import com.pekara.service.UserLookupService;
 import com.pekara.service.RideEstimationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -32,6 +34,7 @@ import org.testng.annotations.Test;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
@@ -67,12 +70,18 @@ public class RideOrderControllerIntegrationTest extends AbstractTestNGSpringCont
     @Autowired
     private DriverStateRepository driverStateRepository;
 
+    @Autowired
+    private DriverLocationIndex driverLocationIndex;
+
     @Autowired
     private JwtService jwtService;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserLookupService userLookupService;
+
     @MockBean
     private RideEstimationService rideEstimationService;
 
@@ -88,6 +97,8 @@ public class RideOrderControllerIntegrationTest extends AbstractTestNGSpringCont
         rideRepository.deleteAll();
         driverStateRepository.deleteAll();
         userRepository.deleteAll();
+        // Users are recreated with new ids for every test, so drop what the lookup cache holds for them.
+        Stream.of("passenger@test.com", "driver@test.com", "admin@test.com").forEach(userLookupService::evict);
 
         passenger = User.builder()
                 .email("passenger@test.com")
@@ -129,6 +140,8 @@ public class RideOrderControllerIntegrationTest extends AbstractTestNGSpringCont
                 .updatedAt(LocalDateTime.now())
                 .build();
         driverStateRepository.save(driverState);
+        // States saved straight through the repository do not publish index updates.
+        driverLocationIndex.rebuild(driverStateRepository.findAllOnlineDriversWithDriver());
 
         User admin = User.builder()
                 .email("admin@test.com")
@@ -161,7 +174,7 @@ public class RideOrderControllerIntegrationTest extends AbstractTestNGSpringCont
                                 LocationPointDto.builder().address("B").latitude(45.27).longitude(19.85).build())));
         when(rideEstimationService.calculatePrice(any(), anyDouble())).thenReturn(new BigDecimal("500.00"));
         when(rideEstimationService.roundKm(anyDouble())).thenAnswer(inv -> inv.getArgument(0));
-        when(rideEstimationService.serializeRouteCoordinates(any())).thenReturn("[[45.25,19.84],[45.27,19.85]]");
+        when(rideEstimationService.encodeRoutePolyline(any())).thenReturn("_p~iF~ps|U_ulLnnqC");
     }
 
     private jakarta.servlet.http.Cookie createJwtCookie(String token) {
@@ -222,6 +235,7 @@ public class RideOrderControllerIntegrationTest extends AbstractTestNGSpringCont
         passenger.setBlocked(true);
         passenger.setBlockedNote("Abuse");
         userRepository.save(passenger);
+        userLookupService.evict(passenger.getEmail());
 
         mockMvc.perform(post("/api/v1/rides/order")
                         .cookie(createJwtCookie(passengerToken))
@@ -235,6 +249,7 @@ public class RideOrderControllerIntegrationTest extends AbstractTestNGSpringCont
     @Test(description = "Should return 409 when no active drivers")
     public void orderRide_NoActiveDrivers_Returns409() throws Exception {
         driverStateRepository.deleteAll();
+        driverLocationIndex.rebuild(List.of());
 
         mockMvc.perform(post("/api/v1/rides/order")
                         .cookie(createJwtCookie(passengerToken))
@@ -0,0 +1,194 @@
+package com.pekara.security;
+
+import com.pekara.service.JwtService;
+import com.pekara.service.RideTrackingService;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StompAuthChannelInterceptor - session authentication and subscription checks,
+ * with the tracking checks queued and run by the test.
+ */
+public class StompAuthChannelInterceptorTest {
+
+    private static final String PASSENGER = "passenger@test.com";
+    private static final String TRACKING = "/topic/rides/7/tracking";
+
+    private JwtService jwtService;
+    private RideTrackingService rideTrackingService;
+    private ApplicationEventPublisher eventPublisher;
+    private ObjectProvider<MessageChannel> outboundProvider;
+    private MessageChannel outbound;
+    private MessageChannel inbound;
+
+    private List<Runnable> checks;
+    private StompAuthChannelInterceptor interceptor;
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        jwtService = mock(JwtService.class);
+        rideTrackingService = mock(RideTrackingService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        outboundProvider = mock(ObjectProvider.class);
+        outbound = mock(MessageChannel.class);
+        inbound = mock(MessageChannel.class);
+        checks = new ArrayList<>();
+        when(outboundProvider.getObject()).thenReturn(outbound);
+        when(inbound.send(any())).thenReturn(true);
+        interceptor = new StompAuthChannelInterceptor(jwtService, rideTrackingService, eventPublisher,
+                outboundProvider, checks::add);
+    }
+
+    @Test(description = "Should authenticate a CONNECT from its bearer token")
+    public void connect_BearerToken_SetsUser() {
+        when(jwtService.authenticate("token"))
+                .thenReturn(Optional.of(new JwtService.TokenPrincipal(PASSENGER, "PASSENGER", Instant.now().plusSeconds(60))));
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setNativeHeader("Authorization", "Bearer token");
+        accessor.setLeaveMutable(true);
+
+        Message<?> result = interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), inbound);
+
+        assertThat(StompHeaderAccessor.wrap(result).getUser().getName()).isEqualTo(PASSENGER);
+    }
+
+    @Test(description = "Should not verify the token again when the handshake already authenticated the session")
+    public void connect_AuthenticatedHandshake_SkipsToken() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setNativeHeader("Authorization", "Bearer token");
+        accessor.setUser(user(PASSENGER, "PASSENGER"));
+        accessor.setLeaveMutable(true);
+
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), inbound);
+
+        verifyNoInteractions(jwtService);
+    }
+
+    @Test(description = "Should hold back a tracking subscription and pass it on once the check allows it")
+    public void subscribeTracking_Allowed_SentOnAfterCheck() {
+        Message<byte[]> subscribe = subscribe("s1", "sub-0", TRACKING, user(PASSENGER, "PASSENGER"));
+
+        assertThat(interceptor.preSend(subscribe, inbound)).isNull();
+        verifyNoInteractions(rideTrackingService, inbound);
+
+        when(rideTrackingService.canTrack(7L, PASSENGER)).thenReturn(true);
+        runChecks();
+
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(inbound).send(sent.capture());
+        assertThat(sent.getValue().getHeaders().get(StompAuthChannelInterceptor.AUTHORIZED_HEADER)).isEqualTo(true);
+        assertThat(StompHeaderAccessor.wrap(sent.getValue()).getDestination()).isEqualTo(TRACKING);
+        assertThat(interceptor.preSend(sent.getValue(), inbound)).isSameAs(sent.getValue());
+
+        ArgumentCaptor<SessionSubscribeEvent> event = ArgumentCaptor.forClass(SessionSubscribeEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getUser().getName()).isEqualTo(PASSENGER);
+        verifyNoInteractions(outbound);
+    }
+
+    @Test(description = "Should answer a denied tracking subscription with an ERROR frame")
+    public void subscribeTracking_Denied_SendsError() {
+        when(rideTrackingService.canTrack(7L, "other@test.com")).thenReturn(false);
+
+        assertThat(interceptor.preSend(subscribe("s1", "sub-0", TRACKING, user("other@test.com", "PASSENGER")), inbound)).isNull();
+        runChecks();
+
+        ArgumentCaptor<Message<?>> error = ArgumentCaptor.forClass(Message.class);
+        verify(outbound).send(error.capture());
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(error.getValue());
+        assertThat(accessor.getCommand()).isEqualTo(StompCommand.ERROR);
+        assertThat(accessor.getSessionId()).isEqualTo("s1");
+        assertThat(accessor.getMessage()).isEqualTo("Not authorized for ride tracking");
+        verify(inbound, never()).send(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test(description = "Should drop a held-back subscription the client cancelled before the check finished")
+    public void subscribeTracking_UnsubscribedMeanwhile_NotSent() {
+        when(rideTrackingService.canTrack(7L, PASSENGER)).thenReturn(true);
+        interceptor.preSend(subscribe("s1", "sub-0", TRACKING, user(PASSENGER, "PASSENGER")), inbound);
+        interceptor.preSend(subscribe("s2", "sub-0", TRACKING, user(PASSENGER, "PASSENGER")), inbound);
+
+        StompHeaderAccessor unsubscribe = StompHeaderAccessor.create(StompCommand.UNSUBSCRIBE);
+        unsubscribe.setSessionId("s1");
+        unsubscribe.setSubscriptionId("sub-0");
+        unsubscribe.setLeaveMutable(true);
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], unsubscribe.getMessageHeaders()), inbound);
+        StompHeaderAccessor disconnect = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        disconnect.setSessionId("s2");
+        disconnect.setLeaveMutable(true);
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()), inbound);
+        runChecks();
+
+        verify(inbound, never()).send(any());
+        verifyNoInteractions(eventPublisher, outbound);
+    }
+
+    @Test(description = "Should let an admin subscribe straight away from the token's role")
+    public void subscribeTracking_Admin_NoCheck() {
+        Message<byte[]> subscribe = subscribe("s1", "sub-0", TRACKING, user("admin@test.com", "ADMIN"));
+
+        assertThat(interceptor.preSend(subscribe, inbound)).isSameAs(subscribe);
+        assertThat(checks).isEmpty();
+        verifyNoInteractions(rideTrackingService);
+    }
+
+    @Test(description = "Should still reject another user's notification topic on the inbound thread")
+    public void subscribeNotifications_OtherUser_Rejected() {
+        Message<byte[]> own = subscribe("s1", "sub-1", "/topic/notifications/" + PASSENGER, user(PASSENGER, "PASSENGER"));
+        Message<byte[]> other = subscribe("s1", "sub-2", "/topic/notifications/other@test.com", user(PASSENGER, "PASSENGER"));
+
+        assertThat(interceptor.preSend(own, inbound)).isSameAs(own);
+        assertThatThrownBy(() -> interceptor.preSend(other, inbound))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unauthorized notification subscription");
+        assertThat(checks).isEmpty();
+    }
+
+    private void runChecks() {
+        List<Runnable> queued = List.copyOf(checks);
+        checks.clear();
+        queued.forEach(Runnable::run);
+    }
+
+    private static Message<byte[]> subscribe(String sessionId, String subscriptionId, String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        accessor.setUser(user);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Principal user(String email, String role) {
+        return new UsernamePasswordAuthenticationToken(email, null, List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+    }
+}
@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Builds the road graph file used by the local routing engine (app.routing.engine=local).
+#
+# Usage: scripts/build-road-graph.sh <extract.osm.pbf|extract.osm|extract.osm.gz> <output.bcrg>
+#
+# PBF extracts (e.g. from https://download.geofabrik.de) need osmium-tool, which keeps only the
+# highways and converts them to OSM XML for the converter. Run from the backend directory after
+# "mvn compile" so the converter classes exist.
+set -euo pipefail
+
+if [ "$#" -ne 2 ]; then
+  echo "Usage: $0 <extract.osm.pbf|extract.osm|extract.osm.gz> <output.bcrg>" >&2
+  exit 2
+fi
+
+input="$1"
+output="$2"
+classes="$(dirname "$0")/../blackcar-core/target/classes"
+
+if [ ! -f "$classes/com/pekara/service/OsmRoadGraphConverter.class" ]; then
+  echo "Converter not compiled, run 'mvn compile' in the backend directory first" >&2
+  exit 1
+fi
+
+case "$input" in
+  *.pbf)
+    command -v osmium >/dev/null || { echo "osmium-tool is required to read PBF extracts" >&2; exit 1; }
+    tmp="$(mktemp -d)"
+    trap 'rm -rf "$tmp"' EXIT
+    osmium tags-filter "$input" w/highway -o "$tmp/highways.osm.pbf"
+    osmium cat "$tmp/highways.osm.pbf" -o "$tmp/highways.osm.gz"
+    input="$tmp/highways.osm.gz"
+    ;;
+esac
+
+java -Xmx2g -cp "$classes" com.pekara.service.OsmRoadGraphConverter "$input" "$output"
@@ -9,6 +9,7 @@ import com.example.blackcar.data.api.model.WebChatMessage;
 import com.example.blackcar.data.api.model.WebRideTrackingResponse;
 import com.example.blackcar.data.session.SessionManager;
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -28,6 +29,7 @@ public class ChatRealtimeService {
 
     private final ConcurrentHashMap<Long, MessageListener> conversationListeners = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Long, TrackingListener> trackingListeners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, JsonObject> trackingStates = new ConcurrentHashMap<>();
     private MessageListener adminListener;
 
     public ChatRealtimeService(Context context) {
@@ -66,7 +68,9 @@ public class ChatRealtimeService {
         stompClient.subscribe(topic, payload -> {
             Log.d(TAG, "Received tracking payload for ride " + rideId + ": " + payload);
             try {
-                WebRideTrackingResponse tracking = gson.fromJson(payload, WebRideTrackingResponse.class);
+                JsonObject state = mergeTrackingFrame(rideId, gson.fromJson(payload, JsonObject.class));
+                if (state == null) return;
+                WebRideTrackingResponse tracking = gson.fromJson(state, WebRideTrackingResponse.class);
                 mainHandler.post(() -> {
                     TrackingListener l = trackingListeners.get(rideId);
                     if (l != null) l.onTrackingUpdate(tracking);
@@ -77,6 +81,23 @@ public class ChatRealtimeService {
         });
     }
 
+    /**
+     * Tracking frames are FULL snapshots or DELTAs carrying only the fields that changed; returns
+     * the merged state, or null for a delta that arrived before the first full frame.
+     */
+    private JsonObject mergeTrackingFrame(Long rideId, JsonObject frame) {
+        if (frame.has("frame") && "DELTA".equals(frame.get("frame").getAsString())) {
+            JsonObject state = trackingStates.get(rideId);
+            if (state == null) return null;
+            for (String key : frame.keySet()) {
+                state.add(key, frame.get(key));
+            }
+            return state.deepCopy();
+        }
+        trackingStates.put(rideId, frame);
+        return frame.deepCopy();
+    }
+
     public void sendMessage(WebChatMessage message) {
         stompClient.send("/app/chat.send", message);
     }
@@ -85,6 +106,7 @@ public class ChatRealtimeService {
         stompClient.disconnect();
         conversationListeners.clear();
         trackingListeners.clear();
+        trackingStates.clear();
         adminListener = null;
     }
 }
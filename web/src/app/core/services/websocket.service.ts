@@ -1,10 +1,11 @@
 import { Injectable, inject, OnDestroy } from '@angular/core';
 import { Observable, Subject, BehaviorSubject, timer } from 'rxjs';
-import { filter, takeUntil } from 'rxjs/operators';
+import { filter, scan, takeUntil } from 'rxjs/operators';
 import { Client, IMessage, StompSubscription } from '@stomp/stompjs';
 import { EnvironmentService } from './environment.service';
 
 export interface RideTrackingUpdate {
+  frame?: 'FULL' | 'DELTA'; // a DELTA carries only the fields that changed
   rideId: number;
   vehicleLatitude: number;
   vehicleLongitude: number;
@@ -118,7 +119,12 @@ export class WebSocketService implements OnDestroy {
 
   subscribeToRideTracking(rideId: number): Observable<RideTrackingUpdate> {
     const topic = `/topic/rides/${rideId}/tracking`;
-    return this.subscribeTo<RideTrackingUpdate>(topic);
+    // Merge deltas into the last full frame; a delta before the first full frame has nothing to apply to.
+    return this.subscribeTo<RideTrackingUpdate>(topic).pipe(
+      scan((state: RideTrackingUpdate | null, frame: RideTrackingUpdate) =>
+        frame.frame === 'DELTA' ? (state ? { ...state, ...frame } : null) : frame, null),
+      filter((state): state is RideTrackingUpdate => state !== null)
+    );
   }
 
   unsubscribeFromRideTracking(rideId: number): void {